@@ -0,0 +1,75 @@
+package com.zs.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 对比两份JMH JSON结果（基线 vs 当前），输出每个基准的得分与分配率变化
+ * 用法：BenchmarkDiff benchmarks/baseline.json target/jmh-result.json
+ */
+public final class BenchmarkDiff {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private BenchmarkDiff() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2) {
+            System.err.println("用法: BenchmarkDiff <baseline.json> <current.json>");
+            System.exit(1);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = index(mapper.readTree(new File(args[0])));
+        Map<String, JsonNode> current = index(mapper.readTree(new File(args[1])));
+
+        System.out.printf("%-70s %14s %14s %9s %14s %14s %9s%n",
+                "benchmark", "base", "current", "chg%", "base B/op", "cur B/op", "chg%");
+
+        for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+            JsonNode cur = entry.getValue();
+            JsonNode base = baseline.get(entry.getKey());
+
+            double curScore = cur.path("primaryMetric").path("score").asDouble();
+            double curAlloc = cur.path("secondaryMetrics").path(ALLOC_METRIC).path("score").asDouble(Double.NaN);
+            String unit = cur.path("primaryMetric").path("scoreUnit").asText();
+
+            if (base == null) {
+                System.out.printf("%-70s %14s %14.3f %9s %14s %14.1f %9s  (%s, new)%n",
+                        entry.getKey(), "-", curScore, "-", "-", curAlloc, "-", unit);
+                continue;
+            }
+
+            double baseScore = base.path("primaryMetric").path("score").asDouble();
+            double baseAlloc = base.path("secondaryMetrics").path(ALLOC_METRIC).path("score").asDouble(Double.NaN);
+
+            System.out.printf("%-70s %14.3f %14.3f %+8.1f%% %14.1f %14.1f %+8.1f%%  (%s)%n",
+                    entry.getKey(), baseScore, curScore, change(baseScore, curScore),
+                    baseAlloc, curAlloc, change(baseAlloc, curAlloc), unit);
+        }
+    }
+
+    private static Map<String, JsonNode> index(JsonNode results) {
+        Map<String, JsonNode> indexed = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+            JsonNode params = result.path("params");
+            params.fieldNames().forEachRemaining(name ->
+                    key.append(':').append(name).append('=').append(params.path(name).asText()));
+            indexed.put(key.toString(), result);
+        }
+        return indexed;
+    }
+
+    private static double change(double base, double current) {
+        if (Double.isNaN(base) || Double.isNaN(current) || base == 0) {
+            return Double.NaN;
+        }
+        return (current - base) / base * 100.0;
+    }
+}
@@ -0,0 +1,117 @@
+package com.zs.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试语料生成器
+ * 按大学生日常聊天的句式拼装中文消息：覆盖考试、想家、社交、恋爱、学习等场景，
+ * 混入情感词与"我叫/我喜欢/我上周"等记忆触发句式，长短消息按比例混合。
+ * 使用固定种子，保证不同版本之间的基准结果可比。
+ */
+public final class ChineseCorpus {
+
+    public static final long DEFAULT_SEED = 20251201L;
+
+    private static final String[] OPENERS = {
+            "", "", "", "唉，", "嗯嗯，", "哈哈，", "说真的，", "跟你说，", "爱莉希雅，", "今天", "最近", "昨天晚上"
+    };
+
+    private static final String[] SCENARIOS = {
+            "期末考试还有三天，高数还没复习完",
+            "下周就要答辩了，论文还差一章没写",
+            "这次测验又没及格，可能要补考",
+            "熬夜刷题库到两点，绩点还是上不去",
+            "好想家啊，想吃妈妈做的红烧肉",
+            "国庆不能回家，只能跟爸爸视频",
+            "离家一千多公里，春节才能团聚",
+            "室友总是很晚才睡，聊天声音很大",
+            "社团聚会的时候特别尴尬，不知道跟陌生人聊什么",
+            "新同学都挺好相处的，就是我有点内向",
+            "男朋友最近不怎么回消息，感觉要分手了",
+            "昨天跟女朋友吵架了，今天又和好了",
+            "异地恋真的好辛苦，每天只能打电话",
+            "图书馆自习了一整天，实验报告还没写完",
+            "课程作业太多了，预习复习都顾不上",
+            "今天食堂的饭还不错，下午去操场跑了五公里",
+            "周末打算去看电影，顺便逛逛街"
+    };
+
+    private static final String[] MEMORY_TRIGGERS = {
+            "我叫小明，是计算机专业大二的学生",
+            "我是江苏人，我来自苏州",
+            "我喜欢吃火锅，尤其是麻辣的",
+            "我爱好打羽毛球，每周都会去两次",
+            "我不喜欢早起，早八的课简直要命",
+            "我上周去面试了一家互联网公司",
+            "我去年获奖了，是数学建模比赛的二等奖",
+            "我经常熬夜，第二天就没精神",
+            "我每次考试前都会特别紧张",
+            "我习惯睡前听歌放松一下"
+    };
+
+    private static final String[] EMOTIONS = {
+            "好开心", "真的很高兴", "有点难过", "特别伤心", "好烦啊", "气死我了", "压力好大",
+            "有点焦虑", "很紧张", "挺失望的", "感觉好孤独", "还行吧", "一般般", "超级幸福", "有点崩溃"
+    };
+
+    private static final String[] CLOSINGS = {
+            "。", "！", "…", "？", "~", "。。。", "！！", "呢。", "啊。", "吧？"
+    };
+
+    private ChineseCorpus() {
+    }
+
+    /**
+     * 生成指定数量的消息（默认种子）
+     */
+    public static List<String> generate(int count) {
+        return generate(count, DEFAULT_SEED);
+    }
+
+    /**
+     * 生成指定数量的消息
+     * 长度分布约为：短句40%、中句40%、长段落20%
+     */
+    public static List<String> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<String> messages = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            int shape = random.nextInt(10);
+            int clauses = shape < 4 ? 1 : shape < 8 ? 2 : 4 + random.nextInt(3);
+            messages.add(buildMessage(random, clauses));
+        }
+        return messages;
+    }
+
+    private static String buildMessage(Random random, int clauses) {
+        StringBuilder sb = new StringBuilder(clauses * 24);
+        sb.append(pick(random, OPENERS));
+
+        for (int c = 0; c < clauses; c++) {
+            if (c > 0) {
+                sb.append(random.nextBoolean() ? "，" : "。");
+            }
+            int kind = random.nextInt(10);
+            if (kind < 5) {
+                sb.append(pick(random, SCENARIOS));
+            } else if (kind < 8) {
+                sb.append(pick(random, MEMORY_TRIGGERS));
+            } else {
+                sb.append(pick(random, EMOTIONS));
+            }
+        }
+
+        if (random.nextInt(3) > 0) {
+            sb.append("，").append(pick(random, EMOTIONS));
+        }
+        sb.append(pick(random, CLOSINGS));
+        return sb.toString();
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,122 @@
+package com.zs.config;
+
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.entity.MemoryFragments;
+import com.zs.entity.Users;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.extractor.KeywordEmotionExtractor;
+import com.zs.service.redis.CompactValueSerializer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis值序列化基准：按每轮对话都会读写的三类热点值（记忆列表、情感历史、画像）测量编解码开销
+ * codec=json 为原GenericJackson2JsonRedisSerializer，codec=compact 为CompactValueSerializer，启动时打印每个键的字节数
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedisSerializerBenchmark {
+
+    @Param({"memoryList", "emotionHistory", "profile"})
+    public String payload;
+
+    @Param({"json", "compact"})
+    public String codec;
+
+    private RedisSerializer<Object> serializer;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        GenericJackson2JsonRedisSerializer json =
+                new GenericJackson2JsonRedisSerializer(new RedisMemoryConfig().redisObjectMapper());
+        serializer = "compact".equals(codec)
+                ? new CompactValueSerializer(json, CompactValueSerializer.DEFAULT_COMPRESS_THRESHOLD) : json;
+
+        List<String> corpus = ChineseCorpus.generate(128);
+        value = switch (payload) {
+            case "memoryList" -> buildMemoryList(corpus);
+            case "emotionHistory" -> buildEmotionHistory(corpus);
+            default -> buildProfile();
+        };
+        encoded = serializer.serialize(value);
+        System.out.printf("%n[%s/%s] encoded size: %d bytes (json: %d bytes)%n",
+                payload, codec, encoded.length, json.serialize(value).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(value);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return serializer.deserialize(encoded);
+    }
+
+    private static List<MemoryFragments> buildMemoryList(List<String> corpus) {
+        List<MemoryFragments> memories = new ArrayList<>();
+        Date now = new Date();
+        for (int i = 0; i < 30; i++) {
+            MemoryFragments memory = new MemoryFragments();
+            memory.setId((long) i);
+            memory.setUserId(1L);
+            memory.setMemoryText(corpus.get(i));
+            memory.setMemoryType(i % 3 == 0 ? "fact" : i % 3 == 1 ? "preference" : "important_event");
+            memory.setImportanceScore(BigDecimal.valueOf(0.5 + (i % 5) * 0.1));
+            memory.setAccessCount(i);
+            memory.setLastAccessed(now);
+            memory.setRelatedKeywords("[\"考试\",\"期末\",\"复习\"]");
+            memory.setSourceConversationId(1000L + i);
+            memory.setCreatedAt(now);
+            memory.setUpdatedAt(now);
+            memories.add(memory);
+        }
+        return memories;
+    }
+
+    private static List<EmotionAnalysisDTO> buildEmotionHistory(List<String> corpus) {
+        KeywordEmotionExtractor extractor = new KeywordEmotionExtractor();
+        extractor.init();
+        Users user = new Users();
+        user.setId(1L);
+        user.setUsername("benchmark");
+
+        List<EmotionAnalysisDTO> history = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            history.add(extractor.analyze(corpus.get(i), 1L, user));
+        }
+        return history;
+    }
+
+    private static Map<String, Object> buildProfile() {
+        Map<String, Object> profile = new HashMap<>();
+        profile.put("userId", 1L);
+        profile.put("createdDate", "2025-12-01");
+        profile.put("lastUpdated", System.currentTimeMillis());
+        profile.put("emotionStats", new HashMap<>(Map.of(
+                "HAPPY", 42, "SAD", 17, "ANXIOUS", 23, "ANGRY", 5, "NEUTRAL", 61, "STRONG_SAD", 4)));
+        profile.put("topicPreferences", new HashMap<>(Map.of(
+                "study", 55, "life", 40, "emotion", 33, "entertainment", 12)));
+        profile.put("behaviorPatterns", new HashMap<>(Map.of(
+                "activeTimes", new ArrayList<>(List.of("08:00", "12:00", "21:00", "23:00")),
+                "responseStyle", "gentle",
+                "conversationLengthAvg", 37)));
+        profile.put("emotionalUnderstandingScore", 0.6);
+        profile.put("understandingLevels", new HashMap<>(Map.of(
+                "basic_facts", 0.7, "emotional_patterns", 0.5, "deep_motivations", 0.3,
+                "unspoken_needs", 0.0, "future_aspirations", 0.0)));
+        profile.put("unlockedInsights", new ArrayList<>());
+        return profile;
+    }
+}
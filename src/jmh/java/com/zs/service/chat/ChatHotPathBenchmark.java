@@ -0,0 +1,112 @@
+package com.zs.service.chat;
+
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.entity.MemoryFragments;
+import com.zs.entity.Users;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.extractor.KeywordEmotionExtractor;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天热路径基准：超级prompt构建与流式分句
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChatHotPathBenchmark {
+
+    private ChatBrainService chatBrainService;
+    private StreamingChatService streamingChatService;
+
+    private List<String> corpus;
+    private List<Map<String, Object>> contexts;
+    private List<String> streamBuffers;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 只使用纯计算方法，不需要任何外部依赖
+        chatBrainService = new ChatBrainService(null, null, null, null, null, null);
+        streamingChatService = new StreamingChatService(null, null, null, null, null);
+
+        KeywordEmotionExtractor extractor = new KeywordEmotionExtractor();
+        extractor.init();
+
+        Users user = new Users();
+        user.setId(1L);
+        user.setUsername("benchmark");
+
+        corpus = ChineseCorpus.generate(256);
+        contexts = new ArrayList<>(corpus.size());
+        streamBuffers = new ArrayList<>(corpus.size());
+
+        for (int i = 0; i < corpus.size(); i++) {
+            String message = corpus.get(i);
+            EmotionAnalysisDTO emotion = extractor.analyze(message, 1L, user);
+            contexts.add(buildContext(emotion, i));
+
+            // 模拟流式输出累积出的未分句缓冲区（含中英文标点）
+            streamBuffers.add(message + corpus.get((i + 1) % corpus.size()));
+        }
+    }
+
+    @Benchmark
+    public String buildSuperPrompt() {
+        int index = cursor++ & 255;
+        return chatBrainService.buildSuperPrompt(1L, corpus.get(index), contexts.get(index));
+    }
+
+    @Benchmark
+    public int findSentenceEnd() {
+        return streamingChatService.findSentenceEnd(streamBuffers.get(cursor++ & 255));
+    }
+
+    private Map<String, Object> buildContext(EmotionAnalysisDTO emotion, int seed) {
+        Map<String, Object> context = new HashMap<>();
+        context.put("emotion", emotion);
+
+        Map<String, Object> studentInfo = new HashMap<>();
+        studentInfo.put("university", "测试大学");
+        studentInfo.put("major", "计算机科学");
+        studentInfo.put("grade", "大二");
+
+        Map<String, Object> personality = new HashMap<>();
+        personality.put("type", "balanced");
+
+        Map<String, Object> userInfo = new HashMap<>();
+        userInfo.put("exists", true);
+        userInfo.put("studentInfo", studentInfo);
+        userInfo.put("personality", personality);
+        context.put("userInfo", userInfo);
+
+        List<MemoryFragments> memories = new ArrayList<>();
+        for (int m = 0; m < 3; m++) {
+            MemoryFragments memory = new MemoryFragments();
+            memory.setId((long) (seed * 3 + m));
+            memory.setUserId(1L);
+            memory.setMemoryText(corpus.get((seed + m + 7) % corpus.size()));
+            memory.setMemoryType("fact");
+            memory.setImportanceScore(BigDecimal.valueOf(0.7));
+            memories.add(memory);
+        }
+        context.put("relevantMemories", memories);
+
+        StringBuilder recent = new StringBuilder("【最近对话历史】\n");
+        for (int r = 0; r < 6; r++) {
+            recent.append(r % 2 == 0 ? "用户: " : "助手: ")
+                    .append(corpus.get((seed + r + 13) % corpus.size())).append("\n");
+        }
+        context.put("recentConversations", recent.toString());
+        return context;
+    }
+}
@@ -0,0 +1,223 @@
+package com.zs.service.emotion.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.config.RedisMemoryConfig;
+import com.zs.entity.Users;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.dto.UserEmotionSnapshot;
+import com.zs.service.emotion.extractor.KeywordEmotionExtractor;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每轮对话情感缓存写入基准：逐条命令（原实现）与单管道 recordTurn 的延迟和网络往返次数
+ * 需要可访问的Redis：-p redisHost=... -p redisPort=...
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmotionCacheWriteBenchmark {
+
+    @Param({"legacy", "pipelined"})
+    public String mode;
+
+    @Param({"localhost"})
+    public String redisHost;
+
+    @Param({"6379"})
+    public int redisPort;
+
+    private static final long USER_ID = 987_654_321L;
+
+    private JedisConnectionFactory factory;
+    private RedisTemplate<String, Object> redisTemplate;
+    private EmotionCacheManager cacheManager;
+    private List<EmotionAnalysisDTO> emotions;
+    private int cursor;
+
+    // 计数：非管道模式下每条命令一次往返，管道模式下每次closePipeline一次往返
+    private long roundTrips;
+    private long turns;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        factory = new JedisConnectionFactory(new RedisStandaloneConfiguration(redisHost, redisPort));
+        factory.afterPropertiesSet();
+        factory.start();
+
+        ObjectMapper objectMapper = new RedisMemoryConfig().redisObjectMapper();
+        redisTemplate = new RedisMemoryConfig().redisTemplate(counting(factory), objectMapper);
+        // 热门关键词只在本地累加、定时合并，不计入单轮往返
+        cacheManager = new EmotionCacheManager(redisTemplate, new RedisCappedList(redisTemplate), objectMapper,
+                new TrendingKeywords(redisTemplate));
+
+        KeywordEmotionExtractor extractor = new KeywordEmotionExtractor();
+        extractor.init();
+        Users user = new Users();
+        user.setId(USER_ID);
+        user.setUsername("benchmark");
+
+        emotions = new ArrayList<>();
+        for (String message : ChineseCorpus.generate(256)) {
+            emotions.add(extractor.analyze(message, USER_ID, user));
+        }
+
+        clearKeys();
+        // 预热到稳定长度：趋势100条、历史50条
+        for (int i = 0; i < 100; i++) {
+            writeTurn();
+        }
+        roundTrips = 0;
+        turns = 0;
+    }
+
+    @Benchmark
+    public void writeTurn() {
+        EmotionAnalysisDTO emotion = emotions.get(cursor++ & 255);
+        if ("legacy".equals(mode)) {
+            legacyTurn(emotion);
+        } else {
+            cacheManager.recordTurn(USER_ID, emotion);
+        }
+        turns++;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.printf("%n[%s] round trips per turn: %.1f%n", mode, turns > 0 ? (double) roundTrips / turns : 0.0);
+        clearKeys();
+        factory.destroy();
+    }
+
+    /**
+     * 原实现：当前情感 SET+EXPIRE，趋势与历史 GET+SET+EXPIRE，关键词逐个 HINCRBY 后 EXPIRE
+     */
+    @SuppressWarnings("unchecked")
+    private void legacyTurn(EmotionAnalysisDTO emotion) {
+        String prefix = "emotion:user:" + USER_ID + ":legacy:";
+
+        String currentKey = prefix + "current";
+        UserEmotionSnapshot snapshot = UserEmotionSnapshot.builder()
+                .userId(USER_ID)
+                .primaryEmotion(emotion.getPrimaryEmotion())
+                .intensity(emotion.getIntensity())
+                .confidence(emotion.getConfidence())
+                .keywords(emotion.getEmotionKeywords())
+                .lifeScenario(emotion.getLifeScenario())
+                .timestamp(LocalDateTime.now())
+                .build();
+        redisTemplate.opsForValue().set(currentKey, snapshot);
+        redisTemplate.expire(currentKey, 60, TimeUnit.MINUTES);
+
+        String trendKey = prefix + "trend";
+        List<Map<String, Object>> trend = (List<Map<String, Object>>) redisTemplate.opsForValue().get(trendKey);
+        if (trend == null) {
+            trend = new ArrayList<>();
+        }
+        Map<String, Object> point = new HashMap<>();
+        point.put("timestamp", System.currentTimeMillis());
+        point.put("emotion", emotion.getPrimaryEmotion());
+        point.put("intensity", emotion.getIntensity());
+        point.put("scenario", emotion.getLifeScenario());
+        point.put("keywords", emotion.getEmotionKeywords());
+        trend.add(point);
+        if (trend.size() > 100) {
+            trend = trend.subList(trend.size() - 100, trend.size());
+        }
+        redisTemplate.opsForValue().set(trendKey, trend);
+        redisTemplate.expire(trendKey, 24 * 60, TimeUnit.MINUTES);
+
+        String keywordKey = prefix + "keywords";
+        for (String keyword : emotion.getEmotionKeywords()) {
+            redisTemplate.opsForHash().increment(keywordKey, keyword, 1);
+        }
+        redisTemplate.expire(keywordKey, 7 * 24 * 60, TimeUnit.MINUTES);
+
+        String historyKey = prefix + "history";
+        List<Object> history = (List<Object>) redisTemplate.opsForValue().get(historyKey);
+        if (history == null) {
+            history = new ArrayList<>();
+        }
+        history.add(emotion);
+        if (history.size() > 50) {
+            history = history.subList(history.size() - 50, history.size());
+        }
+        redisTemplate.opsForValue().set(historyKey, history);
+        redisTemplate.expire(historyKey, 24 * 60, TimeUnit.MINUTES);
+    }
+
+    private void clearKeys() {
+        Set<String> keys = redisTemplate.keys("emotion:user:" + USER_ID + ":*");
+        if (keys != null && !keys.isEmpty()) {
+            redisTemplate.delete(keys);
+        }
+    }
+
+    // ========== 往返计数 ==========
+
+    private static final Set<String> NON_COMMANDS = Set.of(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "openPipeline",
+            "getSentinelConnection", "toString", "hashCode", "equals");
+
+    private RedisConnectionFactory counting(RedisConnectionFactory target) {
+        return (RedisConnectionFactory) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnectionFactory.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(target, method, args);
+                    return result instanceof RedisConnection connection ? counting(connection) : result;
+                });
+    }
+
+    private RedisConnection counting(RedisConnection target) {
+        return (RedisConnection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RedisConnection.class},
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    Object result = invoke(target, method, args);
+                    if (name.equals("closePipeline")) {
+                        roundTrips++;
+                    } else if (name.endsWith("Commands") && method.getParameterCount() == 0
+                            && method.getReturnType().isInterface()) {
+                        // xxxCommands() 返回的命令对象同样计数
+                        return commandsProxy(target, method.getReturnType(), result);
+                    } else if (!NON_COMMANDS.contains(name) && !target.isPipelined() && !target.isQueueing()) {
+                        roundTrips++;
+                    }
+                    return result;
+                });
+    }
+
+    private Object commandsProxy(RedisConnection connection, Class<?> type, Object target) {
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    if (!connection.isPipelined() && !connection.isQueueing()
+                            && method.getDeclaringClass() != Object.class) {
+                        roundTrips++;
+                    }
+                    return invoke(target, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.zs.service.emotion.extractor;
+
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.entity.Users;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.nlp.ChineseSegmenter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 关键词情感分析热路径基准：每次调用分析语料中的下一条消息
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KeywordEmotionExtractorBenchmark {
+
+    private KeywordEmotionExtractor extractor;
+    private Users user;
+    private List<String> corpus;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        extractor = new KeywordEmotionExtractor();
+        extractor.setChineseSegmenter(new ChineseSegmenter());
+        extractor.init();
+
+        user = new Users();
+        user.setId(1L);
+        user.setUsername("benchmark");
+        user.setPersonalityType("balanced");
+        user.setStudentId("20230001");
+        user.setUniversity("测试大学");
+        user.setMajor("计算机科学");
+        user.setGrade("大二");
+
+        corpus = ChineseCorpus.generate(1024);
+    }
+
+    @Benchmark
+    public EmotionAnalysisDTO analyze() {
+        String message = corpus.get(cursor++ & 1023);
+        return extractor.analyze(message, 1L, user);
+    }
+}
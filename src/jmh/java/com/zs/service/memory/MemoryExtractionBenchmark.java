@@ -0,0 +1,42 @@
+package com.zs.service.memory;
+
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.service.nlp.ChineseSegmenter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记忆提取热路径基准：候选提取与关键词提取
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryExtractionBenchmark {
+
+    private MemoryExtractionService service;
+    private List<String> corpus;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new MemoryExtractionService();
+        service.setChineseSegmenter(new ChineseSegmenter());
+        service.init();
+        corpus = ChineseCorpus.generate(1024);
+    }
+
+    @Benchmark
+    public List<?> extractMemoryCandidates() {
+        return service.extractMemoryCandidates(corpus.get(cursor++ & 1023), 1L);
+    }
+
+    @Benchmark
+    public List<String> extractKeywords() {
+        return service.extractKeywords(corpus.get(cursor++ & 1023), MemoryExtractionService.MemoryType.PREFERENCE);
+    }
+}
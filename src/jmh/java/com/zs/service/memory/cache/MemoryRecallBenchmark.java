@@ -0,0 +1,149 @@
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.benchmark.ChineseCorpus;
+import com.zs.entity.MemoryFragments;
+import com.zs.service.memory.embedding.EmbeddingProvider;
+import com.zs.service.memory.embedding.HashingEmbeddingProvider;
+import com.zs.service.nlp.ChineseSegmenter;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记忆召回基准：关键词倒排索引 vs 向量索引（本地散列向量，int8量化扁平索引）
+ * 每个用户50条活跃记忆（按主题标注的记忆 + 语料中的无关记忆），查询是同主题但措辞不同的消息。
+ * 启动时打印各召回方式的 recall@5（命中的同主题记忆 / min(5, 同主题记忆数)）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryRecallBenchmark {
+
+    private static final int ACTIVE_MEMORIES = 50;
+    private static final int K = 5;
+    private static final double KEYWORD_MIN_RELEVANCE = 0.2;
+    private static final float MIN_SIMILARITY = 0.12f;
+
+    // {主题, 记忆文本, 提取出的关键词（逗号分隔）}
+    private static final String[][] MEMORIES = {
+            {"exam", "我期末高数挂科了，下学期要补考", "期末,高数,补考"},
+            {"exam", "我每次考试前都会特别紧张", "考试,紧张"},
+            {"exam", "我四级考了两次才过", "四级"},
+            {"home", "我是江苏人，我来自苏州", "家乡,苏州,江苏"},
+            {"home", "我最想吃妈妈做的红烧肉", "红烧肉,妈妈"},
+            {"love", "我男朋友在外地读研，我们是异地恋", "男朋友,异地恋"},
+            {"love", "我和男朋友上个月刚过了纪念日", "纪念日,男朋友"},
+            {"sport", "我爱好打羽毛球，每周都会去两次", "爱好,羽毛球"},
+            {"food", "我喜欢吃火锅，尤其是麻辣的", "喜欢,火锅,麻辣"},
+            {"sleep", "我经常熬夜，第二天就没精神", "熬夜,精神"},
+            {"sleep", "我不喜欢早起，早八的课简直要命", "不喜欢,早起,早八"},
+            {"job", "我上周去面试了一家互联网公司", "面试,互联网"},
+            {"music", "我习惯睡前听歌放松一下", "习惯,听歌"}
+    };
+
+    // {主题, 查询消息}
+    private static final String[][] QUERIES = {
+            {"exam", "明天就要考试了，复习不完好慌"},
+            {"exam", "高数补考到底能不能过啊"},
+            {"exam", "这学期又有科目挂了"},
+            {"home", "好想回家，想念苏州"},
+            {"home", "国庆回不了家，好想吃家里的菜"},
+            {"love", "他又一整天不回我消息"},
+            {"love", "异地真的好辛苦，想见他"},
+            {"sport", "今天去球馆打球了，累死"},
+            {"food", "晚上想去吃麻辣烫"},
+            {"sleep", "又熬到三点才睡着"},
+            {"sleep", "早上起不来，又迟到了"},
+            {"job", "实习的面试官问了好多算法题"},
+            {"music", "最近单曲循环一首歌"}
+    };
+
+    private MemoryKeywordIndex.UserIndex keywordIndex;
+    private MemoryVectorIndex.UserVectors vectorIndex;
+    private EmbeddingProvider embedder;
+    private List<String> queries;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<MemoryFragments> memories = new ArrayList<>(ACTIVE_MEMORIES);
+        Map<Long, String> topics = new HashMap<>();
+        Date now = new Date();
+        for (int i = 0; i < MEMORIES.length; i++) {
+            String keywords = "[\"" + MEMORIES[i][2].replace(",", "\",\"") + "\"]";
+            memories.add(memory(i, MEMORIES[i][1], keywords, 0.6 + (i % 4) * 0.1, now));
+            topics.put((long) i, MEMORIES[i][0]);
+        }
+        // 其余为无关记忆，关键词由正文分词得到
+        List<String> filler = ChineseCorpus.generate(ACTIVE_MEMORIES);
+        for (int i = MEMORIES.length; i < ACTIVE_MEMORIES; i++) {
+            memories.add(memory(i, filler.get(i), null, 0.5 + (i % 5) * 0.1, now));
+        }
+
+        keywordIndex = new MemoryKeywordIndex(null, new ObjectMapper(), new ChineseSegmenter()).build(memories);
+        embedder = new HashingEmbeddingProvider(256);
+        List<float[]> vectors = new ArrayList<>(memories.size());
+        for (MemoryFragments memory : memories) {
+            vectors.add(embedder.embed(memory.getMemoryText()));
+        }
+        vectorIndex = MemoryVectorIndex.UserVectors.EMPTY.with(memories, vectors);
+
+        queries = new ArrayList<>();
+        double keywordRecall = 0;
+        double vectorRecall = 0;
+        double hybridRecall = 0;
+        for (String[] query : QUERIES) {
+            queries.add(query[1]);
+            long relevant = topics.values().stream().filter(query[0]::equals).count();
+            List<MemoryFragments> byKeyword = keywordIndex.search(query[1].toLowerCase(), K, KEYWORD_MIN_RELEVANCE);
+            List<MemoryFragments> byVector = vectorIndex.search(embedder.embed(query[1]), K, MIN_SIMILARITY);
+            keywordRecall += hits(byKeyword, topics, query[0]) / (double) Math.min(K, relevant);
+            vectorRecall += hits(byVector, topics, query[0]) / (double) Math.min(K, relevant);
+            hybridRecall += hits(MemoryVectorIndex.fill(byKeyword, byVector, K), topics, query[0])
+                    / (double) Math.min(K, relevant);
+        }
+        System.out.printf("%nrecall@%d over %d queries, %d memories: keyword=%.2f, vector=%.2f, hybrid=%.2f%n",
+                K, QUERIES.length, memories.size(), keywordRecall / QUERIES.length,
+                vectorRecall / QUERIES.length, hybridRecall / QUERIES.length);
+    }
+
+    @Benchmark
+    public List<MemoryFragments> keyword() {
+        return keywordIndex.search(queries.get(cursor++ % queries.size()).toLowerCase(), K, KEYWORD_MIN_RELEVANCE);
+    }
+
+    /**
+     * 含查询向量计算
+     */
+    @Benchmark
+    public List<MemoryFragments> vector() {
+        return vectorIndex.search(embedder.embed(queries.get(cursor++ % queries.size())), K, MIN_SIMILARITY);
+    }
+
+    private static int hits(List<MemoryFragments> recalled, Map<Long, String> topics, String topic) {
+        int hits = 0;
+        for (MemoryFragments memory : recalled) {
+            if (topic.equals(topics.get(memory.getId()))) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    private static MemoryFragments memory(long id, String text, String keywords, double importance, Date now) {
+        MemoryFragments memory = new MemoryFragments();
+        memory.setId(id);
+        memory.setUserId(1L);
+        memory.setMemoryText(text);
+        memory.setRelatedKeywords(keywords);
+        memory.setImportanceScore(BigDecimal.valueOf(Math.min(importance, 1.0)));
+        memory.setLastAccessed(now);
+        return memory;
+    }
+}
@@ -0,0 +1,66 @@
+package com.zs.service.nlp;
+
+import com.zs.benchmark.ChineseCorpus;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分词吞吐基准，得分单位为字符/秒
+ * 每次调用逐条处理一批语料消息（与线上按消息调用一致），消息总长固定为CORPUS_CHARS，
+ * 由@OperationsPerInvocation按字符数计操作数；词典为内置词表
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChineseSegmenterBenchmark {
+
+    private static final int CORPUS_CHARS = 4096;
+
+    private ChineseSegmenter segmenter;
+    private List<String> messages;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        segmenter = new ChineseSegmenter();
+
+        // 截断最后一条消息，使总字符数恰为CORPUS_CHARS
+        messages = new ArrayList<>();
+        int chars = 0;
+        for (String message : ChineseCorpus.generate(1024)) {
+            String taken = message.substring(0, Math.min(message.length(), CORPUS_CHARS - chars));
+            messages.add(taken);
+            chars += taken.length();
+            if (chars == CORPUS_CHARS) {
+                break;
+            }
+        }
+        if (chars != CORPUS_CHARS) {
+            throw new IllegalStateException("语料不足" + CORPUS_CHARS + "字符: " + chars);
+        }
+        System.out.printf("%ndictionary: %d words, %d messages, %d chars%n",
+                segmenter.dictionarySize(), messages.size(), chars);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_CHARS)
+    public void segment(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(segmenter.segment(message));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_CHARS)
+    public void keywords(Blackhole blackhole) {
+        for (String message : messages) {
+            blackhole.consume(segmenter.keywords(message, Integer.MAX_VALUE));
+        }
+    }
+}
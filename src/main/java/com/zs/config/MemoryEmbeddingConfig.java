@@ -0,0 +1,50 @@
+package com.zs.config;
+
+import com.zs.service.memory.embedding.EmbeddingProvider;
+import com.zs.service.memory.embedding.HashingEmbeddingProvider;
+import com.zs.service.memory.embedding.ModelEmbeddingProvider;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 记忆语义召回的向量模型配置
+ * provider=model 时使用容器中的EmbeddingModel（DashScope等），不可用时退回本地散列向量
+ */
+@Configuration
+@Slf4j
+public class MemoryEmbeddingConfig {
+
+    @Value("${app.memory.embedding.provider:hashing}")
+    private String provider;
+
+    @Value("${app.memory.embedding.dimension:256}")
+    private int dimension;
+
+    @Value("${app.memory.embedding.model-name:text-embedding-v3}")
+    private String modelName;
+
+    @Bean
+    public EmbeddingProvider embeddingProvider(ObjectProvider<EmbeddingModel> embeddingModels) {
+        if ("model".equalsIgnoreCase(provider)) {
+            EmbeddingModel embeddingModel = embeddingModels.getIfAvailable();
+            if (embeddingModel != null) {
+                try {
+                    EmbeddingProvider modelProvider = new ModelEmbeddingProvider(embeddingModel, modelName);
+                    log.info("记忆向量使用模型: {}, dimension={}", modelName, modelProvider.dimension());
+                    return modelProvider;
+                } catch (Exception e) {
+                    log.error("初始化向量模型失败，退回本地散列向量: {}", modelName, e);
+                }
+            } else {
+                log.warn("未找到EmbeddingModel，记忆向量退回本地散列向量");
+            }
+        }
+
+        log.info("记忆向量使用本地散列向量: dimension={}", dimension);
+        return new HashingEmbeddingProvider(dimension);
+    }
+}
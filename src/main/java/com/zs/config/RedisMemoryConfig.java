@@ -3,13 +3,16 @@ package com.zs.config;
 import com.alibaba.cloud.ai.memory.redis.RedisChatMemoryRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.zs.service.redis.CompactValueSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.util.StringUtils;
 
@@ -31,6 +34,13 @@ public class RedisMemoryConfig {
     @Value("${spring.data.redis.timeout:5000}")
     private int timeout;
 
+    // 值编码：compact 较大的值压缩存储，json 只写JSON；两种配置都能读取对方写入的条目
+    @Value("${app.redis.codec.format:compact}")
+    private String codecFormat = "compact";
+
+    @Value("${app.redis.codec.compress-threshold:" + CompactValueSerializer.DEFAULT_COMPRESS_THRESHOLD + "}")
+    private int compressThreshold = CompactValueSerializer.DEFAULT_COMPRESS_THRESHOLD;
+
     /**
      * Redis连接工厂 - 配置连接池
      */
@@ -100,8 +110,7 @@ public class RedisMemoryConfig {
         template.setConnectionFactory(connectionFactory);
 
         // 使用配置好的ObjectMapper创建序列化器
-        GenericJackson2JsonRedisSerializer serializer =
-                new GenericJackson2JsonRedisSerializer(redisObjectMapper);
+        RedisSerializer<Object> serializer = valueSerializer(redisObjectMapper);
 
         // 设置序列化器
         template.setKeySerializer(new StringRedisSerializer());
@@ -113,4 +122,24 @@ public class RedisMemoryConfig {
         System.out.println("✅ RedisTemplate配置完成，支持Java 8时间类型");
         return template;
     }
+
+    /**
+     * Redis值序列化器：JSON外包一层紧凑编码，读取时兼容未压缩的旧条目
+     * 注册为Bean，停机时close释放压缩器占用的本地内存
+     */
+    @Bean
+    public CompactValueSerializer valueSerializer(ObjectMapper redisObjectMapper) {
+        int threshold = "json".equalsIgnoreCase(codecFormat) ? 0 : compressThreshold;
+        return new CompactValueSerializer(new GenericJackson2JsonRedisSerializer(redisObjectMapper), threshold);
+    }
+
+    /**
+     * Redis消息监听容器 - 近端缓存跨节点失效通知
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        return container;
+    }
 }
\ No newline at end of file
@@ -76,8 +76,8 @@ public class EnhancedStreamChatController {
                 // 阶段2：获取相关记忆
                 var relevantMemories = memoryExtractionService.getContextualMemories(userId, message);
 
-                // 阶段3：更新AI情感状态
-                aiEmotionService.updateAIEmotion(userId,
+                // 阶段3：更新AI情感状态（通道内异步执行，与思考过程生成并行）
+                var aiEmotionUpdate = aiEmotionService.updateAIEmotion(userId,
                         emotion.getPrimaryEmotion(),
                         emotion.getIntensity());
 
@@ -89,8 +89,8 @@ public class EnhancedStreamChatController {
                 // 阶段5：发送思考过程
                 sendThinkingProcess(sink, thinkingEvents);
 
-                // 阶段6：获取AI情感状态
-                var aiEmotionReport = aiEmotionService.getAIEmotionReport(userId);
+                // 阶段6：等本轮更新完成后获取AI情感状态
+                var aiEmotionReport = aiEmotionService.getAIEmotionReport(userId, aiEmotionUpdate);
                 String aiStateDesc = (String) aiEmotionReport.get("description");
 
                 // 阶段7：发送AI情感状态
@@ -159,12 +159,12 @@ public class EnhancedStreamChatController {
         var emotion = emotionAnalysisService.analyzeUserEmotion(message, userId);
 
         // 阶段2：更新AI情感状态
-        aiEmotionService.updateAIEmotion(userId,
+        var aiEmotionUpdate = aiEmotionService.updateAIEmotion(userId,
                 emotion.getPrimaryEmotion(),
                 emotion.getIntensity());
 
-        // 阶段3：获取AI情感状态
-        var aiEmotionReport = aiEmotionService.getAIEmotionReport(userId);
+        // 阶段3：等本轮更新完成后获取AI情感状态
+        var aiEmotionReport = aiEmotionService.getAIEmotionReport(userId, aiEmotionUpdate);
 
         // 阶段4：调用原有简单聊天服务
         String response = streamingChatService.simpleChat(userId, message, model);
@@ -1,14 +1,27 @@
 // File: src/main/java/com/zs/controller/emotion/EmotionAnalysisController.java
 package com.zs.controller.emotion;
 
+import com.zs.dto.BulkEmotionAnalysisDTO;
 import com.zs.service.emotion.EmotionAnalysisService;
+import com.zs.service.emotion.batch.EmotionBackfillJob;
+import com.zs.service.emotion.cache.TrendingKeywords;
+import com.zs.service.emotion.dto.BackfillProgress;
+import com.zs.service.emotion.dto.BulkAnalysisStats;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.dto.MaterializedReport;
 import com.zs.vo.ResultVO;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Resource;
+import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.List;
 import java.util.Map;
@@ -25,6 +38,12 @@ public class EmotionAnalysisController {
     @Resource
     private EmotionAnalysisService emotionAnalysisService;
 
+    @Resource
+    private EmotionBackfillJob emotionBackfillJob;
+
+    @Resource
+    private TrendingKeywords trendingKeywords;
+
     @PostMapping("/analyze")
     @Operation(summary = "情感分析", description = "分析用户消息的情感")
     public ResultVO<EmotionAnalysisDTO> analyzeEmotion(
@@ -43,6 +62,70 @@ public class EmotionAnalysisController {
         }
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "批量情感分析", description = "并行分析大批量消息并批量保存重要情感，返回吞吐量统计")
+    public ResultVO<BulkAnalysisStats> bulkAnalyze(@Valid @RequestBody BulkEmotionAnalysisDTO request) {
+        try {
+            BulkAnalysisStats stats = emotionAnalysisService.bulkAnalyzeEmotions(
+                    request.getUserId(), request.getMessages(), null);
+            return ResultVO.success("批量情感分析完成", stats);
+        } catch (Exception e) {
+            log.error("批量情感分析失败: userId={}", request.getUserId(), e);
+            return ResultVO.error("批量情感分析失败: " + e.getMessage());
+        }
+    }
+
+    @PostMapping(value = "/bulk/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "批量情感分析（流式）", description = "按块流式返回分析结果，最后返回吞吐量统计")
+    public Flux<ServerSentEvent<Object>> bulkAnalyzeStream(@Valid @RequestBody BulkEmotionAnalysisDTO request) {
+        return Flux.create((FluxSink<ServerSentEvent<Object>> sink) -> {
+                    try {
+                        BulkAnalysisStats stats = emotionAnalysisService.bulkAnalyzeEmotions(
+                                request.getUserId(), request.getMessages(),
+                                chunk -> sink.next(ServerSentEvent.builder((Object) chunk).event("chunk").build()));
+                        sink.next(ServerSentEvent.builder((Object) stats).event("stats").build());
+                        sink.complete();
+                    } catch (Exception e) {
+                        log.error("流式批量情感分析失败: userId={}", request.getUserId(), e);
+                        sink.error(e);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/backfill/start")
+    @Operation(summary = "启动历史情感回填", description = "从conversations表重新分析历史对话，支持断点续跑")
+    public ResultVO<BackfillProgress> startBackfill(
+            @RequestParam(defaultValue = "true") boolean resume,
+            @RequestParam(defaultValue = "false") boolean rebuildMemories,
+            @RequestParam(defaultValue = "false") boolean rebuildCaches) {
+        try {
+            BackfillProgress progress = emotionBackfillJob.start(resume, rebuildMemories, rebuildCaches);
+            return ResultVO.success("回填任务已启动", progress);
+        } catch (Exception e) {
+            log.error("启动回填任务失败", e);
+            return ResultVO.error("启动回填任务失败: " + e.getMessage());
+        }
+    }
+
+    @PostMapping("/backfill/stop")
+    @Operation(summary = "暂停历史情感回填", description = "当前块处理完成后暂停，进度保存在检查点中")
+    public ResultVO<BackfillProgress> stopBackfill() {
+        emotionBackfillJob.stop();
+        return ResultVO.success("已请求暂停回填任务", emotionBackfillJob.getProgress());
+    }
+
+    @GetMapping("/backfill/status")
+    @Operation(summary = "回填进度", description = "查询历史情感回填的检查点与统计")
+    public ResultVO<BackfillProgress> getBackfillStatus() {
+        try {
+            return ResultVO.success("获取回填进度成功", emotionBackfillJob.getProgress());
+        } catch (Exception e) {
+            log.error("获取回填进度失败", e);
+            return ResultVO.error("获取回填进度失败");
+        }
+    }
+
     @GetMapping("/current")
     @Operation(summary = "获取当前情感", description = "获取用户当前的情感状态")
     public ResultVO<EmotionAnalysisDTO> getCurrentEmotion(@RequestParam Long userId) {
@@ -56,17 +139,59 @@ public class EmotionAnalysisController {
     }
 
     @GetMapping("/report")
-    @Operation(summary = "情感报告", description = "生成用户情感分析报告")
-    public ResultVO<Map<String, Object>> getEmotionReport(@RequestParam Long userId) {
+    @Operation(summary = "情感报告", description = "获取用户情感分析报告，支持If-None-Match条件请求（未变化返回304）")
+    public ResultVO<Map<String, Object>> getEmotionReport(@RequestParam Long userId, WebRequest request) {
         try {
-            Map<String, Object> report = emotionAnalysisService.generateEmotionReport(userId);
-            return ResultVO.success("情感报告生成成功", report);
+            MaterializedReport report = emotionAnalysisService.getEmotionReportView(userId);
+            if (request.checkNotModified(report.etag())) {
+                return null;
+            }
+            return ResultVO.success("情感报告生成成功", report.getReport());
         } catch (Exception e) {
             log.error("生成情感报告失败: userId={}", userId, e);
             return ResultVO.error("生成情感报告失败");
         }
     }
 
+    @GetMapping("/report/complete")
+    @Operation(summary = "完整情感报告", description = "情感报告 + 用户信息、学习场景与个性化建议，支持If-None-Match条件请求")
+    public ResultVO<Map<String, Object>> getCompleteReport(@RequestParam Long userId, WebRequest request) {
+        try {
+            MaterializedReport report = emotionAnalysisService.getCompleteReportView(userId);
+            if (request.checkNotModified(report.etag())) {
+                return null;
+            }
+            return ResultVO.success("完整报告生成成功", report.getReport());
+        } catch (Exception e) {
+            log.error("生成完整报告失败: userId={}", userId, e);
+            return ResultVO.error("生成完整报告失败");
+        }
+    }
+
+    @GetMapping("/mood")
+    @Operation(summary = "心情状态", description = "获取用户当前心情分（指数加权平均）、趋势与连续计数")
+    public ResultVO<Map<String, Object>> getMoodReport(@RequestParam Long userId) {
+        try {
+            return ResultVO.success("获取心情状态成功", emotionAnalysisService.getMoodReport(userId));
+        } catch (Exception e) {
+            log.error("获取心情状态失败: userId={}", userId, e);
+            return ResultVO.error("获取心情状态失败");
+        }
+    }
+
+    @GetMapping("/trending")
+    @Operation(summary = "全站热门关键词", description = "最近若干小时内所有用户的热门情感关键词（近似统计）")
+    public ResultVO<List<Map<String, Object>>> getTrendingKeywords(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "20") int topN) {
+        try {
+            return ResultVO.success("获取热门关键词成功", trendingKeywords.getTrending(hours, topN));
+        } catch (Exception e) {
+            log.error("获取热门关键词失败: hours={}", hours, e);
+            return ResultVO.error("获取热门关键词失败");
+        }
+    }
+
     @GetMapping("/history")
     @Operation(summary = "情感历史", description = "获取用户情感分析历史")
     public ResultVO<List<EmotionAnalysisDTO>> getEmotionHistory(
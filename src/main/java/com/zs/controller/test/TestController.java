@@ -120,10 +120,10 @@ public class TestController {
 
         try {
             // 更新AI情感状态
-            aiEmotionService.updateAIEmotion(userId, userEmotion, intensity);
+            var update = aiEmotionService.updateAIEmotion(userId, userEmotion, intensity);
 
             // 获取更新后的状态
-            var report = aiEmotionService.getAIEmotionReport(userId);
+            var report = aiEmotionService.getAIEmotionReport(userId, update);
 
             result.put("success", true);
             result.put("userId", userId);
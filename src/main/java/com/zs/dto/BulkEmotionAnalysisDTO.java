@@ -0,0 +1,18 @@
+package com.zs.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkEmotionAnalysisDTO {
+    @NotNull(message = "用户ID不能为空")
+    private Long userId;
+
+    @NotEmpty(message = "消息列表不能为空")
+    @Size(max = 100000, message = "单次最多分析100000条消息")
+    private List<String> messages;
+}
@@ -15,7 +15,7 @@ import java.time.LocalDateTime;
  */
 @TableName("ai_emotional_state")
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class AIEmotionalState {
@@ -36,5 +36,6 @@ public class Conversations {
     private Date createdAt;
 
     public void setIsMeaningful(int isMeaningful) {
+        this.isMeaningful = isMeaningful;
     }
 }
\ No newline at end of file
@@ -2,6 +2,7 @@ package com.zs.entity;
 
 import com.baomidou.mybatisplus.annotation.TableName;
 
+import java.sql.Time;
 import java.time.LocalTime;
 import java.util.Date;
 import lombok.Data;
@@ -16,6 +17,8 @@ public class EmotionalMemories {
 
     private Long userId;
 
+    private Long conversationId;
+
     private String emotionType;
 
     private String emotionContext;
@@ -36,7 +39,10 @@ public class EmotionalMemories {
 
     private Date updatedAt;
 
+    /**
+     * 只保留时分秒（occurrence_time为TIME列），单条与批量写入都带上发生时刻
+     */
     public void setOccurrenceTime(LocalTime now) {
-
+        this.occurrenceTime = now != null ? Time.valueOf(now) : null;
     }
 }
\ No newline at end of file
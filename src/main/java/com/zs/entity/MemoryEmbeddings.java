@@ -0,0 +1,30 @@
+package com.zs.entity;
+
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * 记忆向量，与memory_fragments一一对应
+ * 对应数据库表：memory_embeddings
+ */
+@TableName("memory_embeddings")
+@Data
+public class MemoryEmbeddings {
+
+    @TableId(type = IdType.INPUT, value = "memory_id")
+    private Long memoryId;  // 与memory_fragments表id对应
+
+    private Long userId;
+
+    private String model;   // 生成向量的模型标识，与当前模型不一致时重新计算
+
+    private Integer dimension;
+
+    private byte[] vector;  // float32小端序，已L2归一化
+
+    private Date createdAt;
+}
@@ -3,13 +3,19 @@ package com.zs.entity;
 import com.baomidou.mybatisplus.annotation.TableName;
 import java.math.BigDecimal;
 import java.util.Date;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 /**
  * @TableName memory_fragments
  */
 @TableName(value ="memory_fragments")
 @Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
 public class MemoryFragments {
     private Long id;
 
@@ -29,6 +35,9 @@ public class MemoryFragments {
 
     private Long sourceConversationId;
 
+    // 记忆文本的SimHash指纹，用于写入时的近似重复检测
+    private Long simhash;
+
     private Date createdAt;
 
     private Date updatedAt;
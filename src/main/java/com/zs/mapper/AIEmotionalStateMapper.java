@@ -3,6 +3,9 @@ package com.zs.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.zs.entity.AIEmotionalState;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * AI情感状态Mapper
@@ -11,4 +14,9 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface AIEmotionalStateMapper extends BaseMapper<AIEmotionalState> {
     // 继承BaseMapper，自带CRUD方法
+
+    /**
+     * 批量写入（按user_id存在则更新）
+     */
+    int upsertBatch(@Param("list") List<AIEmotionalState> states);
 }
\ No newline at end of file
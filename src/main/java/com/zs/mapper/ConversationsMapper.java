@@ -3,6 +3,11 @@ package com.zs.mapper;
 import com.zs.entity.Conversations;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
 
 /**
 * @author a1783
@@ -13,6 +18,21 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface ConversationsMapper extends BaseMapper<Conversations> {
 
+    /**
+     * 按主键顺序流式读取 (afterId, maxId] 区间内的对话，最多limit条
+     * 只查询回填需要的列，游标必须在事务内消费
+     */
+    Cursor<Conversations> streamForBackfill(@Param("afterId") long afterId,
+                                            @Param("maxId") long maxId,
+                                            @Param("limit") int limit);
+
+    @Select("SELECT COALESCE(MAX(id), 0) FROM conversations")
+    long selectMaxId();
+
+    /**
+     * 批量回写情感分析结果（单条 UPDATE ... CASE 语句）
+     */
+    int batchUpdateEmotion(@Param("list") List<Conversations> conversations);
 }
 
 
@@ -2,7 +2,11 @@ package com.zs.mapper;
 
 import com.zs.entity.EmotionalMemories;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
 * @author a1783
@@ -13,6 +17,18 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface EmotionalMemoriesMapper extends BaseMapper<EmotionalMemories> {
 
+    /**
+     * 批量插入情感记忆（单条多值INSERT，一次网络往返）
+     * 带对话ID的行按conversation_id唯一键覆盖已有记录，同一对话重复写入不会产生多行
+     */
+    int insertBatch(@Param("list") List<EmotionalMemories> memories);
+
+    /**
+     * 删除对话ID在(afterId, toId]内的情感记忆，不带对话ID的行（批量分析接口写入）不受影响
+     */
+    @Delete("DELETE FROM emotional_memories WHERE conversation_id > #{afterId} AND conversation_id <= #{toId}")
+    int deleteByConversationRange(@Param("afterId") long afterId, @Param("toId") long toId);
+
 }
 
 
@@ -3,6 +3,9 @@ package com.zs.mapper;
 import com.zs.entity.MemoryAccessLogs;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
 * @author a1783
@@ -13,6 +16,10 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface MemoryAccessLogsMapper extends BaseMapper<MemoryAccessLogs> {
 
+    /**
+     * 批量插入访问日志（单条多值INSERT）
+     */
+    int insertBatch(@Param("list") List<MemoryAccessLogs> logs);
 }
 
 
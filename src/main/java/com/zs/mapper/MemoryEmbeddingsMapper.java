@@ -0,0 +1,20 @@
+package com.zs.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.zs.entity.MemoryEmbeddings;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * 记忆向量Mapper
+ */
+@Mapper
+public interface MemoryEmbeddingsMapper extends BaseMapper<MemoryEmbeddings> {
+
+    /**
+     * 批量写入（按memory_id存在则覆盖）
+     */
+    int upsertBatch(@Param("list") List<MemoryEmbeddings> embeddings);
+}
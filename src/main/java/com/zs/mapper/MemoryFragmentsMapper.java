@@ -3,6 +3,10 @@ package com.zs.mapper;
 import com.zs.entity.MemoryFragments;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 /**
 * @author a1783
@@ -13,6 +17,33 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface MemoryFragmentsMapper extends BaseMapper<MemoryFragments> {
 
+    /**
+     * 批量插入记忆片段（单条多值INSERT，一次网络往返），自增主键回填到各实体的id
+     */
+    int insertBatch(@Param("list") List<MemoryFragments> memories);
+
+    /**
+     * 近似重复的新记忆合并进已有记忆：重要性取较大值再加bump（上限1），访问次数加1
+     *
+     * @return 更新的行数，为0表示已有记忆已被删除
+     */
+    int mergeDuplicate(@Param("id") Long id,
+                       @Param("importance") BigDecimal importance,
+                       @Param("bump") BigDecimal bump);
+
+    /**
+     * 批量累加访问计数（单条UPDATE）：access_count加上各实体的accessCount，last_accessed取较晚者
+     *
+     * @param deltas 只用id、accessCount（本轮增量）、lastAccessed
+     */
+    int incrementAccessBatch(@Param("list") List<MemoryFragments> deltas);
+
+    /**
+     * 全文检索用户记忆（ngram全文索引），按相关度降序
+     */
+    List<MemoryFragments> searchFullText(@Param("userId") Long userId,
+                                         @Param("query") String query,
+                                         @Param("limit") int limit);
 }
 
 
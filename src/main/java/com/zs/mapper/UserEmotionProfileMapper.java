@@ -2,7 +2,12 @@ package com.zs.mapper;
 
 import com.zs.entity.UserEmotionProfile;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
 * @author a1783
@@ -13,6 +18,23 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface UserEmotionProfileMapper extends BaseMapper<UserEmotionProfile> {
 
+    /**
+     * 查询已有画像的用户ID
+     */
+    List<Long> selectExistingUserIds(@Param("userIds") Collection<Long> userIds);
+
+    /**
+     * 批量插入画像（多行VALUES）
+     */
+    int insertBatch(@Param("list") List<UserEmotionProfile> profiles);
+
+    /**
+     * 按user_id批量更新画像（CASE WHEN）
+     */
+    int batchUpdateByUserId(@Param("list") List<UserEmotionProfile> profiles);
+
+    @Delete("DELETE FROM user_emotion_profile WHERE user_id = #{userId}")
+    int deleteByUserId(@Param("userId") Long userId);
 }
 
 
@@ -179,7 +179,7 @@ public class ChatBrainService {
     /**
      * 构建超级prompt（核心）- 增强版，加入最近对话
      */
-    private String buildSuperPrompt(Long userId, String userMessage, Map<String, Object> context) {
+    String buildSuperPrompt(Long userId, String userMessage, Map<String, Object> context) {
         StringBuilder prompt = new StringBuilder();
 
         // ===== 1. 爱莉希雅角色设定 =====
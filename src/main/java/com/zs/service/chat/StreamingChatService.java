@@ -184,7 +184,7 @@ public class StreamingChatService {
     /**
      * 查找句子结束位置
      */
-    private int findSentenceEnd(String text) {
+    int findSentenceEnd(String text) {
         // 中文句子结束符：。！？；\n
         int[] positions = {
                 text.indexOf('。'), text.indexOf('！'), text.indexOf('？'),
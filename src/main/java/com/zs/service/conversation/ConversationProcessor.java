@@ -150,6 +150,7 @@ public class ConversationProcessor {
             EmotionalMemories emotionalMemory = new EmotionalMemories();
 
             emotionalMemory.setUserId(userId);
+            emotionalMemory.setConversationId(conversationId);
             emotionalMemory.setEmotionType(emotion.getPrimaryEmotion());
             emotionalMemory.setEmotionContext(emotion.getConversationContext());
 
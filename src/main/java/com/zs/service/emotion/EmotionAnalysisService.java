@@ -7,11 +7,19 @@ import com.zs.entity.Users;
 import com.zs.mapper.ConversationsMapper;
 import com.zs.mapper.EmotionalMemoriesMapper;
 import com.zs.mapper.UsersMapper;
+import com.zs.service.emotion.batch.BulkEmotionAnalyzer;
 import com.zs.service.emotion.cache.EmotionCacheManager;
+import com.zs.service.emotion.cache.EmotionReportCache;
+import com.zs.service.emotion.dto.BulkAnalysisStats;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.dto.MaterializedReport;
 import com.zs.service.emotion.dto.UserEmotionSnapshot;
 import com.zs.service.emotion.extractor.KeywordEmotionExtractor;
 import com.zs.service.emotion.repository.EmotionRepository;
+import com.zs.service.emotion.state.EmotionStateTracker;
+import com.zs.service.emotion.state.UserUpdateLanes;
+import com.zs.service.profile.EmotionProfileService;
+import com.zs.service.redis.NearCache;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -26,9 +34,9 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneId;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * 情感分析主服务 - 完整版
@@ -44,6 +52,21 @@ public class EmotionAnalysisService {
     @Resource
     private EmotionCacheManager emotionCacheManager;
 
+    @Resource
+    private EmotionReportCache emotionReportCache;
+
+    @Resource
+    private BulkEmotionAnalyzer bulkEmotionAnalyzer;
+
+    @Resource
+    private EmotionProfileService emotionProfileService;
+
+    @Resource
+    private EmotionStateTracker emotionStateTracker;
+
+    @Resource
+    private UserUpdateLanes userUpdateLanes;
+
     @Resource
     private EmotionRepository emotionRepository;
 
@@ -59,12 +82,17 @@ public class EmotionAnalysisService {
     @Resource
     private ObjectMapper objectMapper;
 
-    // 用户情感状态缓存（内存缓存，用于快速访问）
-    private final Map<Long, EmotionAnalysisDTO> userEmotionCache = new ConcurrentHashMap<>();
+    // 用户当前情感的本节点近端缓存（有界，跨节点失效）
+    @Resource
+    private NearCache nearCache;
 
     // 线程池用于异步处理
     private ExecutorService asyncExecutor;
 
+    // 报告中展示的趋势点数与关键词数
+    private static final int REPORT_TREND_SIZE = 10;
+    private static final int REPORT_KEYWORD_SIZE = 10;
+
     @PostConstruct
     public void init() {
         // 初始化线程池
@@ -86,18 +114,15 @@ public class EmotionAnalysisService {
             // 1. 使用关键词提取器分析情感
             EmotionAnalysisDTO emotionResult = keywordEmotionExtractor.analyze(userMessage, userId);
 
-            // 2. 更新内存缓存
-            userEmotionCache.put(userId, emotionResult);
-
-            // 3. 更新Redis缓存（异步）
-            updateCacheAsync(userId, emotionResult);
+            // 2. 更新Redis缓存、近端缓存与画像（在该用户的更新通道内按消息顺序异步执行）
+            userUpdateLanes.submit(userId, () -> updateCacheAsync(userId, emotionResult));
 
-            // 4. 如果情感重要，异步保存到数据库
+            // 3. 如果情感重要，异步保存到数据库
             if (emotionResult.getIsMeaningful() != null && emotionResult.getIsMeaningful()) {
                 saveToDatabaseAsync(userId, emotionResult, userMessage);
             }
 
-            // 5. 异步保存对话记录
+            // 4. 异步保存对话记录
             saveConversationAsync(userId, userMessage, emotionResult);
 
             long processingTime = System.currentTimeMillis() - startTime;
@@ -121,26 +146,30 @@ public class EmotionAnalysisService {
     public List<EmotionAnalysisDTO> batchAnalyzeEmotions(Long userId, List<String> messages) {
         log.info("批量情感分析: userId={}, messages={}", userId, messages.size());
 
-        List<EmotionAnalysisDTO> results = new ArrayList<>();
-        for (String message : messages) {
-            EmotionAnalysisDTO result = keywordEmotionExtractor.analyze(message, userId);
-            results.add(result);
-        }
+        List<EmotionAnalysisDTO> results = Arrays.asList(bulkEmotionAnalyzer.analyzeMessages(userId, messages));
 
-        // 异步批量保存重要情感
+        // 异步批量保存重要情感，不占用请求线程
         asyncExecutor.submit(() -> {
-            List<EmotionAnalysisDTO> meaningfulEmotions = results.stream()
-                    .filter(emotion -> emotion.getIsMeaningful() != null && emotion.getIsMeaningful())
-                    .toList();
-
-            if (!meaningfulEmotions.isEmpty()) {
-                emotionRepository.batchSaveEmotionalMemories(userId, meaningfulEmotions);
+            try {
+                emotionRepository.batchSaveEmotionalMemories(userId, results);
+            } catch (Exception e) {
+                log.error("批量保存情感记忆失败: userId={}", userId, e);
             }
         });
 
         return results;
     }
 
+    /**
+     * 大批量并行情感分析
+     * 消息按块在多核上并行分析，每块完成后回调chunkConsumer并批量入库重要情感
+     */
+    public BulkAnalysisStats bulkAnalyzeEmotions(Long userId, List<String> messages,
+                                                 Consumer<List<EmotionAnalysisDTO>> chunkConsumer) {
+        log.info("大批量情感分析: userId={}, messages={}", userId, messages.size());
+        return bulkEmotionAnalyzer.analyze(userId, messages, chunkConsumer);
+    }
+
     // ========== 用户信息相关方法 ==========
 
     /**
@@ -197,20 +226,15 @@ public class EmotionAnalysisService {
      * 获取用户当前情感状态
      */
     public EmotionAnalysisDTO getCurrentEmotion(Long userId) {
-        // 1. 先查内存缓存
-        EmotionAnalysisDTO cached = userEmotionCache.get(userId);
-        if (cached != null) {
-            return cached;
-        }
-
-        // 2. 查Redis缓存
-        UserEmotionSnapshot snapshot = emotionCacheManager.getCurrentEmotion(userId);
+        // 1. 先查近端缓存，未命中查Redis缓存；缓存的快照不直接交给调用方，每次转换出新的DTO
+        UserEmotionSnapshot snapshot = nearCache.get(NearCache.CURRENT_EMOTION, userId,
+                () -> emotionCacheManager.getCurrentEmotion(userId));
 
         if (snapshot != null) {
             return convertSnapshotToDTO(userId, snapshot);
         }
 
-        // 3. 返回默认值
+        // 2. 返回默认值
         return createDefaultEmotion(userId);
     }
 
@@ -220,10 +244,112 @@ public class EmotionAnalysisService {
      * 生成情感报告
      */
     public Map<String, Object> generateEmotionReport(Long userId) {
+        return getEmotionReportView(userId).getReport();
+    }
+
+    /**
+     * 获取物化的情感报告（带版本，用于ETag）
+     * 报告随每轮对话增量更新，这里只读一次缓存；尚未物化时（新用户、过期或清理后）按缓存现状构建一份不写回的视图，
+     * 物化交给该用户的更新通道，与refreshEmotionReport串行，避免请求线程与通道并发写入导致趋势点重复
+     */
+    public MaterializedReport getEmotionReportView(Long userId) {
+        MaterializedReport materialized = emotionReportCache.get(userId);
+        if (materialized != null && materialized.getReport() != null) {
+            return materialized;
+        }
+
+        userUpdateLanes.submit(userId, () -> materializeIfAbsent(userId));
+
+        List<Map.Entry<String, Long>> topKeywords = emotionCacheManager.getTopKeywords(userId, REPORT_KEYWORD_SIZE);
+        return MaterializedReport.builder()
+                .userId(userId)
+                .version(System.currentTimeMillis())
+                .report(buildEmotionReport(getCurrentEmotion(userId),
+                        emotionCacheManager.getEmotionTrend(userId, REPORT_TREND_SIZE), topKeywords))
+                .build();
+    }
+
+    /**
+     * 生成完整报告（包含用户信息）
+     */
+    public Map<String, Object> generateCompleteReport(Long userId) {
+        return getCompleteReportView(userId).getReport();
+    }
+
+    /**
+     * 获取完整报告：物化的情感报告 + 缓存的用户信息组合而成，不再每次查库和重建情感报告
+     */
+    public MaterializedReport getCompleteReportView(Long userId) {
+        MaterializedReport emotionView = getEmotionReportView(userId);
+
+        MaterializedReport userInfoView = emotionReportCache.getUserInfo(userId);
+        if (userInfoView == null || userInfoView.getReport() == null) {
+            Map<String, Object> userInfo = getUserInfo(userId);
+            // 查询失败的结果不缓存，下次请求重新查库
+            userInfoView = userInfo.containsKey("error")
+                    ? MaterializedReport.builder().userId(userId).version(System.currentTimeMillis()).report(userInfo).build()
+                    : emotionReportCache.putUserInfo(userId, userInfo);
+        }
+
+        return MaterializedReport.builder()
+                .userId(userId)
+                .version(emotionView.getVersion())
+                .userInfoVersion(userInfoView.getVersion())
+                .report(buildCompleteReport(userId, userInfoView.getReport(), emotionView.getReport()))
+                .build();
+    }
+
+    /**
+     * 本轮情感写入后增量刷新物化报告：在上一版趋势后追加本轮并截断，
+     * 当前情感直接取本轮结果，关键词排行从有序集合读取前若干个
+     */
+    @SuppressWarnings("unchecked")
+    private void refreshEmotionReport(Long userId, EmotionAnalysisDTO emotion) {
+        MaterializedReport previous = emotionReportCache.get(userId);
+
+        List<Map<String, Object>> trend;
+        if (previous != null && previous.getReport() != null
+                && previous.getReport().get("trend") instanceof List<?> previousTrend) {
+            trend = new ArrayList<>(previousTrend.size() + 1);
+            for (Object point : previousTrend) {
+                trend.add((Map<String, Object>) point);
+            }
+            trend.add(emotionCacheManager.buildTrendPoint(emotion));
+            if (trend.size() > REPORT_TREND_SIZE) {
+                trend = new ArrayList<>(trend.subList(trend.size() - REPORT_TREND_SIZE, trend.size()));
+            }
+        } else {
+            // recordTurn已写入本轮，直接读取趋势
+            trend = emotionCacheManager.getEmotionTrend(userId, REPORT_TREND_SIZE);
+        }
+
+        materializeReport(userId, emotion, trend, previous != null ? previous.getVersion() : 0L);
+    }
+
+    /**
+     * 在更新通道内执行：排队期间本轮对话可能已写入报告，仍缺失时才按缓存现状物化
+     */
+    private void materializeIfAbsent(Long userId) {
+        MaterializedReport materialized = emotionReportCache.get(userId);
+        if (materialized != null && materialized.getReport() != null) {
+            return;
+        }
+        materializeReport(userId, getCurrentEmotion(userId),
+                emotionCacheManager.getEmotionTrend(userId, REPORT_TREND_SIZE), 0L);
+    }
+
+    private void materializeReport(Long userId, EmotionAnalysisDTO currentEmotion,
+                                   List<Map<String, Object>> trend, long previousVersion) {
+        List<Map.Entry<String, Long>> topKeywords = emotionCacheManager.getTopKeywords(userId, REPORT_KEYWORD_SIZE);
+        emotionReportCache.put(userId, buildEmotionReport(currentEmotion, trend, topKeywords), previousVersion);
+    }
+
+    private Map<String, Object> buildEmotionReport(EmotionAnalysisDTO currentEmotion,
+                                                   List<Map<String, Object>> trend,
+                                                   List<Map.Entry<String, Long>> topKeywords) {
         Map<String, Object> report = new LinkedHashMap<>();
 
         // 1. 当前情感状态
-        EmotionAnalysisDTO currentEmotion = getCurrentEmotion(userId);
         report.put("currentEmotion", Map.of(
                 "type", currentEmotion.getPrimaryEmotion(),
                 "intensity", currentEmotion.getIntensity(),
@@ -233,11 +359,9 @@ public class EmotionAnalysisService {
         ));
 
         // 2. 情感趋势（最近10次）
-        List<Map<String, Object>> trend = emotionCacheManager.getEmotionTrend(userId, 10);
         report.put("trend", trend);
 
         // 3. 关键词统计
-        List<Map.Entry<String, Long>> topKeywords = emotionCacheManager.getTopKeywords(userId, 10);
         report.put("topKeywords", topKeywords);
 
         // 4. 统计信息
@@ -253,18 +377,15 @@ public class EmotionAnalysisService {
         return report;
     }
 
-    /**
-     * 生成完整报告（包含用户信息）
-     */
-    public Map<String, Object> generateCompleteReport(Long userId) {
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> buildCompleteReport(Long userId, Map<String, Object> userInfo,
+                                                    Map<String, Object> emotionReport) {
         Map<String, Object> report = new LinkedHashMap<>();
 
         // 1. 用户基本信息
-        Map<String, Object> userInfo = getUserInfo(userId);
         report.put("userInfo", userInfo);
 
         // 2. 情感分析报告
-        Map<String, Object> emotionReport = generateEmotionReport(userId);
         report.put("emotionAnalysis", emotionReport);
 
         // 3. 学习场景分析（基于学生信息）
@@ -377,19 +498,24 @@ public class EmotionAnalysisService {
     @Async
     public void updateCacheAsync(Long userId, EmotionAnalysisDTO emotion) {
         try {
-            // 1. 缓存当前情感状态
-            emotionCacheManager.cacheCurrentEmotion(userId, emotion);
+            // 当前情感、趋势、关键词频率、历史一次管道写入
+            UserEmotionSnapshot snapshot = emotionCacheManager.recordTurn(userId, emotion);
+
+            // Redis写入成功后才更新本节点副本（缓存写入的快照），并通知其他节点丢弃旧副本
+            if (snapshot != null) {
+                nearCache.put(NearCache.CURRENT_EMOTION, userId, snapshot);
+            } else {
+                nearCache.evict(NearCache.CURRENT_EMOTION, userId);
+            }
 
-            // 2. 更新情感趋势
-            emotionCacheManager.updateEmotionTrend(userId, emotion);
+            // 心情状态（EWMA心情分、趋势、连续计数）脚本增量更新
+            emotionStateTracker.updateEmotionState(userId, emotion);
 
-            // 3. 更新关键词频率
-            if (emotion.getEmotionKeywords() != null && !emotion.getEmotionKeywords().isEmpty()) {
-                emotionCacheManager.updateKeywordFrequency(userId, emotion.getEmotionKeywords());
-            }
+            // 情感画像计数累加
+            emotionProfileService.updateEmotionProfile(userId, emotion);
 
-            // 4. 记录历史
-            emotionCacheManager.recordEmotionHistory(userId, emotion);
+            // 物化报告增量更新
+            refreshEmotionReport(userId, emotion);
 
             log.debug("缓存更新完成: userId={}", userId);
 
@@ -474,14 +600,19 @@ public class EmotionAnalysisService {
         }
     }
 
+    /**
+     * 获取用户心情报告（心情分、趋势、连续计数）
+     */
+    public Map<String, Object> getMoodReport(Long userId) {
+        return emotionStateTracker.getMoodReport(userId);
+    }
+
     /**
      * 获取用户情感历史
      */
     public List<EmotionAnalysisDTO> getEmotionHistory(Long userId, int limit) {
         try {
-            // 这里可以添加从数据库或Redis获取历史记录的逻辑
-            // 目前返回空列表，你可以根据需要实现
-            return new ArrayList<>();
+            return emotionCacheManager.getEmotionHistory(userId, limit);
 
         } catch (Exception e) {
             log.error("获取情感历史失败: userId={}", userId, e);
@@ -494,12 +625,18 @@ public class EmotionAnalysisService {
      */
     public void clearUserEmotionData(Long userId) {
         try {
-            // 1. 清除内存缓存
-            userEmotionCache.remove(userId);
-
-            // 2. 清除Redis缓存
+            // 1. 清除Redis缓存
             emotionCacheManager.clearUserCache(userId);
 
+            // 2. 清除各节点近端缓存
+            nearCache.evict(NearCache.CURRENT_EMOTION, userId);
+
+            // 3. 清除心情状态
+            emotionStateTracker.clearEmotionState(userId);
+
+            // 4. 清除物化报告
+            emotionReportCache.evict(userId);
+
             log.info("用户情感数据清理完成: userId={}", userId);
 
         } catch (Exception e) {
@@ -570,9 +707,10 @@ public class EmotionAnalysisService {
         health.put("timestamp", LocalDateTime.now());
         health.put("version", "2.0.0");
 
-        // 内存缓存统计
-        health.put("memoryCacheSize", userEmotionCache.size());
-        health.put("memoryCacheKeys", new ArrayList<>(userEmotionCache.keySet()));
+        // 近端缓存统计
+        health.put("memoryCacheSize", nearCache.size(NearCache.CURRENT_EMOTION));
+        health.put("nearCache", nearCache.getStats());
+        health.put("updateLanes", userUpdateLanes.getStats());
 
         // 线程池状态
         health.put("threadPool", "active");
@@ -594,8 +732,8 @@ public class EmotionAnalysisService {
     public Map<String, Object> getServiceStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        stats.put("userCount", userEmotionCache.size());
-        stats.put("totalCachedUsers", userEmotionCache.size());
+        stats.put("userCount", nearCache.size(NearCache.CURRENT_EMOTION));
+        stats.put("totalCachedUsers", nearCache.size(NearCache.CURRENT_EMOTION));
         stats.put("serviceUptime", "running");
         stats.put("lastHealthCheck", LocalDateTime.now());
 
@@ -617,7 +755,7 @@ public class EmotionAnalysisService {
                 .primaryEmotion(snapshot.getPrimaryEmotion())
                 .intensity(snapshot.getIntensity())
                 .confidence(snapshot.getConfidence())
-                .emotionKeywords(snapshot.getKeywords())
+                .emotionKeywords(snapshot.getKeywords() != null ? new ArrayList<>(snapshot.getKeywords()) : null)
                 .lifeScenario(snapshot.getLifeScenario())
                 .analysisTime(snapshot.getTimestamp())
                 .build();
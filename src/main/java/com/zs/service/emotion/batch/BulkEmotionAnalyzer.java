@@ -0,0 +1,180 @@
+// File: src/main/java/com/zs/service/emotion/batch/BulkEmotionAnalyzer.java
+package com.zs.service.emotion.batch;
+
+import com.zs.entity.Conversations;
+import com.zs.entity.Users;
+import com.zs.service.emotion.dto.BulkAnalysisStats;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.extractor.KeywordEmotionExtractor;
+import com.zs.service.emotion.repository.EmotionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * 批量情感分析器
+ * 使用Fork/Join把大批量消息拆分到多个CPU核心并行分析，
+ * 按块回传结果，并把每块中的重要情感以一次批量INSERT写入数据库
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkEmotionAnalyzer {
+
+    private final KeywordEmotionExtractor keywordEmotionExtractor;
+    private final EmotionRepository emotionRepository;
+
+    // 每块消息数：一块分析完即回传并入库，控制内存占用与首批结果延迟
+    private static final int CHUNK_SIZE = 512;
+
+    // Fork/Join拆分阈值：区间小于该值时直接顺序分析
+    private static final int SPLIT_THRESHOLD = 32;
+
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    // 独立的计算池，避免占用公共ForkJoinPool
+    private final ForkJoinPool analysisPool = new ForkJoinPool(parallelism);
+
+    /**
+     * 批量分析并持久化重要情感
+     *
+     * @param userId        用户ID
+     * @param messages      待分析消息
+     * @param chunkConsumer 每块分析完成后的回调（按输入顺序），可为null
+     * @return 统计信息（含吞吐量）
+     */
+    public BulkAnalysisStats analyze(Long userId, List<String> messages,
+                                     Consumer<List<EmotionAnalysisDTO>> chunkConsumer) {
+        long startTime = System.nanoTime();
+        int total = messages != null ? messages.size() : 0;
+
+        // 用户信息整批只查询一次
+        Users user = total > 0 ? keywordEmotionExtractor.getUserById(userId) : null;
+        EmotionAnalysisDTO[] results = new EmotionAnalysisDTO[total];
+
+        int meaningful = 0;
+        int persisted = 0;
+        int chunks = 0;
+
+        for (int from = 0; from < total; from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, total);
+            analysisPool.invoke(new AnalyzeTask(
+                    i -> keywordEmotionExtractor.analyze(messages.get(i), userId, user), results, from, to));
+            chunks++;
+
+            List<EmotionAnalysisDTO> chunk = Arrays.asList(results).subList(from, to);
+            for (EmotionAnalysisDTO emotion : chunk) {
+                if (Boolean.TRUE.equals(emotion.getIsMeaningful())) {
+                    meaningful++;
+                }
+            }
+
+            try {
+                persisted += emotionRepository.batchSaveEmotionalMemories(userId, chunk);
+            } catch (Exception e) {
+                log.error("批量保存情感记忆失败: userId={}, chunk=[{}, {})", userId, from, to, e);
+            }
+
+            if (chunkConsumer != null) {
+                chunkConsumer.accept(chunk);
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - startTime;
+        double messagesPerSecond = elapsedNanos > 0 ? total * 1_000_000_000.0 / elapsedNanos : 0.0;
+
+        BulkAnalysisStats stats = BulkAnalysisStats.builder()
+                .userId(userId)
+                .totalMessages(total)
+                .meaningfulCount(meaningful)
+                .persistedCount(persisted)
+                .chunkCount(chunks)
+                .parallelism(parallelism)
+                .elapsedMs(elapsedNanos / 1_000_000)
+                .messagesPerSecond(Math.round(messagesPerSecond * 10) / 10.0)
+                .build();
+
+        log.info("批量情感分析完成: userId={}, messages={}, meaningful={}, persisted={}, time={}ms, throughput={} msg/s",
+                userId, total, meaningful, persisted, stats.getElapsedMs(), stats.getMessagesPerSecond());
+
+        return stats;
+    }
+
+    /**
+     * 并行分析一个用户的消息，结果与输入顺序一致，不做持久化
+     */
+    public EmotionAnalysisDTO[] analyzeMessages(Long userId, List<String> messages) {
+        EmotionAnalysisDTO[] results = new EmotionAnalysisDTO[messages.size()];
+        if (results.length == 0) {
+            return results;
+        }
+        Users user = keywordEmotionExtractor.getUserById(userId);
+        analysisPool.invoke(new AnalyzeTask(
+                i -> keywordEmotionExtractor.analyze(messages.get(i), userId, user), results, 0, results.length));
+        return results;
+    }
+
+    /**
+     * 并行分析一批对话（可跨多个用户），结果与输入顺序一致，不做持久化
+     *
+     * @param users 预先批量查询的用户信息，缺失时按未知用户处理
+     */
+    public EmotionAnalysisDTO[] analyzeConversations(List<Conversations> conversations, Map<Long, Users> users) {
+        EmotionAnalysisDTO[] results = new EmotionAnalysisDTO[conversations.size()];
+        analysisPool.invoke(new AnalyzeTask(i -> {
+            Conversations conversation = conversations.get(i);
+            return keywordEmotionExtractor.analyze(conversation.getUserMessage(), conversation.getUserId(),
+                    users.get(conversation.getUserId()));
+        }, results, 0, results.length));
+        return results;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analysisPool.shutdown();
+    }
+
+    /**
+     * 分析任务：按下标区间二分拆分，结果直接写入共享数组对应位置，无需合并
+     */
+    private static class AnalyzeTask extends RecursiveAction {
+        private final IntFunction<EmotionAnalysisDTO> analyzer;
+        private final EmotionAnalysisDTO[] results;
+        private final int from;
+        private final int to;
+
+        AnalyzeTask(IntFunction<EmotionAnalysisDTO> analyzer, EmotionAnalysisDTO[] results, int from, int to) {
+            this.analyzer = analyzer;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = analyzer.apply(i);
+                }
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new AnalyzeTask(analyzer, results, from, mid),
+                    new AnalyzeTask(analyzer, results, mid, to));
+        }
+    }
+}
@@ -0,0 +1,383 @@
+// File: src/main/java/com/zs/service/emotion/batch/EmotionBackfillJob.java
+package com.zs.service.emotion.batch;
+
+import com.alibaba.druid.pool.DruidDataSource;
+import com.zs.entity.Conversations;
+import com.zs.entity.Users;
+import com.zs.mapper.ConversationsMapper;
+import com.zs.mapper.UsersMapper;
+import com.zs.service.emotion.cache.EmotionCacheManager;
+import com.zs.service.emotion.dto.BackfillProgress;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.repository.EmotionRepository;
+import com.zs.service.profile.EmotionProfileService;
+import com.zs.util.JsonTypeHandler;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 历史情感回填任务
+ * 词典调整后，从conversations表重新分析全部历史对话：
+ * 1. 按主键分块，每块用MyBatis流式游标读取，读完即释放连接
+ * 2. 借助BulkEmotionAnalyzer的Fork/Join池并行分析
+ * 3. 每块在一个事务内批量回写conversations并（可选）重建该块对话ID区间内的emotional_memories，
+ *    先删后写，提交后、写检查点前中断时续跑会重做这一块，结果不变
+ * 4. 每块提交后把最后处理的ID写入Redis检查点，中断后可续跑；缓存与画像在检查点之后重放，不会重复累加
+ * 5. 按行数限速，并在连接池繁忙时主动退让，避免挤占在线请求的数据库连接
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmotionBackfillJob {
+
+    private final ConversationsMapper conversationsMapper;
+    private final UsersMapper usersMapper;
+    private final BulkEmotionAnalyzer bulkEmotionAnalyzer;
+    private final EmotionRepository emotionRepository;
+    private final EmotionCacheManager emotionCacheManager;
+    private final EmotionProfileService emotionProfileService;
+    private final JsonTypeHandler jsonTypeHandler;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final DataSource dataSource;
+
+    // Redis键
+    private static final String CHECKPOINT_KEY = "emotion:backfill:checkpoint";
+    private static final String TOUCHED_USERS_KEY = "emotion:backfill:users";
+
+    @Value("${app.emotion.backfill.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${app.emotion.backfill.max-rows-per-second:2000}")
+    private int maxRowsPerSecond;
+
+    @Value("${app.emotion.backfill.pool-busy-ratio:0.5}")
+    private double poolBusyRatio;
+
+    @Value("${app.emotion.backfill.busy-backoff-ms:500}")
+    private long busyBackoffMs;
+
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private volatile boolean stopRequested;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "emotion-backfill");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private TransactionTemplate readTemplate;
+    private TransactionTemplate writeTemplate;
+
+    @PostConstruct
+    public void init() {
+        readTemplate = new TransactionTemplate(transactionManager);
+        readTemplate.setReadOnly(true);
+        writeTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * 启动回填
+     *
+     * @param resume          存在未完成的检查点时是否续跑（续跑沿用检查点中的参数）
+     * @param rebuildMemories 是否按新结果重建回填区间内由对话产生的情感记忆
+     * @param rebuildCaches   是否清空并重放情感缓存与画像
+     */
+    public BackfillProgress start(boolean resume, boolean rebuildMemories, boolean rebuildCaches) {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("回填任务正在运行");
+        }
+
+        try {
+            Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(CHECKPOINT_KEY);
+            boolean canResume = resume && !checkpoint.isEmpty() && !"COMPLETED".equals(checkpoint.get("status"));
+
+            if (!canResume) {
+                // 上界固定为启动时的最大ID，之后的新对话已由在线链路分析，不重复处理
+                String now = LocalDateTime.now().toString();
+                checkpoint = new HashMap<>();
+                checkpoint.put("status", "RUNNING");
+                checkpoint.put("lastId", 0L);
+                checkpoint.put("maxId", conversationsMapper.selectMaxId());
+                checkpoint.put("processed", 0L);
+                checkpoint.put("meaningful", 0L);
+                checkpoint.put("persisted", 0L);
+                checkpoint.put("rebuildMemories", rebuildMemories);
+                checkpoint.put("rebuildCaches", rebuildCaches);
+                checkpoint.put("startedAt", now);
+                checkpoint.put("updatedAt", now);
+                checkpoint.put("error", "");
+                redisTemplate.delete(List.of(CHECKPOINT_KEY, TOUCHED_USERS_KEY));
+            } else {
+                checkpoint.put("status", "RUNNING");
+                checkpoint.put("error", "");
+            }
+            redisTemplate.opsForHash().putAll(CHECKPOINT_KEY, checkpoint);
+
+            stopRequested = false;
+            Map<Object, Object> state = checkpoint;
+            executor.submit(() -> run(state));
+
+            log.info("情感回填任务启动: resume={}, lastId={}, maxId={}",
+                    canResume, state.get("lastId"), state.get("maxId"));
+            return toProgress(state);
+
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * 请求暂停，当前块处理完成并写入检查点后停止
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public BackfillProgress getProgress() {
+        Map<Object, Object> checkpoint = redisTemplate.opsForHash().entries(CHECKPOINT_KEY);
+        if (checkpoint.isEmpty()) {
+            return BackfillProgress.builder().status("NONE").build();
+        }
+        return toProgress(checkpoint);
+    }
+
+    private void run(Map<Object, Object> state) {
+        long startNanos = System.nanoTime();
+        long rowsThisRun = 0;
+
+        try {
+            boolean rebuildMemories = Boolean.TRUE.equals(state.get("rebuildMemories"));
+            boolean rebuildCaches = Boolean.TRUE.equals(state.get("rebuildCaches"));
+            long maxId = asLong(state.get("maxId"));
+            long lastId = asLong(state.get("lastId"));
+
+            while (!stopRequested) {
+                awaitPoolCapacity();
+
+                List<Conversations> rows = readChunk(lastId, maxId);
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                long chunkLastId = rows.get(rows.size() - 1).getId();
+                List<EmotionAnalysisDTO> emotions = processChunk(rows, lastId, chunkLastId, state, rebuildMemories);
+
+                lastId = chunkLastId;
+                state.put("lastId", lastId);
+                saveCheckpoint(state);
+
+                if (rebuildCaches) {
+                    replayCaches(emotions);
+                }
+
+                rowsThisRun += rows.size();
+                throttle(startNanos, rowsThisRun);
+            }
+
+            finish(state, stopRequested ? "PAUSED" : "COMPLETED", null);
+
+        } catch (Exception e) {
+            log.error("情感回填任务失败: lastId={}", state.get("lastId"), e);
+            finish(state, "FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * 读取一块对话：游标只在只读事务内打开，读完整块后立即归还连接
+     */
+    private List<Conversations> readChunk(long afterId, long maxId) {
+        List<Conversations> rows = new ArrayList<>(chunkSize);
+        readTemplate.executeWithoutResult(status -> {
+            try (Cursor<Conversations> cursor = conversationsMapper.streamForBackfill(afterId, maxId, chunkSize)) {
+                cursor.forEach(rows::add);
+            } catch (IOException e) {
+                throw new IllegalStateException("关闭对话游标失败", e);
+            }
+        });
+        return rows;
+    }
+
+    /**
+     * 分析一块对话并在一个事务内回写，返回分析结果供检查点保存后重放缓存
+     *
+     * @param afterId 本块之前的检查点（不含）
+     * @param toId    本块最后一条对话ID（含）
+     */
+    private List<EmotionAnalysisDTO> processChunk(List<Conversations> rows, long afterId, long toId,
+                                                  Map<Object, Object> state, boolean rebuildMemories) {
+        // 用户信息整块只查询一次
+        Set<Long> userIds = new HashSet<>();
+        for (Conversations row : rows) {
+            userIds.add(row.getUserId());
+        }
+        Map<Long, Users> users = new HashMap<>();
+        for (Users user : usersMapper.selectBatchIds(userIds)) {
+            users.put(user.getId(), user);
+        }
+
+        EmotionAnalysisDTO[] results = bulkEmotionAnalyzer.analyzeConversations(rows, users);
+
+        List<Conversations> updates = new ArrayList<>(rows.size());
+        Map<Long, EmotionAnalysisDTO> byConversation = new LinkedHashMap<>();
+        long meaningful = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            Conversations row = rows.get(i);
+            EmotionAnalysisDTO emotion = results[i];
+            if (row.getCreatedAt() != null) {
+                // 趋势与历史按对话原始时间重放
+                emotion.setAnalysisTime(LocalDateTime.ofInstant(row.getCreatedAt().toInstant(), ZoneId.systemDefault()));
+            }
+            if (Boolean.TRUE.equals(emotion.getIsMeaningful())) {
+                meaningful++;
+            }
+            updates.add(toEmotionUpdate(row.getId(), emotion));
+            byConversation.put(row.getId(), emotion);
+        }
+
+        Integer persisted = writeTemplate.execute(status -> {
+            conversationsMapper.batchUpdateEmotion(updates);
+            return rebuildMemories
+                    ? emotionRepository.replaceConversationEmotionalMemories(afterId, toId, byConversation) : 0;
+        });
+
+        state.put("processed", asLong(state.get("processed")) + rows.size());
+        state.put("meaningful", asLong(state.get("meaningful")) + meaningful);
+        state.put("persisted", asLong(state.get("persisted")) + (persisted != null ? persisted : 0));
+        return Arrays.asList(results);
+    }
+
+    private Conversations toEmotionUpdate(Long id, EmotionAnalysisDTO emotion) {
+        Conversations update = new Conversations();
+        update.setId(id);
+        update.setEmotionLabel(emotion.getPrimaryEmotion());
+        update.setEmotionConfidence(BigDecimal.valueOf(emotion.getConfidence() != null ? emotion.getConfidence() : 0.5));
+        update.setEmotionKeywords(jsonTypeHandler.listToJson(emotion.getEmotionKeywords()));
+        update.setConversationContext(emotion.getConversationContext());
+        update.setIsMeaningful(Boolean.TRUE.equals(emotion.getIsMeaningful()) ? 1 : 0);
+        return update;
+    }
+
+    /**
+     * 按对话顺序重放缓存与画像，用户第一次出现时先清空其旧数据
+     */
+    private void replayCaches(List<EmotionAnalysisDTO> emotions) {
+        Set<Long> seen = new HashSet<>();
+        for (EmotionAnalysisDTO emotion : emotions) {
+            Long userId = emotion.getUserId();
+            if (seen.add(userId) && markUserTouched(userId)) {
+                emotionCacheManager.clearUserCache(userId);
+                emotionProfileService.clearEmotionProfile(userId);
+            }
+
+            emotionCacheManager.recordTurn(userId, emotion);
+            emotionProfileService.updateEmotionProfile(userId, emotion);
+        }
+    }
+
+    private boolean markUserTouched(Long userId) {
+        Long added = redisTemplate.opsForSet().add(TOUCHED_USERS_KEY, userId);
+        return added != null && added > 0;
+    }
+
+    /**
+     * 连接池活跃连接超过阈值时等待，把连接让给在线请求
+     */
+    private void awaitPoolCapacity() {
+        if (!(dataSource instanceof DruidDataSource druid)) {
+            return;
+        }
+        int threshold = Math.max(1, (int) (druid.getMaxActive() * poolBusyRatio));
+        while (!stopRequested && druid.getActiveCount() >= threshold) {
+            sleep(busyBackoffMs);
+        }
+    }
+
+    /**
+     * 按目标速率限速：处理得比预期快时补足差额
+     */
+    private void throttle(long startNanos, long rows) {
+        if (maxRowsPerSecond <= 0) {
+            return;
+        }
+        long expectedMs = rows * 1000L / maxRowsPerSecond;
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (expectedMs > elapsedMs) {
+            sleep(expectedMs - elapsedMs);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopRequested = true;
+        }
+    }
+
+    private void finish(Map<Object, Object> state, String status, String error) {
+        try {
+            state.put("status", status);
+            state.put("error", error != null ? error : "");
+            saveCheckpoint(state);
+            log.info("情感回填任务结束: status={}, lastId={}, processed={}, persisted={}",
+                    status, state.get("lastId"), state.get("processed"), state.get("persisted"));
+        } catch (Exception e) {
+            log.error("保存回填检查点失败: status={}", status, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void saveCheckpoint(Map<Object, Object> state) {
+        state.put("updatedAt", LocalDateTime.now().toString());
+        redisTemplate.opsForHash().putAll(CHECKPOINT_KEY, state);
+    }
+
+    private BackfillProgress toProgress(Map<Object, Object> checkpoint) {
+        Object error = checkpoint.get("error");
+        return BackfillProgress.builder()
+                .status((String) checkpoint.get("status"))
+                .lastId(asLong(checkpoint.get("lastId")))
+                .maxId(asLong(checkpoint.get("maxId")))
+                .processed(asLong(checkpoint.get("processed")))
+                .meaningful(asLong(checkpoint.get("meaningful")))
+                .persisted(asLong(checkpoint.get("persisted")))
+                .rebuildMemories(Boolean.TRUE.equals(checkpoint.get("rebuildMemories")))
+                .rebuildCaches(Boolean.TRUE.equals(checkpoint.get("rebuildCaches")))
+                .startedAt((String) checkpoint.get("startedAt"))
+                .updatedAt((String) checkpoint.get("updatedAt"))
+                .error(error != null && !error.toString().isEmpty() ? error.toString() : null)
+                .build();
+    }
+
+    private long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        executor.shutdown();
+    }
+}
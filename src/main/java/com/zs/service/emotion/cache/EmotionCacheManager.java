@@ -1,16 +1,22 @@
 // File: src/main/java/com/zs/service/emotion/cache/EmotionCacheManager.java
 package com.zs.service.emotion.cache;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
 import com.zs.service.emotion.dto.UserEmotionSnapshot;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,13 +29,20 @@ import java.util.concurrent.TimeUnit;
 public class EmotionCacheManager {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisCappedList cappedList;
+    private final ObjectMapper objectMapper;
+    private final TrendingKeywords trendingKeywords;
 
     // Redis键前缀
     private static final String KEY_PREFIX = "emotion:user:";
     private static final String CURRENT_KEY = "current";
     private static final String TREND_KEY = "trend";
-    private static final String KEYWORD_KEY = "keywords";
+    // 关键词频率为ZSET（按频次排序）；旧版哈希键在写入和读取时并入ZSET后删除
+    private static final String KEYWORD_KEY = "keyword-rank";
+    private static final String LEGACY_KEYWORD_KEY = "keywords";
     private static final String HISTORY_KEY = "history";
+    private static final List<String> USER_KEY_SUFFIXES =
+            List.of(CURRENT_KEY, TREND_KEY, KEYWORD_KEY, LEGACY_KEYWORD_KEY, HISTORY_KEY);
 
     // 缓存过期时间
     private static final Duration CURRENT_TTL = Duration.ofHours(1);
@@ -37,30 +50,91 @@ public class EmotionCacheManager {
     private static final Duration KEYWORD_TTL = Duration.ofDays(7);
     private static final Duration HISTORY_TTL = Duration.ofHours(24);
 
+    // 趋势与历史列表在Redis端保留的最大长度
+    private static final int TREND_MAX_SIZE = 100;
+    private static final int HISTORY_MAX_SIZE = 50;
+
+    // 本节点已确认没有旧版关键词哈希的用户数上限，超过后清空重新记录
+    private static final int MAX_MIGRATED_USERS = 100_000;
+
+    private final Set<Long> migratedUsers = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 旧版关键词哈希（KEYS[2]）存在时把各词计数累加进ZSET（KEYS[1]）并删除哈希，返回迁移的词数
+     * ZSET成员经值序列化器写成JSON字符串，这里按同样格式加引号转义；ARGV[1]为ZSET过期毫秒数
+     */
+    private static final RedisScript<Long> MIGRATE_LEGACY_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[2]) == 0 then
+                return 0
+            end
+            local flat = redis.call('HGETALL', KEYS[2])
+            for i = 1, #flat, 2 do
+                local count = tonumber(flat[i + 1])
+                if count then
+                    local member = '"' .. (string.gsub(flat[i], '[\\\\"]', '\\\\%0')) .. '"'
+                    redis.call('ZINCRBY', KEYS[1], count, member)
+                end
+            end
+            redis.call('DEL', KEYS[2])
+            redis.call('PEXPIRE', KEYS[1], tonumber(ARGV[1]))
+            return #flat / 2
+            """, Long.class);
+
+    /**
+     * 记录一轮对话的全部情感缓存写入
+     * 当前情感、趋势、关键词频率、历史合并为一个管道，一次网络往返完成；
+     * 旧版关键词哈希的迁移脚本在管道之前单独执行（管道内EVALSHA未命中时无法回退为EVAL），每个用户在本节点只执行一次
+     *
+     * @return 写入的当前情感快照，写入失败时为null
+     */
+    public UserEmotionSnapshot recordTurn(Long userId, EmotionAnalysisDTO emotion) {
+        try {
+            String currentKey = buildKey(userId, CURRENT_KEY);
+            String trendKey = buildKey(userId, TREND_KEY);
+            String keywordKey = buildKey(userId, KEYWORD_KEY);
+            String historyKey = buildKey(userId, HISTORY_KEY);
+
+            UserEmotionSnapshot snapshot = buildSnapshot(userId, emotion);
+            Map<String, Object> trendPoint = buildTrendPoint(emotion);
+            List<String> keywords = emotion.getEmotionKeywords();
+            if (keywords != null && !keywords.isEmpty()) {
+                ensureKeywordsMigrated(userId, keywordKey);
+            }
+
+            cappedList.executePipelined(List.of(trendKey, historyKey), operations -> {
+                // 项目固定的Jedis版本不支持SET EX参数，沿用SET + EXPIRE（同一管道内不增加往返）
+                operations.opsForValue().set(currentKey, snapshot);
+                operations.expire(currentKey, CURRENT_TTL);
+
+                cappedList.queueAppend(operations, trendKey, trendPoint, TREND_MAX_SIZE, TREND_TTL);
+
+                if (keywords != null && !keywords.isEmpty()) {
+                    for (String keyword : keywords) {
+                        operations.opsForZSet().incrementScore(keywordKey, keyword, 1);
+                    }
+                    operations.expire(keywordKey, KEYWORD_TTL);
+                }
+
+                cappedList.queueAppend(operations, historyKey, emotion, HISTORY_MAX_SIZE, HISTORY_TTL);
+            });
+            trendingKeywords.record(keywords);
+
+            log.debug("记录本轮情感缓存: userId={}, emotion={}", userId, emotion.getPrimaryEmotion());
+            return snapshot;
+
+        } catch (Exception e) {
+            log.error("记录本轮情感缓存失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
     /**
-     * 缓存当前情感状态 - 修正版
+     * 缓存当前情感状态
      */
     public void cacheCurrentEmotion(Long userId, EmotionAnalysisDTO emotion) {
         try {
             String key = buildKey(userId, CURRENT_KEY);
-
-            UserEmotionSnapshot snapshot = UserEmotionSnapshot.builder()
-                    .userId(userId)
-                    .primaryEmotion(emotion.getPrimaryEmotion())
-                    .intensity(emotion.getIntensity())
-                    .confidence(emotion.getConfidence())
-                    .keywords(emotion.getEmotionKeywords())
-                    .lifeScenario(emotion.getLifeScenario())
-                    .timestamp(LocalDateTime.now())
-                    .metadata(Map.of(
-                            "context", emotion.getConversationContext(),
-                            "isMeaningful", emotion.getIsMeaningful(),
-                            "source", emotion.getSource()
-                    ))
-                    .build();
-
-            // ✅ 修改这里：先set值，再设置过期时间
-            redisTemplate.opsForValue().set(key, snapshot);
+            redisTemplate.opsForValue().set(key, buildSnapshot(userId, emotion));
             redisTemplate.expire(key, CURRENT_TTL.toMinutes(), TimeUnit.MINUTES);
 
             log.debug("缓存当前情感状态: userId={}, emotion={}", userId, emotion.getPrimaryEmotion());
@@ -71,36 +145,12 @@ public class EmotionCacheManager {
     }
 
     /**
-     * 更新情感趋势 - 修正版
+     * 更新情感趋势：追加到定长列表，不再读取整个列表
      */
     public void updateEmotionTrend(Long userId, EmotionAnalysisDTO emotion) {
         try {
             String key = buildKey(userId, TREND_KEY);
-
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> trend = (List<Map<String, Object>>) redisTemplate.opsForValue().get(key);
-
-            if (trend == null) {
-                trend = new ArrayList<>();
-            }
-
-            Map<String, Object> trendPoint = new HashMap<>();
-            trendPoint.put("timestamp", System.currentTimeMillis());
-            trendPoint.put("emotion", emotion.getPrimaryEmotion());
-            trendPoint.put("intensity", emotion.getIntensity());
-            trendPoint.put("scenario", emotion.getLifeScenario());
-            trendPoint.put("keywords", emotion.getEmotionKeywords());
-
-            trend.add(trendPoint);
-
-            // 只保留最近100个点
-            if (trend.size() > 100) {
-                trend = trend.subList(trend.size() - 100, trend.size());
-            }
-
-            // ✅ 修改这里：先set值，再设置过期时间
-            redisTemplate.opsForValue().set(key, trend);
-            redisTemplate.expire(key, TREND_TTL.toMinutes(), TimeUnit.MINUTES);
+            cappedList.append(key, buildTrendPoint(emotion), TREND_MAX_SIZE, TREND_TTL);
 
         } catch (Exception e) {
             log.error("更新情感趋势失败: userId={}", userId, e);
@@ -108,7 +158,7 @@ public class EmotionCacheManager {
     }
 
     /**
-     * 更新关键词频率 - 这个方法已经正确，无需修改
+     * 更新关键词频率
      */
     public void updateKeywordFrequency(Long userId, List<String> keywords) {
         if (keywords == null || keywords.isEmpty()) {
@@ -117,13 +167,15 @@ public class EmotionCacheManager {
 
         try {
             String key = buildKey(userId, KEYWORD_KEY);
+            migrateLegacyKeywords(userId, key);
 
             for (String keyword : keywords) {
-                redisTemplate.opsForHash().increment(key, keyword, 1);
+                redisTemplate.opsForZSet().incrementScore(key, keyword, 1);
             }
 
             // 设置过期时间
             redisTemplate.expire(key, KEYWORD_TTL.toMinutes(), TimeUnit.MINUTES);
+            trendingKeywords.record(keywords);
 
         } catch (Exception e) {
             log.error("更新关键词频率失败: userId={}", userId, e);
@@ -136,7 +188,9 @@ public class EmotionCacheManager {
     public UserEmotionSnapshot getCurrentEmotion(Long userId) {
         try {
             String key = buildKey(userId, CURRENT_KEY);
-            return (UserEmotionSnapshot) redisTemplate.opsForValue().get(key);
+            Object snapshot = redisTemplate.opsForValue().get(key);
+            // 序列化不带类型信息，读回为Map，按快照类型转换
+            return snapshot != null ? objectMapper.convertValue(snapshot, UserEmotionSnapshot.class) : null;
         } catch (Exception e) {
             log.error("获取当前情感状态失败: userId={}", userId, e);
             return null;
@@ -144,22 +198,18 @@ public class EmotionCacheManager {
     }
 
     /**
-     * 获取情感趋势
+     * 获取情感趋势（最近limit个点，按时间先后）
      */
+    @SuppressWarnings("unchecked")
     public List<Map<String, Object>> getEmotionTrend(Long userId, int limit) {
         try {
             String key = buildKey(userId, TREND_KEY);
 
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> trend = (List<Map<String, Object>>) redisTemplate.opsForValue().get(key);
-
-            if (trend == null || trend.isEmpty()) {
-                return new ArrayList<>();
+            List<Map<String, Object>> trend = new ArrayList<>();
+            for (Object point : cappedList.latest(key, limit)) {
+                trend.add((Map<String, Object>) point);
             }
-
-            // 返回指定数量的数据
-            int start = Math.max(0, trend.size() - limit);
-            return new ArrayList<>(trend.subList(start, trend.size()));
+            return trend;
 
         } catch (Exception e) {
             log.error("获取情感趋势失败: userId={}", userId, e);
@@ -168,40 +218,63 @@ public class EmotionCacheManager {
     }
 
     /**
-     * 获取关键词频率
+     * 获取情感分析历史（最近limit条，按时间先后）
      */
-    public Map<String, Long> getKeywordFrequency(Long userId) {
+    public List<EmotionAnalysisDTO> getEmotionHistory(Long userId, int limit) {
         try {
-            String key = buildKey(userId, KEYWORD_KEY);
-
-            @SuppressWarnings("unchecked")
-            Map<Object, Object> rawMap = redisTemplate.opsForHash().entries(key);
-
-            Map<String, Long> result = new HashMap<>();
-            rawMap.forEach((k, v) -> {
-                if (k != null && v != null) {
-                    result.put(k.toString(), Long.parseLong(v.toString()));
-                }
-            });
+            String key = buildKey(userId, HISTORY_KEY);
 
-            return result;
+            List<EmotionAnalysisDTO> history = new ArrayList<>();
+            for (Object item : cappedList.latest(key, limit)) {
+                history.add(item instanceof EmotionAnalysisDTO dto
+                        ? dto : objectMapper.convertValue(item, EmotionAnalysisDTO.class));
+            }
+            return history;
 
         } catch (Exception e) {
-            log.error("获取关键词频率失败: userId={}", userId, e);
-            return new HashMap<>();
+            log.error("获取情感历史失败: userId={}", userId, e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 获取关键词频率
+     */
+    public Map<String, Long> getKeywordFrequency(Long userId) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : getTopKeywords(userId, -1)) {
+            result.put(entry.getKey(), entry.getValue());
         }
+        return result;
     }
 
     /**
-     * 获取热门关键词
+     * 获取热门关键词：ZSET按频次倒序取前topN个（topN小于等于0取全部），排序在Redis端完成
      */
     public List<Map.Entry<String, Long>> getTopKeywords(Long userId, int topN) {
-        Map<String, Long> frequency = getKeywordFrequency(userId);
+        try {
+            String key = buildKey(userId, KEYWORD_KEY);
+            long end = topN > 0 ? topN - 1 : -1;
+
+            Set<ZSetOperations.TypedTuple<Object>> tuples = redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, end);
+            if ((tuples == null || tuples.isEmpty()) && migrateLegacyKeywords(userId, key) > 0) {
+                tuples = redisTemplate.opsForZSet().reverseRangeWithScores(key, 0, end);
+            }
 
-        return frequency.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(topN)
-                .collect(java.util.stream.Collectors.toList());
+            List<Map.Entry<String, Long>> result = new ArrayList<>();
+            if (tuples != null) {
+                for (ZSetOperations.TypedTuple<Object> tuple : tuples) {
+                    if (tuple.getValue() != null && tuple.getScore() != null) {
+                        result.add(new AbstractMap.SimpleEntry<>(tuple.getValue().toString(), tuple.getScore().longValue()));
+                    }
+                }
+            }
+            return result;
+
+        } catch (Exception e) {
+            log.error("获取热门关键词失败: userId={}", userId, e);
+            return new ArrayList<>();
+        }
     }
 
     /**
@@ -209,47 +282,99 @@ public class EmotionCacheManager {
      */
     public void clearUserCache(Long userId) {
         try {
-            // 清除所有相关键
-            String pattern = KEY_PREFIX + userId + ":*";
-            Set<String> keys = redisTemplate.keys(pattern);
-
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("清除用户情感缓存: userId={}, keys={}", userId, keys.size());
+            // 用户的缓存键是固定的几个，直接删除，不扫描键空间
+            List<String> keys = new ArrayList<>(USER_KEY_SUFFIXES.size());
+            for (String suffix : USER_KEY_SUFFIXES) {
+                keys.add(buildKey(userId, suffix));
             }
+
+            Long deleted = redisTemplate.delete(keys);
+            log.info("清除用户情感缓存: userId={}, keys={}", userId, deleted);
         } catch (Exception e) {
             log.error("清除用户缓存失败: userId={}", userId, e);
         }
     }
 
     /**
-     * 记录情感分析历史 - 修正版
+     * 记录情感分析历史：追加到定长列表
      */
     public void recordEmotionHistory(Long userId, EmotionAnalysisDTO emotion) {
         try {
             String key = buildKey(userId, HISTORY_KEY);
+            cappedList.append(key, emotion, HISTORY_MAX_SIZE, HISTORY_TTL);
 
-            @SuppressWarnings("unchecked")
-            List<EmotionAnalysisDTO> history = (List<EmotionAnalysisDTO>) redisTemplate.opsForValue().get(key);
+        } catch (Exception e) {
+            log.error("记录情感历史失败: userId={}", userId, e);
+        }
+    }
 
-            if (history == null) {
-                history = new ArrayList<>();
-            }
+    /**
+     * 管道写入前确保旧版关键词哈希已并入ZSET；失败时不记为已迁移，下一轮重试
+     */
+    private void ensureKeywordsMigrated(Long userId, String key) {
+        if (migratedUsers.contains(userId)) {
+            return;
+        }
+        try {
+            migrateLegacyKeywords(userId, key);
+        } catch (Exception e) {
+            log.warn("迁移旧版关键词哈希失败，下次写入重试: userId={}", userId, e);
+            return;
+        }
+        if (migratedUsers.size() >= MAX_MIGRATED_USERS) {
+            migratedUsers.clear();
+        }
+        migratedUsers.add(userId);
+    }
 
-            history.add(emotion);
+    /**
+     * 旧版关键词哈希并入ZSET（原子执行，ZSET已有数据时累加），返回迁移的词数
+     */
+    private long migrateLegacyKeywords(Long userId, String key) {
+        Long migrated = redisTemplate.execute(MIGRATE_LEGACY_SCRIPT,
+                List.of(key, buildKey(userId, LEGACY_KEYWORD_KEY)), KEYWORD_TTL.toMillis());
+        if (migrated != null && migrated > 0) {
+            log.info("关键词频率已迁移为有序集合: userId={}, keywords={}", userId, migrated);
+        }
+        return migrated != null ? migrated : 0;
+    }
 
-            // 只保留最近50条记录
-            if (history.size() > 50) {
-                history = history.subList(history.size() - 50, history.size());
-            }
+    private UserEmotionSnapshot buildSnapshot(Long userId, EmotionAnalysisDTO emotion) {
+        // 字段可能为空，Map.of不接受null值
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("context", emotion.getConversationContext());
+        metadata.put("isMeaningful", emotion.getIsMeaningful());
+        metadata.put("source", emotion.getSource());
+
+        return UserEmotionSnapshot.builder()
+                .userId(userId)
+                .primaryEmotion(emotion.getPrimaryEmotion())
+                .intensity(emotion.getIntensity())
+                .confidence(emotion.getConfidence())
+                .keywords(emotion.getEmotionKeywords() != null ? List.copyOf(emotion.getEmotionKeywords()) : null)
+                .lifeScenario(emotion.getLifeScenario())
+                .timestamp(LocalDateTime.now())
+                .metadata(Collections.unmodifiableMap(metadata))
+                .build();
+    }
 
-            // ✅ 修改这里：先set值，再设置过期时间
-            redisTemplate.opsForValue().set(key, history);
-            redisTemplate.expire(key, HISTORY_TTL.toMinutes(), TimeUnit.MINUTES);
+    /**
+     * 构建趋势点（物化报告增量追加时复用同一结构）
+     */
+    public Map<String, Object> buildTrendPoint(EmotionAnalysisDTO emotion) {
+        Map<String, Object> trendPoint = new HashMap<>();
+        trendPoint.put("timestamp", toEpochMillis(emotion.getAnalysisTime()));
+        trendPoint.put("emotion", emotion.getPrimaryEmotion());
+        trendPoint.put("intensity", emotion.getIntensity());
+        trendPoint.put("scenario", emotion.getLifeScenario());
+        trendPoint.put("keywords", emotion.getEmotionKeywords());
+        return trendPoint;
+    }
 
-        } catch (Exception e) {
-            log.error("记录情感历史失败: userId={}", userId, e);
-        }
+    private long toEpochMillis(LocalDateTime time) {
+        return time != null
+                ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
     }
 
     /**
@@ -0,0 +1,128 @@
+// File: src/main/java/com/zs/service/emotion/cache/EmotionReportCache.java
+package com.zs.service.emotion.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.service.emotion.dto.MaterializedReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 物化情感报告存储
+ * 报告在用户的更新通道内随每轮对话写入，读接口只做一次GET；
+ * 用户信息单独缓存（较短TTL，资料修改时失效），组合报告时不再查库
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmotionReportCache {
+
+    private static final String REPORT_PREFIX = "emotion:report:user:";
+    private static final String USER_INFO_PREFIX = "emotion:report:userinfo:";
+
+    // 与情感趋势的保留时长一致
+    private static final Duration REPORT_TTL = Duration.ofDays(1);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.emotion.report.user-info-ttl-seconds:300}")
+    private long userInfoTtlSeconds;
+
+    /**
+     * 读取物化报告，不存在返回null
+     */
+    public MaterializedReport get(Long userId) {
+        try {
+            Object value = redisTemplate.opsForValue().get(REPORT_PREFIX + userId);
+            return value != null ? objectMapper.convertValue(value, MaterializedReport.class) : null;
+        } catch (Exception e) {
+            log.error("读取物化报告失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 写入新版本报告，版本号取当前毫秒时间且严格大于上一版本（过期重建后也不会与旧ETag重复）
+     */
+    public MaterializedReport put(Long userId, Map<String, Object> report, long previousVersion) {
+        MaterializedReport materialized = MaterializedReport.builder()
+                .userId(userId)
+                .version(Math.max(previousVersion + 1, System.currentTimeMillis()))
+                .report(report)
+                .build();
+        set(REPORT_PREFIX + userId, materialized, REPORT_TTL);
+        return materialized;
+    }
+
+    /**
+     * 读取缓存的用户信息（含缓存时的版本号），不存在返回null
+     */
+    public MaterializedReport getUserInfo(Long userId) {
+        try {
+            Object value = redisTemplate.opsForValue().get(USER_INFO_PREFIX + userId);
+            return value != null ? objectMapper.convertValue(value, MaterializedReport.class) : null;
+        } catch (Exception e) {
+            log.error("读取缓存的用户信息失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    public MaterializedReport putUserInfo(Long userId, Map<String, Object> userInfo) {
+        MaterializedReport materialized = MaterializedReport.builder()
+                .userId(userId)
+                .version(System.currentTimeMillis())
+                .report(userInfo)
+                .build();
+        set(USER_INFO_PREFIX + userId, materialized, Duration.ofSeconds(userInfoTtlSeconds));
+        return materialized;
+    }
+
+    /**
+     * 用户资料变更后调用
+     */
+    public void evictUserInfo(Long userId) {
+        try {
+            redisTemplate.delete(USER_INFO_PREFIX + userId);
+        } catch (Exception e) {
+            log.error("清除缓存的用户信息失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 删除用户的物化报告与用户信息缓存
+     */
+    public void evict(Long userId) {
+        try {
+            redisTemplate.delete(List.of(REPORT_PREFIX + userId, USER_INFO_PREFIX + userId));
+        } catch (Exception e) {
+            log.error("清除物化报告失败: userId={}", userId, e);
+        }
+    }
+
+    private void set(String key, Object value, Duration ttl) {
+        try {
+            // 项目固定的Jedis版本不支持SET EX参数，SET + EXPIRE同一管道
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    operations.opsForValue().set(key, value);
+                    operations.expire(key, ttl);
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("写入物化报告失败: key={}", key, e);
+        }
+    }
+}
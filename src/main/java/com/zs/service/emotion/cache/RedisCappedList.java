@@ -0,0 +1,131 @@
+// File: src/main/java/com/zs/service/emotion/cache/RedisCappedList.java
+package com.zs.service.emotion.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 服务端定长的追加型Redis列表
+ * 写入为 RPUSH + LTRIM + EXPIRE，不读取旧数据，并发写入不会互相覆盖；
+ * 可单独执行，也可与其他命令合并进同一个管道
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCappedList {
+
+    // 已确认为列表（或不存在）的键数上限，超过后清空重新记录
+    private static final int MAX_CHECKED_KEYS = 100_000;
+
+    /**
+     * 键存在且不是列表时删除，返回是否删除
+     */
+    private static final RedisScript<Long> MIGRATE_SCRIPT = new DefaultRedisScript<>("""
+            local keyType = redis.call('TYPE', KEYS[1]).ok
+            if keyType ~= 'list' and keyType ~= 'none' then
+                redis.call('DEL', KEYS[1])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final Set<String> checkedKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 追加元素，只保留最近maxSize个
+     */
+    public void append(String key, Object value, int maxSize, Duration ttl) {
+        executePipelined(List.of(key), operations -> queueAppend(operations, key, value, maxSize, ttl));
+    }
+
+    /**
+     * 在调用方的管道中排入一次追加（RPUSH + LTRIM + EXPIRE）
+     */
+    public void queueAppend(RedisOperations<String, Object> operations,
+                            String key, Object value, int maxSize, Duration ttl) {
+        operations.opsForList().rightPush(key, value);
+        operations.opsForList().trim(key, -maxSize, -1);
+        operations.expire(key, ttl);
+    }
+
+    /**
+     * 以一次管道往返执行一组命令
+     * listKeys为其中作为定长列表使用的键：旧版本以整体JSON字符串存储，每个键在本节点首次使用时先检查类型，
+     * 不是列表则删除，检查通过后才执行管道。管道不是原子的，失败时直接抛出，不重放已部分执行的命令
+     */
+    public void executePipelined(Collection<String> listKeys, Consumer<RedisOperations<String, Object>> commands) {
+        for (String key : listKeys) {
+            ensureList(key);
+        }
+        try {
+            pipeline(commands);
+        } catch (DataAccessException e) {
+            // 下次使用时重新检查类型
+            checkedKeys.removeAll(listKeys);
+            throw e;
+        }
+    }
+
+    /**
+     * 读取最近limit个元素，按写入顺序（旧到新）返回
+     */
+    public List<Object> latest(String key, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        List<Object> values = redisTemplate.opsForList().range(key, -limit, -1);
+        return values != null ? values : Collections.emptyList();
+    }
+
+    /**
+     * 按下标读取单个元素，负数表示从尾部倒数
+     */
+    public Object get(String key, long index) {
+        return redisTemplate.opsForList().index(key, index);
+    }
+
+    /**
+     * 旧格式键迁移：类型检查与删除在一个脚本内完成，每个键在本节点只检查一次
+     */
+    private void ensureList(String key) {
+        if (checkedKeys.contains(key)) {
+            return;
+        }
+        Long deleted = redisTemplate.execute(MIGRATE_SCRIPT, List.of(key));
+        if (deleted != null && deleted > 0) {
+            log.info("迁移旧格式列表键: key={}", key);
+        }
+        if (checkedKeys.size() >= MAX_CHECKED_KEYS) {
+            checkedKeys.clear();
+        }
+        checkedKeys.add(key);
+    }
+
+    private void pipeline(Consumer<RedisOperations<String, Object>> commands) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                commands.accept(operations);
+                return null;
+            }
+        });
+    }
+}
@@ -0,0 +1,240 @@
+// File: src/main/java/com/zs/service/emotion/cache/TrendingKeywords.java
+package com.zs.service.emotion.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 全站热门情感关键词
+ *
+ * 按小时分桶：每桶一个Count-Min Sketch（Redis哈希，DEPTH行 x WIDTH列计数器）估算词频，
+ * 外加一个容量有限的重点词ZSET（heavy hitters），只保留本桶估计频次最高的若干词。
+ * 各节点先在本地累加，定时合并写入；查询时合并窗口内各桶的重点词作为候选，
+ * 再用各桶的Sketch估算候选词的窗口总频次，不需要遍历任何用户的数据
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TrendingKeywords {
+
+    private static final String CMS_PREFIX = "trending:cms:";
+    private static final String TOP_PREFIX = "trending:top:";
+    private static final String VIEW_PREFIX = "trending:view:";
+
+    // Sketch尺寸：误差上限约为 e/WIDTH x 桶内总词次，超出概率约 e^-DEPTH
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 2048;
+
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    // 分桶保留时长，查询窗口不能超过该值
+    private static final Duration RETENTION = Duration.ofDays(7);
+    // 窗口候选集合并结果的缓存时长
+    private static final Duration VIEW_TTL = Duration.ofMinutes(1);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${app.emotion.trending.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.emotion.trending.heavy-hitters:200}")
+    private int heavyHitters;
+
+    // 本地待合并的词频，关键词来自情感词典，数量有限，条目常驻只重置计数
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一轮对话的关键词（只做本地累加）
+     */
+    public void record(List<String> keywords) {
+        if (!enabled || keywords == null) {
+            return;
+        }
+        for (String keyword : keywords) {
+            if (keyword != null && !keyword.isBlank()) {
+                pending.computeIfAbsent(keyword, k -> new LongAdder()).increment();
+            }
+        }
+    }
+
+    /**
+     * 把本地累加的词频合并进当前小时的Sketch和重点词集合
+     * 第一个管道累加计数器并取回新值，第二个管道写入估计频次并裁剪重点词集合
+     */
+    @Scheduled(fixedDelayString = "${app.emotion.trending.flush-interval-ms:10000}")
+    public void flush() {
+        Map<String, Long> counts = drain();
+        if (counts.isEmpty()) {
+            return;
+        }
+
+        long hour = currentHour();
+        String cmsKey = CMS_PREFIX + hour;
+        String topKey = TOP_PREFIX + hour;
+        List<String> words = new ArrayList<>(counts.keySet());
+
+        try {
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String word : words) {
+                        long count = counts.get(word);
+                        for (String field : fields(word)) {
+                            operations.opsForHash().increment(cmsKey, field, count);
+                        }
+                    }
+                    operations.expire(cmsKey, RETENTION);
+                    return null;
+                }
+            });
+
+            Set<ZSetOperations.TypedTuple<Object>> estimates = new HashSet<>();
+            for (int i = 0; i < words.size(); i++) {
+                long estimate = Long.MAX_VALUE;
+                for (int row = 0; row < DEPTH; row++) {
+                    estimate = Math.min(estimate, ((Number) results.get(i * DEPTH + row)).longValue());
+                }
+                estimates.add(ZSetOperations.TypedTuple.of((Object) words.get(i), (double) estimate));
+            }
+
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    operations.opsForZSet().add(topKey, estimates);
+                    operations.opsForZSet().removeRange(topKey, 0, -(heavyHitters + 1));
+                    operations.expire(topKey, RETENTION);
+                    return null;
+                }
+            });
+
+            log.debug("合并热门关键词: hour={}, words={}", hour, words.size());
+
+        } catch (Exception e) {
+            // 丢弃本轮计数，热门词是近似统计，不重试
+            log.error("合并热门关键词失败: hour={}, words={}", hour, words.size(), e);
+        }
+    }
+
+    /**
+     * 最近hours小时内的全站热门关键词，按估计频次降序
+     */
+    public List<Map<String, Object>> getTrending(int hours, int topN) {
+        int window = (int) Math.max(1, Math.min(hours, RETENTION.toHours()));
+        int limit = Math.max(1, topN);
+        long now = currentHour();
+
+        try {
+            List<String> buckets = new ArrayList<>(window);
+            for (int i = 0; i < window; i++) {
+                buckets.add(String.valueOf(now - i));
+            }
+
+            // 合并各桶重点词得到候选（多取一倍，由Sketch重新估算后再截取）
+            String viewKey = VIEW_PREFIX + window + ":" + now;
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(viewKey))) {
+                List<String> topKeys = buckets.stream().map(b -> TOP_PREFIX + b).toList();
+                redisTemplate.opsForZSet().unionAndStore(topKeys.get(0), topKeys.subList(1, topKeys.size()), viewKey);
+                redisTemplate.expire(viewKey, VIEW_TTL);
+            }
+            Set<Object> candidates = redisTemplate.opsForZSet().reverseRange(viewKey, 0, limit * 2L - 1);
+            if (candidates == null || candidates.isEmpty()) {
+                return new ArrayList<>();
+            }
+
+            List<String> words = candidates.stream().map(String::valueOf).toList();
+            List<Object> fields = new ArrayList<>(words.size() * DEPTH);
+            for (String word : words) {
+                fields.addAll(fields(word));
+            }
+
+            List<Object> perBucket = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) throws DataAccessException {
+                    for (String bucket : buckets) {
+                        operations.opsForHash().multiGet(CMS_PREFIX + bucket, fields);
+                    }
+                    return null;
+                }
+            });
+
+            long[] totals = new long[words.size()];
+            for (Object bucketResult : perBucket) {
+                List<?> counters = (List<?>) bucketResult;
+                for (int i = 0; i < words.size(); i++) {
+                    long estimate = Long.MAX_VALUE;
+                    for (int row = 0; row < DEPTH; row++) {
+                        Object counter = counters.get(i * DEPTH + row);
+                        estimate = Math.min(estimate, counter != null ? Long.parseLong(counter.toString()) : 0L);
+                    }
+                    totals[i] += estimate;
+                }
+            }
+
+            List<Map<String, Object>> trending = new ArrayList<>(words.size());
+            for (int i = 0; i < words.size(); i++) {
+                if (totals[i] > 0) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("keyword", words.get(i));
+                    item.put("count", totals[i]);
+                    trending.add(item);
+                }
+            }
+            trending.sort((a, b) -> Long.compare((Long) b.get("count"), (Long) a.get("count")));
+            return trending.size() > limit ? new ArrayList<>(trending.subList(0, limit)) : trending;
+
+        } catch (Exception e) {
+            log.error("获取热门关键词失败: hours={}", hours, e);
+            return new ArrayList<>();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Map<String, Long> drain() {
+        Map<String, Long> counts = new HashMap<>();
+        pending.forEach((word, adder) -> {
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                counts.put(word, count);
+            }
+        });
+        return counts;
+    }
+
+    /**
+     * 关键词在各行的计数器字段：两个独立散列值线性组合出DEPTH个列号
+     */
+    private static List<String> fields(String word) {
+        long h = word.hashCode() * 0x9E3779B97F4A7C15L;
+        int h1 = (int) (h ^ (h >>> 32));
+        int h2 = (int) ((h >>> 17) * 0xC2B2AE3DL) | 1;
+        List<String> fields = new ArrayList<>(DEPTH);
+        for (int row = 0; row < DEPTH; row++) {
+            fields.add(row + ":" + Math.floorMod(h1 + row * h2, WIDTH));
+        }
+        return fields;
+    }
+
+    private static long currentHour() {
+        return System.currentTimeMillis() / HOUR_MILLIS;
+    }
+}
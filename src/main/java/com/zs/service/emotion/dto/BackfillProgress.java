@@ -0,0 +1,29 @@
+// File: src/main/java/com/zs/service/emotion/dto/BackfillProgress.java
+package com.zs.service.emotion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 历史情感回填进度
+ * 与Redis中的检查点一一对应，重启后可据此续跑
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BackfillProgress {
+    private String status;               // RUNNING, PAUSED, COMPLETED, FAILED, NONE
+    private Long lastId;                 // 已处理的最大对话ID（检查点）
+    private Long maxId;                  // 本次回填的对话ID上界（启动时的MAX(id)）
+    private Long processed;              // 已处理对话数
+    private Long meaningful;             // 其中重要情感数量
+    private Long persisted;              // 写入emotional_memories的行数
+    private Boolean rebuildMemories;     // 是否重建情感记忆
+    private Boolean rebuildCaches;       // 是否重放缓存与画像
+    private String startedAt;
+    private String updatedAt;
+    private String error;                // 失败原因
+}
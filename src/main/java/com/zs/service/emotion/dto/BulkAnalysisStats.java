@@ -0,0 +1,26 @@
+// File: src/main/java/com/zs/service/emotion/dto/BulkAnalysisStats.java
+package com.zs.service.emotion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量情感分析统计
+ * 记录一次批量分析的规模、入库数量与吞吐量
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAnalysisStats {
+    private Long userId;
+    private Integer totalMessages;       // 输入消息数
+    private Integer meaningfulCount;     // 重要情感数量
+    private Integer persistedCount;      // 实际写入emotional_memories的行数
+    private Integer chunkCount;          // 分块数量（每块一次批量INSERT）
+    private Integer parallelism;         // Fork/Join并行度
+    private Long elapsedMs;              // 总耗时(毫秒)
+    private Double messagesPerSecond;    // 吞吐量(条/秒)
+}
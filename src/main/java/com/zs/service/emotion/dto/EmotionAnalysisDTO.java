@@ -2,10 +2,13 @@
 package com.zs.service.emotion.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.io.Serializable;
 import java.time.LocalDateTime;
@@ -60,4 +63,17 @@ public class EmotionAnalysisDTO implements Serializable {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     private LocalDateTime analysisTime;
     private Long processingTimeMs;       // 处理耗时(毫秒)
-}
\ No newline at end of file
+
+    // 原始得分向量，未显式设置emotionScores时由它生成只读Map（转换结果缓存在向量内，读取不修改DTO）
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient EmotionScoreVector scoreVector;
+
+    public Map<String, Double> getEmotionScores() {
+        if (emotionScores == null && scoreVector != null) {
+            return scoreVector.toMap();
+        }
+        return emotionScores;
+    }
+}
@@ -0,0 +1,44 @@
+// File: src/main/java/com/zs/service/emotion/dto/EmotionScoreVector.java
+package com.zs.service.emotion.dto;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 情感得分向量
+ * 按情感类型序号索引的原始数组，只有调用方需要Map形式时才转换。
+ * 创建后不再修改，转换结果是只读Map并缓存在向量内，多线程并发读取时最多重复转换一次，结果相同
+ */
+public final class EmotionScoreVector {
+
+    // labels[i]为null表示该情感类型不参与评分，不会出现在Map中
+    private final String[] labels;
+    private final double[] scores;
+
+    private volatile Map<String, Double> map;
+
+    public EmotionScoreVector(String[] labels, double[] scores) {
+        this.labels = labels;
+        this.scores = scores.clone();
+    }
+
+    public double get(int ordinal) {
+        return scores[ordinal];
+    }
+
+    public Map<String, Double> toMap() {
+        Map<String, Double> result = map;
+        if (result == null) {
+            Map<String, Double> built = new HashMap<>();
+            for (int i = 0; i < scores.length; i++) {
+                if (labels[i] != null) {
+                    built.put(labels[i], scores[i]);
+                }
+            }
+            result = Collections.unmodifiableMap(built);
+            map = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,33 @@
+// File: src/main/java/com/zs/service/emotion/dto/MaterializedReport.java
+package com.zs.service.emotion.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * 物化的用户情感报告：每轮对话后增量更新，读接口直接返回
+ * version 每次更新递增，用于生成ETag支持条件请求
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MaterializedReport {
+    private Long userId;
+    private long version;
+    private Map<String, Object> report;
+
+    // 组合报告附带的用户信息缓存版本，单独的情感报告为null
+    private Long userInfoVersion;
+
+    /**
+     * 弱ETag：用户ID + 版本号（+ 用户信息版本）
+     */
+    public String etag() {
+        return "W/\"" + userId + "-" + version + (userInfoVersion != null ? "-" + userInfoVersion : "") + "\"";
+    }
+}
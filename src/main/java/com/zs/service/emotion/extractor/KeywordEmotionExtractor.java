@@ -4,6 +4,8 @@ package com.zs.service.emotion.extractor;
 import com.zs.entity.Users;
 import com.zs.mapper.UsersMapper;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.dto.EmotionScoreVector;
+import com.zs.service.nlp.ChineseSegmenter;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
@@ -12,7 +14,6 @@ import org.springframework.stereotype.Component;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * 基于关键词的情感提取器
@@ -25,10 +26,21 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
     @Resource
     private UsersMapper usersMapper;
 
+    // 与记忆模块共用的分词器，未注入时（单独构造）上下文关键词只含场景词
+    private ChineseSegmenter chineseSegmenter;
+
     // 情感关键词库（可配置化）
     private final Map<String, Map<String, Double>> emotionKeywordMap = new ConcurrentHashMap<>();
     private final Map<String, List<String>> scenarioKeywordMap = new ConcurrentHashMap<>();
 
+    // 编译后的词典，由上面两个Map生成，整体替换保证读到的是一致的快照
+    private volatile CompiledLexicon lexicon;
+
+    private static final EmotionType[] EMOTION_TYPES = EmotionType.values();
+    private static final int EMOTION_COUNT = EMOTION_TYPES.length;
+    private static final int MAX_KEYWORDS = 10;
+    private static final Set<String> MEANINGFUL_EMOTIONS = Set.of("SAD", "ANXIOUS", "ANGRY");
+
     // 情感类型定义
     public enum EmotionType {
         HAPPY("开心", 0.9),
@@ -54,10 +66,19 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
         public double getDefaultIntensity() { return defaultIntensity; }
     }
 
+    /**
+     * 注入共用分词器（基准测试等单独构造时手动设置）
+     */
+    @Resource
+    public void setChineseSegmenter(ChineseSegmenter chineseSegmenter) {
+        this.chineseSegmenter = chineseSegmenter;
+    }
+
     @PostConstruct
     public void init() {
         initializeEmotionKeywords();
         initializeScenarioKeywords();
+        compileLexicon();
         log.info("关键词情感提取器初始化完成，加载{}种情感类型，{}种生活场景",
                 emotionKeywordMap.size(), scenarioKeywordMap.size());
     }
@@ -143,31 +164,46 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
 
     @Override
     public EmotionAnalysisDTO analyze(String text, Long userId) {
+        // 获取用户信息（根据你的实体类调整）
+        return analyze(text, userId, getUserById(userId));
+    }
+
+    /**
+     * 使用已加载的用户信息分析情感
+     * 批量场景下由调用方预先查询一次用户，避免每条消息都查询users表
+     */
+    public EmotionAnalysisDTO analyze(String text, Long userId, Users user) {
         long startTime = System.currentTimeMillis();
 
         try {
-            // 1. 获取用户信息（根据你的实体类调整）
-            Users user = getUserById(userId);
+            // 1. 用户信息
             String username = user != null ? user.getUsername() : "用户" + userId;
             String personalityType = user != null ? user.getPersonalityType() : "balanced";
             String emotionalTendency = user != null ? user.getEmotionalTendency() : null;
             String studentId = user != null ? user.getStudentId() : null;
             String university = user != null ? user.getUniversity() : null;
 
-            // 2. 情感得分计算
-            Map<String, Double> emotionScores = calculateEmotionScores(text);
+            // 2. 情感得分计算（按情感类型序号索引的原始数组）
+            CompiledLexicon lex = this.lexicon;
+            String lowerText = text.toLowerCase();
+            double[] scores = new double[EMOTION_COUNT];
+            int[] hits = new int[lex.words.length];
+            int hitCount = scoreEmotions(lex, lowerText, scores, hits);
 
             // 3. 确定主要和次要情感
-            String primaryEmotion = determinePrimaryEmotion(emotionScores);
-            String secondaryEmotion = determineSecondaryEmotion(emotionScores, primaryEmotion);
-            Double intensity = emotionScores.getOrDefault(primaryEmotion, 0.0);
+            int primary = argMaxEmotion(lex.labels, scores, -1);
+            int secondary = argMaxEmotion(lex.labels, scores, primary);
+            String primaryEmotion = primary < 0 ? "NEUTRAL" : lex.labels[primary];
+            String secondaryEmotion = secondary < 0 ? "NEUTRAL" : lex.labels[secondary];
+            Double intensity = primary < 0 ? 0.0 : scores[primary];
 
             // 4. 提取关键词
-            List<String> emotionKeywords = extractEmotionKeywords(text);
-            List<String> contextKeywords = extractContextKeywords(text);
+            List<String> emotionKeywords = collectEmotionKeywords(lex, hits, hitCount);
+            List<String> contextKeywords = new ArrayList<>();
 
             // 5. 场景分类
-            String lifeScenario = classifyLifeScenario(text);
+            String lifeScenario = scanScenarios(lex, lowerText, contextKeywords);
+            appendSegmentedKeywords(text, emotionKeywords, contextKeywords);
             String conversationContext = classifyConversationContext(text);
 
             // 6. 计算置信度
@@ -185,7 +221,7 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
                     .secondaryEmotion(secondaryEmotion)
                     .intensity(intensity)
                     .confidence(confidence)
-                    .emotionScores(emotionScores)
+                    .scoreVector(new EmotionScoreVector(lex.labels, scores))
                     .emotionKeywords(emotionKeywords)
                     .contextKeywords(contextKeywords)
                     .lifeScenario(lifeScenario)
@@ -213,7 +249,7 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
     /**
      * 获取用户信息（安全版本）
      */
-    private Users getUserById(Long userId) {
+    public Users getUserById(Long userId) {
         try {
             Users user = usersMapper.selectById(userId);
             if (user != null) {
@@ -231,123 +267,158 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
 
 
 
-    private Map<String, Double> calculateEmotionScores(String text) {
-        Map<String, Double> scores = new HashMap<>();
-        String lowerText = text.toLowerCase();
+    /**
+     * 把关键词库编译成平铺的并行数组，评分时对文本只做一次顺序扫描
+     */
+    private void compileLexicon() {
+        List<String> words = new ArrayList<>();
+        List<Integer> types = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        String[] labels = new String[EMOTION_COUNT];
+        for (EmotionType type : EMOTION_TYPES) {
+            Map<String, Double> keywords = emotionKeywordMap.get(type.name());
+            if (keywords == null) {
+                continue;
+            }
+            labels[type.ordinal()] = type.name();
+            for (Map.Entry<String, Double> entry : keywords.entrySet()) {
+                words.add(entry.getKey());
+                types.add(type.ordinal());
+                weights.add(entry.getValue());
+            }
+        }
+        // 兜底的NEUTRAL总是参与评分
+        labels[EmotionType.NEUTRAL.ordinal()] = EmotionType.NEUTRAL.name();
 
-        // 计算每种情感的得分
-        for (Map.Entry<String, Map<String, Double>> entry : emotionKeywordMap.entrySet()) {
-            String emotionType = entry.getKey();
-            Map<String, Double> keywords = entry.getValue();
+        List<String> scenarioWordList = new ArrayList<>();
+        List<Integer> scenarioIdList = new ArrayList<>();
+        List<String> scenarioNameList = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : scenarioKeywordMap.entrySet()) {
+            int scenarioId = scenarioNameList.size();
+            scenarioNameList.add(entry.getKey());
+            for (String word : entry.getValue()) {
+                scenarioWordList.add(word);
+                scenarioIdList.add(scenarioId);
+            }
+        }
 
-            double score = 0.0;
-            int matchCount = 0;
+        this.lexicon = new CompiledLexicon(words, types, weights, labels,
+                scenarioWordList, scenarioIdList, scenarioNameList);
 
-            for (Map.Entry<String, Double> keywordEntry : keywords.entrySet()) {
-                String keyword = keywordEntry.getKey().toLowerCase();
-                double weight = keywordEntry.getValue();
+        // 情感词、场景词注册进分词词典，分词时作为整体切出
+        if (chineseSegmenter != null) {
+            chineseSegmenter.addWords(words);
+            chineseSegmenter.addWords(scenarioWordList);
+        }
+    }
 
-                if (lowerText.contains(keyword)) {
-                    score += weight;
-                    matchCount++;
-                }
+    /**
+     * 情感评分：按EmotionType序号累加到double[]，命中的词条以int下标记录
+     *
+     * @param hits 输出参数，依次写入命中词条在词典中的下标
+     * @return 命中词条数量
+     */
+    private int scoreEmotions(CompiledLexicon lex, String lowerText, double[] scores, int[] hits) {
+        int[] matchCounts = new int[EMOTION_COUNT];
+        int hitCount = 0;
+
+        for (int i = 0; i < lex.words.length; i++) {
+            if (lowerText.contains(lex.words[i])) {
+                int type = lex.types[i];
+                scores[type] += lex.weights[i];
+                matchCounts[type]++;
+                hits[hitCount++] = i;
             }
+        }
 
-            // 归一化处理，考虑匹配数量和权重
-            if (score > 0) {
+        // 归一化处理，考虑匹配数量和权重
+        boolean allLow = true;
+        for (int t = 0; t < EMOTION_COUNT; t++) {
+            if (scores[t] > 0) {
                 // 基础分数 + 匹配数量奖励
-                double normalizedScore = Math.min((score / 3.0) + (matchCount * 0.05), 1.0);
-                scores.put(emotionType, normalizedScore);
-            } else {
-                scores.put(emotionType, 0.0);
+                scores[t] = Math.min((scores[t] / 3.0) + (matchCounts[t] * 0.05), 1.0);
+            }
+            if (scores[t] > 0.1) {
+                allLow = false;
             }
         }
 
         // 确保至少有一个情感得分
-        if (scores.values().stream().allMatch(score -> score <= 0.1)) {
-            scores.put("NEUTRAL", 0.5);
+        if (allLow) {
+            scores[EmotionType.NEUTRAL.ordinal()] = 0.5;
         }
-
-        return scores;
+        return hitCount;
     }
 
-    private String determinePrimaryEmotion(Map<String, Double> scores) {
-        return scores.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("NEUTRAL");
-    }
-
-    private String determineSecondaryEmotion(Map<String, Double> scores, String primary) {
-        return scores.entrySet().stream()
-                .filter(entry -> !entry.getKey().equals(primary))
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("NEUTRAL");
+    /**
+     * 在参与评分的情感中取得分最高者，exclude为-1表示不排除
+     */
+    private int argMaxEmotion(String[] labels, double[] scores, int exclude) {
+        int best = -1;
+        for (int t = 0; t < EMOTION_COUNT; t++) {
+            if (labels[t] == null || t == exclude) {
+                continue;
+            }
+            if (best < 0 || scores[t] > scores[best]) {
+                best = t;
+            }
+        }
+        return best;
     }
 
-    private List<String> extractEmotionKeywords(String text) {
-        List<String> keywords = new ArrayList<>();
-        String lowerText = text.toLowerCase();
-
-        for (Map<String, Double> emotionMap : emotionKeywordMap.values()) {
-            for (String keyword : emotionMap.keySet()) {
-                if (lowerText.contains(keyword.toLowerCase())) {
-                    keywords.add(keyword);
-                }
+    private List<String> collectEmotionKeywords(CompiledLexicon lex, int[] hits, int hitCount) {
+        List<String> keywords = new ArrayList<>(Math.min(hitCount, MAX_KEYWORDS));
+        for (int i = 0; i < hitCount && keywords.size() < MAX_KEYWORDS; i++) {
+            // 同一个词可能登记在多种情感下，只保留一次
+            String keyword = lex.originalWords[hits[i]];
+            if (!keywords.contains(keyword)) {
+                keywords.add(keyword);
             }
         }
-
-        // 去重并限制数量
-        return keywords.stream()
-                .distinct()
-                .limit(10)
-                .collect(Collectors.toList());
+        return keywords;
     }
 
-    private List<String> extractContextKeywords(String text) {
-        List<String> keywords = new ArrayList<>();
-        String lowerText = text.toLowerCase();
+    /**
+     * 一次扫描同时完成上下文关键词提取和生活场景打分
+     */
+    private String scanScenarios(CompiledLexicon lex, String lowerText, List<String> contextKeywords) {
+        int[] scenarioScores = new int[lex.scenarioNames.length];
+        int best = -1;
 
-        for (List<String> scenarioWords : scenarioKeywordMap.values()) {
-            for (String word : scenarioWords) {
-                if (lowerText.contains(word.toLowerCase())) {
-                    keywords.add(word);
-                }
+        for (int i = 0; i < lex.scenarioWords.length; i++) {
+            if (!lowerText.contains(lex.scenarioWords[i])) {
+                continue;
+            }
+            int scenario = lex.scenarioIds[i];
+            if (++scenarioScores[scenario] > (best < 0 ? 0 : scenarioScores[best])) {
+                best = scenario;
+            }
+            String word = lex.originalScenarioWords[i];
+            if (contextKeywords.size() < MAX_KEYWORDS && !contextKeywords.contains(word)) {
+                contextKeywords.add(word);
             }
         }
 
-        return keywords.stream()
-                .distinct()
-                .limit(10)
-                .collect(Collectors.toList());
+        // 返回得分最高的场景，或默认场景
+        return best < 0 ? "general" : lex.scenarioNames[best];
     }
 
-    private String classifyLifeScenario(String text) {
-        String lowerText = text.toLowerCase();
-        Map<String, Integer> scenarioScores = new HashMap<>();
 
-        for (Map.Entry<String, List<String>> entry : scenarioKeywordMap.entrySet()) {
-            String scenario = entry.getKey();
-            List<String> words = entry.getValue();
-
-            int score = 0;
-            for (String word : words) {
-                if (lowerText.contains(word.toLowerCase())) {
-                    score++;
-                }
+    /**
+     * 场景词之外，用分词结果补足上下文关键词（跳过已计入情感关键词的词）
+     */
+    private void appendSegmentedKeywords(String text, List<String> emotionKeywords, List<String> contextKeywords) {
+        if (chineseSegmenter == null || contextKeywords.size() >= MAX_KEYWORDS) {
+            return;
+        }
+        for (String word : chineseSegmenter.keywords(text, MAX_KEYWORDS)) {
+            if (contextKeywords.size() >= MAX_KEYWORDS) {
+                break;
             }
-
-            if (score > 0) {
-                scenarioScores.put(scenario, score);
+            if (!emotionKeywords.contains(word) && !contextKeywords.contains(word)) {
+                contextKeywords.add(word);
             }
         }
-
-        // 返回得分最高的场景，或默认场景
-        return scenarioScores.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse("general");
     }
 
     private String classifyConversationContext(String text) {
@@ -397,8 +468,7 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
         }
 
         // 特定情感即使强度中等也可能是重要的
-        List<String> meaningfulEmotions = Arrays.asList("SAD", "ANXIOUS", "ANGRY");
-        if (meaningfulEmotions.contains(emotion) && intensity > 0.5) {
+        if (MEANINGFUL_EMOTIONS.contains(emotion) && intensity > 0.5) {
             return true;
         }
 
@@ -425,6 +495,44 @@ public class KeywordEmotionExtractor implements EmotionExtractor {
                 .build();
     }
 
+    /**
+     * 平铺后的关键词词典
+     * 匹配用的小写词与原始词分开存放，原始词用于输出关键词列表
+     */
+    private static final class CompiledLexicon {
+        final String[] words;
+        final String[] originalWords;
+        final int[] types;              // EmotionType.ordinal()
+        final double[] weights;
+        final String[] labels;          // 按序号索引，未参与评分的情感为null
+
+        final String[] scenarioWords;
+        final String[] originalScenarioWords;
+        final int[] scenarioIds;        // scenarioNames下标
+        final String[] scenarioNames;
+
+        CompiledLexicon(List<String> words, List<Integer> types, List<Double> weights, String[] labels,
+                        List<String> scenarioWords, List<Integer> scenarioIds, List<String> scenarioNames) {
+            this.originalWords = words.toArray(new String[0]);
+            this.words = toLowerCase(originalWords);
+            this.types = types.stream().mapToInt(Integer::intValue).toArray();
+            this.weights = weights.stream().mapToDouble(Double::doubleValue).toArray();
+            this.labels = labels;
+            this.originalScenarioWords = scenarioWords.toArray(new String[0]);
+            this.scenarioWords = toLowerCase(originalScenarioWords);
+            this.scenarioIds = scenarioIds.stream().mapToInt(Integer::intValue).toArray();
+            this.scenarioNames = scenarioNames.toArray(new String[0]);
+        }
+
+        private static String[] toLowerCase(String[] source) {
+            String[] result = new String[source.length];
+            for (int i = 0; i < source.length; i++) {
+                result[i] = source[i].toLowerCase();
+            }
+            return result;
+        }
+    }
+
     @Override
     public String getName() {
         return "KeywordEmotionExtractor";
@@ -11,7 +11,9 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 情感数据访问层
@@ -24,27 +26,16 @@ public class EmotionRepository {
 
     private final EmotionalMemoriesMapper emotionalMemoriesMapper;
 
+    // 批量写入时每条INSERT语句携带的最大行数
+    private static final int BATCH_CHUNK_SIZE = 200;
+
     /**
      * 保存情感记忆到数据库
      */
     @Transactional
     public EmotionalMemories saveEmotionalMemory(Long userId, EmotionAnalysisDTO emotion) {
         try {
-            EmotionalMemories memory = new EmotionalMemories();
-
-            memory.setUserId(userId);
-            memory.setEmotionType(emotion.getPrimaryEmotion());
-            memory.setEmotionContext(emotion.getConversationContext());
-            memory.setTriggerKeywords(String.join(",", emotion.getEmotionKeywords()));
-            memory.setLifeScenario(emotion.getLifeScenario());
-            memory.setResponseEffectiveness(3); // 默认效果评分
-
-            // 设置时间模式
-            memory.setOccurrenceTime(LocalTime.now());
-            memory.setOccurrenceDay(getDayOfWeekChinese());
-
-            // AI回应模式（可后续更新）
-            memory.setAiResponsePattern("");
+            EmotionalMemories memory = buildEmotionalMemory(userId, emotion);
 
             emotionalMemoriesMapper.insert(memory);
 
@@ -61,14 +52,81 @@ public class EmotionRepository {
 
     /**
      * 批量保存情感记忆
+     * 过滤出重要情感后按块写入，每块一条多值INSERT，整体在同一事务内
+     *
+     * @return 实际写入的行数
      */
     @Transactional
-    public void batchSaveEmotionalMemories(Long userId, List<EmotionAnalysisDTO> emotions) {
+    public int batchSaveEmotionalMemories(Long userId, List<EmotionAnalysisDTO> emotions) {
+        if (emotions == null || emotions.isEmpty()) {
+            return 0;
+        }
+
+        List<EmotionalMemories> memories = new ArrayList<>(emotions.size());
         for (EmotionAnalysisDTO emotion : emotions) {
             if (emotion.getIsMeaningful() != null && emotion.getIsMeaningful()) {
-                saveEmotionalMemory(userId, emotion);
+                memories.add(buildEmotionalMemory(userId, emotion));
             }
         }
+
+        int inserted = 0;
+        for (int from = 0; from < memories.size(); from += BATCH_CHUNK_SIZE) {
+            List<EmotionalMemories> chunk = memories.subList(from, Math.min(from + BATCH_CHUNK_SIZE, memories.size()));
+            inserted += emotionalMemoriesMapper.insertBatch(chunk);
+        }
+
+        log.debug("批量保存情感记忆: userId={}, candidates={}, inserted={}", userId, emotions.size(), inserted);
+        return inserted;
+    }
+
+    /**
+     * 按对话重建情感记忆：先删除对话ID在(afterId, toId]内的旧记录，再写入其中的重要情感，同一事务内完成，
+     * 同一区间重复执行结果相同
+     *
+     * @param emotions 对话ID -> 分析结果，用户ID取自分析结果
+     * @return 写入的行数
+     */
+    @Transactional
+    public int replaceConversationEmotionalMemories(long afterId, long toId, Map<Long, EmotionAnalysisDTO> emotions) {
+        emotionalMemoriesMapper.deleteByConversationRange(afterId, toId);
+
+        List<EmotionalMemories> memories = new ArrayList<>();
+        emotions.forEach((conversationId, emotion) -> {
+            if (emotion.getIsMeaningful() != null && emotion.getIsMeaningful()) {
+                EmotionalMemories memory = buildEmotionalMemory(emotion.getUserId(), emotion);
+                memory.setConversationId(conversationId);
+                memories.add(memory);
+            }
+        });
+
+        for (int from = 0; from < memories.size(); from += BATCH_CHUNK_SIZE) {
+            emotionalMemoriesMapper.insertBatch(memories.subList(from, Math.min(from + BATCH_CHUNK_SIZE, memories.size())));
+        }
+        return memories.size();
+    }
+
+    /**
+     * 构建情感记忆实体
+     */
+    private EmotionalMemories buildEmotionalMemory(Long userId, EmotionAnalysisDTO emotion) {
+        EmotionalMemories memory = new EmotionalMemories();
+
+        memory.setUserId(userId);
+        memory.setEmotionType(emotion.getPrimaryEmotion());
+        memory.setEmotionContext(emotion.getConversationContext());
+        memory.setTriggerKeywords(emotion.getEmotionKeywords() != null
+                ? String.join(",", emotion.getEmotionKeywords()) : "");
+        memory.setLifeScenario(emotion.getLifeScenario());
+        memory.setResponseEffectiveness(3); // 默认效果评分
+
+        // 设置时间模式
+        memory.setOccurrenceTime(LocalTime.now());
+        memory.setOccurrenceDay(getDayOfWeekChinese());
+
+        // AI回应模式（可后续更新）
+        memory.setAiResponsePattern("");
+
+        return memory;
     }
 
     /**
@@ -2,17 +2,27 @@ package com.zs.service.emotion.state;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.zs.entity.AIEmotionalState;
 import com.zs.mapper.AIEmotionalStateMapper;
+import com.zs.service.redis.NearCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * AI情感状态服务
@@ -25,9 +35,21 @@ public class AIEmotionService {
 
     private final AIEmotionalStateMapper aiEmotionalStateMapper;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final NearCache nearCache;
+    private final UserUpdateLanes userUpdateLanes;
+
+    // 生成报告前等待本轮状态更新的最长时间，超时则报告上一轮状态
+    @Value("${app.emotion.ai-state.report-wait-ms:200}")
+    private long reportWaitMs = 200;
 
     // Redis键前缀
     private static final String REDIS_AI_STATE_KEY = "ai:emotion:state:user:";
+    // 待落库的用户ID集合，以及正在落库的批次
+    private static final String DIRTY_SET_KEY = "ai:emotion:state:dirty";
+    private static final String FLUSHING_SET_KEY = "ai:emotion:state:flushing";
+
+    private static final Duration STATE_TTL = Duration.ofHours(2);
 
     // 情感状态枚举
     public enum EmotionalState {
@@ -61,8 +83,14 @@ public class AIEmotionService {
 
     /**
      * 更新AI情感状态（基于用户情感）
+     * 读取-计算-写回在该用户的更新通道内异步执行，同一用户的并发消息不会互相覆盖；
+     * 需要读到本轮结果的调用方把返回的future传给getAIEmotionReport(userId, update)
      */
-    public void updateAIEmotion(Long userId, String userEmotion, Double userIntensity) {
+    public CompletableFuture<Void> updateAIEmotion(Long userId, String userEmotion, Double userIntensity) {
+        return userUpdateLanes.submit(userId, () -> applyAIEmotion(userId, userEmotion, userIntensity));
+    }
+
+    private void applyAIEmotion(Long userId, String userEmotion, Double userIntensity) {
         try {
             // 1. 获取当前AI状态
             AIEmotionalState currentState = getCurrentState(userId);
@@ -70,11 +98,11 @@ public class AIEmotionService {
             // 2. 计算新的情感状态
             AIEmotionalState newState = calculateNewState(currentState, userEmotion, userIntensity);
 
-            // 3. 保存到数据库
-            saveOrUpdateState(newState);
-
-            // 4. 更新Redis缓存
-            updateRedisCache(userId, newState);
+            // 3. 写入Redis（实时状态）并标记待落库，由AIEmotionStateFlusher合并写入数据库
+            if (!updateRedisCache(userId, newState, true)) {
+                // Redis不可用时直接写库
+                saveOrUpdateState(newState);
+            }
 
             log.debug("更新AI情感状态: userId={}, from={} to={}",
                     userId, currentState.getCurrentState(), newState.getCurrentState());
@@ -85,36 +113,60 @@ public class AIEmotionService {
     }
 
     /**
-     * 获取当前AI情感状态
+     * 获取当前AI情感状态（先查本节点近端缓存，返回副本，调用方修改不影响缓存）
      */
     public AIEmotionalState getCurrentState(Long userId) {
         try {
-            // 1. 先查Redis缓存
-            String redisKey = REDIS_AI_STATE_KEY + userId;
-            AIEmotionalState cached = (AIEmotionalState) redisTemplate.opsForValue().get(redisKey);
+            return nearCache.get(NearCache.AI_STATE, userId, () -> loadState(userId)).toBuilder().build();
 
-            if (cached != null) {
-                return cached;
-            }
+        } catch (Exception e) {
+            log.error("获取AI情感状态失败: userId={}", userId, e);
+            return createDefaultState(userId);
+        }
+    }
 
-            // 2. 查数据库
-            AIEmotionalState state = aiEmotionalStateMapper.selectById(userId);
+    private AIEmotionalState loadState(Long userId) {
+        // 1. 先查Redis缓存（无类型信息，按实体转换）
+        String redisKey = REDIS_AI_STATE_KEY + userId;
+        Object cached = redisTemplate.opsForValue().get(redisKey);
 
-            if (state == null) {
-                // 3. 创建默认状态
-                state = createDefaultState(userId);
-                saveOrUpdateState(state);
-            }
+        if (cached != null) {
+            return objectMapper.convertValue(cached, AIEmotionalState.class);
+        }
 
-            // 4. 更新Redis缓存
-            updateRedisCache(userId, state);
+        // 2. 查数据库
+        AIEmotionalState state = aiEmotionalStateMapper.selectById(userId);
 
-            return state;
+        boolean created = state == null;
+        if (created) {
+            // 3. 创建默认状态（随下次落库写入）
+            state = createDefaultState(userId);
+        }
 
-        } catch (Exception e) {
-            log.error("获取AI情感状态失败: userId={}", userId, e);
-            return createDefaultState(userId);
+        // 4. 更新Redis缓存
+        if (!updateRedisCache(userId, state, created) && created) {
+            saveOrUpdateState(state);
+        }
+
+        return state;
+    }
+
+    /**
+     * 等本轮状态更新完成（最多report-wait-ms）后获取AI情感报告
+     */
+    public Map<String, Object> getAIEmotionReport(Long userId, CompletableFuture<?> pendingUpdate) {
+        if (pendingUpdate != null) {
+            try {
+                pendingUpdate.get(reportWaitMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                log.debug("AI情感状态更新未在{}ms内完成，报告使用上一轮状态: userId={}", reportWaitMs, userId);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                log.warn("AI情感状态更新未执行: userId={}", userId, e.getCause());
+            }
         }
+        return getAIEmotionReport(userId);
     }
 
     /**
@@ -224,14 +276,80 @@ public class AIEmotionService {
         }
     }
 
-    private void updateRedisCache(Long userId, AIEmotionalState state) {
+    /**
+     * 写入Redis缓存，dirty为true时同一管道内加入待落库集合
+     */
+    private boolean updateRedisCache(Long userId, AIEmotionalState state, boolean dirty) {
         try {
             String redisKey = REDIS_AI_STATE_KEY + userId;
-            redisTemplate.opsForValue().set(redisKey, state);
-            redisTemplate.expire(redisKey, 2, java.util.concurrent.TimeUnit.HOURS);
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    operations.opsForValue().set(redisKey, state);
+                    operations.expire(redisKey, STATE_TTL);
+                    if (dirty) {
+                        operations.opsForSet().add(DIRTY_SET_KEY, userId);
+                    }
+                    return null;
+                }
+            });
+            nearCache.put(NearCache.AI_STATE, userId, state.toBuilder().build());
+            return true;
         } catch (Exception e) {
             log.error("更新AI状态缓存失败: userId={}", userId, e);
+            return false;
+        }
+    }
+
+    /**
+     * 将待落库的AI状态批量写入数据库，返回处理的用户数
+     * 脏集合先整体改名为落库集合（原子操作），之后的更新进入新的脏集合；
+     * 落库集合中的用户写库成功后才移除，进程中途退出时下次继续处理
+     */
+    public int flushDirtyStates(int batchSize) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(FLUSHING_SET_KEY))) {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(DIRTY_SET_KEY))) {
+                return 0;
+            }
+            try {
+                redisTemplate.renameIfAbsent(DIRTY_SET_KEY, FLUSHING_SET_KEY);
+            } catch (Exception e) {
+                // 脏集合已被其他节点取走
+                return 0;
+            }
+        }
+
+        int flushed = 0;
+        while (true) {
+            Set<Object> members = redisTemplate.opsForSet().distinctRandomMembers(FLUSHING_SET_KEY, batchSize);
+            if (members == null || members.isEmpty()) {
+                break;
+            }
+
+            List<String> keys = new ArrayList<>(members.size());
+            for (Object member : members) {
+                keys.add(REDIS_AI_STATE_KEY + ((Number) member).longValue());
+            }
+            List<Object> values = redisTemplate.opsForValue().multiGet(keys);
+
+            List<AIEmotionalState> states = new ArrayList<>(members.size());
+            if (values != null) {
+                for (Object value : values) {
+                    // 已过期的状态无法落库，跳过
+                    if (value != null) {
+                        states.add(objectMapper.convertValue(value, AIEmotionalState.class));
+                    }
+                }
+            }
+            if (!states.isEmpty()) {
+                aiEmotionalStateMapper.upsertBatch(states);
+            }
+
+            redisTemplate.opsForSet().remove(FLUSHING_SET_KEY, members.toArray());
+            flushed += members.size();
         }
+        return flushed;
     }
 
     private AIEmotionalState createDefaultState(Long userId) {
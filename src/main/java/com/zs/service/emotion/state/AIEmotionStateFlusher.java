@@ -0,0 +1,45 @@
+// File: src/main/java/com/zs/service/emotion/state/AIEmotionStateFlusher.java
+package com.zs.service.emotion.state;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * AI情感状态定期落库：同一用户在一个周期内的多次更新只写一次数据库
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AIEmotionStateFlusher {
+
+    private final AIEmotionService aiEmotionService;
+
+    @Value("${app.emotion.ai-state.flush-batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.emotion.ai-state.flush-interval-ms:30000}",
+            initialDelayString = "${app.emotion.ai-state.flush-interval-ms:30000}")
+    public void flush() {
+        try {
+            int flushed = aiEmotionService.flushDirtyStates(batchSize);
+            if (flushed > 0) {
+                log.debug("AI情感状态落库完成: users={}", flushed);
+            }
+        } catch (Exception e) {
+            // 落库集合保留，下个周期重试
+            log.error("AI情感状态落库任务异常", e);
+        }
+    }
+
+    /**
+     * 停机前再落库一次
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
@@ -4,14 +4,17 @@ package com.zs.service.emotion.state;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
-import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.Set;
 
 /**
  * 用户心情状态追踪器
@@ -24,53 +27,155 @@ public class EmotionStateTracker {
 
     private final RedisTemplate<String, Object> redisTemplate;
 
-    // Redis键前缀
+    // Redis键前缀：{userId}为集群哈希标签，同一用户的状态与历史落在同一槽位，脚本可同时操作两个键
     private static final String STATE_PREFIX = "emotion:state:user:";
     private static final String HISTORY_PREFIX = "emotion:history:user:";
 
     // 状态保留时间
     private static final Duration STATE_TTL = Duration.ofHours(6);
+    private static final Duration HISTORY_TTL = Duration.ofDays(7);
+    private static final int HISTORY_MAX_SIZE = 100;
+
+    // 心情分数指数加权平均系数：越大越偏向最新一条消息
+    private static final double MOOD_EWMA_ALPHA = 0.3;
+
+    // 计入负面连续计数的情感
+    private static final Set<String> NEGATIVE_EMOTIONS = Set.of("SAD", "ANGRY", "ANXIOUS");
+
+    // 是否额外记录定长历史（仅用于排查和展示，心情计算不依赖它）
+    @Value("${app.emotion.state.history-enabled:true}")
+    private boolean historyEnabled = true;
+
+    /**
+     * 心情状态增量更新脚本：读上一状态、算趋势/EWMA/连续计数、写回状态、追加历史
+     * 参数经RedisTemplate的JSON序列化，字符串带引号，写回的常量也按JSON字符串书写；
+     * 分数用%.4f格式化，读回时为Double
+     */
+    private static final RedisScript<Long> UPDATE_STATE_SCRIPT = new DefaultRedisScript<>("""
+            local state = KEYS[1]
+            local emotion = ARGV[1]
+            local intensity = tonumber(ARGV[2])
+            local instant = tonumber(ARGV[7])
+            local alpha = tonumber(ARGV[8])
+
+            local prev = redis.call('HMGET', state, 'currentEmotion', 'intensity', 'moodScore',
+                                    'emotionStreak', 'negativeStreak')
+
+            local trend = '"stable"'
+            local streak = 1
+            if prev[1] then
+                if prev[1] ~= emotion then
+                    trend = '"changing"'
+                else
+                    streak = (tonumber(prev[4]) or 0) + 1
+                    local diff = intensity - (tonumber(prev[2]) or intensity)
+                    if diff > 0.3 then
+                        trend = '"intensifying"'
+                    elseif diff < -0.3 then
+                        trend = '"fading"'
+                    end
+                end
+            end
+
+            local mood = instant
+            local prevMood = tonumber(prev[3])
+            if prevMood then
+                mood = alpha * instant + (1 - alpha) * prevMood
+            end
+
+            local negative = 0
+            if tonumber(ARGV[9]) == 1 then
+                negative = (tonumber(prev[5]) or 0) + 1
+            end
+
+            redis.call('HSET', state,
+                    'currentEmotion', emotion, 'intensity', ARGV[2], 'confidence', ARGV[3],
+                    'scenario', ARGV[4], 'keywords', ARGV[5], 'timestamp', ARGV[6],
+                    'instantMoodScore', string.format('%.4f', instant),
+                    'moodScore', string.format('%.4f', mood),
+                    'trend', trend,
+                    'emotionStreak', tostring(streak),
+                    'negativeStreak', tostring(negative))
+            redis.call('PEXPIRE', state, ARGV[10])
+
+            local cap = tonumber(ARGV[12])
+            if cap > 0 then
+                local history = KEYS[2]
+                local keyType = redis.call('TYPE', history).ok
+                if keyType ~= 'list' and keyType ~= 'none' then
+                    redis.call('DEL', history)
+                end
+                redis.call('RPUSH', history, ARGV[11])
+                redis.call('LTRIM', history, -cap, -1)
+                redis.call('PEXPIRE', history, ARGV[13])
+            end
+            return streak
+            """, Long.class);
 
     /**
      * 更新用户当前心情状态
+     * 整个更新在一个脚本内完成：每条消息一次往返，同一用户的并发更新不会互相覆盖。
+     * 单独执行（不进管道），EVALSHA未命中时可回退为EVAL
      */
     public void updateEmotionState(Long userId, EmotionAnalysisDTO emotion) {
         try {
-            String stateKey = STATE_PREFIX + userId;
-
-            Map<String, Object> state = new HashMap<>();
-            state.put("currentEmotion", emotion.getPrimaryEmotion());
-            state.put("intensity", emotion.getIntensity());
-            state.put("confidence", emotion.getConfidence());
-            state.put("scenario", emotion.getLifeScenario());
-            state.put("keywords", emotion.getEmotionKeywords());
-            state.put("timestamp", System.currentTimeMillis());
-            state.put("moodScore", calculateMoodScore(emotion));
-            state.put("trend", detectEmotionTrend(userId, emotion));
-
-            // 保存状态
-            redisTemplate.opsForHash().putAll(stateKey, state);
-            redisTemplate.expire(stateKey, STATE_TTL.toMinutes(), TimeUnit.MINUTES);
-
-            // 记录历史
-            recordEmotionHistory(userId, emotion);
+            double intensity = emotion.getIntensity() != null ? emotion.getIntensity() : 0.5;
+            double moodScore = calculateMoodScore(emotion.getPrimaryEmotion(), intensity);
+            long timestamp = System.currentTimeMillis();
+
+            Object historyRecord = "";
+            int historyCap = 0;
+            if (historyEnabled) {
+                Map<String, Object> record = new HashMap<>();
+                record.put("emotion", emotion.getPrimaryEmotion());
+                record.put("intensity", intensity);
+                record.put("scenario", emotion.getLifeScenario());
+                record.put("timestamp", timestamp);
+                historyRecord = record;
+                historyCap = HISTORY_MAX_SIZE;
+            }
 
-            log.debug("更新心情状态: userId={}, emotion={}, score={}",
-                    userId, emotion.getPrimaryEmotion(), state.get("moodScore"));
+            Long streak = redisTemplate.execute(UPDATE_STATE_SCRIPT,
+                    List.of(stateKey(userId), historyKey(userId)),
+                    emotion.getPrimaryEmotion(),
+                    intensity,
+                    emotion.getConfidence() != null ? emotion.getConfidence() : 0.5,
+                    emotion.getLifeScenario() != null ? emotion.getLifeScenario() : "general",
+                    emotion.getEmotionKeywords() != null ? emotion.getEmotionKeywords() : List.of(),
+                    timestamp,
+                    moodScore,
+                    MOOD_EWMA_ALPHA,
+                    NEGATIVE_EMOTIONS.contains(emotion.getPrimaryEmotion()) ? 1 : 0,
+                    STATE_TTL.toMillis(),
+                    historyRecord,
+                    historyCap,
+                    HISTORY_TTL.toMillis());
+
+            log.debug("更新心情状态: userId={}, emotion={}, score={}, streak={}",
+                    userId, emotion.getPrimaryEmotion(), moodScore, streak);
 
         } catch (Exception e) {
             log.error("更新心情状态失败: userId={}", userId, e);
         }
     }
 
+    /**
+     * 清除用户心情状态与历史
+     */
+    public void clearEmotionState(Long userId) {
+        try {
+            redisTemplate.delete(List.of(stateKey(userId), historyKey(userId)));
+        } catch (Exception e) {
+            log.error("清除心情状态失败: userId={}", userId, e);
+        }
+    }
+
     /**
      * 获取用户当前心情状态
      */
     public Map<String, Object> getCurrentEmotionState(Long userId) {
         try {
-            String stateKey = STATE_PREFIX + userId;
-
-            Map<Object, Object> rawState = redisTemplate.opsForHash().entries(stateKey);
+            Map<Object, Object> rawState = redisTemplate.opsForHash().entries(stateKey(userId));
             if (rawState.isEmpty()) {
                 return createDefaultState(userId);
             }
@@ -88,24 +193,24 @@ public class EmotionStateTracker {
     }
 
     /**
-     * 计算心情分数（0-100）
+     * 计算单条消息的心情分数（0-100），状态中的moodScore是它的指数加权平均
      */
-    private double calculateMoodScore(EmotionAnalysisDTO emotion) {
+    private double calculateMoodScore(String primaryEmotion, double intensity) {
         double baseScore = 50.0; // 中性基准分
 
         // 根据情感类型调整分数
-        switch (emotion.getPrimaryEmotion()) {
+        switch (primaryEmotion) {
             case "HAPPY":
-                baseScore += 40 * emotion.getIntensity(); // +0到+40分
+                baseScore += 40 * intensity; // +0到+40分
                 break;
             case "SAD":
-                baseScore -= 30 * emotion.getIntensity(); // -0到-30分
+                baseScore -= 30 * intensity; // -0到-30分
                 break;
             case "ANXIOUS":
-                baseScore -= 20 * emotion.getIntensity(); // -0到-20分
+                baseScore -= 20 * intensity; // -0到-20分
                 break;
             case "ANGRY":
-                baseScore -= 25 * emotion.getIntensity(); // -0到-25分
+                baseScore -= 25 * intensity; // -0到-25分
                 break;
             case "CALM":
                 baseScore += 10; // 平静+10分
@@ -115,77 +220,12 @@ public class EmotionStateTracker {
         return Math.max(0, Math.min(100, baseScore));
     }
 
-    /**
-     * 检测情感趋势
-     */
-    private String detectEmotionTrend(Long userId, EmotionAnalysisDTO currentEmotion) {
-        try {
-            String historyKey = HISTORY_PREFIX + userId;
-
-            @SuppressWarnings("unchecked")
-            java.util.List<Map<String, Object>> history =
-                    (java.util.List<Map<String, Object>>) redisTemplate.opsForValue().get(historyKey);
-
-            if (history == null || history.size() < 2) {
-                return "stable"; // 稳定
-            }
-
-            // 获取最近两次情感
-            Map<String, Object> previous = history.get(history.size() - 2);
-            String previousEmotion = (String) previous.get("emotion");
-            double previousIntensity = (double) previous.get("intensity");
-
-            // 分析趋势
-            if (!currentEmotion.getPrimaryEmotion().equals(previousEmotion)) {
-                return "changing"; // 正在变化
-            }
-
-            double intensityDiff = currentEmotion.getIntensity() - previousIntensity;
-            if (Math.abs(intensityDiff) > 0.3) {
-                return intensityDiff > 0 ? "intensifying" : "fading";
-            }
-
-            return "stable";
-
-        } catch (Exception e) {
-            return "unknown";
-        }
+    private static String stateKey(Long userId) {
+        return STATE_PREFIX + "{" + userId + "}";
     }
 
-    /**
-     * 记录情感历史
-     */
-    private void recordEmotionHistory(Long userId, EmotionAnalysisDTO emotion) {
-        try {
-            String historyKey = HISTORY_PREFIX + userId;
-
-            @SuppressWarnings("unchecked")
-            java.util.List<Map<String, Object>> history =
-                    (java.util.List<Map<String, Object>>) redisTemplate.opsForValue().get(historyKey);
-
-            if (history == null) {
-                history = new java.util.ArrayList<>();
-            }
-
-            Map<String, Object> record = new HashMap<>();
-            record.put("emotion", emotion.getPrimaryEmotion());
-            record.put("intensity", emotion.getIntensity());
-            record.put("scenario", emotion.getLifeScenario());
-            record.put("timestamp", LocalDateTime.now());
-
-            history.add(record);
-
-            // 只保留最近100条记录
-            if (history.size() > 100) {
-                history = history.subList(history.size() - 100, history.size());
-            }
-
-            redisTemplate.opsForValue().set(historyKey, history);
-            redisTemplate.expire(historyKey, Duration.ofDays(7).toMinutes(), TimeUnit.MINUTES);
-
-        } catch (Exception e) {
-            log.error("记录情感历史失败: userId={}", userId, e);
-        }
+    private static String historyKey(Long userId) {
+        return HISTORY_PREFIX + "{" + userId + "}";
     }
 
     /**
@@ -200,6 +240,9 @@ public class EmotionStateTracker {
         defaultState.put("keywords", new java.util.ArrayList<>());
         defaultState.put("timestamp", System.currentTimeMillis());
         defaultState.put("moodScore", 50.0);
+        defaultState.put("instantMoodScore", 50.0);
+        defaultState.put("emotionStreak", 0);
+        defaultState.put("negativeStreak", 0);
         defaultState.put("trend", "stable");
         defaultState.put("message", "心情状态待更新");
 
@@ -213,7 +256,7 @@ public class EmotionStateTracker {
         Map<String, Object> state = getCurrentEmotionState(userId);
         Map<String, Object> report = new HashMap<>();
 
-        double moodScore = (double) state.get("moodScore");
+        double moodScore = ((Number) state.get("moodScore")).doubleValue();
         String emotion = (String) state.get("currentEmotion");
         String trend = (String) state.get("trend");
 
@@ -248,6 +291,8 @@ public class EmotionStateTracker {
         report.put("emotionIntensity", state.get("intensity"));
         report.put("trend", trend);
         report.put("trendDescription", trendDescription);
+        report.put("emotionStreak", state.get("emotionStreak"));
+        report.put("negativeStreak", state.get("negativeStreak"));
         report.put("lastUpdate", state.get("timestamp"));
         report.put("suggestion", generateSuggestion(emotion, moodScore));
 
@@ -0,0 +1,191 @@
+// File: src/main/java/com/zs/service/emotion/state/UserUpdateLanes.java
+package com.zs.service.emotion.state;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按用户串行的状态更新通道
+ * 用户ID散列到固定数量的单线程通道上，同一用户的更新严格按提交顺序执行，
+ * 不同用户分布在不同通道上并行，无需全局锁。
+ * 通道队列满时提交方阻塞等待空位（背压，计入blocked），超过submit-timeout-ms仍无空位才拒绝（计入rejected）
+ */
+@Component
+@Slf4j
+public class UserUpdateLanes {
+
+    @Value("${app.emotion.lanes.count:0}")
+    private int laneCount;
+
+    @Value("${app.emotion.lanes.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.emotion.lanes.submit-timeout-ms:5000}")
+    private long submitTimeoutMs = 5000;
+
+    private Lane[] lanes;
+
+    // 当前线程所属通道，通道内再次提交同一通道的任务时直接执行，避免自等待
+    private static final ThreadLocal<Lane> CURRENT_LANE = new ThreadLocal<>();
+
+    @PostConstruct
+    public void init() {
+        int count = laneCount > 0 ? laneCount : Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+        lanes = new Lane[count];
+        for (int i = 0; i < count; i++) {
+            lanes[i] = new Lane(i, queueCapacity, submitTimeoutMs);
+        }
+        log.info("用户更新通道已初始化: lanes={}, queueCapacity={}, submitTimeout={}ms", count, queueCapacity, submitTimeoutMs);
+    }
+
+    /**
+     * 提交更新，按用户顺序异步执行；通道已满时等待空位，
+     * 超时仍满或通道已关闭时返回的future以RejectedExecutionException完成
+     */
+    public CompletableFuture<Void> submit(Long userId, Runnable task) {
+        Lane lane = laneOf(userId);
+        if (CURRENT_LANE.get() == lane) {
+            return CompletableFuture.runAsync(task, Runnable::run);
+        }
+        return lane.submit(task);
+    }
+
+    /**
+     * 各通道队列深度等统计
+     */
+    public Map<String, Object> getStats() {
+        List<Map<String, Object>> laneStats = new ArrayList<>(lanes.length);
+        int totalQueued = 0;
+        int maxQueued = 0;
+        for (Lane lane : lanes) {
+            Map<String, Object> stat = lane.stats();
+            int queued = (int) stat.get("queued");
+            totalQueued += queued;
+            maxQueued = Math.max(maxQueued, queued);
+            laneStats.add(stat);
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("lanes", lanes.length);
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("totalQueued", totalQueued);
+        stats.put("maxQueued", maxQueued);
+        stats.put("laneStats", laneStats);
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    log.warn("用户更新通道关闭超时: lane={}, 未执行={}", lane.index, lane.executor.getQueue().size());
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                lane.executor.shutdownNow();
+            }
+        }
+    }
+
+    private Lane laneOf(Long userId) {
+        // 对用户ID做一次混洗，连续ID也能均匀分布
+        long h = (userId != null ? userId : 0L) * 0x9E3779B97F4A7C15L;
+        return lanes[(int) Math.floorMod(h ^ (h >>> 32), (long) lanes.length)];
+    }
+
+    /**
+     * 单个通道：单线程 + 有界FIFO队列，队列满时提交方限时等待入队（已接受的任务仍保持顺序）
+     */
+    private static final class Lane {
+
+        private final int index;
+        private final ThreadPoolExecutor executor;
+
+        private final AtomicInteger peakQueued = new AtomicInteger();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder blocked = new LongAdder();
+
+        Lane(int index, int capacity, long submitTimeoutMs) {
+            this.index = index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(capacity),
+                    r -> {
+                        Thread t = new Thread(r, "user-lane-" + index);
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    (r, pool) -> {
+                        // 背压：等待队列空位而不是丢弃；关闭后或等待超时才拒绝
+                        if (pool.isShutdown()) {
+                            throw new RejectedExecutionException("用户更新通道已关闭");
+                        }
+                        blocked.increment();
+                        try {
+                            if (!pool.getQueue().offer(r, submitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                                throw new RejectedExecutionException("用户更新通道已满");
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new RejectedExecutionException("等待用户更新通道时被中断", e);
+                        }
+                    });
+        }
+
+        CompletableFuture<Void> submit(Runnable task) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            submitted.increment();
+            try {
+                executor.execute(() -> {
+                    CURRENT_LANE.set(this);
+                    try {
+                        task.run();
+                        future.complete(null);
+                    } catch (Throwable e) {
+                        failed.increment();
+                        future.completeExceptionally(e);
+                    } finally {
+                        CURRENT_LANE.remove();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                if (!executor.isShutdown()) {
+                    log.warn("用户更新通道持续已满，放弃本次更新: lane={}, queued={}", index, executor.getQueue().size());
+                }
+                future.completeExceptionally(e);
+                return future;
+            }
+            peakQueued.accumulateAndGet(executor.getQueue().size(), Math::max);
+            return future;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stat = new LinkedHashMap<>();
+            stat.put("lane", index);
+            stat.put("queued", executor.getQueue().size());
+            stat.put("peakQueued", peakQueued.get());
+            stat.put("active", executor.getActiveCount());
+            stat.put("submitted", submitted.sum());
+            stat.put("completed", executor.getCompletedTaskCount());
+            stat.put("failed", failed.sum());
+            stat.put("blocked", blocked.sum());
+            stat.put("rejected", rejected.sum());
+            return stat;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.zs.entity.Users;
 import com.zs.mapper.UsersMapper;
 import com.zs.service.EmailService;
 import com.zs.service.UsersService;
+import com.zs.service.emotion.cache.EmotionReportCache;
 import com.zs.util.PasswordEncoder;
 import com.zs.vo.ResultVO;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,7 @@ public class UsersServiceImpl implements UsersService {
     private final UsersMapper usersMapper;
     private final PasswordEncoder passwordEncoder;
     private final EmailService emailService;
+    private final EmotionReportCache emotionReportCache;
 
     @Override
     @Transactional
@@ -219,6 +221,8 @@ public class UsersServiceImpl implements UsersService {
             // 保存更新
             int result = usersMapper.updateById(user);
             if (result > 0) {
+                // 完整情感报告中缓存了用户资料
+                emotionReportCache.evictUserInfo(user.getId());
                 log.info("用户信息更新成功: {} (邮箱: {})", username, user.getEmail());
                 UserVO userVO = convertToUserVO(user);
                 return ResultVO.success("用户信息更新成功", userVO);
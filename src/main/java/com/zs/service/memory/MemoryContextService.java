@@ -112,7 +112,7 @@ public class MemoryContextService {
     public void evaluateMemoryEffectiveness(Long userId, Long conversationId, String aiResponse, String userFeedback) {
         try {
             // 获取本次对话使用的记忆 - 从数据库查询本次对话提取的记忆
-            List<MemoryFragments> usedMemories = memoryExtractionService.searchMemories(userId, "", 10);
+            List<MemoryFragments> usedMemories = memoryExtractionService.getConversationMemories(userId, conversationId, 10);
 
             if (!usedMemories.isEmpty()) {
                 // 根据用户反馈调整记忆重要性
@@ -7,25 +7,36 @@ import com.zs.mapper.ConversationsMapper;
 import com.zs.mapper.MemoryFragmentsMapper;
 import com.zs.service.emotion.EmotionAnalysisService;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.zs.service.memory.access.MemoryAccessTracker;
+import com.zs.service.memory.cache.MemoryContextCache;
+import com.zs.service.memory.cache.MemoryFingerprintIndex;
+import com.zs.service.memory.cache.MemoryKeywordIndex;
+import com.zs.service.memory.cache.MemoryTieredCache;
+import com.zs.service.memory.cache.MemoryVectorIndex;
+import com.zs.service.memory.eviction.MemoryEvictionJob;
 import com.zs.service.memory.repository.MemoryRepository;
+import com.zs.service.nlp.ChineseSegmenter;
+import com.zs.service.redis.RedisKeyStats;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 /**
  * 记忆提取服务 - 增强版（添加Redis缓存和记忆限制）
@@ -54,32 +65,65 @@ public class MemoryExtractionService {
     @Resource
     private RedisTemplate<String, Object> redisTemplate;
 
+    @Resource
+    private RedisKeyStats redisKeyStats;
+
+    @Resource
+    private MemoryKeywordIndex memoryKeywordIndex;
+
+    @Resource
+    private MemoryVectorIndex memoryVectorIndex;
+
+    @Resource
+    private MemoryContextCache memoryContextCache;
+
+    @Resource
+    private MemoryTieredCache memoryTieredCache;
+
+    @Resource
+    private MemoryAccessTracker memoryAccessTracker;
+
+    @Resource
+    private MemoryEvictionJob memoryEvictionJob;
+
+    @Resource
+    private MemoryFingerprintIndex memoryFingerprintIndex;
+
+    private ChineseSegmenter chineseSegmenter;
+
+    // 召回方式：keyword / vector / hybrid
+    @Value("${app.memory.recall.mode:hybrid}")
+    private String recallMode = "hybrid";
+
+    @Value("${app.memory.recall.min-similarity:0.12}")
+    private double minSimilarity = 0.12;
+
+    // 写入时的近似重复检测：指纹汉明距离不超过max-distance视为同一条记忆
+    @Value("${app.memory.dedup.enabled:true}")
+    private boolean dedupEnabled = true;
+
+    @Value("${app.memory.dedup.max-distance:7}")
+    private int dedupMaxDistance = 7;
+
+    @Value("${app.memory.dedup.importance-bump:0.05}")
+    private double dedupImportanceBump = 0.05;
+
     // 记忆提取规则库
     private final Map<String, List<String>> extractionRules = new ConcurrentHashMap<>();
 
     // 关键词模式库
     private final Map<MemoryType, List<String>> keywordPatterns = new ConcurrentHashMap<>();
 
-    // 用户记忆缓存（短期 - 本地缓存，作为Redis的二级缓存）
-    private final Map<Long, List<MemoryFragments>> userMemoryCache = new ConcurrentHashMap<>();
-
     // 线程池用于异步处理
     private ExecutorService asyncExecutor;
 
-    // Redis键前缀
-    private static final String REDIS_KEY_PREFIX = "memory:user:";
-    private static final String REDIS_ACTIVE_KEY = "active";
-    private static final String REDIS_CONTEXT_KEY = "context";
-    private static final String REDIS_IMPORTANT_KEY = "important";
+    private static final TypeReference<List<String>> KEYWORD_LIST_TYPE = new TypeReference<>() {};
 
     // 记忆限制配置
-    private static final int MAX_MEMORIES_PER_USER = 100; // 每个用户最多保存100条记忆
-    private static final int MAX_CACHED_MEMORIES = 30;    // 本地缓存最多30条
-    private static final int MAX_REDIS_MEMORIES = 50;     // Redis缓存最多50条
+    private static final int MAX_KEYWORDS = 10;           // 每条记忆最多10个关键词
 
-    // 缓存过期时间（秒）
-    private static final long REDIS_CACHE_TTL = 3600;     // 1小时
-    private static final long CONTEXT_CACHE_TTL = 1800;   // 30分钟
+    // 键数统计窗口（1天），不短于记忆列表缓存的Redis TTL（1小时）
+    private static final Duration REDIS_KEY_STATS_WINDOW = Duration.ofDays(1);
 
     // 记忆类型枚举（对应您的memory_fragments.memory_type ENUM）
     public enum MemoryType {
@@ -109,6 +153,14 @@ public class MemoryExtractionService {
         }
     }
 
+    /**
+     * 注入共用分词器（基准测试等单独构造时手动设置）
+     */
+    @Resource
+    public void setChineseSegmenter(ChineseSegmenter chineseSegmenter) {
+        this.chineseSegmenter = chineseSegmenter;
+    }
+
     @PostConstruct
     public void init() {
         // 初始化线程池
@@ -119,6 +171,7 @@ public class MemoryExtractionService {
 
         // 初始化关键词模式
         initializeKeywordPatterns();
+        keywordPatterns.values().forEach(chineseSegmenter::addWords);
 
         log.info("记忆提取服务初始化完成，加载{}种提取规则，{}种记忆类型",
                 extractionRules.size(), keywordPatterns.size());
@@ -183,7 +236,7 @@ public class MemoryExtractionService {
     // ========== 【增强方法1】带Redis缓存的记忆提取 ==========
 
     /**
-     * 增强版：从对话中提取记忆并更新Redis缓存
+     * 增强版：从对话中提取记忆并提取情感记忆
      */
     @Transactional
     public List<MemoryFragments> extractMemoriesWithCache(Long conversationId) {
@@ -196,18 +249,11 @@ public class MemoryExtractionService {
             List<MemoryFragments> memories = extractMemoriesFromConversation(conversationId);
 
             if (!memories.isEmpty()) {
-                // 2. 获取用户ID
+                // 2. 获取对话
                 Conversations conversation = conversationsMapper.selectById(conversationId);
                 if (conversation != null) {
-                    Long userId = conversation.getUserId();
-
-                    // 3. 更新Redis缓存
-                    updateRedisCache(userId, memories);
-
-                    // 4. 清理过多记忆（保持限制）
-                    enforceMemoryLimits(userId);
-
-                    // 5. 提取情感记忆（如果需要）
+                    // 3. 提取情感记忆（如果需要）
+                    // 记忆缓存与召回索引已在保存时更新；超出条数上限的记忆由MemoryEvictionJob在后台淘汰
                     extractEmotionalMemories(conversation);
                 }
             }
@@ -224,97 +270,6 @@ public class MemoryExtractionService {
         }
     }
 
-    /**
-     * 更新Redis缓存
-     */
-    private void updateRedisCache(Long userId, List<MemoryFragments> newMemories) {
-        try {
-            // 1. 获取现有缓存
-            List<MemoryFragments> cachedMemories = getRedisCachedMemories(userId, REDIS_ACTIVE_KEY);
-
-            // 2. 合并新旧记忆（去重）
-            List<MemoryFragments> allMemories = mergeMemories(cachedMemories, newMemories);
-
-            // 3. 按重要性排序并限制数量
-            allMemories = allMemories.stream()
-                    .sorted((m1, m2) -> {
-                        BigDecimal score1 = m1.getImportanceScore() != null ? m1.getImportanceScore() : BigDecimal.ZERO;
-                        BigDecimal score2 = m2.getImportanceScore() != null ? m2.getImportanceScore() : BigDecimal.ZERO;
-                        return score2.compareTo(score1);
-                    })
-                    .limit(MAX_REDIS_MEMORIES)
-                    .collect(Collectors.toList());
-
-            // 4. 保存到Redis
-            String redisKey = buildRedisKey(userId, REDIS_ACTIVE_KEY);
-            redisTemplate.opsForValue().set(redisKey, allMemories, REDIS_CACHE_TTL, TimeUnit.SECONDS);
-
-            // 5. 保存重要记忆到独立缓存
-            cacheImportantMemories(userId, allMemories);
-
-            log.debug("更新Redis缓存: userId={}, total={}", userId, allMemories.size());
-
-        } catch (Exception e) {
-            log.error("更新Redis缓存失败: userId={}", userId, e);
-        }
-    }
-
-    /**
-     * 合并记忆（去重）
-     */
-    private List<MemoryFragments> mergeMemories(List<MemoryFragments> existing, List<MemoryFragments> newMemories) {
-        Set<String> contentSet = new HashSet<>();
-        List<MemoryFragments> merged = new ArrayList<>();
-
-        // 添加现有记忆
-        for (MemoryFragments memory : existing) {
-            if (memory.getMemoryText() != null) {
-                String key = memory.getMemoryType() + ":" + memory.getMemoryText().hashCode();
-                if (!contentSet.contains(key)) {
-                    contentSet.add(key);
-                    merged.add(memory);
-                }
-            }
-        }
-
-        // 添加新记忆
-        for (MemoryFragments memory : newMemories) {
-            if (memory.getMemoryText() != null) {
-                String key = memory.getMemoryType() + ":" + memory.getMemoryText().hashCode();
-                if (!contentSet.contains(key)) {
-                    contentSet.add(key);
-                    merged.add(memory);
-                }
-            }
-        }
-
-        return merged;
-    }
-
-    /**
-     * 缓存重要记忆
-     */
-    private void cacheImportantMemories(Long userId, List<MemoryFragments> memories) {
-        try {
-            List<MemoryFragments> importantMemories = memories.stream()
-                    .filter(memory -> {
-                        BigDecimal importance = memory.getImportanceScore();
-                        return importance != null && importance.doubleValue() > 0.7;
-                    })
-                    .limit(10) // 只缓存前10个重要记忆
-                    .collect(Collectors.toList());
-
-            if (!importantMemories.isEmpty()) {
-                String redisKey = buildRedisKey(userId, REDIS_IMPORTANT_KEY);
-                redisTemplate.opsForValue().set(redisKey, importantMemories,
-                        REDIS_CACHE_TTL * 2, TimeUnit.SECONDS); // 重要记忆缓存更久
-            }
-
-        } catch (Exception e) {
-            log.error("缓存重要记忆失败: userId={}", userId, e);
-        }
-    }
-
     // ========== 【增强方法2】带上下文的记忆获取 ==========
 
     /**
@@ -322,26 +277,12 @@ public class MemoryExtractionService {
      */
     public List<MemoryFragments> getContextualMemories(Long userId, String currentMessage) {
         try {
-            // 1. 先从Redis上下文缓存查
-            String contextKey = buildRedisKey(userId, REDIS_CONTEXT_KEY);
-            @SuppressWarnings("unchecked")
-            List<MemoryFragments> cachedContext = (List<MemoryFragments>) redisTemplate.opsForValue().get(contextKey);
-
-            if (cachedContext != null && !cachedContext.isEmpty()) {
-                log.debug("从Redis上下文缓存获取记忆: userId={}, count={}", userId, cachedContext.size());
-                return cachedContext;
-            }
-
-            // 2. 没有缓存，则搜索相关记忆
-            List<MemoryFragments> relevantMemories = findRelevantMemories(userId, currentMessage);
-
-            // 3. 缓存上下文结果
-            if (!relevantMemories.isEmpty()) {
-                redisTemplate.opsForValue().set(contextKey, relevantMemories,
-                        CONTEXT_CACHE_TTL, TimeUnit.SECONDS);
-            }
-
-            return relevantMemories;
+            // 按消息命中的索引关键词缓存，未命中时搜索相关记忆
+            List<MemoryFragments> memories = memoryContextCache.get(userId, currentMessage, 5, 0.2,
+                    () -> loadActiveMemories(userId), () -> findRelevantMemories(userId, currentMessage));
+            // 访问只记入内存缓冲，不增加数据库往返
+            memoryAccessTracker.recordAll(memories, userId, null, MemoryAccessTracker.RETRIEVAL, currentMessage);
+            return memories;
 
         } catch (Exception e) {
             log.error("获取上下文记忆失败: userId={}", userId, e);
@@ -353,129 +294,38 @@ public class MemoryExtractionService {
      * 查找相关记忆
      */
     private List<MemoryFragments> findRelevantMemories(Long userId, String currentMessage) {
-        try {
-            // 提取当前消息的关键词
-            List<String> keywords = extractKeywordsFromText(currentMessage);
-
-            if (keywords.isEmpty()) {
-                return Collections.emptyList();
-            }
-
-            // 从Redis获取活跃记忆
-            List<MemoryFragments> allMemories = getRedisCachedMemories(userId, REDIS_ACTIVE_KEY);
-
-            // 如果没有Redis缓存，则从数据库获取
-            if (allMemories.isEmpty()) {
-                allMemories = getUserMemories(userId, null, MAX_REDIS_MEMORIES);
-                // 顺便缓存到Redis
-                if (!allMemories.isEmpty()) {
-                    updateRedisCache(userId, allMemories);
-                }
-            }
-
-            // 计算相关性并排序
-            return allMemories.stream()
-                    .map(memory -> {
-                        double relevance = calculateRelevance(memory, keywords);
-                        return new MemoryWithRelevance(memory, relevance);
-                    })
-                    .filter(mwr -> mwr.relevance > 0.2) // 相关性阈值
-                    .sorted(Comparator.comparingDouble(MemoryWithRelevance::getRelevance).reversed())
-                    .limit(5) // 最多返回5个相关记忆
-                    .map(MemoryWithRelevance::getMemory)
-                    .collect(Collectors.toList());
-
-        } catch (Exception e) {
-            log.error("查找相关记忆失败: userId={}", userId, e);
-            return Collections.emptyList();
-        }
+        return recallMemories(userId, currentMessage, 5, 0.2);
     }
 
     /**
-     * 计算记忆相关性
+     * 召回相关记忆：关键词倒排索引（只对命中关键词的记忆打分）+ 向量相似度
+     * hybrid模式下关键词命中优先，不足limit条时按向量相似度补足；关键词已足够时不做向量计算
+     * 本节点没有该用户的索引时，从记忆缓存的活跃记忆（重要性前50条）构建
      */
-    private double calculateRelevance(MemoryFragments memory, List<String> keywords) {
-        double relevance = 0.0;
-
-        if (memory.getMemoryText() == null) {
-            return relevance;
-        }
-
-        String memoryText = memory.getMemoryText().toLowerCase();
-
-        // 1. 关键词匹配
-        for (String keyword : keywords) {
-            if (memoryText.contains(keyword.toLowerCase())) {
-                relevance += 0.3;
-            }
-        }
-
-        // 2. 重要性权重
-        if (memory.getImportanceScore() != null) {
-            relevance += memory.getImportanceScore().doubleValue() * 0.5;
-        }
-
-        // 3. 近期访问权重
-        if (memory.getLastAccessed() != null) {
-            long daysSinceAccess = (System.currentTimeMillis() - memory.getLastAccessed().getTime())
-                    / (1000 * 60 * 60 * 24);
-            if (daysSinceAccess < 7) {
-                relevance += 0.1;
-            }
-        }
-
-        return Math.min(relevance, 1.0);
-    }
-
-    // ========== 【增强方法3】记忆限制管理 ==========
-
-    /**
-     * 强制执行记忆限制
-     */
-    private void enforceMemoryLimits(Long userId) {
+    public List<MemoryFragments> recallMemories(Long userId, String currentMessage, int limit, double minRelevance) {
         try {
-            // 1. 检查用户记忆总数
-            long totalMemories = memoryFragmentsMapper.selectCount(
-                    new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments>()
-                            .eq("user_id", userId)
-            );
-
-            if (totalMemories > MAX_MEMORIES_PER_USER) {
-                log.info("用户记忆超限: userId={}, count={}, 限制={}",
-                        userId, totalMemories, MAX_MEMORIES_PER_USER);
-
-                // 2. 删除不重要的旧记忆
-                deleteUnimportantMemories(userId, totalMemories - MAX_MEMORIES_PER_USER);
+            List<MemoryFragments> recalled = "vector".equals(recallMode)
+                    ? Collections.emptyList()
+                    : memoryKeywordIndex.recall(userId, currentMessage, limit, minRelevance, () -> loadActiveMemories(userId));
+            if ("keyword".equals(recallMode) || recalled.size() >= limit) {
+                return recalled;
             }
 
+            List<MemoryFragments> similar = memoryVectorIndex.search(userId, currentMessage, limit, minSimilarity,
+                    () -> loadActiveMemories(userId));
+            return MemoryVectorIndex.fill(recalled, similar, limit);
+
         } catch (Exception e) {
-            log.error("执行记忆限制失败: userId={}", userId, e);
+            log.error("查找相关记忆失败: userId={}", userId, e);
+            return Collections.emptyList();
         }
     }
 
     /**
-     * 删除不重要的记忆
+     * 活跃记忆：重要性前50条，召回索引按这个集合构建
      */
-    private void deleteUnimportantMemories(Long userId, long countToDelete) {
-        try {
-            // 获取最不重要的记忆（重要性低、很久没访问的）
-            List<MemoryFragments> memoriesToDelete = memoryFragmentsMapper.selectList(
-                    new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments>()
-                            .eq("user_id", userId)
-                            .orderByAsc("importance_score", "last_accessed")
-                            .last("LIMIT " + countToDelete)
-            );
-
-            // 删除这些记忆
-            for (MemoryFragments memory : memoriesToDelete) {
-                memoryFragmentsMapper.deleteById(memory.getId());
-            }
-
-            log.info("删除不重要记忆: userId={}, count={}", userId, memoriesToDelete.size());
-
-        } catch (Exception e) {
-            log.error("删除不重要记忆失败: userId={}", userId, e);
-        }
+    public List<MemoryFragments> loadActiveMemories(Long userId) {
+        return getUserMemories(userId, null, MemoryTieredCache.VIEW_SIZE);
     }
 
     // ========== 【增强方法4】情感记忆提取 ==========
@@ -572,45 +422,6 @@ public class MemoryExtractionService {
         return "general";
     }
 
-    // ========== 【增强方法5】Redis缓存工具方法 ==========
-
-    /**
-     * 从Redis获取缓存记忆
-     */
-    private List<MemoryFragments> getRedisCachedMemories(Long userId, String suffix) {
-        try {
-            String redisKey = buildRedisKey(userId, suffix);
-            @SuppressWarnings("unchecked")
-            List<MemoryFragments> cached = (List<MemoryFragments>) redisTemplate.opsForValue().get(redisKey);
-            return cached != null ? cached : Collections.emptyList();
-        } catch (Exception e) {
-            log.error("获取Redis缓存失败: userId={}, suffix={}", userId, suffix, e);
-            return Collections.emptyList();
-        }
-    }
-
-    /**
-     * 构建Redis键
-     */
-    private String buildRedisKey(Long userId, String suffix) {
-        return REDIS_KEY_PREFIX + userId + ":" + suffix;
-    }
-
-    /**
-     * 提取文本关键词（简化版）
-     */
-    private List<String> extractKeywordsFromText(String text) {
-        if (text == null || text.trim().isEmpty()) {
-            return Collections.emptyList();
-        }
-
-        // 简单分词
-        String[] words = text.split("[\\s,.，。!！?？、]+");
-        return Arrays.stream(words)
-                .filter(word -> word.length() > 1 && word.length() < 6)
-                .collect(Collectors.toList());
-    }
-
     // ========== 【原有方法保持不变】==========
     // 以下是您原有的所有方法，保持完全不变
 
@@ -650,9 +461,6 @@ public class MemoryExtractionService {
             // 5. 保存记忆片段
             List<MemoryFragments> savedMemories = saveMemoryFragments(candidates, userId, conversationId);
 
-            // 6. 更新用户记忆缓存
-            updateUserMemoryCache(userId, savedMemories);
-
             long processingTime = System.currentTimeMillis() - startTime;
             log.info("记忆提取完成: conversationId={}, 提取{}个记忆, 耗时{}ms",
                     conversationId, savedMemories.size(), processingTime);
@@ -716,22 +524,9 @@ public class MemoryExtractionService {
      */
     public List<MemoryFragments> getUserMemories(Long userId, MemoryType type, int limit) {
         try {
-            // 1. 先查缓存
-            List<MemoryFragments> cached = userMemoryCache.get(userId);
-            if (cached != null && !cached.isEmpty()) {
-                List<MemoryFragments> filtered = filterMemoriesByType(cached, type);
-                return filtered.size() > limit ? filtered.subList(0, limit) : filtered;
-            }
-
-            // 2. 查数据库
-            List<MemoryFragments> memories = queryMemoriesFromDatabase(userId, type, limit);
-
-            // 3. 更新缓存
-            if (!memories.isEmpty()) {
-                userMemoryCache.put(userId, memories);
-            }
-
-            return memories;
+            // 按类型分视图缓存，每个视图是该类型重要性最高的前50条
+            String view = type != null ? type.getCode() : MemoryTieredCache.ALL_TYPES;
+            return memoryTieredCache.get(userId, view, limit, n -> queryMemoriesFromDatabase(userId, type, n));
 
         } catch (Exception e) {
             log.error("获取用户记忆失败: userId={}, type={}", userId, type, e);
@@ -750,6 +545,7 @@ public class MemoryExtractionService {
                 memory.setImportanceScore(BigDecimal.valueOf(Math.min(1.0, Math.max(0.0, importanceScore))));
                 memory.setUpdatedAt(new Date());
                 memoryFragmentsMapper.updateById(memory);
+                memoryTieredCache.invalidate(memory.getUserId());
                 log.debug("更新记忆重要性: memoryId={}, score={}", memoryId, importanceScore);
             }
         } catch (Exception e) {
@@ -759,28 +555,11 @@ public class MemoryExtractionService {
 
     /**
      * 记录记忆访问 - 原有方法
+     * 只写入内存缓冲，由MemoryAccessTracker定期批量累加访问次数并写访问日志
      */
-    @Transactional
     public void recordMemoryAccess(Long memoryId, Long userId, Long conversationId) {
-        try {
-            MemoryFragments memory = memoryFragmentsMapper.selectById(memoryId);
-            if (memory != null) {
-                // 更新访问次数
-                Integer accessCount = memory.getAccessCount();
-                if (accessCount == null) {
-                    accessCount = 0;
-                }
-                memory.setAccessCount(accessCount + 1);
-                memory.setLastAccessed(new Date());
-                memory.setUpdatedAt(new Date());
-
-                memoryFragmentsMapper.updateById(memory);
-                log.debug("记录记忆访问: memoryId={}, userId={}, 访问次数={}",
-                        memoryId, userId, accessCount + 1);
-            }
-        } catch (Exception e) {
-            log.error("记录记忆访问失败: memoryId={}", memoryId, e);
-        }
+        memoryAccessTracker.record(memoryId, userId, conversationId, MemoryAccessTracker.REFERENCE, null);
+        log.debug("记录记忆访问: memoryId={}, userId={}", memoryId, userId);
     }
 
     /**
@@ -818,44 +597,16 @@ public class MemoryExtractionService {
      * 搜索相关记忆 - 原有方法
      */
     public List<MemoryFragments> searchMemories(Long userId, String keyword, int limit) {
-        try {
-            log.info("搜索记忆: userId={}, keyword={}", userId, keyword);
-
-            // 1. 先查缓存
-            List<MemoryFragments> cached = userMemoryCache.get(userId);
-            if (cached != null && !cached.isEmpty()) {
-                List<MemoryFragments> matched = cached.stream()
-                        .filter(memory -> {
-                            try {
-                                String text = memory.getMemoryText();
-                                return text != null && text.toLowerCase().contains(keyword.toLowerCase());
-                            } catch (Exception e) {
-                                return false;
-                            }
-                        })
-                        .limit(limit)
-                        .collect(java.util.stream.Collectors.toList());
-
-                if (!matched.isEmpty()) {
-                    return matched;
-                }
-            }
-
-            // 2. 查数据库
-            List<MemoryFragments> memories = memoryFragmentsMapper.selectList(
-                    new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments>()
-                            .eq("user_id", userId)
-                            .like("memory_text", keyword)
-                            .orderByDesc("importance_score", "last_accessed")
-                            .last("LIMIT " + limit)
-            );
-
-            return memories;
+        log.info("搜索记忆: userId={}, keyword={}", userId, keyword);
+        // 全文索引按相关度排序，不再用本地缓存做子串过滤（结果不完整且无序）
+        return memoryRepository.searchMemories(userId, keyword, limit);
+    }
 
-        } catch (Exception e) {
-            log.error("搜索记忆失败: userId={}, keyword={}", userId, keyword, e);
-            return Collections.emptyList();
-        }
+    /**
+     * 查询某次对话提取出的记忆
+     */
+    public List<MemoryFragments> getConversationMemories(Long userId, Long conversationId, int limit) {
+        return memoryRepository.findConversationMemories(userId, conversationId, limit);
     }
 
     /**
@@ -892,7 +643,7 @@ public class MemoryExtractionService {
     /**
      * 提取记忆候选 - 原有方法
      */
-    private List<MemoryCandidate> extractMemoryCandidates(String userMessage, Long userId) {
+    List<MemoryCandidate> extractMemoryCandidates(String userMessage, Long userId) {
         List<MemoryCandidate> candidates = new ArrayList<>();
         if (userMessage == null || userMessage.trim().isEmpty()) {
             return candidates;
@@ -977,79 +728,105 @@ public class MemoryExtractionService {
     }
 
     /**
-     * 保存记忆片段 - 原有方法
+     * 保存记忆片段：一轮对话的全部候选作为一个批次写入（一条多值INSERT，回填自增id）
+     * 与已有记忆（或同批候选）近似重复的候选不再插入，合并进已有记忆（提升重要性、访问次数加1）
      */
     private List<MemoryFragments> saveMemoryFragments(List<MemoryCandidate> candidates, Long userId, Long conversationId) {
-        List<MemoryFragments> savedMemories = new ArrayList<>();
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
 
+        // 关键词序列化器按批次构建一次
+        ObjectWriter keywordWriter = objectMapper.writerFor(KEYWORD_LIST_TYPE);
+        Date now = new Date();
+        List<MemoryFragments> memories = new ArrayList<>(candidates.size());
+        int merged = 0;
         for (MemoryCandidate candidate : candidates) {
-            try {
-                MemoryFragments memory = new MemoryFragments();
-
-                memory.setUserId(userId);
-                memory.setMemoryText(candidate.content);
-                memory.setMemoryType(candidate.type.getCode()); // 使用字符串类型
-                memory.setImportanceScore(BigDecimal.valueOf(candidate.calculatedImportance));
-                memory.setSourceConversationId(conversationId);
-
-                // 设置相关关键词
-                List<String> keywords = extractKeywords(candidate.content, candidate.type);
-                if (!keywords.isEmpty()) {
-                    try {
-                        String keywordsJson = objectMapper.writeValueAsString(keywords);
-                        memory.setRelatedKeywords(keywordsJson);
-                    } catch (JsonProcessingException e) {
-                        log.warn("序列化关键词失败", e);
-                        memory.setRelatedKeywords(keywords.toString());
-                    }
-                }
-
-                memory.setAccessCount(0);
-                memory.setLastAccessed(new Date());
-                Date now = new Date();
-                memory.setCreatedAt(now);
-                memory.setUpdatedAt(now);
-
-                memoryFragmentsMapper.insert(memory);
-                savedMemories.add(memory);
-
-                log.debug("保存记忆片段: memoryId={}, type={}, importance={}, content={}...",
-                        memory.getId(), candidate.type, candidate.calculatedImportance,
-                        candidate.content.length() > 30 ?
-                                candidate.content.substring(0, 30) + "..." : candidate.content);
+            long fingerprint = MemoryFingerprintIndex.fingerprint(candidate.content);
+            if (dedupEnabled && mergeIfDuplicate(userId, candidate, fingerprint, memories)) {
+                merged++;
+                continue;
+            }
 
-            } catch (Exception e) {
-                log.error("保存记忆片段失败: userId={}, content={}", userId, candidate.content, e);
+            MemoryFragments memory = new MemoryFragments();
+
+            memory.setUserId(userId);
+            memory.setMemoryText(candidate.content);
+            memory.setMemoryType(candidate.type.getCode()); // 使用字符串类型
+            memory.setImportanceScore(BigDecimal.valueOf(candidate.calculatedImportance));
+            memory.setSourceConversationId(conversationId);
+            memory.setSimhash(fingerprint);
+
+            // 设置相关关键词
+            List<String> keywords = extractKeywords(candidate.content, candidate.type);
+            if (!keywords.isEmpty()) {
+                try {
+                    memory.setRelatedKeywords(keywordWriter.writeValueAsString(keywords));
+                } catch (JsonProcessingException e) {
+                    log.warn("序列化关键词失败", e);
+                    memory.setRelatedKeywords(keywords.toString());
+                }
             }
+
+            memory.setAccessCount(0);
+            memory.setLastAccessed(now);
+            memory.setCreatedAt(now);
+            memory.setUpdatedAt(now);
+            memories.add(memory);
         }
 
-        return savedMemories;
+        if (!memories.isEmpty()) {
+            memoryRepository.batchSaveMemoryFragments(memories);
+            memoryEvictionJob.recordInserted(userId, memories.size());
+        }
+        if (!memories.isEmpty() || merged > 0) {
+            // 先失效活跃记忆缓存（提交后再失效一次），关键词/向量索引由活跃记忆重建，排在其后
+            memoryTieredCache.invalidate(userId);
+        }
+        if (!memories.isEmpty()) {
+            // 指纹索引覆盖全部记忆，直接追加；关键词/向量索引只覆盖活跃记忆，新增时丢弃重建
+            memoryFingerprintIndex.update(userId, memories, Collections.emptyList());
+            memoryKeywordIndex.invalidate(userId);
+            memoryVectorIndex.recordInserted(userId, memories);
+        }
+        log.debug("保存记忆片段: userId={}, conversationId={}, inserted={}, merged={}",
+                userId, conversationId, memories.size(), merged);
+        return memories;
     }
 
     /**
-     * 更新用户记忆缓存 - 原有方法
+     * 候选与同批已保留的候选或已有记忆近似重复时合并进对方，两种情况规则一致（与mergeDuplicate的SQL相同）：
+     * 重要性取两者较大值加importance-bump（不超过1），访问次数加1
+     *
+     * @return 候选是否已被合并（不需要插入）
      */
-    private void updateUserMemoryCache(Long userId, List<MemoryFragments> newMemories) {
-        List<MemoryFragments> existing = userMemoryCache.get(userId);
-        if (existing == null) {
-            existing = new ArrayList<>();
+    private boolean mergeIfDuplicate(Long userId, MemoryCandidate candidate, long fingerprint,
+                                     List<MemoryFragments> batch) {
+        String type = candidate.type.getCode();
+        for (MemoryFragments kept : batch) {
+            if (type.equals(kept.getMemoryType())
+                    && MemoryFingerprintIndex.distance(kept.getSimhash(), fingerprint) <= dedupMaxDistance) {
+                double keptImportance = kept.getImportanceScore() != null ? kept.getImportanceScore().doubleValue() : 0.0;
+                kept.setImportanceScore(BigDecimal.valueOf(
+                        Math.min(1.0, Math.max(keptImportance, candidate.calculatedImportance) + dedupImportanceBump)));
+                kept.setAccessCount((kept.getAccessCount() != null ? kept.getAccessCount() : 0) + 1);
+                log.debug("合并同批近似重复记忆: userId={}, content={}", userId, candidate.content);
+                return true;
+            }
         }
 
-        existing.addAll(newMemories);
-
-        // 按重要性排序
-        existing.sort((m1, m2) -> {
-            BigDecimal score1 = m1.getImportanceScore() != null ? m1.getImportanceScore() : BigDecimal.ZERO;
-            BigDecimal score2 = m2.getImportanceScore() != null ? m2.getImportanceScore() : BigDecimal.ZERO;
-            return score2.compareTo(score1); // 降序
-        });
-
-        // 限制缓存大小（最多30条）
-        if (existing.size() > 30) {
-            existing = existing.subList(0, 30);
+        Long existingId = memoryFingerprintIndex.findDuplicate(userId, type, fingerprint, dedupMaxDistance);
+        if (existingId == null) {
+            return false;
         }
-
-        userMemoryCache.put(userId, existing);
+        if (memoryRepository.mergeDuplicate(existingId, BigDecimal.valueOf(candidate.calculatedImportance),
+                BigDecimal.valueOf(dedupImportanceBump))) {
+            log.debug("合并近似重复记忆: userId={}, memoryId={}, content={}", userId, existingId, candidate.content);
+            return true;
+        }
+        // 已有记忆已被删除，按新记忆插入
+        memoryFingerprintIndex.update(userId, Collections.emptyList(), List.of(existingId));
+        return false;
     }
 
     /**
@@ -1261,7 +1038,7 @@ public class MemoryExtractionService {
     /**
      * 提取关键词 - 原有方法
      */
-    private List<String> extractKeywords(String text, MemoryType type) {
+    List<String> extractKeywords(String text, MemoryType type) {
         List<String> keywords = new ArrayList<>();
         if (text == null || text.isEmpty()) {
             return keywords;
@@ -1278,22 +1055,14 @@ public class MemoryExtractionService {
             }
         }
 
-        // 提取文本中的名词（简单实现）
-        String[] words = text.split("[\\s,.，。!！?？]+");
-        for (String word : words) {
-            if (word.length() > 1 && word.length() < 6) {
-                // 简单判断是否为名词（中文名词通常是2-4个字）
-                if (word.length() >= 2 && word.length() <= 4) {
-                    keywords.add(word);
-                }
+        // 分词提取名词性关键词
+        for (String word : chineseSegmenter.keywords(text, MAX_KEYWORDS)) {
+            if (!keywords.contains(word)) {
+                keywords.add(word);
             }
         }
 
-        // 去重并限制数量
-        Set<String> uniqueKeywords = new LinkedHashSet<>(keywords);
-        return new ArrayList<>(uniqueKeywords).size() > 10 ?
-                new ArrayList<>(uniqueKeywords).subList(0, 10) :
-                new ArrayList<>(uniqueKeywords);
+        return keywords.size() > MAX_KEYWORDS ? new ArrayList<>(keywords.subList(0, MAX_KEYWORDS)) : keywords;
     }
 
     /**
@@ -1307,65 +1076,29 @@ public class MemoryExtractionService {
         return candidate;
     }
 
-    /**
-     * 按类型过滤记忆 - 原有方法
-     */
-    private List<MemoryFragments> filterMemoriesByType(List<MemoryFragments> memories, MemoryType type) {
-        if (type == null) {
-            return memories;
-        }
-
-        return memories.stream()
-                .filter(memory -> {
-                    Object memoryType = memory.getMemoryType();
-                    return memoryType != null && type.getCode().equals(memoryType.toString());
-                })
-                .collect(java.util.stream.Collectors.toList());
-    }
-
     /**
      * 记忆候选对象（内部类） - 原有方法
      */
-    private static class MemoryCandidate {
+    static class MemoryCandidate {
         String content;
         MemoryType type;
         double baseImportance;
         double calculatedImportance;
     }
 
-    /**
-     * 记忆与相关性包装类（新内部类）
-     */
-    private static class MemoryWithRelevance {
-        private final MemoryFragments memory;
-        private final double relevance;
-
-        public MemoryWithRelevance(MemoryFragments memory, double relevance) {
-            this.memory = memory;
-            this.relevance = relevance;
-        }
-
-        public MemoryFragments getMemory() { return memory; }
-        public double getRelevance() { return relevance; }
-    }
-
     /**
      * 清空用户记忆缓存 - 原有方法
      */
     public void clearUserMemoryCache(Long userId) {
-        userMemoryCache.remove(userId);
-
-        // 增强：同时清空Redis缓存
-        try {
-            String pattern = REDIS_KEY_PREFIX + userId + ":*";
-            Set<String> keys = redisTemplate.keys(pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                log.info("清空用户记忆缓存: userId={}, 删除Redis keys={}", userId, keys.size());
-            }
-        } catch (Exception e) {
-            log.error("清空Redis缓存失败: userId={}", userId, e);
-        }
+        // 两级记忆缓存与上下文缓存
+        memoryTieredCache.invalidate(userId);
+        memoryKeywordIndex.invalidate(userId);
+        memoryVectorIndex.invalidate(userId);
+        memoryFingerprintIndex.invalidate(userId);
+        // 记忆条数计数同样是缓存，丢弃后由淘汰任务按数据库重新统计
+        memoryEvictionJob.invalidateCount(userId);
+
+        log.info("清空用户记忆缓存: userId={}", userId);
     }
 
     /**
@@ -1373,17 +1106,13 @@ public class MemoryExtractionService {
      */
     public Map<String, Object> getCacheStats() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("cachedUsers", userMemoryCache.size());
-        stats.put("totalCachedMemories",
-                userMemoryCache.values().stream()
-                        .mapToInt(List::size)
-                        .sum());
+        stats.put("cachedUsers", memoryTieredCache.size());
+        stats.put("tiers", memoryTieredCache.getStats());
         stats.put("cacheStatus", "active");
 
-        // 增强：添加Redis缓存统计
+        // 增强：添加Redis缓存统计（近似值，见RedisKeyStats）
         try {
-            Set<String> keys = redisTemplate.keys(REDIS_KEY_PREFIX + "*");
-            stats.put("redisKeys", keys != null ? keys.size() : 0);
+            stats.put("redisKeys", redisKeyStats.estimate(RedisKeyStats.MEMORY, REDIS_KEY_STATS_WINDOW));
         } catch (Exception e) {
             log.error("获取Redis统计失败", e);
             stats.put("redisKeys", "error");
@@ -1403,7 +1132,7 @@ public class MemoryExtractionService {
         health.put("timestamp", new Date());
         health.put("version", "2.0.0"); // 版本号升级
 
-        health.put("memoryCacheSize", userMemoryCache.size());
+        health.put("memoryCacheSize", memoryTieredCache.size());
         health.put("threadPool", asyncExecutor != null ? "initialized" : "not-initialized");
 
         // 增强：检查Redis连接
@@ -1430,17 +1159,17 @@ public class MemoryExtractionService {
     public Map<String, Object> getServiceStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        stats.put("cacheUserCount", userMemoryCache.size());
+        stats.put("cacheUserCount", memoryTieredCache.size());
+        stats.put("accessTracking", memoryAccessTracker.getStats());
         stats.put("extractionRulesCount", extractionRules.size());
         stats.put("memoryTypes", MemoryType.values().length);
         stats.put("threadPoolSize", 10);
         stats.put("serviceUptime", "running");
         stats.put("lastCheckTime", new Date());
 
-        // 增强：添加Redis统计
+        // 增强：添加Redis统计（近似值，见RedisKeyStats）
         try {
-            Set<String> keys = redisTemplate.keys(REDIS_KEY_PREFIX + "*");
-            stats.put("redisMemoryKeys", keys != null ? keys.size() : 0);
+            stats.put("redisMemoryKeys", redisKeyStats.estimate(RedisKeyStats.MEMORY, REDIS_KEY_STATS_WINDOW));
         } catch (Exception e) {
             log.error("获取Redis统计失败", e);
         }
@@ -0,0 +1,267 @@
+// File: src/main/java/com/zs/service/memory/access/MemoryAccessTracker.java
+package com.zs.service.memory.access;
+
+import com.zs.entity.MemoryAccessLogs;
+import com.zs.entity.MemoryFragments;
+import com.zs.mapper.MemoryAccessLogsMapper;
+import com.zs.service.memory.repository.MemoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 记忆访问记录的内存缓冲
+ *
+ * 对话路径只在内存中累加：按记忆id分段加锁，每段一张"记忆id -> 访问次数、最近访问时间"的计数表和一个访问日志列表，
+ * 不访问数据库也不访问Redis。定时任务把各段整体换出合并，每个周期一条批量UPDATE累加access_count、推进last_accessed，
+ * 访问日志多值INSERT写入memory_access_logs。待写日志超过上限时丢弃新日志（计数不受影响）；
+ * 计数写入在一个事务中，失败时整体回滚并回缓冲，下个周期重试。访问场景默认不落库（可能含用户消息原文）
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryAccessTracker {
+
+    // 召回进对话上下文
+    public static final String RETRIEVAL = "retrieval";
+    // 业务方显式登记（反馈评估等）
+    public static final String REFERENCE = "reference";
+
+    private static final int STRIPES = 16;
+    // 每条UPDATE / INSERT语句携带的最大行数
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_CONTEXT_LENGTH = 200;
+
+    private final MemoryRepository memoryRepository;
+    private final MemoryAccessLogsMapper memoryAccessLogsMapper;
+
+    // 是否写memory_access_logs
+    @Value("${app.memory.access.log-enabled:true}")
+    private boolean logEnabled = true;
+
+    // 是否把访问场景（如触发召回的消息）写入access_context，默认不写
+    @Value("${app.memory.access.log-context:false}")
+    private boolean logContext = false;
+
+    // 待写访问日志上限，超出后丢弃
+    @Value("${app.memory.access.max-pending-logs:10000}")
+    private int maxPendingLogs = 10000;
+
+    private final Stripe[] stripes = newStripes();
+    private final AtomicInteger pendingLogs = new AtomicInteger();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder flushedMemories = new LongAdder();
+    private final LongAdder flushedLogs = new LongAdder();
+    private final LongAdder droppedLogs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * 登记一次记忆访问（只写内存）
+     *
+     * @param context 访问场景说明，开启log-context时才落库，超长截断
+     */
+    public void record(Long memoryId, Long userId, Long conversationId, String accessType, String context) {
+        if (memoryId == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        MemoryAccessLogs accessLog = logEnabled
+                ? newLog(memoryId, userId, conversationId, accessType, logContext ? context : null, now) : null;
+
+        Stripe stripe = stripes[stripe(memoryId)];
+        synchronized (stripe) {
+            stripe.counters.computeIfAbsent(memoryId, id -> new Counter()).add(1, now);
+            if (accessLog != null) {
+                if (pendingLogs.incrementAndGet() <= maxPendingLogs) {
+                    stripe.logs.add(accessLog);
+                } else {
+                    pendingLogs.decrementAndGet();
+                    droppedLogs.increment();
+                }
+            }
+        }
+        recorded.increment();
+    }
+
+    /**
+     * 批量登记一组记忆的访问
+     */
+    public void recordAll(Collection<MemoryFragments> memories, Long userId, Long conversationId,
+                          String accessType, String context) {
+        for (MemoryFragments memory : memories) {
+            record(memory.getId(), userId, conversationId, accessType, context);
+        }
+    }
+
+    /**
+     * 把缓冲写入数据库：计数一条批量UPDATE（超过CHUNK_SIZE条时分块），日志批量INSERT
+     * 已有写入在进行时本周期跳过
+     */
+    @Scheduled(fixedDelayString = "${app.memory.access.flush-interval-ms:5000}",
+            initialDelayString = "${app.memory.access.flush-interval-ms:5000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 关闭时等正在进行的写入结束，再把剩余缓冲写完
+     */
+    @PreDestroy
+    public void shutdown() {
+        flushLock.lock();
+        try {
+            drain();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void drain() {
+        Map<Long, Counter> counters = new HashMap<>();
+        List<MemoryAccessLogs> logs = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            Map<Long, Counter> stripeCounters;
+            List<MemoryAccessLogs> stripeLogs;
+            synchronized (stripe) {
+                if (stripe.counters.isEmpty() && stripe.logs.isEmpty()) {
+                    continue;
+                }
+                stripeCounters = stripe.counters;
+                stripeLogs = stripe.logs;
+                stripe.counters = new HashMap<>();
+                stripe.logs = new ArrayList<>();
+            }
+            // 同一记忆id只会落在一个分段
+            counters.putAll(stripeCounters);
+            logs.addAll(stripeLogs);
+        }
+        pendingLogs.addAndGet(-logs.size());
+
+        if (!counters.isEmpty()) {
+            writeCounters(counters);
+        }
+        if (!logs.isEmpty()) {
+            writeLogs(logs);
+        }
+    }
+
+    private void writeCounters(Map<Long, Counter> counters) {
+        List<MemoryFragments> deltas = new ArrayList<>(counters.size());
+        counters.forEach((memoryId, counter) -> {
+            MemoryFragments delta = new MemoryFragments();
+            delta.setId(memoryId);
+            delta.setAccessCount(counter.count);
+            delta.setLastAccessed(new Date(counter.lastAccessed));
+            deltas.add(delta);
+        });
+
+        try {
+            memoryRepository.batchIncrementAccess(deltas, CHUNK_SIZE);
+            flushedMemories.add(deltas.size());
+            log.debug("写入记忆访问计数: memories={}", deltas.size());
+        } catch (Exception e) {
+            failures.increment();
+            log.error("写入记忆访问计数失败，并回缓冲下次重试: memories={}", deltas.size(), e);
+            counters.forEach((memoryId, counter) -> {
+                Stripe stripe = stripes[stripe(memoryId)];
+                synchronized (stripe) {
+                    stripe.counters.computeIfAbsent(memoryId, id -> new Counter()).add(counter.count, counter.lastAccessed);
+                }
+            });
+        }
+    }
+
+    private void writeLogs(List<MemoryAccessLogs> logs) {
+        for (int from = 0; from < logs.size(); from += CHUNK_SIZE) {
+            List<MemoryAccessLogs> chunk = logs.subList(from, Math.min(from + CHUNK_SIZE, logs.size()));
+            try {
+                memoryAccessLogsMapper.insertBatch(chunk);
+                flushedLogs.add(chunk.size());
+            } catch (Exception e) {
+                // 日志只用于分析，失败不重试，避免坏数据反复阻塞
+                failures.increment();
+                droppedLogs.add(chunk.size());
+                log.error("写入记忆访问日志失败: count={}", chunk.size(), e);
+            }
+        }
+    }
+
+    /**
+     * 缓冲与写入统计
+     */
+    public Map<String, Object> getStats() {
+        int pendingMemories = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                pendingMemories += stripe.counters.size();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("recorded", recorded.sum());
+        stats.put("pendingMemories", pendingMemories);
+        stats.put("pendingLogs", pendingLogs.get());
+        stats.put("flushedMemories", flushedMemories.sum());
+        stats.put("flushedLogs", flushedLogs.sum());
+        stats.put("droppedLogs", droppedLogs.sum());
+        stats.put("failures", failures.sum());
+        return stats;
+    }
+
+    private static MemoryAccessLogs newLog(Long memoryId, Long userId, Long conversationId, String accessType,
+                                           String context, long now) {
+        MemoryAccessLogs accessLog = new MemoryAccessLogs();
+        accessLog.setMemoryId(memoryId);
+        accessLog.setUserId(userId);
+        accessLog.setConversationId(conversationId);
+        accessLog.setAccessType(accessType);
+        accessLog.setAccessContext(context != null && context.length() > MAX_CONTEXT_LENGTH
+                ? context.substring(0, MAX_CONTEXT_LENGTH) : context);
+        accessLog.setCreatedAt(new Date(now));
+        return accessLog;
+    }
+
+    private static int stripe(Long memoryId) {
+        long h = memoryId * 0x9e3779b97f4a7c15L;
+        return (int) (h >>> 60) & (STRIPES - 1);
+    }
+
+    private static Stripe[] newStripes() {
+        Stripe[] result = new Stripe[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            result[i] = new Stripe();
+        }
+        return result;
+    }
+
+    private static final class Stripe {
+        private Map<Long, Counter> counters = new HashMap<>();
+        private List<MemoryAccessLogs> logs = new ArrayList<>();
+    }
+
+    private static final class Counter {
+        private int count;
+        private long lastAccessed;
+
+        void add(int n, long accessedAt) {
+            count += n;
+            lastAccessed = Math.max(lastAccessed, accessedAt);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+// File: src/main/java/com/zs/service/memory/cache/MemoryContextCache.java
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.entity.MemoryFragments;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.function.Supplier;
+
+/**
+ * 按消息区分的上下文记忆缓存
+ *
+ * 每个用户一个哈希（消息签名 -> 召回结果）加一个ZSET记录各签名最近使用时间，超过上限时淘汰最久未用的签名。
+ * 签名是消息命中的用户索引关键词集合（排序去重）：关键词召回的结果只取决于命中了哪些词，
+ * 措辞、词序不同而命中词相同的消息共用结果；没有命中词的消息不走缓存。
+ * 向量召回的结果取决于整条消息，只在keyword召回方式下缓存，vector/hybrid方式直接召回。
+ * 活跃记忆变化（提取新记忆、删除记忆）时整体失效，保证不会返回过期的上下文
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryContextCache {
+
+    private static final String KEY_PREFIX = "memory:user:";
+    private static final String CONTEXT_SUFFIX = "context-sig";
+    private static final String LRU_SUFFIX = "context-lru";
+    private static final Duration TTL = Duration.ofMinutes(30);
+
+    private static final TypeReference<List<MemoryFragments>> MEMORY_LIST_TYPE = new TypeReference<>() {};
+
+    /**
+     * 命中时刷新签名的使用时间
+     */
+    private static final RedisScript<Object> GET_SCRIPT = new DefaultRedisScript<>("""
+            local value = redis.call('HGET', KEYS[1], ARGV[1])
+            if value then
+                redis.call('ZADD', KEYS[2], ARGV[2], ARGV[1])
+            end
+            return value
+            """, Object.class);
+
+    /**
+     * 写入结果、记录使用时间、淘汰超出上限的最久未用签名，返回淘汰数
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>("""
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('ZADD', KEYS[2], ARGV[3], ARGV[1])
+            local overflow = redis.call('ZCARD', KEYS[2]) - tonumber(ARGV[4])
+            if overflow > 0 then
+                local evicted = redis.call('ZRANGE', KEYS[2], 0, overflow - 1)
+                redis.call('ZREMRANGEBYRANK', KEYS[2], 0, overflow - 1)
+                redis.call('HDEL', KEYS[1], unpack(evicted))
+            else
+                overflow = 0
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[5])
+            redis.call('PEXPIRE', KEYS[2], ARGV[5])
+            return overflow
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MemoryKeywordIndex memoryKeywordIndex;
+
+    // 与MemoryExtractionService的召回方式一致
+    @Value("${app.memory.recall.mode:hybrid}")
+    private String recallMode = "hybrid";
+
+    // 每个用户保留的消息签名数
+    @Value("${app.memory.context-cache.max-entries:8}")
+    private int maxEntries = 8;
+
+    /**
+     * 读取消息对应的上下文记忆，未命中时调用loader召回并缓存（空结果不缓存）
+     * limit与minRelevance参与签名，不同召回参数的调用方互不干扰
+     *
+     * @param activeMemories 本节点没有关键词索引时加载用户活跃记忆
+     */
+    public List<MemoryFragments> get(Long userId, String message, int limit, double minRelevance,
+                                     Supplier<List<MemoryFragments>> activeMemories,
+                                     Supplier<List<MemoryFragments>> loader) {
+        if (!"keyword".equals(recallMode)) {
+            return loader.get();
+        }
+        String signature = signature(userId, message, activeMemories);
+        if (signature.isEmpty()) {
+            return loader.get();
+        }
+        String field = limit + ":" + minRelevance + ":" + Long.toHexString(hash64(signature));
+        List<String> keys = List.of(buildKey(userId, CONTEXT_SUFFIX), buildKey(userId, LRU_SUFFIX));
+
+        try {
+            Object cached = redisTemplate.execute(GET_SCRIPT, keys, field, System.currentTimeMillis());
+            if (cached != null) {
+                log.debug("上下文记忆缓存命中: userId={}, field={}", userId, field);
+                return objectMapper.convertValue(cached, MEMORY_LIST_TYPE);
+            }
+        } catch (Exception e) {
+            log.error("读取上下文记忆缓存失败: userId={}", userId, e);
+        }
+
+        List<MemoryFragments> memories = loader.get();
+        if (!memories.isEmpty()) {
+            try {
+                redisTemplate.execute(PUT_SCRIPT, keys, field, memories, System.currentTimeMillis(),
+                        maxEntries, TTL.toMillis());
+            } catch (Exception e) {
+                log.error("写入上下文记忆缓存失败: userId={}", userId, e);
+            }
+        }
+        return memories;
+    }
+
+    /**
+     * 活跃记忆变化时丢弃用户的全部上下文缓存
+     */
+    public void invalidate(Long userId) {
+        try {
+            redisTemplate.delete(List.of(buildKey(userId, CONTEXT_SUFFIX), buildKey(userId, LRU_SUFFIX)));
+        } catch (Exception e) {
+            log.error("清除上下文记忆缓存失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 消息签名：命中的索引关键词以"|"连接；没有命中时为空串
+     */
+    String signature(Long userId, String message, Supplier<List<MemoryFragments>> activeMemories) {
+        SortedSet<String> terms = memoryKeywordIndex.matchedTerms(userId, message, activeMemories);
+        return String.join("|", terms);
+    }
+
+    /**
+     * FNV-1a 64位散列，签名冲突概率可忽略，缓存字段长度固定
+     */
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private String buildKey(Long userId, String suffix) {
+        return KEY_PREFIX + userId + ":" + suffix;
+    }
+}
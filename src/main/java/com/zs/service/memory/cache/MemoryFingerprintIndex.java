@@ -0,0 +1,249 @@
+// File: src/main/java/com/zs/service/memory/cache/MemoryFingerprintIndex.java
+package com.zs.service.memory.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zs.entity.MemoryFragments;
+import com.zs.mapper.MemoryFragmentsMapper;
+import com.zs.service.redis.NearCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 记忆近似重复检测：64位SimHash指纹 + 分块索引
+ *
+ * 指纹由规整后的记忆文本（去标点、句首系词、句尾语气词和"的/了"等虚字）的单字与二元组计算，
+ * 措辞略有差异的同一事实指纹只差几位，无关文本约差32位。指纹切成8个8位分块，汉明距离不超过7的两个指纹
+ * 至少有一个分块完全相同，查询时只比较同分块的候选。
+ * 索引按用户放在近端缓存中，本节点没有时从memory_fragments加载（旧数据没有指纹时按正文现算）
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryFingerprintIndex {
+
+    private static final int BLOCKS = 8;
+    private static final int BLOCK_BITS = 64 / BLOCKS;
+    // 分块精确匹配能覆盖的最大汉明距离
+    private static final int MAX_INDEXED_DISTANCE = BLOCKS - 1;
+
+    private static final String LEADING_CHARS = "是叫为在";
+    private static final String FILLER_CHARS = "的了着过";
+    private static final String TRAILING_CHARS = "啊呀吧呢嘛哦噢哈啦呐";
+
+    private final NearCache nearCache;
+    private final MemoryFragmentsMapper memoryFragmentsMapper;
+
+    private final UserLocks locks = new UserLocks();
+
+    /**
+     * 查找同类型、指纹汉明距离不超过maxDistance的已有记忆
+     *
+     * @return 最接近的记忆id，没有时为null
+     */
+    public Long findDuplicate(Long userId, Object memoryType, long fingerprint, int maxDistance) {
+        UserFingerprints index = nearCache.get(NearCache.MEMORY_FINGERPRINTS, userId, () -> load(userId));
+        return index != null ? index.nearest(String.valueOf(memoryType), fingerprint, maxDistance) : null;
+    }
+
+    /**
+     * 新增与删除记忆后增量更新索引（本节点没有索引时不处理，下次查询时再加载）
+     * 同一用户的更新按用户加锁串行，不同用户互不阻塞
+     */
+    public void update(Long userId, Collection<MemoryFragments> added, Collection<Long> removedIds) {
+        try {
+            synchronized (locks.of(userId)) {
+                UserFingerprints current = nearCache.peek(NearCache.MEMORY_FINGERPRINTS, userId);
+                if (current == null) {
+                    nearCache.evict(NearCache.MEMORY_FINGERPRINTS, userId);
+                    return;
+                }
+                nearCache.put(NearCache.MEMORY_FINGERPRINTS, userId, current.with(added, new HashSet<>(removedIds)));
+            }
+        } catch (Exception e) {
+            log.error("更新记忆指纹索引失败: userId={}", userId, e);
+            nearCache.evict(NearCache.MEMORY_FINGERPRINTS, userId);
+        }
+    }
+
+    public void invalidate(Long userId) {
+        nearCache.evict(NearCache.MEMORY_FINGERPRINTS, userId);
+    }
+
+    private UserFingerprints load(Long userId) {
+        try {
+            List<MemoryFragments> memories = memoryFragmentsMapper.selectList(new QueryWrapper<MemoryFragments>()
+                    .select("id", "memory_type", "memory_text", "simhash")
+                    .eq("user_id", userId));
+            return UserFingerprints.EMPTY.with(memories, Collections.emptySet());
+        } catch (Exception e) {
+            log.error("加载记忆指纹失败: userId={}", userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 记忆文本的SimHash指纹
+     */
+    public static long fingerprint(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return 0L;
+        }
+        // 特征：单字与相邻二元组，特征越多指纹越稳定
+        int[] weights = new int[64];
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            accumulate(weights, mix(c));
+            if (i + 1 < normalized.length()) {
+                accumulate(weights, mix(c * 0x10001L + normalized.charAt(i + 1) + 0x100000000L));
+            }
+        }
+        long fingerprint = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                fingerprint |= 1L << bit;
+            }
+        }
+        return fingerprint;
+    }
+
+    private static void accumulate(int[] weights, long hash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((hash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    /**
+     * 小写，只保留文字，去掉句首系词、句尾语气词和虚字
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder builder = new StringBuilder(text.length());
+        String lower = text.toLowerCase();
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c) && FILLER_CHARS.indexOf(c) < 0) {
+                builder.append(c);
+            }
+        }
+        int start = 0;
+        int end = builder.length();
+        while (start < end && LEADING_CHARS.indexOf(builder.charAt(start)) >= 0) {
+            start++;
+        }
+        while (end > start && TRAILING_CHARS.indexOf(builder.charAt(end - 1)) >= 0) {
+            end--;
+        }
+        return builder.substring(start, end);
+    }
+
+    /**
+     * splitmix64终结函数，让相邻字符组合的散列各位分布均匀
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * 单个用户的指纹索引，构建后不再修改（更新时整体替换）
+     */
+    static final class UserFingerprints {
+
+        static final UserFingerprints EMPTY = new UserFingerprints(new long[0], new long[0], new String[0]);
+
+        private final long[] ids;
+        private final long[] fingerprints;
+        private final String[] types;
+        // 每个分块：分块值 -> 条目下标
+        private final List<Map<Integer, int[]>> blocks;
+
+        private UserFingerprints(long[] ids, long[] fingerprints, String[] types) {
+            this.ids = ids;
+            this.fingerprints = fingerprints;
+            this.types = types;
+            this.blocks = new ArrayList<>(BLOCKS);
+            for (int b = 0; b < BLOCKS; b++) {
+                Map<Integer, List<Integer>> building = new HashMap<>();
+                for (int i = 0; i < fingerprints.length; i++) {
+                    building.computeIfAbsent(block(fingerprints[i], b), k -> new ArrayList<>(1)).add(i);
+                }
+                Map<Integer, int[]> table = new HashMap<>(building.size() * 2);
+                building.forEach((value, list) -> table.put(value, list.stream().mapToInt(Integer::intValue).toArray()));
+                blocks.add(table);
+            }
+        }
+
+        UserFingerprints with(Collection<MemoryFragments> added, Set<Long> removed) {
+            Set<Long> addedIds = new HashSet<>();
+            for (MemoryFragments memory : added) {
+                addedIds.add(memory.getId());
+            }
+            int capacity = ids.length + added.size();
+            long[] newIds = new long[capacity];
+            long[] newFingerprints = new long[capacity];
+            String[] newTypes = new String[capacity];
+            int n = 0;
+            for (int i = 0; i < ids.length; i++) {
+                if (!removed.contains(ids[i]) && !addedIds.contains(ids[i])) {
+                    newIds[n] = ids[i];
+                    newFingerprints[n] = fingerprints[i];
+                    newTypes[n++] = types[i];
+                }
+            }
+            for (MemoryFragments memory : added) {
+                if (memory.getId() == null || removed.contains(memory.getId())) {
+                    continue;
+                }
+                newIds[n] = memory.getId();
+                newFingerprints[n] = memory.getSimhash() != null ? memory.getSimhash() : fingerprint(memory.getMemoryText());
+                newTypes[n++] = String.valueOf(memory.getMemoryType());
+            }
+            return new UserFingerprints(Arrays.copyOf(newIds, n), Arrays.copyOf(newFingerprints, n),
+                    Arrays.copyOf(newTypes, n));
+        }
+
+        Long nearest(String type, long fingerprint, int maxDistance) {
+            int best = -1;
+            int bestDistance = maxDistance + 1;
+            if (maxDistance > MAX_INDEXED_DISTANCE) {
+                for (int i = 0; i < ids.length; i++) {
+                    int d = distance(fingerprints[i], fingerprint);
+                    if (d < bestDistance && type.equals(types[i])) {
+                        best = i;
+                        bestDistance = d;
+                    }
+                }
+            } else {
+                for (int b = 0; b < BLOCKS; b++) {
+                    int[] candidates = blocks.get(b).get(block(fingerprint, b));
+                    if (candidates == null) {
+                        continue;
+                    }
+                    for (int i : candidates) {
+                        int d = distance(fingerprints[i], fingerprint);
+                        if (d < bestDistance && type.equals(types[i])) {
+                            best = i;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+            return best >= 0 ? ids[best] : null;
+        }
+
+        private static int block(long fingerprint, int b) {
+            return (int) ((fingerprint >>> (b * BLOCK_BITS)) & ((1 << BLOCK_BITS) - 1));
+        }
+    }
+}
@@ -0,0 +1,248 @@
+// File: src/main/java/com/zs/service/memory/cache/MemoryKeywordIndex.java
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.entity.MemoryFragments;
+import com.zs.service.nlp.ChineseSegmenter;
+import com.zs.service.redis.NearCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * 用户记忆倒排索引：关键词 -> 记忆，按relatedKeywords构建
+ *
+ * 召回时枚举消息中不超过最长关键词长度的子串查索引，只对命中的候选记忆打分，
+ * 开销取决于消息长度而不是用户记忆条数；重要性等静态分值在建索引时预先算好。
+ * 索引放在近端缓存中，只覆盖活跃记忆（调用方loader给出的重要性前若干条）：新增记忆时丢弃索引，
+ * 下次召回按新的活跃集合重建；淘汰删除记忆时从本节点副本中移除并通知其他节点失效重建
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryKeywordIndex {
+
+    // 每命中一个关键词的得分，与原相关性计算一致
+    private static final double KEYWORD_SCORE = 0.3;
+    private static final double IMPORTANCE_WEIGHT = 0.5;
+    private static final double RECENT_ACCESS_SCORE = 0.1;
+    private static final long RECENT_ACCESS_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    // 超长的关键词不入索引，限制召回时枚举的子串长度
+    private static final int MAX_KEYWORD_LENGTH = 8;
+    private static final int MAX_FALLBACK_KEYWORDS = 10;
+
+    private static final TypeReference<List<String>> KEYWORD_LIST_TYPE = new TypeReference<>() {};
+
+    private final NearCache nearCache;
+    private final ObjectMapper objectMapper;
+    private final ChineseSegmenter chineseSegmenter;
+
+    private final UserLocks locks = new UserLocks();
+
+    /**
+     * 召回与消息相关的记忆，按相关性降序
+     *
+     * @param loader 本节点没有索引时加载用户记忆（活跃记忆缓存或数据库）
+     */
+    public List<MemoryFragments> recall(Long userId, String message, int limit, double minRelevance,
+                                        Supplier<List<MemoryFragments>> loader) {
+        if (message == null || message.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        UserIndex index = nearCache.get(NearCache.MEMORY_INDEX, userId, () -> build(loader.get()));
+        return index != null ? index.search(message.toLowerCase(), limit, minRelevance) : Collections.emptyList();
+    }
+
+    /**
+     * 消息命中的索引关键词（排序去重）；召回结果只取决于这组词，可作为召回结果的缓存键
+     */
+    public SortedSet<String> matchedTerms(Long userId, String message, Supplier<List<MemoryFragments>> loader) {
+        if (message == null || message.isBlank()) {
+            return Collections.emptySortedSet();
+        }
+
+        UserIndex index = nearCache.get(NearCache.MEMORY_INDEX, userId, () -> build(loader.get()));
+        return index != null ? new TreeSet<>(index.match(message.toLowerCase())) : Collections.emptySortedSet();
+    }
+
+    /**
+     * 淘汰删除记忆后从索引中移除（本节点没有索引时不处理，下次召回时再构建）
+     */
+    public void remove(Long userId, Collection<Long> removedIds) {
+        try {
+            synchronized (locks.of(userId)) {
+                UserIndex current = nearCache.peek(NearCache.MEMORY_INDEX, userId);
+                if (current == null) {
+                    // 其他节点可能持有旧索引
+                    nearCache.evict(NearCache.MEMORY_INDEX, userId);
+                    return;
+                }
+
+                Set<Long> removed = new HashSet<>(removedIds);
+                List<Entry> entries = new ArrayList<>(current.entries.length);
+                for (Entry entry : current.entries) {
+                    if (!removed.contains(entry.memory.getId())) {
+                        entries.add(entry);
+                    }
+                }
+                nearCache.put(NearCache.MEMORY_INDEX, userId, new UserIndex(entries));
+            }
+        } catch (Exception e) {
+            log.error("更新记忆索引失败: userId={}", userId, e);
+            nearCache.evict(NearCache.MEMORY_INDEX, userId);
+        }
+    }
+
+    /**
+     * 丢弃用户索引（各节点）；在事务中调用时提交后再丢弃一次，避免提交前按旧的活跃集合重建
+     */
+    public void invalidate(Long userId) {
+        nearCache.evict(NearCache.MEMORY_INDEX, userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionHooks.afterCommit(() -> nearCache.evict(NearCache.MEMORY_INDEX, userId));
+        }
+    }
+
+    UserIndex build(List<MemoryFragments> memories) {
+        if (memories == null || memories.isEmpty()) {
+            return null;
+        }
+        List<Entry> entries = new ArrayList<>(memories.size());
+        for (MemoryFragments memory : memories) {
+            entries.add(toEntry(memory));
+        }
+        return new UserIndex(entries);
+    }
+
+    private Entry toEntry(MemoryFragments memory) {
+        double staticScore = memory.getImportanceScore() != null
+                ? memory.getImportanceScore().doubleValue() * IMPORTANCE_WEIGHT : 0.0;
+        long lastAccessed = memory.getLastAccessed() != null ? memory.getLastAccessed().getTime() : 0L;
+        // 存副本，调用方之后修改原对象不影响索引
+        return new Entry(memory.toBuilder().build(), keywordsOf(memory), staticScore, lastAccessed);
+    }
+
+    /**
+     * 解析relatedKeywords（JSON数组字符串或列表），缺失时与提取关键词一样对正文分词
+     */
+    private Set<String> keywordsOf(MemoryFragments memory) {
+        Set<String> keywords = new LinkedHashSet<>();
+        Object related = memory.getRelatedKeywords();
+        try {
+            if (related instanceof Collection<?> list) {
+                list.forEach(k -> keywords.add(String.valueOf(k)));
+            } else if (related instanceof String json && json.trim().startsWith("[")) {
+                keywords.addAll(objectMapper.readValue(json, KEYWORD_LIST_TYPE));
+            }
+        } catch (Exception e) {
+            log.debug("解析记忆关键词失败: memoryId={}", memory.getId());
+        }
+
+        if (keywords.isEmpty() && memory.getMemoryText() != null) {
+            keywords.addAll(chineseSegmenter.keywords(memory.getMemoryText(), MAX_FALLBACK_KEYWORDS));
+        }
+
+        Set<String> normalized = new LinkedHashSet<>();
+        for (String keyword : keywords) {
+            String k = keyword.trim().toLowerCase();
+            if (!k.isEmpty() && k.length() <= MAX_KEYWORD_LENGTH) {
+                normalized.add(k);
+            }
+        }
+        return normalized;
+    }
+
+    private record Entry(MemoryFragments memory, Set<String> keywords, double staticScore, long lastAccessed) {
+    }
+
+    /**
+     * 单个用户的索引，构建后不再修改（更新时整体替换），可被多个线程并发查询
+     */
+    static final class UserIndex {
+
+        private final Entry[] entries;
+        private final Map<String, int[]> postings;
+        private final int minKeywordLength;
+        private final int maxKeywordLength;
+
+        UserIndex(List<Entry> entryList) {
+            this.entries = entryList.toArray(new Entry[0]);
+
+            Map<String, List<Integer>> building = new HashMap<>();
+            int min = Integer.MAX_VALUE;
+            int max = 0;
+            for (int i = 0; i < entries.length; i++) {
+                for (String keyword : entries[i].keywords) {
+                    building.computeIfAbsent(keyword, k -> new ArrayList<>(2)).add(i);
+                    min = Math.min(min, keyword.length());
+                    max = Math.max(max, keyword.length());
+                }
+            }
+
+            this.postings = new HashMap<>(building.size() * 2);
+            building.forEach((keyword, ids) -> postings.put(keyword, ids.stream().mapToInt(Integer::intValue).toArray()));
+            this.minKeywordLength = max > 0 ? min : 1;
+            this.maxKeywordLength = max;
+        }
+
+        List<MemoryFragments> search(String message, int limit, double minRelevance) {
+            // 候选记忆 -> 命中的不同关键词数
+            Map<Integer, Integer> hits = new HashMap<>();
+            for (String term : match(message)) {
+                for (int id : postings.get(term)) {
+                    hits.merge(id, 1, Integer::sum);
+                }
+            }
+            if (hits.isEmpty()) {
+                return Collections.emptyList();
+            }
+
+            long now = System.currentTimeMillis();
+            List<double[]> scored = new ArrayList<>(hits.size());
+            hits.forEach((id, count) -> {
+                Entry entry = entries[id];
+                double score = count * KEYWORD_SCORE + entry.staticScore
+                        + (now - entry.lastAccessed < RECENT_ACCESS_MILLIS ? RECENT_ACCESS_SCORE : 0.0);
+                score = Math.min(score, 1.0);
+                if (score > minRelevance) {
+                    scored.add(new double[]{score, id});
+                }
+            });
+
+            scored.sort((a, b) -> Double.compare(b[0], a[0]));
+            List<MemoryFragments> result = new ArrayList<>(Math.min(limit, scored.size()));
+            for (int i = 0; i < scored.size() && result.size() < limit; i++) {
+                result.add(entries[(int) scored.get(i)[1]].memory.toBuilder().build());
+            }
+            return result;
+        }
+
+        /**
+         * 枚举消息中长度在索引关键词长度范围内的子串，返回命中的关键词
+         */
+        Set<String> match(String message) {
+            if (postings.isEmpty()) {
+                return Collections.emptySet();
+            }
+
+            Set<String> matched = new HashSet<>();
+            int length = message.length();
+            for (int start = 0; start < length; start++) {
+                int maxEnd = Math.min(length, start + maxKeywordLength);
+                for (int end = start + minKeywordLength; end <= maxEnd; end++) {
+                    String term = message.substring(start, end);
+                    if (postings.containsKey(term)) {
+                        matched.add(term);
+                    }
+                }
+            }
+            return matched;
+        }
+    }
+}
@@ -0,0 +1,591 @@
+// File: src/main/java/com/zs/service/memory/cache/MemoryTieredCache.java
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.entity.MemoryFragments;
+import com.zs.service.redis.RedisKeyStats;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * 用户记忆列表的两级缓存：节点本地层 + Redis层，回源数据库
+ *
+ * 每个用户按视图缓存（全部类型或单一类型），每个视图存按重要性排序的前VIEW_SIZE条，limit不超过该值的查询直接截取。
+ * 本地层按用户分段加锁，按估算字节数限制各段总量，淘汰按段内最久未用的顺序选出，新条目的访问频率
+ * （Count-Min计数，定期减半）不高于被淘汰者时拒绝写入，偶发访问的用户不会挤掉常用用户。
+ * Redis层每个用户一个哈希，带代数字段：失效时代数加一并清空视图，回源前读到的代数与写回时不一致则放弃写回，
+ * 本地层同样按代数判断，失效期间加载的旧数据不会进入任何一层。
+ * 记忆新增、合并、修改、删除都只调用invalidate：清两级缓存和上下文缓存，通知其他节点，事务内提交后再清一次
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryTieredCache implements MessageListener {
+
+    public static final String ALL_TYPES = "all";
+    // 每个视图缓存的条数
+    public static final int VIEW_SIZE = 50;
+
+    private static final String KEY_PREFIX = "memory:user:";
+    private static final String KEY_SUFFIX = ":memories";
+    private static final String CHANNEL = "memory:cache:invalidate";
+    private static final int STRIPES = 64;
+
+    private static final TypeReference<List<MemoryFragments>> MEMORY_LIST_TYPE = new TypeReference<>() {};
+
+    /**
+     * 读取代数与视图
+     */
+    private static final RedisScript<List> GET_SCRIPT = new DefaultRedisScript<>("""
+            return redis.call('HMGET', KEYS[1], '#gen', ARGV[1])
+            """, List.class);
+
+    /**
+     * 代数未变时写入视图，返回是否写入
+     */
+    private static final RedisScript<Long> PUT_SCRIPT = new DefaultRedisScript<>("""
+            if (redis.call('HGET', KEYS[1], '#gen') or '0') ~= ARGV[1] then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[2], ARGV[3])
+            redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            return 1
+            """, Long.class);
+
+    /**
+     * 代数加一并删除全部视图
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>("""
+            local generation = redis.call('HINCRBY', KEYS[1], '#gen', 1)
+            redis.call('DEL', KEYS[1])
+            redis.call('HSET', KEYS[1], '#gen', generation)
+            redis.call('PEXPIRE', KEYS[1], ARGV[1])
+            return generation
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final ObjectMapper objectMapper;
+    private final MemoryContextCache memoryContextCache;
+    private final RedisKeyStats redisKeyStats;
+
+    // 本地层容量（按记忆文本等估算的字节数）
+    @Value("${app.memory.cache.local.max-weight-kb:32768}")
+    private long localMaxWeightKb = 32768;
+
+    // 失效消息丢失时的兜底过期时间
+    @Value("${app.memory.cache.local.ttl-seconds:60}")
+    private long localTtlSeconds = 60;
+
+    @Value("${app.memory.cache.redis.ttl-seconds:3600}")
+    private long redisTtlSeconds = 3600;
+
+    // 本节点标识，忽略自己发出的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private LocalTier local;
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+    private final LongAdder redisWrites = new LongAdder();
+    private final LongAdder redisStaleWrites = new LongAdder();
+    private final LongAdder redisErrors = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder bypasses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        local = new LocalTier(localMaxWeightKb * 1024, localTtlSeconds * 1000);
+        listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+        log.info("记忆缓存已启用: localMaxWeight={}KB, localTtl={}s, redisTtl={}s",
+                localMaxWeightKb, localTtlSeconds, redisTtlSeconds);
+    }
+
+    /**
+     * 读取用户某个视图的前limit条记忆，两级都未命中时调用loader(VIEW_SIZE)查库并回填（空结果不缓存）
+     * limit超过VIEW_SIZE时不走缓存
+     *
+     * @param view   ALL_TYPES或记忆类型代码
+     * @param loader 参数为要查询的条数
+     */
+    public List<MemoryFragments> get(Long userId, String view, int limit,
+                                     IntFunction<List<MemoryFragments>> loader) {
+        if (limit > VIEW_SIZE) {
+            bypasses.increment();
+            return loader.apply(limit);
+        }
+
+        List<MemoryFragments> cached = local.get(userId, view);
+        if (cached != null) {
+            return head(cached, limit);
+        }
+
+        long localGeneration = local.generation(userId);
+        String key = buildKey(userId);
+        Long redisGeneration = null;
+        try {
+            List<?> values = redisTemplate.execute(GET_SCRIPT, List.of(key), view);
+            redisGeneration = values != null && values.get(0) instanceof Number number ? number.longValue() : 0L;
+            Object value = values != null && values.size() > 1 ? values.get(1) : null;
+            if (value != null) {
+                redisHits.increment();
+                List<MemoryFragments> memories = List.copyOf(objectMapper.convertValue(value, MEMORY_LIST_TYPE));
+                local.put(userId, view, memories, localGeneration);
+                return head(memories, limit);
+            }
+            redisMisses.increment();
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.error("读取记忆缓存失败: userId={}, view={}", userId, view, e);
+        }
+
+        loads.increment();
+        List<MemoryFragments> memories = List.copyOf(loader.apply(VIEW_SIZE));
+        if (memories.isEmpty()) {
+            return memories;
+        }
+        // 读取Redis失败时不写回，避免覆盖失效
+        if (redisGeneration != null) {
+            try {
+                Long written = redisTemplate.execute(PUT_SCRIPT, List.of(key), redisGeneration, view, memories,
+                        redisTtlSeconds * 1000);
+                if (written != null && written > 0) {
+                    redisWrites.increment();
+                    redisKeyStats.record(RedisKeyStats.MEMORY, key);
+                } else {
+                    redisStaleWrites.increment();
+                }
+            } catch (Exception e) {
+                redisErrors.increment();
+                log.error("写入记忆缓存失败: userId={}, view={}", userId, view, e);
+            }
+        }
+        local.put(userId, view, memories, localGeneration);
+        return head(memories, limit);
+    }
+
+    /**
+     * 用户记忆发生变化：清除两级缓存与上下文缓存并通知其他节点；
+     * 在事务中调用时提交后再清一次，避免提交前其他请求把旧数据读回缓存
+     */
+    public void invalidate(Long userId) {
+        invalidateNow(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateNow(userId);
+                }
+            });
+        }
+    }
+
+    private void invalidateNow(Long userId) {
+        local.invalidate(userId);
+        memoryContextCache.invalidate(userId);
+        try {
+            redisTemplate.execute(INVALIDATE_SCRIPT, List.of(buildKey(userId)), redisTtlSeconds * 1000);
+        } catch (Exception e) {
+            redisErrors.increment();
+            log.error("清除记忆缓存失败: userId={}", userId, e);
+        }
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + "|" + userId);
+        } catch (Exception e) {
+            // 其他节点依赖本地层TTL过期
+            log.warn("发布记忆缓存失效消息失败: userId={}", userId, e);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            String[] parts = String.valueOf(body).split("\\|", 2);
+            if (parts.length == 2 && !nodeId.equals(parts[0])) {
+                local.invalidate(Long.valueOf(parts[1]));
+            }
+        } catch (Exception e) {
+            log.warn("处理记忆缓存失效消息失败", e);
+        }
+    }
+
+    /**
+     * 本地层缓存的用户数
+     */
+    public int size() {
+        return local.size();
+    }
+
+    /**
+     * 各层命中、淘汰统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", local.stats());
+
+        Map<String, Object> redis = new LinkedHashMap<>();
+        long h = redisHits.sum();
+        long m = redisMisses.sum();
+        redis.put("hits", h);
+        redis.put("misses", m);
+        redis.put("hitRate", hitRate(h, m));
+        redis.put("writes", redisWrites.sum());
+        redis.put("staleWrites", redisStaleWrites.sum());
+        redis.put("errors", redisErrors.sum());
+        stats.put("redis", redis);
+
+        Map<String, Object> database = new LinkedHashMap<>();
+        database.put("loads", loads.sum());
+        database.put("bypasses", bypasses.sum());
+        stats.put("database", database);
+        return stats;
+    }
+
+    /**
+     * 返回前limit条的副本，缓存中的对象不交给调用方
+     */
+    private static List<MemoryFragments> head(List<MemoryFragments> memories, int limit) {
+        int size = Math.min(memories.size(), Math.max(limit, 0));
+        List<MemoryFragments> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            result.add(memories.get(i).toBuilder().build());
+        }
+        return result;
+    }
+
+    private static String hitRate(long hits, long misses) {
+        return hits + misses > 0 ? String.format("%.2f%%", hits * 100.0 / (hits + misses)) : "0.00%";
+    }
+
+    private String buildKey(Long userId) {
+        return KEY_PREFIX + userId + KEY_SUFFIX;
+    }
+
+    /**
+     * 本地层：按用户ID分成若干段，每段各自加锁，读取（含频率计数）只锁所在段，不同段的用户互不阻塞。
+     * 每段容量为总容量的等分，访问顺序LinkedHashMap给出段内淘汰顺序，段内FrequencySketch决定是否接纳新用户；
+     * 每个用户一个条目（视图 -> 记忆列表），写入视图时整体替换条目并重新估算大小
+     */
+    static final class LocalTier {
+
+        private static final long ENTRY_OVERHEAD = 128;
+        private static final long LIST_OVERHEAD = 48;
+        private static final long MEMORY_OVERHEAD = 240;
+        private static final int DEFAULT_SEGMENTS = 16;
+
+        private final long maxWeight;
+        private final Segment[] segments;
+        private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder rejections = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        LocalTier(long maxWeight, long ttlMillis) {
+            this(maxWeight, ttlMillis, DEFAULT_SEGMENTS);
+        }
+
+        /**
+         * @param segmentCount 分段数，取不小于它的2的幂
+         */
+        LocalTier(long maxWeight, long ttlMillis, int segmentCount) {
+            this.maxWeight = maxWeight;
+            int count = segmentCount <= 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+            this.segments = new Segment[count];
+            for (int i = 0; i < count; i++) {
+                // 按平均每个用户约4KB估算条目数
+                segments[i] = new Segment(maxWeight / count, ttlMillis,
+                        new FrequencySketch((int) Math.min(maxWeight / count / 4096, 1 << 16)));
+            }
+        }
+
+        List<MemoryFragments> get(Long userId, String view) {
+            Segment segment = segment(userId);
+            synchronized (segment) {
+                segment.sketch.increment(userId);
+                Entry entry = segment.entries.get(userId);
+                if (entry != null && entry.expireAt <= System.currentTimeMillis()) {
+                    segment.remove(userId);
+                    entry = null;
+                }
+                List<MemoryFragments> memories = entry != null ? entry.views.get(view) : null;
+                if (memories != null) {
+                    hits.increment();
+                    return memories;
+                }
+            }
+            misses.increment();
+            return null;
+        }
+
+        long generation(Long userId) {
+            return generations.get(stripe(userId));
+        }
+
+        void put(Long userId, String view, List<MemoryFragments> memories, long generation) {
+            Segment segment = segment(userId);
+            synchronized (segment) {
+                if (generations.get(stripe(userId)) != generation) {
+                    return;
+                }
+                long now = System.currentTimeMillis();
+                Entry current = segment.entries.get(userId);
+                if (current != null && current.expireAt <= now) {
+                    segment.remove(userId);
+                    current = null;
+                }
+
+                Map<String, List<MemoryFragments>> views = current != null ? new HashMap<>(current.views) : new HashMap<>();
+                views.put(view, memories);
+                long entryWeight = weigh(views);
+                long currentWeight = current != null ? current.weight : 0;
+                if (entryWeight > segment.maxWeight) {
+                    rejections.increment();
+                    if (current != null) {
+                        segment.remove(userId);
+                    }
+                    return;
+                }
+
+                long needed = segment.weight - currentWeight + entryWeight - segment.maxWeight;
+                if (needed > 0) {
+                    int evicted = segment.makeRoom(userId, current == null, needed, now);
+                    if (evicted < 0) {
+                        rejections.increment();
+                        return;
+                    }
+                    evictions.add(evicted);
+                }
+                segment.entries.put(userId, new Entry(Map.copyOf(views), entryWeight, now + segment.ttlMillis));
+                segment.weight += entryWeight - currentWeight;
+            }
+        }
+
+        void invalidate(Long userId) {
+            generations.incrementAndGet(stripe(userId));
+            Segment segment = segment(userId);
+            synchronized (segment) {
+                segment.remove(userId);
+            }
+            invalidations.increment();
+        }
+
+        int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.entries.size();
+                }
+            }
+            return size;
+        }
+
+        long weight() {
+            long weight = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    weight += segment.weight;
+                }
+            }
+            return weight;
+        }
+
+        Map<String, Object> stats() {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", size());
+            stats.put("weightKb", weight() / 1024);
+            long h = hits.sum();
+            long m = misses.sum();
+            stats.put("maxWeightKb", maxWeight / 1024);
+            stats.put("segments", segments.length);
+            stats.put("hits", h);
+            stats.put("misses", m);
+            stats.put("hitRate", hitRate(h, m));
+            stats.put("evictions", evictions.sum());
+            stats.put("rejections", rejections.sum());
+            stats.put("invalidations", invalidations.sum());
+            return stats;
+        }
+
+        /**
+         * 估算占用：文本与关键词按UTF-16计，另加对象头与字段开销
+         */
+        static long weigh(Map<String, List<MemoryFragments>> views) {
+            long total = ENTRY_OVERHEAD;
+            for (List<MemoryFragments> memories : views.values()) {
+                total += LIST_OVERHEAD;
+                for (MemoryFragments memory : memories) {
+                    total += MEMORY_OVERHEAD + 2L * (length(memory.getMemoryText()) + length(memory.getRelatedKeywords()));
+                }
+            }
+            return total;
+        }
+
+        private static int length(Object value) {
+            return value != null ? String.valueOf(value).length() : 0;
+        }
+
+        private Segment segment(Long userId) {
+            long h = userId * 0x9e3779b97f4a7c15L;
+            return segments[(int) (h >>> 40) & (segments.length - 1)];
+        }
+
+        private static int stripe(Long userId) {
+            return (int) ((userId ^ (userId >>> 32)) & 0x7fffffff) % STRIPES;
+        }
+    }
+
+    /**
+     * 本地层的一段，字段只在持有该段监视器时访问
+     */
+    private static final class Segment {
+
+        private final long maxWeight;
+        private final long ttlMillis;
+        private final FrequencySketch sketch;
+        private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+
+        Segment(long maxWeight, long ttlMillis, FrequencySketch sketch) {
+            this.maxWeight = maxWeight;
+            this.ttlMillis = ttlMillis;
+            this.sketch = sketch;
+        }
+
+        /**
+         * 从最久未用的条目开始凑出needed字节；新用户的访问频率须高于每个被淘汰者（已过期的直接淘汰），否则不动任何条目
+         *
+         * @return 淘汰的条目数，无法腾出空间时为-1
+         */
+        int makeRoom(Long userId, boolean admission, long needed, long now) {
+            int frequency = admission ? sketch.frequency(userId) : Integer.MAX_VALUE;
+            List<Long> victims = new ArrayList<>();
+            long freed = 0;
+            for (Map.Entry<Long, Entry> candidate : entries.entrySet()) {
+                if (freed >= needed) {
+                    break;
+                }
+                if (candidate.getKey().equals(userId)) {
+                    continue;
+                }
+                if (candidate.getValue().expireAt > now && sketch.frequency(candidate.getKey()) >= frequency) {
+                    return -1;
+                }
+                victims.add(candidate.getKey());
+                freed += candidate.getValue().weight;
+            }
+            if (freed < needed) {
+                return -1;
+            }
+            for (Long victim : victims) {
+                remove(victim);
+            }
+            return victims.size();
+        }
+
+        void remove(Long userId) {
+            Entry removed = entries.remove(userId);
+            if (removed != null) {
+                weight -= removed.weight;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final Map<String, List<MemoryFragments>> views;
+        private final long weight;
+        private final long expireAt;
+
+        Entry(Map<String, List<MemoryFragments>> views, long weight, long expireAt) {
+            this.views = views;
+            this.weight = weight;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 4行Count-Min计数，计数上限15；累计写入达到10倍宽度时全部减半，使频率反映近期访问
+     */
+    static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+
+        private final int[] table;
+        private final int width;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int size = Math.max(64, expectedEntries);
+            width = Math.min(Integer.highestOneBit(size - 1) << 1, 1 << 16);
+            table = new int[DEPTH * width];
+            sampleSize = 10 * width;
+        }
+
+        void increment(long key) {
+            long hash = mix(key);
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = index(hash, row);
+                if (table[index] < MAX_COUNT) {
+                    table[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(long key) {
+            long hash = mix(key);
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, table[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] >>>= 1;
+            }
+            additions >>>= 1;
+        }
+
+        /**
+         * 每行取散列的不同16位
+         */
+        private int index(long hash, int row) {
+            return row * width + (int) ((hash >>> (row * 16)) & (width - 1));
+        }
+
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
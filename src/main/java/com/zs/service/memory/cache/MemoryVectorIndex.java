@@ -0,0 +1,419 @@
+// File: src/main/java/com/zs/service/memory/cache/MemoryVectorIndex.java
+package com.zs.service.memory.cache;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zs.entity.MemoryEmbeddings;
+import com.zs.entity.MemoryFragments;
+import com.zs.mapper.MemoryEmbeddingsMapper;
+import com.zs.service.memory.embedding.EmbeddingProvider;
+import com.zs.service.redis.NearCache;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * 用户记忆向量索引，用于语义召回
+ *
+ * 向量持久化在memory_embeddings表，按用户分片在近端缓存中保存int8量化的扁平索引：
+ * 每个用户的活跃记忆不超过几十条，逐条点积比图索引（HNSW）更快也更省内存。
+ * 查询向量同样按条缩放量化，打分是int8整数点积（可被JIT向量化，约为float点积的两倍速），余弦误差约1%。
+ * 索引只覆盖活跃记忆（调用方loader给出的重要性前若干条）：新增记忆不追加进索引，而是在事务提交后计算向量落库、
+ * 再丢弃索引，下次召回时按新的活跃集合重建；淘汰删除的记忆直接从索引中移除。
+ * 向量计算（可能是远程调用）不在锁内、不在事务内执行；构建索引时缺少向量或模型已更换的记忆先不进索引，
+ * 交给后台线程补算，补算完成后丢弃索引重建
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryVectorIndex {
+
+    // 待补算向量的用户队列上限，满时丢弃（下次构建索引时再提交）
+    private static final int FILL_QUEUE_CAPACITY = 1000;
+
+    private final NearCache nearCache;
+    private final EmbeddingProvider embeddingProvider;
+    private final MemoryEmbeddingsMapper memoryEmbeddingsMapper;
+
+    private final UserLocks locks = new UserLocks();
+    private final Set<Long> pendingFills = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor fillExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(FILL_QUEUE_CAPACITY),
+            r -> {
+                Thread thread = new Thread(r, "memory-vector-fill");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 按与消息的向量相似度召回记忆，降序
+     *
+     * @param loader 本节点没有索引时加载用户记忆（活跃记忆缓存或数据库）
+     */
+    public List<MemoryFragments> search(Long userId, String message, int limit, double minSimilarity,
+                                        Supplier<List<MemoryFragments>> loader) {
+        if (message == null || message.isBlank()) {
+            return Collections.emptyList();
+        }
+
+        UserVectors vectors = nearCache.get(NearCache.MEMORY_VECTORS, userId, () -> build(userId, loader.get()));
+        if (vectors == null || vectors.size() == 0) {
+            return Collections.emptyList();
+        }
+        return vectors.search(embeddingProvider.embed(message), limit, (float) minSimilarity);
+    }
+
+    /**
+     * 新增记忆：事务提交后在锁外计算向量并落库，然后丢弃各节点索引，下次召回时按活跃集合重建
+     */
+    public void recordInserted(Long userId, Collection<MemoryFragments> memories) {
+        if (memories.isEmpty()) {
+            return;
+        }
+        List<MemoryFragments> inserted = List.copyOf(memories);
+        TransactionHooks.afterCommit(() -> {
+            try {
+                save(userId, inserted, embed(inserted));
+            } catch (Exception e) {
+                // 缺少的向量在下次构建索引时补算
+                log.error("计算新记忆向量失败: userId={}, count={}", userId, inserted.size(), e);
+            }
+            invalidate(userId);
+        });
+    }
+
+    /**
+     * 记忆被删除：删除向量并移出本节点索引（本节点没有索引时只通知其他节点失效）
+     */
+    public void delete(Long userId, Collection<Long> memoryIds) {
+        if (memoryIds.isEmpty()) {
+            return;
+        }
+        try {
+            memoryEmbeddingsMapper.deleteBatchIds(memoryIds);
+        } catch (Exception e) {
+            log.error("删除记忆向量失败: userId={}, count={}", userId, memoryIds.size(), e);
+        }
+
+        Set<Long> removed = new HashSet<>(memoryIds);
+        TransactionHooks.afterCommit(() -> {
+            try {
+                synchronized (locks.of(userId)) {
+                    UserVectors current = nearCache.peek(NearCache.MEMORY_VECTORS, userId);
+                    if (current == null) {
+                        // 其他节点可能持有旧索引
+                        nearCache.evict(NearCache.MEMORY_VECTORS, userId);
+                        return;
+                    }
+                    nearCache.put(NearCache.MEMORY_VECTORS, userId, current.without(removed));
+                }
+            } catch (Exception e) {
+                log.error("更新记忆向量索引失败: userId={}", userId, e);
+                nearCache.evict(NearCache.MEMORY_VECTORS, userId);
+            }
+        });
+    }
+
+    /**
+     * 丢弃用户索引（各节点）
+     */
+    public void invalidate(Long userId) {
+        nearCache.evict(NearCache.MEMORY_VECTORS, userId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fillExecutor.shutdownNow();
+    }
+
+    /**
+     * 只用已落库的向量构建索引，不在召回路径上计算向量；缺少向量的记忆提交后台补算
+     */
+    private UserVectors build(Long userId, List<MemoryFragments> memories) {
+        if (memories == null || memories.isEmpty()) {
+            return null;
+        }
+
+        Map<Long, float[]> stored = load(memories);
+        List<MemoryFragments> indexed = new ArrayList<>(memories.size());
+        List<float[]> vectors = new ArrayList<>(memories.size());
+        List<MemoryFragments> missing = new ArrayList<>();
+        for (MemoryFragments memory : memories) {
+            float[] vector = stored.get(memory.getId());
+            if (vector != null) {
+                indexed.add(memory);
+                vectors.add(vector);
+            } else {
+                missing.add(memory);
+            }
+        }
+        if (!missing.isEmpty()) {
+            scheduleFill(userId, missing);
+        }
+        return UserVectors.EMPTY.with(indexed, vectors);
+    }
+
+    /**
+     * 后台补算缺失的向量，落库成功后丢弃索引，下次召回时带上补齐的向量重建；同一用户同时只排队一次
+     */
+    private void scheduleFill(Long userId, List<MemoryFragments> missing) {
+        if (!pendingFills.add(userId)) {
+            return;
+        }
+        List<MemoryFragments> memories = List.copyOf(missing);
+        try {
+            fillExecutor.execute(() -> {
+                try {
+                    if (save(userId, memories, embed(memories))) {
+                        log.debug("补算记忆向量: userId={}, count={}", userId, memories.size());
+                        invalidate(userId);
+                    }
+                } catch (Exception e) {
+                    log.error("补算记忆向量失败: userId={}, count={}", userId, memories.size(), e);
+                } finally {
+                    pendingFills.remove(userId);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pendingFills.remove(userId);
+            log.warn("向量补算队列已满，稍后重试: userId={}", userId);
+        }
+    }
+
+    /**
+     * 读取当前模型生成的向量，读取失败时返回空（全部交给后台补算）
+     */
+    private Map<Long, float[]> load(List<MemoryFragments> memories) {
+        Map<Long, float[]> vectors = new HashMap<>();
+        try {
+            List<Long> ids = memories.stream().map(MemoryFragments::getId).toList();
+            List<MemoryEmbeddings> rows = memoryEmbeddingsMapper.selectList(
+                    new QueryWrapper<MemoryEmbeddings>()
+                            .in("memory_id", ids)
+                            .eq("model", embeddingProvider.model()));
+            for (MemoryEmbeddings row : rows) {
+                if (row.getDimension() != null && row.getDimension() == embeddingProvider.dimension()) {
+                    vectors.put(row.getMemoryId(), decode(row.getVector(), row.getDimension()));
+                }
+            }
+        } catch (Exception e) {
+            log.error("读取记忆向量失败: count={}", memories.size(), e);
+        }
+        return vectors;
+    }
+
+    private List<float[]> embed(Collection<MemoryFragments> memories) {
+        List<float[]> vectors = new ArrayList<>(memories.size());
+        for (MemoryFragments memory : memories) {
+            vectors.add(embeddingProvider.embed(memory.getMemoryText()));
+        }
+        return vectors;
+    }
+
+    /**
+     * 批量写入向量，写库失败不影响本次使用，返回是否写入成功
+     */
+    private boolean save(Long userId, List<MemoryFragments> memories, List<float[]> vectors) {
+        if (memories.isEmpty()) {
+            return true;
+        }
+        List<MemoryEmbeddings> rows = new ArrayList<>(memories.size());
+        Date now = new Date();
+        for (int i = 0; i < memories.size(); i++) {
+            float[] vector = vectors.get(i);
+            MemoryEmbeddings row = new MemoryEmbeddings();
+            row.setMemoryId(memories.get(i).getId());
+            row.setUserId(userId);
+            row.setModel(embeddingProvider.model());
+            row.setDimension(vector.length);
+            row.setVector(encode(vector));
+            row.setCreatedAt(now);
+            rows.add(row);
+        }
+
+        try {
+            memoryEmbeddingsMapper.upsertBatch(rows);
+            return true;
+        } catch (Exception e) {
+            log.error("保存记忆向量失败: userId={}, count={}", userId, rows.size(), e);
+            return false;
+        }
+    }
+
+    /**
+     * 合并两路召回结果：primary在前，secondary补足到limit条（按记忆ID去重）
+     */
+    public static List<MemoryFragments> fill(List<MemoryFragments> primary, List<MemoryFragments> secondary, int limit) {
+        if (secondary.isEmpty()) {
+            return primary;
+        }
+        List<MemoryFragments> merged = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+        for (List<MemoryFragments> source : List.of(primary, secondary)) {
+            for (MemoryFragments memory : source) {
+                if (merged.size() >= limit) {
+                    return merged;
+                }
+                if (seen.add(memory.getId())) {
+                    merged.add(memory);
+                }
+            }
+        }
+        return merged;
+    }
+
+    static byte[] encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] decode(byte[] bytes, int dimension) {
+        float[] vector = new float[dimension];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * 单个用户的量化索引，构建后不再修改（更新时整体替换），可被多个线程并发查询
+     */
+    static final class UserVectors {
+
+        static final UserVectors EMPTY = new UserVectors(new MemoryFragments[0], new byte[0], new float[0], 0);
+
+        private final MemoryFragments[] memories;
+        // 第i条记忆的int8码位于 [i*dimension, (i+1)*dimension)
+        private final byte[] codes;
+        private final float[] scales;
+        private final int dimension;
+
+        private UserVectors(MemoryFragments[] memories, byte[] codes, float[] scales, int dimension) {
+            this.memories = memories;
+            this.codes = codes;
+            this.scales = scales;
+            this.dimension = dimension;
+        }
+
+        /**
+         * 追加记忆（向量维度需一致，空索引时以首条向量的维度为准）
+         */
+        UserVectors with(Collection<MemoryFragments> added, List<float[]> vectors) {
+            if (added.isEmpty()) {
+                return this;
+            }
+            int dim = memories.length > 0 ? dimension : vectors.get(0).length;
+            int size = memories.length + added.size();
+            MemoryFragments[] newMemories = Arrays.copyOf(memories, size);
+            byte[] newCodes = Arrays.copyOf(codes, size * dim);
+            float[] newScales = Arrays.copyOf(scales, size);
+
+            int i = memories.length;
+            for (MemoryFragments memory : added) {
+                float[] vector = vectors.get(i - memories.length);
+                if (vector.length != dim) {
+                    throw new IllegalArgumentException("向量维度不一致: " + vector.length + " != " + dim);
+                }
+                newMemories[i] = memory.toBuilder().build();
+                newScales[i] = quantize(vector, newCodes, i * dim);
+                i++;
+            }
+            return new UserVectors(newMemories, newCodes, newScales, dim);
+        }
+
+        UserVectors without(Set<Long> removedIds) {
+            int kept = 0;
+            MemoryFragments[] newMemories = new MemoryFragments[memories.length];
+            byte[] newCodes = new byte[codes.length];
+            float[] newScales = new float[scales.length];
+            for (int i = 0; i < memories.length; i++) {
+                if (!removedIds.contains(memories[i].getId())) {
+                    newMemories[kept] = memories[i];
+                    newScales[kept] = scales[i];
+                    System.arraycopy(codes, i * dimension, newCodes, kept * dimension, dimension);
+                    kept++;
+                }
+            }
+            if (kept == memories.length) {
+                return this;
+            }
+            return new UserVectors(Arrays.copyOf(newMemories, kept), Arrays.copyOf(newCodes, kept * dimension),
+                    Arrays.copyOf(newScales, kept), dimension);
+        }
+
+        List<MemoryFragments> search(float[] query, int limit, float minSimilarity) {
+            if (memories.length == 0 || query.length != dimension || limit <= 0) {
+                return Collections.emptyList();
+            }
+
+            byte[] queryCodes = new byte[dimension];
+            float queryScale = quantize(query, queryCodes, 0);
+            if (queryScale == 0f) {
+                return Collections.emptyList();
+            }
+
+            // 保留前limit名，按分数降序插入（limit很小，插入排序即可）
+            int[] topIds = new int[limit];
+            float[] topScores = new float[limit];
+            int count = 0;
+            for (int i = 0; i < memories.length; i++) {
+                float score = dot(queryCodes, codes, i * dimension) * scales[i] * queryScale;
+                if (score < minSimilarity || (count == limit && score <= topScores[limit - 1])) {
+                    continue;
+                }
+
+                int pos = Math.min(count, limit - 1);
+                while (pos > 0 && topScores[pos - 1] < score) {
+                    topScores[pos] = topScores[pos - 1];
+                    topIds[pos] = topIds[pos - 1];
+                    pos--;
+                }
+                topScores[pos] = score;
+                topIds[pos] = i;
+                count = Math.min(count + 1, limit);
+            }
+
+            List<MemoryFragments> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(memories[topIds[i]].toBuilder().build());
+            }
+            return result;
+        }
+
+        int size() {
+            return memories.length;
+        }
+
+        private static int dot(byte[] query, byte[] codes, int offset) {
+            int sum = 0;
+            for (int j = 0; j < query.length; j++) {
+                sum += query[j] * codes[offset + j];
+            }
+            return sum;
+        }
+
+        /**
+         * 对称量化到[-127,127]，返回缩放系数
+         */
+        private static float quantize(float[] vector, byte[] target, int offset) {
+            float maxAbs = 0f;
+            for (float v : vector) {
+                maxAbs = Math.max(maxAbs, Math.abs(v));
+            }
+            if (maxAbs == 0f) {
+                return 0f;
+            }
+            float scale = maxAbs / 127f;
+            for (int j = 0; j < vector.length; j++) {
+                target[offset + j] = (byte) Math.round(vector[j] / scale);
+            }
+            return scale;
+        }
+    }
+}
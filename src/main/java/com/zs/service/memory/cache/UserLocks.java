@@ -0,0 +1,23 @@
+// File: src/main/java/com/zs/service/memory/cache/UserLocks.java
+package com.zs.service.memory.cache;
+
+/**
+ * 按用户ID分段的锁：同一用户的索引增量更新串行执行，不同用户大多落在不同分段上，互不阻塞
+ */
+final class UserLocks {
+
+    private static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    UserLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    Object of(Long userId) {
+        long h = (userId != null ? userId : 0L) * 0x9e3779b97f4a7c15L;
+        return locks[(int) (h >>> 58) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,35 @@
+// File: src/main/java/com/zs/service/memory/embedding/EmbeddingProvider.java
+package com.zs.service.memory.embedding;
+
+/**
+ * 文本向量化接口，记忆语义召回使用
+ * 实现返回L2归一化的向量，点积即余弦相似度
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * 模型标识，随向量一起存储；与库中记录不一致时重新计算
+     */
+    String model();
+
+    int dimension();
+
+    float[] embed(String text);
+
+    /**
+     * 原地L2归一化，零向量原样返回
+     */
+    static float[] normalize(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        if (sum > 0) {
+            float inv = (float) (1.0 / Math.sqrt(sum));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= inv;
+            }
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,81 @@
+// File: src/main/java/com/zs/service/memory/embedding/HashingEmbeddingProvider.java
+package com.zs.service.memory.embedding;
+
+/**
+ * 本地字符n-gram散列向量，不依赖外部服务（离线环境、测试与基准使用）
+ *
+ * 文本去掉标点空白后取字的一元、二元、三元组，散列到固定维度并带符号累加（feature hashing），
+ * 共享字词越多相似度越高。能召回"补考"与"考试"这类共享字的表述，
+ * 但没有真正的语义，字面完全不同的近义表述需要配置外部向量模型
+ */
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private static final float UNIGRAM_WEIGHT = 1.0f;
+    private static final float BIGRAM_WEIGHT = 1.0f;
+    private static final float TRIGRAM_WEIGHT = 0.5f;
+
+    // 高频虚字不参与一元组，否则"我……"开头的记忆彼此都很相似
+    private static final String STOP_CHARS = "我你他她它的了是在就都也很还又和吗呢吧啊呀嘛着过要会有一不这那么个";
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("向量维度必须大于0: " + dimension);
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public String model() {
+        return "hashing-ngram-v1-" + dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        if (text == null || text.isEmpty()) {
+            return vector;
+        }
+
+        char[] chars = new char[text.length()];
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                chars[length++] = Character.toLowerCase(c);
+            }
+        }
+
+        for (int i = 0; i < length; i++) {
+            int h1 = chars[i];
+            if (STOP_CHARS.indexOf(h1) < 0) {
+                add(vector, mix(h1, 1), UNIGRAM_WEIGHT);
+            }
+            if (i + 1 < length) {
+                int h2 = h1 * 31 + chars[i + 1];
+                add(vector, mix(h2, 2), BIGRAM_WEIGHT);
+                if (i + 2 < length) {
+                    add(vector, mix(h2 * 31 + chars[i + 2], 3), TRIGRAM_WEIGHT);
+                }
+            }
+        }
+        return EmbeddingProvider.normalize(vector);
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        // 低位决定维度，最高位决定符号，减少散列冲突带来的系统偏差
+        vector[Math.floorMod(hash, dimension)] += hash < 0 ? -weight : weight;
+    }
+
+    private static int mix(int h, int n) {
+        long x = (h + n * 0x9E3779B97F4A7C15L) * 0xBF58476D1CE4E5B9L;
+        x ^= x >>> 31;
+        return (int) (x ^ (x >>> 32));
+    }
+}
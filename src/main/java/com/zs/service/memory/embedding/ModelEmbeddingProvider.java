@@ -0,0 +1,38 @@
+// File: src/main/java/com/zs/service/memory/embedding/ModelEmbeddingProvider.java
+package com.zs.service.memory.embedding;
+
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * 基于Spring AI EmbeddingModel的向量（如DashScope text-embedding），有真正的语义相似度
+ */
+public class ModelEmbeddingProvider implements EmbeddingProvider {
+
+    private final EmbeddingModel embeddingModel;
+    private final String model;
+    private final int dimension;
+
+    public ModelEmbeddingProvider(EmbeddingModel embeddingModel, String model) {
+        this.embeddingModel = embeddingModel;
+        this.model = model;
+        this.dimension = embeddingModel.dimensions();
+    }
+
+    @Override
+    public String model() {
+        return model;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        if (text == null || text.isBlank()) {
+            return new float[dimension];
+        }
+        return EmbeddingProvider.normalize(embeddingModel.embed(text).clone());
+    }
+}
@@ -0,0 +1,180 @@
+// File: src/main/java/com/zs/service/memory/eviction/MemoryEvictionJob.java
+package com.zs.service.memory.eviction;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zs.entity.MemoryFragments;
+import com.zs.mapper.MemoryFragmentsMapper;
+import com.zs.service.memory.cache.MemoryFingerprintIndex;
+import com.zs.service.memory.cache.MemoryKeywordIndex;
+import com.zs.service.memory.cache.MemoryTieredCache;
+import com.zs.service.memory.cache.MemoryVectorIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 后台记忆淘汰
+ *
+ * 每个用户的记忆条数记在Redis哈希中，写入新记忆时增量累加（一次脚本调用），超过上限或计数缺失的用户进入待处理集合；
+ * 定时任务批量弹出待处理用户，按MemoryEvictionPolicy评分删除超出上限的记忆（按id分块删除），
+ * 对话热路径不再统计行数、也不同步删除。计数缺失（首次、被清除）时由后台从数据库重新统计
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MemoryEvictionJob {
+
+    private static final String COUNTS_KEY = "memory:counts";
+    private static final String PENDING_KEY = "memory:eviction:pending";
+
+    /**
+     * 计数存在时累加并在超限时登记待处理用户；计数缺失时直接登记（由后台重新统计），返回-1
+     */
+    private static final RedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                redis.call('SADD', KEYS[2], ARGV[1])
+                return -1
+            end
+            local count = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+            if count > tonumber(ARGV[3]) then
+                redis.call('SADD', KEYS[2], ARGV[1])
+            end
+            return count
+            """, Long.class);
+
+    /**
+     * 删除后校正计数：计数存在时减去删除数（期间其他请求的累加不被覆盖），缺失时写入数据库统计出的条数
+     */
+    private static final RedisScript<Long> ADJUST_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then
+                return redis.call('HINCRBY', KEYS[1], ARGV[1], -tonumber(ARGV[2]))
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[3])
+            return tonumber(ARGV[3])
+            """, Long.class);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final MemoryFragmentsMapper memoryFragmentsMapper;
+    private final MemoryEvictionPolicy policy;
+    private final MemoryKeywordIndex memoryKeywordIndex;
+    private final MemoryVectorIndex memoryVectorIndex;
+    private final MemoryFingerprintIndex memoryFingerprintIndex;
+    private final MemoryTieredCache memoryTieredCache;
+
+    @Value("${app.memory.eviction.enabled:true}")
+    private boolean enabled = true;
+
+    // 每个用户最多保存的记忆条数
+    @Value("${app.memory.eviction.max-per-user:100}")
+    private int maxPerUser = 100;
+
+    // 每轮最多处理的用户数
+    @Value("${app.memory.eviction.batch-size:100}")
+    private int batchSize = 100;
+
+    // 每条DELETE语句携带的最大id数
+    @Value("${app.memory.eviction.delete-chunk-size:200}")
+    private int deleteChunkSize = 200;
+
+    /**
+     * 写入记忆后登记（热路径，一次Redis往返）
+     */
+    public void recordInserted(Long userId, int inserted) {
+        if (!enabled || inserted <= 0) {
+            return;
+        }
+        try {
+            redisTemplate.execute(RECORD_SCRIPT, List.of(COUNTS_KEY, PENDING_KEY), userId, inserted, maxPerUser);
+        } catch (Exception e) {
+            log.error("记录记忆条数失败: userId={}", userId, e);
+        }
+    }
+
+    /**
+     * 计数可能不准时（清空用户记忆缓存等）丢弃计数，下次写入时由后台重新统计
+     */
+    public void invalidateCount(Long userId) {
+        try {
+            redisTemplate.opsForHash().delete(COUNTS_KEY, String.valueOf(userId));
+        } catch (Exception e) {
+            log.error("清除记忆计数失败: userId={}", userId, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.memory.eviction.interval-ms:30000}",
+            initialDelayString = "${app.memory.eviction.interval-ms:30000}")
+    public void evictPending() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Object> users;
+            int evicted = 0;
+            do {
+                users = redisTemplate.opsForSet().pop(PENDING_KEY, batchSize);
+                if (users == null) {
+                    break;
+                }
+                for (Object user : users) {
+                    evicted += evictUser(((Number) user).longValue());
+                }
+            } while (users.size() == batchSize);
+
+            if (evicted > 0) {
+                log.info("后台记忆淘汰完成: deleted={}", evicted);
+            }
+        } catch (Exception e) {
+            log.error("后台记忆淘汰任务异常", e);
+        }
+    }
+
+    /**
+     * 按策略删除用户超出上限的记忆，并从计数中扣除删除数（计数缺失时以实际条数初始化）
+     *
+     * @return 删除的条数
+     */
+    public int evictUser(Long userId) {
+        try {
+            String field = String.valueOf(userId);
+            Object counted = redisTemplate.opsForHash().get(COUNTS_KEY, field);
+            if (counted instanceof Number number && number.longValue() <= maxPerUser) {
+                return 0;
+            }
+
+            // 只取评分需要的列
+            List<MemoryFragments> memories = memoryFragmentsMapper.selectList(new QueryWrapper<MemoryFragments>()
+                    .select("id", "importance_score", "last_accessed", "access_count", "created_at")
+                    .eq("user_id", userId));
+            List<Long> victims = policy.selectVictims(memories, memories.size() - maxPerUser,
+                    System.currentTimeMillis());
+
+            int deleted = 0;
+            for (int from = 0; from < victims.size(); from += deleteChunkSize) {
+                deleted += memoryFragmentsMapper.deleteBatchIds(
+                        victims.subList(from, Math.min(from + deleteChunkSize, victims.size())));
+            }
+            redisTemplate.execute(ADJUST_SCRIPT, List.of(COUNTS_KEY), userId, deleted, memories.size() - deleted);
+
+            if (!victims.isEmpty()) {
+                memoryKeywordIndex.remove(userId, victims);
+                memoryVectorIndex.delete(userId, victims);
+                memoryFingerprintIndex.update(userId, Collections.emptyList(), victims);
+                memoryTieredCache.invalidate(userId);
+                log.info("淘汰记忆: userId={}, count={}, deleted={}", userId, memories.size(), deleted);
+            }
+            return deleted;
+
+        } catch (Exception e) {
+            log.error("淘汰记忆失败: userId={}", userId, e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+// File: src/main/java/com/zs/service/memory/eviction/MemoryEvictionPolicy.java
+package com.zs.service.memory.eviction;
+
+import com.zs.entity.MemoryFragments;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * 记忆淘汰评分策略，分值越低越先淘汰
+ *
+ * 分值 = 重要性 x w1 + 新近度 x w2 + 访问频率 x w3，三项都归一到[0,1]：
+ * 新近度按距最近访问（无访问时取创建时间）的时长指数衰减；
+ * 访问频率取 ln(1+访问次数) 相对饱和次数的比例，再按距最近访问的时长衰减，久未访问的高频记忆逐渐失去加分
+ */
+@Component
+public class MemoryEvictionPolicy {
+
+    private static final double HOUR_MILLIS = 3_600_000.0;
+
+    @Value("${app.memory.eviction.weights.importance:0.6}")
+    private double importanceWeight = 0.6;
+
+    @Value("${app.memory.eviction.weights.recency:0.25}")
+    private double recencyWeight = 0.25;
+
+    @Value("${app.memory.eviction.weights.frequency:0.15}")
+    private double frequencyWeight = 0.15;
+
+    // 新近度半衰期（小时）
+    @Value("${app.memory.eviction.recency-half-life-hours:168}")
+    private double recencyHalfLifeHours = 168;
+
+    // 访问频率加分的半衰期（小时）
+    @Value("${app.memory.eviction.frequency-half-life-hours:720}")
+    private double frequencyHalfLifeHours = 720;
+
+    // 访问次数达到该值时频率项记满分
+    @Value("${app.memory.eviction.frequency-saturation:20}")
+    private int frequencySaturation = 20;
+
+    public double score(MemoryFragments memory, long now) {
+        double importance = memory.getImportanceScore() != null ? memory.getImportanceScore().doubleValue() : 0.0;
+
+        Date touched = memory.getLastAccessed() != null ? memory.getLastAccessed() : memory.getCreatedAt();
+        double idleHours = touched != null ? Math.max(0, now - touched.getTime()) / HOUR_MILLIS : Double.MAX_VALUE;
+        double recency = Math.pow(0.5, idleHours / recencyHalfLifeHours);
+
+        int accessCount = memory.getAccessCount() != null ? memory.getAccessCount() : 0;
+        double frequency = Math.min(1.0, Math.log1p(accessCount) / Math.log1p(frequencySaturation))
+                * Math.pow(0.5, idleHours / frequencyHalfLifeHours);
+
+        return importance * importanceWeight + recency * recencyWeight + frequency * frequencyWeight;
+    }
+
+    /**
+     * 选出分值最低的count条记忆的id
+     */
+    public List<Long> selectVictims(List<MemoryFragments> memories, int count, long now) {
+        if (count <= 0 || memories.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (count >= memories.size()) {
+            List<Long> all = new ArrayList<>(memories.size());
+            memories.forEach(memory -> all.add(memory.getId()));
+            return all;
+        }
+
+        // 大顶堆保留当前分值最低的count条
+        PriorityQueue<double[]> lowest = new PriorityQueue<>(count + 1, (a, b) -> Double.compare(b[0], a[0]));
+        for (int i = 0; i < memories.size(); i++) {
+            lowest.add(new double[]{score(memories.get(i), now), i});
+            if (lowest.size() > count) {
+                lowest.poll();
+            }
+        }
+
+        List<Long> victims = new ArrayList<>(count);
+        for (double[] entry : lowest) {
+            victims.add(memories.get((int) entry[1]).getId());
+        }
+        return victims;
+    }
+}
@@ -1,15 +1,20 @@
 // File: src/main/java/com/zs/service/memory/repository/MemoryRepository.java
 package com.zs.service.memory.repository;
 
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.zs.entity.MemoryFragments;
 import com.zs.mapper.MemoryFragmentsMapper;
 import com.zs.service.memory.dto.MemoryStatisticsDTO;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +30,21 @@ public class MemoryRepository {
 
     private final MemoryFragmentsMapper memoryFragmentsMapper;
 
+    // 批量写入时每条INSERT语句携带的最大行数
+    private static final int BATCH_CHUNK_SIZE = 200;
+
+    // 与MySQL的ngram_token_size一致，更短的关键词无法命中全文索引
+    @Value("${app.memory.search.ngram-token-size:2}")
+    private int ngramTokenSize = 2;
+
+    // MySQL错误码：找不到与列清单匹配的FULLTEXT索引
+    private static final int ER_FT_MATCHING_KEY_NOT_FOUND = 1191;
+    // 全文索引缺失（V5迁移未执行）后隔多久再尝试，补建索引后无需重启即可恢复
+    private static final long FULLTEXT_RETRY_MILLIS = Duration.ofMinutes(10).toMillis();
+
+    // 全文索引缺失时记下重试时间，此前的搜索直接走LIKE
+    private volatile long fullTextRetryAt;
+
     /**
      * 保存记忆片段
      */
@@ -42,15 +62,40 @@ public class MemoryRepository {
     }
 
     /**
-     * 批量保存记忆片段
+     * 批量保存记忆片段（可跨用户，如一轮对话的全部候选或回填的一块数据）
+     * 按块写入，每块一条多值INSERT，整体在同一事务内；写入后各实体的id已回填。
+     * 在外层事务中以保存点执行：失败时只回滚本次写入并抛出，外层捕获后仍可正常提交
+     *
+     * @return 实际写入的行数
      */
-    @Transactional
-    public void batchSaveMemoryFragments(List<MemoryFragments> memories) {
-        for (MemoryFragments memory : memories) {
-            saveMemoryFragment(memory);
+    @Transactional(propagation = Propagation.NESTED)
+    public int batchSaveMemoryFragments(List<MemoryFragments> memories) {
+        if (memories == null || memories.isEmpty()) {
+            return 0;
+        }
+        try {
+            int inserted = 0;
+            for (int from = 0; from < memories.size(); from += BATCH_CHUNK_SIZE) {
+                List<MemoryFragments> chunk = memories.subList(from, Math.min(from + BATCH_CHUNK_SIZE, memories.size()));
+                inserted += memoryFragmentsMapper.insertBatch(chunk);
+            }
+            log.debug("批量保存记忆片段: count={}, inserted={}", memories.size(), inserted);
+            return inserted;
+        } catch (Exception e) {
+            log.error("批量保存记忆片段失败: count={}", memories.size(), e);
+            throw new RuntimeException("批量保存记忆片段失败", e);
         }
     }
 
+    /**
+     * 近似重复的新记忆合并进已有记忆
+     *
+     * @return 是否合并成功，已有记忆已被删除时为false
+     */
+    public boolean mergeDuplicate(Long memoryId, BigDecimal importance, BigDecimal bump) {
+        return memoryFragmentsMapper.mergeDuplicate(memoryId, importance, bump) > 0;
+    }
+
     /**
      * 查询用户记忆
      */
@@ -78,9 +123,43 @@ public class MemoryRepository {
     }
 
     /**
-     * 搜索记忆
+     * 搜索记忆：走memory_text的ngram全文索引，按相关度排序
+     * 全文索引由V5迁移建立；关键词短于ngram切分长度、或索引缺失（迁移未执行）时退回LIKE匹配；关键词为空时返回最重要的记忆
      */
     public List<MemoryFragments> searchMemories(Long userId, String keyword, Integer limit) {
+        int size = limit != null ? limit : 10;
+        if (keyword == null || keyword.isBlank()) {
+            return findUserMemories(userId, null, size);
+        }
+
+        String query = keyword.trim();
+        if (System.currentTimeMillis() >= fullTextRetryAt && query.codePointCount(0, query.length()) >= ngramTokenSize) {
+            try {
+                return memoryFragmentsMapper.searchFullText(userId, query, size);
+            } catch (Exception e) {
+                if (isMissingFullTextIndex(e)) {
+                    // 兜底：V5迁移未执行，一段时间内直接走LIKE
+                    fullTextRetryAt = System.currentTimeMillis() + FULLTEXT_RETRY_MILLIS;
+                    log.warn("memory_fragments缺少全文索引ft_memory_text，记忆搜索退回LIKE匹配，{}分钟后重试",
+                            Duration.ofMillis(FULLTEXT_RETRY_MILLIS).toMinutes());
+                } else {
+                    log.error("全文搜索记忆失败: userId={}, keyword={}", userId, keyword, e);
+                }
+            }
+        }
+        return searchByLike(userId, query, size);
+    }
+
+    private static boolean isMissingFullTextIndex(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && sql.getErrorCode() == ER_FT_MATCHING_KEY_NOT_FOUND) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<MemoryFragments> searchByLike(Long userId, String keyword, int limit) {
         try {
             com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments> wrapper =
                     new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments>()
@@ -97,6 +176,23 @@ public class MemoryRepository {
         }
     }
 
+    /**
+     * 查询某次对话提取出的记忆
+     */
+    public List<MemoryFragments> findConversationMemories(Long userId, Long conversationId, int limit) {
+        try {
+            return memoryFragmentsMapper.selectList(
+                    new com.baomidou.mybatisplus.core.conditions.query.QueryWrapper<MemoryFragments>()
+                            .eq("user_id", userId)
+                            .eq("source_conversation_id", conversationId)
+                            .orderByDesc("importance_score")
+                            .last("LIMIT " + limit));
+        } catch (Exception e) {
+            log.error("查询对话记忆失败: userId={}, conversationId={}", userId, conversationId, e);
+            return List.of();
+        }
+    }
+
     /**
      * 获取记忆统计
      */
@@ -157,20 +253,33 @@ public class MemoryRepository {
     }
 
     /**
-     * 更新记忆访问次数
+     * 更新记忆访问次数（只写这几列，一条UPDATE）
      */
-    @Transactional
     public void updateMemoryAccess(Long memoryId, Integer accessCount, java.util.Date lastAccessed) {
         try {
-            MemoryFragments memory = memoryFragmentsMapper.selectById(memoryId);
-            if (memory != null) {
-                memory.setAccessCount(accessCount);
-                memory.setLastAccessed(lastAccessed);
-                memory.setUpdatedAt(new java.util.Date());
-                memoryFragmentsMapper.updateById(memory);
-            }
+            memoryFragmentsMapper.update(null, new UpdateWrapper<MemoryFragments>()
+                    .eq("id", memoryId)
+                    .set("access_count", accessCount)
+                    .set("last_accessed", lastAccessed)
+                    .set("updated_at", new java.util.Date()));
         } catch (Exception e) {
             log.error("更新记忆访问失败: memoryId={}", memoryId, e);
         }
     }
+
+    /**
+     * 批量累加访问计数，每chunkSize条一条UPDATE；各块在同一事务中，失败时整体回滚并抛出，由调用方决定是否重试
+     *
+     * @param deltas id、accessCount（增量）、lastAccessed
+     * @return 更新的行数
+     */
+    @Transactional
+    public int batchIncrementAccess(List<MemoryFragments> deltas, int chunkSize) {
+        int updated = 0;
+        for (int from = 0; from < deltas.size(); from += chunkSize) {
+            updated += memoryFragmentsMapper.incrementAccessBatch(
+                    deltas.subList(from, Math.min(from + chunkSize, deltas.size())));
+        }
+        return updated;
+    }
 }
\ No newline at end of file
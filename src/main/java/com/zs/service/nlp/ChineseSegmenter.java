@@ -0,0 +1,386 @@
+// File: src/main/java/com/zs/service/nlp/ChineseSegmenter.java
+package com.zs.service.nlp;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 轻量中文分词器，记忆与情感模块共用
+ *
+ * 词典编译为正向、逆向两棵字符trie，对每段连续汉字分别做正向/逆向最大匹配，
+ * 取词数少者，词数相同取单字少者，仍相同取逆向结果；字母数字串整体作为一个词。
+ * 词典 = 内置词表 + 配置的用户词典 + 各模块运行时注册的词（情感词、记忆关键词等），
+ * 新增词时整体重建并替换快照，分词过程无锁、不使用正则
+ */
+@Component
+@Slf4j
+public class ChineseSegmenter {
+
+    private static final String BASE_DICT = "classpath:segment/base.dic";
+    private static final String STOP_WORDS = "classpath:segment/stopwords.dic";
+    // 未登录词拼接时不参与的虚字
+    private static final String STOP_CHARS = "的了是在我你他她它们就都也很还又和与吗呢吧啊呀嘛哦着过要会有没不这那么个把被给让对从到说去来上下里好太真叫想能只一";
+    private static final int MAX_UNKNOWN_LENGTH = 4;
+    // 汉字码位范围（扩展A至基本区）
+    private static final char ROOT_START = '\u3400';
+    private static final char ROOT_END = '\ua000';
+
+    // 用户词典，文件路径或classpath:前缀，每行一个词，#开头为注释
+    @Value("${app.segment.user-dict:}")
+    private String userDict = "";
+
+    private final Set<String> words = new HashSet<>();
+    private final Set<String> stopWords;
+    private volatile Dictionary dictionary;
+
+    public ChineseSegmenter() {
+        stopWords = Set.copyOf(readWords(STOP_WORDS));
+        // 停用词也参与切分，避免被拆成单字后拼成未登录词
+        words.addAll(stopWords);
+        words.addAll(readWords(BASE_DICT));
+        dictionary = new Dictionary(words);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (userDict != null && !userDict.isBlank()) {
+            addWords(readWords(userDict.trim()));
+        }
+        log.info("分词词典加载完成，共{}个词", dictionary.size);
+    }
+
+    /**
+     * 注册词语（小写），有新词时重建词典
+     */
+    public synchronized void addWords(Collection<String> newWords) {
+        boolean changed = false;
+        for (String word : newWords) {
+            if (word != null) {
+                String w = word.trim().toLowerCase();
+                if (w.length() >= 2) {
+                    changed |= words.add(w);
+                }
+            }
+        }
+        if (changed) {
+            dictionary = new Dictionary(words);
+        }
+    }
+
+    public int dictionarySize() {
+        return dictionary.size;
+    }
+
+    /**
+     * 分词，结果为小写，标点与空白不输出
+     */
+    public List<String> segment(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        Dictionary dict = dictionary;
+        String lower = text.toLowerCase();
+        int[] buffer = new int[lower.length() * 2];
+        scan(dict, lower, buffer, (start, end, known) -> tokens.add(lower.substring(start, end)));
+        return tokens;
+    }
+
+    /**
+     * 提取关键词：词典中的多字词与字母数字串（去停用词），
+     * 外加连续未登录单字拼成的短词（人名、菜名等），按出现顺序去重
+     */
+    public List<String> keywords(String text, int limit) {
+        Set<String> keywords = new LinkedHashSet<>();
+        if (text == null || text.isEmpty() || limit <= 0) {
+            return new ArrayList<>(keywords);
+        }
+        Dictionary dict = dictionary;
+        String lower = text.toLowerCase();
+        int[] buffer = new int[lower.length() * 2];
+        // 当前未登录单字串的起止
+        int[] unknown = {-1, -1};
+
+        scan(dict, lower, buffer, (start, end, known) -> {
+            boolean single = end - start == 1 && !known;
+            if (single && STOP_CHARS.indexOf(lower.charAt(start)) < 0 && unknown[1] == start) {
+                unknown[1] = end;
+                return;
+            }
+            flushUnknown(lower, unknown, keywords);
+            if (single && STOP_CHARS.indexOf(lower.charAt(start)) < 0) {
+                unknown[0] = start;
+                unknown[1] = end;
+            } else if (end - start >= 2) {
+                String word = lower.substring(start, end);
+                if (!stopWords.contains(word)) {
+                    keywords.add(word);
+                }
+            }
+        });
+        flushUnknown(lower, unknown, keywords);
+
+        List<String> result = new ArrayList<>(keywords);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+
+    private void flushUnknown(String text, int[] unknown, Set<String> keywords) {
+        int length = unknown[1] - unknown[0];
+        if (unknown[0] >= 0 && length >= 2 && length <= MAX_UNKNOWN_LENGTH) {
+            String word = text.substring(unknown[0], unknown[1]);
+            if (!stopWords.contains(word)) {
+                keywords.add(word);
+            }
+        }
+        unknown[0] = -1;
+        unknown[1] = -1;
+    }
+
+    @FunctionalInterface
+    private interface TokenSink {
+        /**
+         * @param known 是否为词典中的多字词或字母数字串
+         */
+        void accept(int start, int end, boolean known);
+    }
+
+    /**
+     * 按字符类别切成汉字串、字母数字串，汉字串再做双向最大匹配；未登录单字之间保持相邻以便拼接
+     */
+    private void scan(Dictionary dict, String text, int[] buffer, TokenSink sink) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            int end = i + 1;
+            if (isHan(c)) {
+                while (end < length && isHan(text.charAt(end))) {
+                    end++;
+                }
+                matchRun(dict, text, i, end, buffer, sink);
+            } else if (Character.isLetterOrDigit(c)) {
+                while (end < length && Character.isLetterOrDigit(text.charAt(end)) && !isHan(text.charAt(end))) {
+                    end++;
+                }
+                sink.accept(i, end, true);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * buffer存放词长：前半段存正向结果，后半段存逆向结果（从尾部倒着写）
+     */
+    private void matchRun(Dictionary dict, String text, int start, int end, int[] buffer, TokenSink sink) {
+        int forwardCount = 0;
+        int forwardSingles = 0;
+        for (int i = start; i < end; ) {
+            int len = dict.forwardMatch(text, i, end);
+            buffer[start + forwardCount++] = len;
+            if (len == 1) {
+                forwardSingles++;
+            }
+            i += len;
+        }
+
+        int offset = text.length();
+        int backwardStart = offset + end;
+        int backwardSingles = 0;
+        for (int j = end; j > start; ) {
+            int len = dict.backwardMatch(text, start, j);
+            buffer[--backwardStart] = len;
+            if (len == 1) {
+                backwardSingles++;
+            }
+            j -= len;
+        }
+        int backwardCount = offset + end - backwardStart;
+
+        boolean forward = forwardCount < backwardCount
+                || (forwardCount == backwardCount && forwardSingles < backwardSingles);
+        int from = forward ? start : backwardStart;
+        int count = forward ? forwardCount : backwardCount;
+        int pos = start;
+        for (int k = from; k < from + count; k++) {
+            int len = buffer[k];
+            sink.accept(pos, pos + len, len > 1);
+            pos += len;
+        }
+    }
+
+    private static boolean isHan(char c) {
+        return c >= ROOT_START && c < ROOT_END && (c >= '\u4e00' || c <= '\u4dbf');
+    }
+
+    private static List<String> readWords(String location) {
+        List<String> result = new ArrayList<>();
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String word = line.trim();
+                if (word.length() >= 2 && word.charAt(0) != '#') {
+                    result.add(word.toLowerCase());
+                }
+            }
+        } catch (Exception e) {
+            log.error("读取分词词典失败: {}", location, e);
+        }
+        return result;
+    }
+
+    /**
+     * 编译后的词典，构建后只读
+     * 每个trie节点的出边按字符排序存放，匹配时二分查找，不装箱
+     */
+    static final class Dictionary {
+
+        private final Trie forward;
+        private final Trie backward;
+        private final int maxLength;
+        final int size;
+
+        Dictionary(Collection<String> words) {
+            TrieBuilder forwardBuilder = new TrieBuilder();
+            TrieBuilder backwardBuilder = new TrieBuilder();
+            int max = 1;
+            for (String word : words) {
+                forwardBuilder.add(word, false);
+                backwardBuilder.add(word, true);
+                max = Math.max(max, word.length());
+            }
+            this.forward = forwardBuilder.build();
+            this.backward = backwardBuilder.build();
+            this.maxLength = max;
+            this.size = words.size();
+        }
+
+        /**
+         * 从start起的最长词长，无匹配时为1
+         */
+        int forwardMatch(String text, int start, int end) {
+            int limit = Math.min(end, start + maxLength);
+            int node = 0;
+            int matched = 1;
+            for (int i = start; i < limit; i++) {
+                node = forward.next(node, text.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                if (forward.terminal[node]) {
+                    matched = i - start + 1;
+                }
+            }
+            return matched;
+        }
+
+        /**
+         * 以end结尾的最长词长，无匹配时为1
+         */
+        int backwardMatch(String text, int start, int end) {
+            int limit = Math.max(start, end - maxLength);
+            int node = 0;
+            int matched = 1;
+            for (int i = end - 1; i >= limit; i--) {
+                node = backward.next(node, text.charAt(i));
+                if (node < 0) {
+                    break;
+                }
+                if (backward.terminal[node]) {
+                    matched = end - i;
+                }
+            }
+            return matched;
+        }
+    }
+
+    private static final class Trie {
+
+        private final char[][] labels;
+        private final int[][] children;
+        private final boolean[] terminal;
+        // 根节点出边最多（每个词的首字），按汉字码位直接寻址，省去每个位置一次二分查找
+        private final int[] rootChildren = new int[ROOT_END - ROOT_START];
+
+        Trie(char[][] labels, int[][] children, boolean[] terminal) {
+            this.labels = labels;
+            this.children = children;
+            this.terminal = terminal;
+            Arrays.fill(rootChildren, -1);
+            for (int k = 0; k < labels[0].length; k++) {
+                char c = labels[0][k];
+                if (c >= ROOT_START && c < ROOT_END) {
+                    rootChildren[c - ROOT_START] = children[0][k];
+                }
+            }
+        }
+
+        int next(int node, char c) {
+            if (node == 0 && c >= ROOT_START && c < ROOT_END) {
+                return rootChildren[c - ROOT_START];
+            }
+            int index = Arrays.binarySearch(labels[node], c);
+            return index >= 0 ? children[node][index] : -1;
+        }
+    }
+
+    private static final class TrieBuilder {
+
+        private final List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        private final List<Boolean> terminal = new ArrayList<>();
+
+        TrieBuilder() {
+            newNode();
+        }
+
+        void add(String word, boolean reversed) {
+            int node = 0;
+            int length = word.length();
+            for (int i = 0; i < length; i++) {
+                char c = word.charAt(reversed ? length - 1 - i : i);
+                Integer child = edges.get(node).get(c);
+                if (child == null) {
+                    child = newNode();
+                    edges.get(node).put(c, child);
+                }
+                node = child;
+            }
+            terminal.set(node, true);
+        }
+
+        Trie build() {
+            int count = edges.size();
+            char[][] labels = new char[count][];
+            int[][] children = new int[count][];
+            boolean[] terminals = new boolean[count];
+            for (int n = 0; n < count; n++) {
+                TreeMap<Character, Integer> out = edges.get(n);
+                labels[n] = new char[out.size()];
+                children[n] = new int[out.size()];
+                int k = 0;
+                for (Map.Entry<Character, Integer> edge : out.entrySet()) {
+                    labels[n][k] = edge.getKey();
+                    children[n][k++] = edge.getValue();
+                }
+                terminals[n] = terminal.get(n);
+            }
+            return new Trie(labels, children, terminals);
+        }
+
+        private int newNode() {
+            edges.add(new TreeMap<>());
+            terminal.add(false);
+            return edges.size() - 1;
+        }
+    }
+}
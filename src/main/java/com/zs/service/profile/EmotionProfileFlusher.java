@@ -0,0 +1,50 @@
+// File: src/main/java/com/zs/service/profile/EmotionProfileFlusher.java
+package com.zs.service.profile;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 情感画像定期落库：脏集合改名为落库集合后按批写库，每批提交后才移除，直到集合清空
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EmotionProfileFlusher {
+
+    private final EmotionProfileService emotionProfileService;
+
+    @Value("${app.emotion.profile.flush-batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${app.emotion.profile.flush-interval-ms:60000}",
+            initialDelayString = "${app.emotion.profile.flush-interval-ms:60000}")
+    public void flush() {
+        try {
+            int total = 0;
+            int flushed;
+            do {
+                flushed = emotionProfileService.flushDirtyProfiles(batchSize);
+                total += flushed;
+            } while (flushed == batchSize);
+
+            if (total > 0) {
+                log.debug("情感画像落库完成: users={}", total);
+            }
+        } catch (Exception e) {
+            log.error("情感画像落库任务异常", e);
+        }
+    }
+
+    /**
+     * 停机前再落库一次
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
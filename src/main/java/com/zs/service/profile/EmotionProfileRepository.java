@@ -0,0 +1,67 @@
+// File: src/main/java/com/zs/service/profile/EmotionProfileRepository.java
+package com.zs.service.profile;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.zs.entity.UserEmotionProfile;
+import com.zs.mapper.UserEmotionProfileMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * 情感画像持久层 - user_emotion_profile表按user_id批量读写
+ */
+@Repository
+@Slf4j
+@RequiredArgsConstructor
+public class EmotionProfileRepository {
+
+    private final UserEmotionProfileMapper userEmotionProfileMapper;
+
+    /**
+     * 按用户ID查询画像
+     */
+    public UserEmotionProfile findByUserId(Long userId) {
+        return userEmotionProfileMapper.selectOne(new QueryWrapper<UserEmotionProfile>()
+                .eq("user_id", userId)
+                .last("LIMIT 1"));
+    }
+
+    /**
+     * 批量写入画像：已有行CASE WHEN更新，新用户多行插入，同一事务
+     */
+    @Transactional
+    public void upsertProfiles(List<UserEmotionProfile> profiles) {
+        if (profiles == null || profiles.isEmpty()) {
+            return;
+        }
+
+        Set<Long> existing = new HashSet<>(userEmotionProfileMapper.selectExistingUserIds(
+                profiles.stream().map(UserEmotionProfile::getUserId).toList()));
+
+        List<UserEmotionProfile> updates = new ArrayList<>();
+        List<UserEmotionProfile> inserts = new ArrayList<>();
+        for (UserEmotionProfile profile : profiles) {
+            (existing.contains(profile.getUserId()) ? updates : inserts).add(profile);
+        }
+
+        if (!updates.isEmpty()) {
+            userEmotionProfileMapper.batchUpdateByUserId(updates);
+        }
+        if (!inserts.isEmpty()) {
+            userEmotionProfileMapper.insertBatch(inserts);
+        }
+
+        log.debug("画像落库: 更新={}, 新增={}", updates.size(), inserts.size());
+    }
+
+    /**
+     * 删除用户画像
+     */
+    public void deleteByUserId(Long userId) {
+        userEmotionProfileMapper.deleteByUserId(userId);
+    }
+}
@@ -1,20 +1,34 @@
 // File: src/main/java/com/zs/service/profile/EmotionProfileService.java
 package com.zs.service.profile;
 
+import com.zs.entity.UserEmotionProfile;
 import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.redis.NearCache;
+import com.zs.util.JsonTypeHandler;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.*;
-import java.util.concurrent.TimeUnit;
 
 /**
  * 用户情感画像服务 - 基于user_emotion_profile表设计
  * 让AI"越来越懂你"的核心
+ *
+ * 画像在Redis中按字段存放于一个hash，计数类字段用HINCRBY原子累加，
+ * 并发更新互不覆盖；变更用户记入脏集合，由EmotionProfileFlusher定期批量落库。
+ * hash首次创建时由认领到的写入者把数据库中的历史计数累加进来，完成后才写meta:hydrated；
+ * 未完成回填的画像不标记为脏、不落库，避免用不完整的计数覆盖数据库
  */
 @Service
 @Slf4j
@@ -22,9 +36,52 @@ import java.util.concurrent.TimeUnit;
 public class EmotionProfileService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final EmotionProfileRepository emotionProfileRepository;
+    private final JsonTypeHandler jsonTypeHandler;
+    private final NearCache nearCache;
 
     // Redis键前缀
-    private static final String PROFILE_PREFIX = "emotion:profile:user:";
+    private static final String PROFILE_PREFIX = "emotion:profile:fields:user:";
+    // 旧版整体JSON画像，仅在回填hash时读取一次
+    private static final String LEGACY_PROFILE_PREFIX = "emotion:profile:user:";
+    // 有未落库变更的用户ID集合，以及正在落库的批次
+    private static final String DIRTY_SET_KEY = "emotion:profile:dirty";
+    private static final String FLUSHING_SET_KEY = "emotion:profile:flushing";
+
+    private static final Duration PROFILE_TTL = Duration.ofDays(30);
+
+    // hash字段
+    private static final String STAT = "stat:";
+    private static final String TOPIC = "topic:";
+    private static final String HOUR = "hour:";
+    private static final String STYLE = "style:";
+    private static final String LENGTH_SUM = "meta:lengthSum";
+    private static final String CREATED_DATE = "meta:createdDate";
+    private static final String LAST_UPDATED = "meta:lastUpdated";
+    private static final String RESPONSE_STYLE = "meta:responseStyle";
+    private static final String HYDRATED = "meta:hydrated";
+    // 回填认领时间，认领者超时未完成时允许其他写入者接手
+    private static final String HYDRATING = "meta:hydrating";
+    private static final Duration HYDRATE_TIMEOUT = Duration.ofMinutes(1);
+
+    private static final List<String> BASE_EMOTIONS = List.of("HAPPY", "SAD", "ANXIOUS", "ANGRY", "NEUTRAL");
+    private static final List<String> BASE_TOPICS = List.of("study", "life", "emotion", "entertainment");
+    private static final int ACTIVE_TIMES_LIMIT = 10;
+
+    /**
+     * 认领回填：未回填且无人认领（或认领已超时）时写入认领时间，返回是否认领成功
+     */
+    private static final RedisScript<Long> CLAIM_HYDRATION_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], 'meta:hydrated') == 1 then
+                return 0
+            end
+            local claimed = tonumber(redis.call('HGET', KEYS[1], 'meta:hydrating'))
+            if claimed and claimed > tonumber(ARGV[2]) then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'meta:hydrating', ARGV[1])
+            return 1
+            """, Long.class);
 
     /**
      * 更新用户情感画像
@@ -32,252 +89,461 @@ public class EmotionProfileService {
     public void updateEmotionProfile(Long userId, EmotionAnalysisDTO emotion) {
         try {
             String profileKey = PROFILE_PREFIX + userId;
+            String primaryEmotion = emotion.getPrimaryEmotion();
+            boolean strong = emotion.getIntensity() != null && emotion.getIntensity() > 0.7;
+            String topic = classifyTopic(emotion.getConversationContext());
+            String hour = String.format("%02d", LocalTime.now().getHour());
+            int length = emotion.getUserMessage() != null ? emotion.getUserMessage().length() : 0;
+            String[] style = preferredStyle(primaryEmotion);
+
+            // 一次管道：各计数累加 + 风格字段 + 续期，最后读取回填标记
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    HashOperations<String, String, Object> hash = operations.opsForHash();
+                    hash.increment(profileKey, STAT + primaryEmotion, 1);
+                    if (strong) {
+                        hash.increment(profileKey, STAT + "STRONG_" + primaryEmotion, 1);
+                    }
+                    hash.increment(profileKey, TOPIC + topic, 1);
+                    hash.increment(profileKey, HOUR + hour, 1);
+                    hash.increment(profileKey, LENGTH_SUM, length);
+                    hash.putIfAbsent(profileKey, CREATED_DATE, LocalDate.now().toString());
+                    hash.put(profileKey, LAST_UPDATED, System.currentTimeMillis());
+                    if (style != null) {
+                        hash.put(profileKey, STYLE + style[0], style[1]);
+                    }
+                    operations.expire(profileKey, PROFILE_TTL);
+                    hash.hasKey(profileKey, HYDRATED);
+                    return null;
+                }
+            });
+
+            // 已回填的画像直接标记为脏；否则认领到的写入者先回填再标记，
+            // 其他写入者的增量已在hash中，由回填者标记后一并落库
+            boolean hydrated = Boolean.TRUE.equals(results.get(results.size() - 1));
+            if (!hydrated && claimHydration(profileKey)) {
+                hydrate(userId, profileKey);
+                hydrated = true;
+            }
+            if (hydrated) {
+                redisTemplate.opsForSet().add(DIRTY_SET_KEY, userId);
+            }
+            nearCache.evict(NearCache.EMOTION_PROFILE, userId);
 
-            // 获取现有画像
-            Map<String, Object> profile = getEmotionProfile(userId);
-
-            // 更新情感统计
-            updateEmotionStats(profile, emotion);
+            log.debug("更新情感画像: userId={}, emotion={}", userId, primaryEmotion);
 
-            // 更新话题偏好
-            updateTopicPreferences(profile, emotion);
+        } catch (Exception e) {
+            log.error("更新情感画像失败: userId={}", userId, e);
+        }
+    }
 
-            // 更新行为模式
-            updateBehaviorPatterns(profile, emotion);
+    /**
+     * 删除用户情感画像（回填重建前调用）
+     */
+    public void clearEmotionProfile(Long userId) {
+        try {
+            redisTemplate.delete(List.of(PROFILE_PREFIX + userId, LEGACY_PROFILE_PREFIX + userId));
+            redisTemplate.opsForSet().remove(DIRTY_SET_KEY, userId);
+            redisTemplate.opsForSet().remove(FLUSHING_SET_KEY, userId);
+            emotionProfileRepository.deleteByUserId(userId);
+            nearCache.evict(NearCache.EMOTION_PROFILE, userId);
+        } catch (Exception e) {
+            log.error("删除情感画像失败: userId={}", userId, e);
+        }
+    }
 
-            // 计算情感理解度
-            updateUnderstandingScore(profile);
+    /**
+     * 获取用户情感画像（先查本节点近端缓存）
+     */
+    public Map<String, Object> getEmotionProfile(Long userId) {
+        try {
+            return nearCache.get(NearCache.EMOTION_PROFILE, userId, () -> loadProfile(userId));
 
-            // 保存画像
-            saveProfile(profileKey, profile);
+        } catch (Exception e) {
+            log.error("获取情感画像失败: userId={}", userId, e);
+            return buildProfile(userId, Collections.emptyMap());
+        }
+    }
 
-            log.debug("更新情感画像: userId={}, emotion={}", userId, emotion.getPrimaryEmotion());
+    private Map<String, Object> loadProfile(Long userId) {
+        String profileKey = PROFILE_PREFIX + userId;
 
-        } catch (Exception e) {
-            log.error("更新情感画像失败: userId={}", userId, e);
+        Map<Object, Object> fields = redisTemplate.opsForHash().entries(profileKey);
+        if (!fields.containsKey(HYDRATED) && claimHydration(profileKey)) {
+            hydrate(userId, profileKey);
+            redisTemplate.expire(profileKey, PROFILE_TTL);
+            fields = redisTemplate.opsForHash().entries(profileKey);
         }
+
+        return buildProfile(userId, fields);
     }
 
     /**
-     * 获取用户情感画像
+     * 将一批待落库的用户画像写入数据库，返回处理的用户数
+     * 落库集合为空时把脏集合整体改名为落库集合；批次中的用户在事务提交后才从落库集合移除，
+     * 落库失败或进程中途退出时留在集合中，下次继续处理
      */
-    public Map<String, Object> getEmotionProfile(Long userId) {
-        try {
-            String profileKey = PROFILE_PREFIX + userId;
+    public int flushDirtyProfiles(int batchSize) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(FLUSHING_SET_KEY))) {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(DIRTY_SET_KEY))) {
+                return 0;
+            }
+            try {
+                redisTemplate.renameIfAbsent(DIRTY_SET_KEY, FLUSHING_SET_KEY);
+            } catch (Exception e) {
+                // 脏集合已被其他节点取走
+                return 0;
+            }
+        }
 
-            @SuppressWarnings("unchecked")
-            Map<String, Object> profile = (Map<String, Object>) redisTemplate.opsForValue().get(profileKey);
+        Set<Object> members = redisTemplate.opsForSet().distinctRandomMembers(FLUSHING_SET_KEY, batchSize);
+        if (members == null || members.isEmpty()) {
+            return 0;
+        }
 
-            if (profile == null) {
-                return createInitialProfile(userId);
+        List<Long> userIds = members.stream().map(id -> ((Number) id).longValue()).toList();
+        try {
+            // 一次管道读取整批hash
+            List<Object> hashes = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                public Object execute(RedisOperations operations) {
+                    for (Long userId : userIds) {
+                        operations.opsForHash().entries(PROFILE_PREFIX + userId);
+                    }
+                    return null;
+                }
+            });
+
+            List<UserEmotionProfile> rows = new ArrayList<>();
+            for (int i = 0; i < userIds.size(); i++) {
+                @SuppressWarnings("unchecked")
+                Map<Object, Object> fields = (Map<Object, Object>) hashes.get(i);
+                // 已过期、已清空或尚未回填完成的画像不落库（回填完成后会重新标记）
+                if (fields != null && fields.containsKey(HYDRATED)) {
+                    rows.add(toEntity(userIds.get(i), fields));
+                }
             }
 
-            return profile;
+            emotionProfileRepository.upsertProfiles(rows);
+            redisTemplate.opsForSet().remove(FLUSHING_SET_KEY, members.toArray());
+            return userIds.size();
 
         } catch (Exception e) {
-            log.error("获取情感画像失败: userId={}", userId, e);
-            return createInitialProfile(userId);
+            log.error("情感画像落库失败，{}个用户留在落库集合等待重试", userIds.size(), e);
+            return 0;
         }
     }
 
+    // ========== 字段读写 ==========
+
     /**
-     * 创建初始画像
+     * 话题分类
      */
-    private Map<String, Object> createInitialProfile(Long userId) {
-        Map<String, Object> profile = new HashMap<>();
-
-        // 基础信息
-        profile.put("userId", userId);
-        profile.put("createdDate", LocalDate.now().toString());
-        profile.put("lastUpdated", System.currentTimeMillis());
+    private String classifyTopic(String context) {
+        if (context == null) {
+            return "life";
+        }
+        if (context.contains("study") || context.contains("exam") || context.contains("学习")) {
+            return "study";
+        } else if (context.contains("emotion") || context.contains("心情") || context.contains("感觉")) {
+            return "emotion";
+        } else if (context.contains("entertainment") || context.contains("娱乐") || context.contains("游戏")) {
+            return "entertainment";
+        }
+        return "life";
+    }
 
-        // 情感统计
-        Map<String, Integer> emotionStats = new HashMap<>();
-        emotionStats.put("HAPPY", 0);
-        emotionStats.put("SAD", 0);
-        emotionStats.put("ANXIOUS", 0);
-        emotionStats.put("ANGRY", 0);
-        emotionStats.put("NEUTRAL", 0);
-        profile.put("emotionStats", emotionStats);
+    /**
+     * 基于情感类型的回应风格偏好：[字段名, 风格]
+     */
+    private String[] preferredStyle(String primaryEmotion) {
+        switch (primaryEmotion) {
+            case "SAD": return new String[]{"preferredStyleWhenSad", "comforting"};
+            case "ANXIOUS": return new String[]{"preferredStyleWhenAnxious", "reassuring"};
+            case "HAPPY": return new String[]{"preferredStyleWhenHappy", "playful"};
+            default: return null;
+        }
+    }
 
-        // 话题偏好
-        Map<String, Integer> topicPreferences = new HashMap<>();
-        topicPreferences.put("study", 0);
-        topicPreferences.put("life", 0);
-        topicPreferences.put("emotion", 0);
-        topicPreferences.put("entertainment", 0);
-        profile.put("topicPreferences", topicPreferences);
+    private boolean claimHydration(String profileKey) {
+        long now = System.currentTimeMillis();
+        Long claimed = redisTemplate.execute(CLAIM_HYDRATION_SCRIPT, List.of(profileKey),
+                now, now - HYDRATE_TIMEOUT.toMillis());
+        return claimed != null && claimed > 0;
+    }
 
-        // 行为模式
-        Map<String, Object> behaviorPatterns = new HashMap<>();
-        behaviorPatterns.put("activeTimes", new ArrayList<>());
-        behaviorPatterns.put("responseStyle", "gentle");
-        behaviorPatterns.put("conversationLengthAvg", 0);
-        profile.put("behaviorPatterns", behaviorPatterns);
+    /**
+     * 把数据库中的画像（没有时取旧版Redis整体画像）累加进hash，最后写入回填完成标记
+     * 计数用HINCRBY叠加，不会覆盖回填期间并发写入的增量
+     */
+    private void hydrate(Long userId, String profileKey) {
+        Map<String, Long> counters = new HashMap<>();
+        Map<String, Object> values = new HashMap<>();
 
-        // 理解度评分
-        profile.put("emotionalUnderstandingScore", 0.5);
+        UserEmotionProfile row = emotionProfileRepository.findByUserId(userId);
+        if (row != null) {
+            readEntity(row, counters, values);
+        } else {
+            readLegacy(userId, counters, values);
+        }
 
-        // 理解层次
-        Map<String, Double> understandingLevels = new HashMap<>();
-        understandingLevels.put("basic_facts", 0.5);
-        understandingLevels.put("emotional_patterns", 0.3);
-        understandingLevels.put("deep_motivations", 0.1);
-        understandingLevels.put("unspoken_needs", 0.0);
-        understandingLevels.put("future_aspirations", 0.0);
-        profile.put("understandingLevels", understandingLevels);
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                HashOperations<String, String, Object> hash = operations.opsForHash();
+                counters.forEach((field, value) -> hash.increment(profileKey, field, value));
+                if (!values.isEmpty()) {
+                    hash.putAll(profileKey, values);
+                }
+                hash.put(profileKey, HYDRATED, 1);
+                hash.delete(profileKey, HYDRATING);
+                return null;
+            }
+        });
+        log.debug("情感画像已回填: userId={}, counters={}", userId, counters.size());
+    }
 
-        // 已解锁洞察
-        profile.put("unlockedInsights", new ArrayList<>());
+    private void readEntity(UserEmotionProfile row, Map<String, Long> counters, Map<String, Object> values) {
+        jsonMap(row.getEmotionStats()).forEach((k, v) -> addCounter(counters, STAT + k, v));
+        jsonMap(row.getCommonTopics()).forEach((k, v) -> addCounter(counters, TOPIC + k, v));
+        jsonMap(row.getActiveTimes()).forEach((k, v) -> addCounter(counters, HOUR + k, v));
 
-        return profile;
+        Map<String, Object> patterns = jsonMap(row.getConversationPatterns());
+        addCounter(counters, LENGTH_SUM, patterns.get("lengthSum"));
+        if (patterns.get("createdDate") != null) {
+            values.put(CREATED_DATE, String.valueOf(patterns.get("createdDate")));
+        }
+        patterns.forEach((k, v) -> {
+            if (k.startsWith("preferredStyleWhen") && v != null) {
+                values.put(STYLE + k, String.valueOf(v));
+            }
+        });
+        if (row.getPreferredResponseStyle() != null) {
+            values.put(RESPONSE_STYLE, row.getPreferredResponseStyle());
+        }
     }
 
-    /**
-     * 更新情感统计
-     */
-    private void updateEmotionStats(Map<String, Object> profile, EmotionAnalysisDTO emotion) {
-        @SuppressWarnings("unchecked")
-        Map<String, Integer> emotionStats = (Map<String, Integer>) profile.get("emotionStats");
+    @SuppressWarnings("unchecked")
+    private void readLegacy(Long userId, Map<String, Long> counters, Map<String, Object> values) {
+        String legacyKey = LEGACY_PROFILE_PREFIX + userId;
+        Object legacy;
+        try {
+            legacy = redisTemplate.opsForValue().get(legacyKey);
+        } catch (Exception e) {
+            // 键类型不符等情况，直接丢弃旧数据
+            legacy = null;
+        }
+        if (!(legacy instanceof Map<?, ?> profile)) {
+            return;
+        }
+
+        long messages = 0;
+        if (profile.get("emotionStats") instanceof Map<?, ?> stats) {
+            for (Map.Entry<?, ?> e : stats.entrySet()) {
+                addCounter(counters, STAT + e.getKey(), e.getValue());
+                if (!String.valueOf(e.getKey()).startsWith("STRONG_") && e.getValue() instanceof Number n) {
+                    messages += n.longValue();
+                }
+            }
+        }
+        if (profile.get("topicPreferences") instanceof Map<?, ?> topics) {
+            topics.forEach((k, v) -> addCounter(counters, TOPIC + k, v));
+        }
+        if (profile.get("behaviorPatterns") instanceof Map<?, ?> patterns) {
+            if (patterns.get("activeTimes") instanceof List<?> activeTimes) {
+                // 旧版只记录出现过的小时（"HH:00"），各计一次
+                for (Object time : activeTimes) {
+                    String hour = String.valueOf(time);
+                    if (hour.length() >= 2) {
+                        addCounter(counters, HOUR + hour.substring(0, 2), 1);
+                    }
+                }
+            }
+            if (patterns.get("conversationLengthAvg") instanceof Number avg) {
+                addCounter(counters, LENGTH_SUM, avg.longValue() * messages);
+            }
+            ((Map<String, Object>) patterns).forEach((k, v) -> {
+                if (k.startsWith("preferredStyleWhen") && v != null) {
+                    values.put(STYLE + k, String.valueOf(v));
+                }
+            });
+            if (patterns.get("responseStyle") != null) {
+                values.put(RESPONSE_STYLE, String.valueOf(patterns.get("responseStyle")));
+            }
+        }
+        if (profile.get("createdDate") != null) {
+            values.put(CREATED_DATE, String.valueOf(profile.get("createdDate")));
+        }
 
-        String primaryEmotion = emotion.getPrimaryEmotion();
-        emotionStats.put(primaryEmotion, emotionStats.getOrDefault(primaryEmotion, 0) + 1);
+        redisTemplate.delete(legacyKey);
+        log.info("迁移旧版情感画像: userId={}", userId);
+    }
 
-        // 如果是强烈情感，额外计数
-        if (emotion.getIntensity() > 0.7) {
-            String strongKey = "STRONG_" + primaryEmotion;
-            emotionStats.put(strongKey, emotionStats.getOrDefault(strongKey, 0) + 1);
+    private Map<String, Object> jsonMap(Object json) {
+        return json == null ? Collections.emptyMap()
+                : jsonTypeHandler.jsonToMap(String.valueOf(json), String.class, Object.class);
+    }
+
+    private void addCounter(Map<String, Long> counters, String field, Object value) {
+        if (value instanceof Number n && n.longValue() != 0) {
+            counters.merge(field, n.longValue(), Long::sum);
         }
     }
 
     /**
-     * 更新话题偏好
+     * 按前缀取出计数字段
      */
-    private void updateTopicPreferences(Map<String, Object> profile, EmotionAnalysisDTO emotion) {
-        @SuppressWarnings("unchecked")
-        Map<String, Integer> topicPreferences = (Map<String, Integer>) profile.get("topicPreferences");
+    private Map<String, Integer> counters(Map<Object, Object> fields, String prefix) {
+        Map<String, Integer> result = new HashMap<>();
+        fields.forEach((k, v) -> {
+            String field = String.valueOf(k);
+            if (field.startsWith(prefix) && v instanceof Number n) {
+                result.put(field.substring(prefix.length()), n.intValue());
+            }
+        });
+        return result;
+    }
 
-        String context = emotion.getConversationContext();
-        if (context.contains("study") || context.contains("exam") || context.contains("学习")) {
-            topicPreferences.put("study", topicPreferences.getOrDefault("study", 0) + 1);
-        } else if (context.contains("emotion") || context.contains("心情") || context.contains("感觉")) {
-            topicPreferences.put("emotion", topicPreferences.getOrDefault("emotion", 0) + 1);
-        } else if (context.contains("entertainment") || context.contains("娱乐") || context.contains("游戏")) {
-            topicPreferences.put("entertainment", topicPreferences.getOrDefault("entertainment", 0) + 1);
-        } else {
-            topicPreferences.put("life", topicPreferences.getOrDefault("life", 0) + 1);
-        }
+    private String text(Map<Object, Object> fields, String field, String defaultValue) {
+        Object value = fields.get(field);
+        return value != null ? String.valueOf(value) : defaultValue;
     }
 
+    // ========== 画像组装 ==========
+
     /**
-     * 更新行为模式
+     * 由hash字段组装画像（结构与原整体画像一致）
+     * 画像会放入近端缓存被多个请求共享，各层均为只读
      */
-    private void updateBehaviorPatterns(Map<String, Object> profile, EmotionAnalysisDTO emotion) {
-        @SuppressWarnings("unchecked")
-        Map<String, Object> behaviorPatterns = (Map<String, Object>) profile.get("behaviorPatterns");
+    private Map<String, Object> buildProfile(Long userId, Map<Object, Object> fields) {
+        Map<String, Object> profile = new HashMap<>();
 
-        // 记录活跃时间
-        @SuppressWarnings("unchecked")
-        List<String> activeTimes = (List<String>) behaviorPatterns.get("activeTimes");
-        String currentHour = String.format("%02d:00", java.time.LocalTime.now().getHour());
+        // 基础信息
+        profile.put("userId", userId);
+        profile.put("createdDate", text(fields, CREATED_DATE, LocalDate.now().toString()));
+        Object lastUpdated = fields.get(LAST_UPDATED);
+        profile.put("lastUpdated", lastUpdated instanceof Number n ? n.longValue() : System.currentTimeMillis());
 
-        if (!activeTimes.contains(currentHour)) {
-            activeTimes.add(currentHour);
-            if (activeTimes.size() > 10) {
-                activeTimes.remove(0);
+        // 情感统计
+        Map<String, Integer> emotionStats = counters(fields, STAT);
+        BASE_EMOTIONS.forEach(e -> emotionStats.putIfAbsent(e, 0));
+        profile.put("emotionStats", Collections.unmodifiableMap(emotionStats));
+
+        // 话题偏好
+        Map<String, Integer> topicPreferences = counters(fields, TOPIC);
+        BASE_TOPICS.forEach(t -> topicPreferences.putIfAbsent(t, 0));
+        profile.put("topicPreferences", Collections.unmodifiableMap(topicPreferences));
+
+        // 行为模式
+        Map<String, Object> behaviorPatterns = new HashMap<>();
+        behaviorPatterns.put("activeTimes", activeTimes(counters(fields, HOUR)));
+        behaviorPatterns.put("responseStyle", text(fields, RESPONSE_STYLE, "gentle"));
+        long messages = emotionStats.entrySet().stream()
+                .filter(e -> !e.getKey().startsWith("STRONG_"))
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        Object lengthSum = fields.get(LENGTH_SUM);
+        behaviorPatterns.put("conversationLengthAvg",
+                messages > 0 && lengthSum instanceof Number n ? (int) (n.longValue() / messages) : 0);
+        fields.forEach((k, v) -> {
+            String field = String.valueOf(k);
+            if (field.startsWith(STYLE)) {
+                behaviorPatterns.put(field.substring(STYLE.length()), v);
             }
-        }
+        });
+        profile.put("behaviorPatterns", Collections.unmodifiableMap(behaviorPatterns));
 
-        // 更新对话长度
-        int currentLength = emotion.getUserMessage() != null ? emotion.getUserMessage().length() : 0;
-        int avgLength = (int) behaviorPatterns.getOrDefault("conversationLengthAvg", 0);
+        // 理解度评分与理解层次
+        int totalInteractions = emotionStats.values().stream().mapToInt(Integer::intValue).sum();
+        profile.put("emotionalUnderstandingScore", understandingScore(totalInteractions));
+        profile.put("understandingLevels", Collections.unmodifiableMap(understandingLevels(totalInteractions)));
 
-        // 移动平均
-        int newAvg = (avgLength * 9 + currentLength) / 10;
-        behaviorPatterns.put("conversationLengthAvg", newAvg);
+        // 已解锁洞察
+        profile.put("unlockedInsights", List.of());
 
-        // 分析回应风格偏好
-        analyzeResponseStylePreference(behaviorPatterns, emotion);
+        return Collections.unmodifiableMap(profile);
     }
 
     /**
-     * 分析回应风格偏好
+     * 最活跃的若干小时，按次数升序排列（最后一个最活跃）
      */
-    private void analyzeResponseStylePreference(Map<String, Object> behaviorPatterns, EmotionAnalysisDTO emotion) {
-        // 基于情感类型调整回应风格
-        String currentStyle = (String) behaviorPatterns.getOrDefault("responseStyle", "gentle");
-
-        switch (emotion.getPrimaryEmotion()) {
-            case "SAD":
-                behaviorPatterns.put("preferredStyleWhenSad", "comforting");
-                break;
-            case "ANXIOUS":
-                behaviorPatterns.put("preferredStyleWhenAnxious", "reassuring");
-                break;
-            case "HAPPY":
-                behaviorPatterns.put("preferredStyleWhenHappy", "playful");
-                break;
-        }
+    private List<String> activeTimes(Map<String, Integer> hours) {
+        return hours.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .limit(ACTIVE_TIMES_LIMIT)
+                .sorted(Map.Entry.comparingByValue())
+                .map(e -> e.getKey() + ":00")
+                .toList();
     }
 
     /**
-     * 更新理解度评分
+     * 理解度评分
      */
-    private void updateUnderstandingScore(Map<String, Object> profile) {
-        @SuppressWarnings("unchecked")
-        Map<String, Integer> emotionStats = (Map<String, Integer>) profile.get("emotionStats");
-
-        int totalInteractions = emotionStats.values().stream().mapToInt(Integer::intValue).sum();
-
-        if (totalInteractions < 10) {
+    private double understandingScore(int totalInteractions) {
+        if (totalInteractions == 0) {
+            return 0.5;
+        } else if (totalInteractions < 10) {
             // 初期：缓慢学习
-            profile.put("emotionalUnderstandingScore", 0.3);
+            return 0.3;
         } else if (totalInteractions < 50) {
             // 中期：逐步理解
-            profile.put("emotionalUnderstandingScore", 0.6);
+            return 0.6;
         } else if (totalInteractions < 200) {
             // 后期：深度理解
-            profile.put("emotionalUnderstandingScore", 0.8);
-        } else {
-            // 长期：高度理解
-            profile.put("emotionalUnderstandingScore", 0.9);
+            return 0.8;
         }
-
-        // 更新理解层次
-        updateUnderstandingLevels(profile, totalInteractions);
+        // 长期：高度理解
+        return 0.9;
     }
 
     /**
-     * 更新理解层次
+     * 理解层次
      */
-    private void updateUnderstandingLevels(Map<String, Object> profile, int totalInteractions) {
-        @SuppressWarnings("unchecked")
-        Map<String, Double> understandingLevels = (Map<String, Double>) profile.get("understandingLevels");
-
-        if (totalInteractions >= 5) {
-            understandingLevels.put("basic_facts", 0.7);
-        }
-        if (totalInteractions >= 20) {
-            understandingLevels.put("emotional_patterns", 0.5);
-        }
-        if (totalInteractions >= 50) {
-            understandingLevels.put("deep_motivations", 0.3);
-        }
-        if (totalInteractions >= 100) {
-            understandingLevels.put("unspoken_needs", 0.2);
-        }
-        if (totalInteractions >= 200) {
-            understandingLevels.put("future_aspirations", 0.1);
-        }
+    private Map<String, Double> understandingLevels(int totalInteractions) {
+        Map<String, Double> understandingLevels = new HashMap<>();
+        understandingLevels.put("basic_facts", totalInteractions >= 5 ? 0.7 : 0.5);
+        understandingLevels.put("emotional_patterns", totalInteractions >= 20 ? 0.5 : 0.3);
+        understandingLevels.put("deep_motivations", totalInteractions >= 50 ? 0.3 : 0.1);
+        understandingLevels.put("unspoken_needs", totalInteractions >= 100 ? 0.2 : 0.0);
+        understandingLevels.put("future_aspirations", totalInteractions >= 200 ? 0.1 : 0.0);
+        return understandingLevels;
     }
 
     /**
-     * 保存画像到Redis
+     * hash字段转换为user_emotion_profile行
      */
-    private void saveProfile(String key, Map<String, Object> profile) {
-        profile.put("lastUpdated", System.currentTimeMillis());
-        redisTemplate.opsForValue().set(key, profile);
-        redisTemplate.expire(key, Duration.ofDays(30).toMinutes(), TimeUnit.MINUTES);
+    private UserEmotionProfile toEntity(Long userId, Map<Object, Object> fields) {
+        Map<String, Integer> emotionStats = counters(fields, STAT);
+        int totalInteractions = emotionStats.values().stream().mapToInt(Integer::intValue).sum();
+
+        Map<String, Object> patterns = new HashMap<>();
+        Object lengthSum = fields.get(LENGTH_SUM);
+        patterns.put("lengthSum", lengthSum instanceof Number n ? n.longValue() : 0L);
+        patterns.put("createdDate", text(fields, CREATED_DATE, LocalDate.now().toString()));
+        fields.forEach((k, v) -> {
+            String field = String.valueOf(k);
+            if (field.startsWith(STYLE)) {
+                patterns.put(field.substring(STYLE.length()), v);
+            }
+        });
+
+        Object lastUpdated = fields.get(LAST_UPDATED);
+        Date now = new Date();
+
+        UserEmotionProfile row = new UserEmotionProfile();
+        row.setUserId(userId);
+        row.setEmotionStats(jsonTypeHandler.mapToJson(emotionStats));
+        row.setCommonTopics(jsonTypeHandler.mapToJson(counters(fields, TOPIC)));
+        row.setPreferredResponseStyle(text(fields, RESPONSE_STYLE, "gentle"));
+        row.setActiveTimes(jsonTypeHandler.mapToJson(counters(fields, HOUR)));
+        row.setConversationPatterns(jsonTypeHandler.mapToJson(patterns));
+        row.setEmotionalUnderstandingScore(BigDecimal.valueOf(understandingScore(totalInteractions)));
+        row.setLastAnalysisAt(lastUpdated instanceof Number n ? new Date(n.longValue()) : now);
+        row.setUpdatedAt(now);
+        return row;
     }
 
     /**
@@ -358,7 +624,7 @@ public class EmotionProfileService {
         description.append("你").append(insights.get("activePeriod")).append("和我聊天。");
 
         // 理解程度
-        double score = (double) profile.get("emotionalUnderstandingScore");
+        double score = ((Number) profile.get("emotionalUnderstandingScore")).doubleValue();
         if (score > 0.7) {
             description.append("通过这么多次的交流，我已经对你有了比较深入的了解呢~");
         } else if (score > 0.4) {
@@ -0,0 +1,193 @@
+// File: src/main/java/com/zs/service/redis/CompactValueSerializer.java
+package com.zs.service.redis;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 紧凑的Redis值序列化器，包装原有的JSON序列化器
+ *
+ * 小于阈值的值原样写JSON（计数器、集合成员、Lua参数、单条情感记录等与旧格式逐字节一致）；
+ * 较大的值（记忆列表、整体存储的历史等）写为：1字节格式版本 + DEFLATE压缩的JSON。
+ * 版本字节取0xE0以上，不可能是JSON文本的首字节，读取时据此区分，旧条目按JSON透明读取。
+ * 压缩以CPU换体积：大值的Redis内存与网络字节降到1/5左右，编解码耗时高于纯JSON，阈值以下不压缩
+ */
+public class CompactValueSerializer implements RedisSerializer<Object>, AutoCloseable {
+
+    /** 格式版本1：DEFLATE(raw) 压缩的JSON */
+    static final byte V1_DEFLATE_JSON = (byte) 0xE1;
+
+    /** 默认压缩阈值：小于4KB的值压缩省下的网络字节抵不上压缩与解压的CPU */
+    public static final int DEFAULT_COMPRESS_THRESHOLD = 4096;
+
+    // 空闲编解码器上限，超出的用完即释放
+    private static final int MAX_IDLE_CODECS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    // 编解码器归还时保留的缓冲区上限，更大的缓冲区丢弃，避免偶发的超大值长期占用内存
+    private static final int MAX_RETAINED_BUFFER = 256 * 1024;
+    private static final int INITIAL_BUFFER = 16 * 1024;
+
+    private final RedisSerializer<Object> json;
+    private final int compressThreshold;
+
+    // Deflater/Inflater持有本地内存，放在有界池中复用（reset），关闭时统一end
+    private final BlockingQueue<Codec> idleCodecs = new ArrayBlockingQueue<>(MAX_IDLE_CODECS);
+    private volatile boolean closed;
+
+    /**
+     * @param json              原JSON序列化器，负责对象与JSON之间的转换
+     * @param compressThreshold JSON达到该字节数才压缩，小于等于0表示只写JSON（仍能读取压缩条目）
+     */
+    public CompactValueSerializer(RedisSerializer<Object> json, int compressThreshold) {
+        this.json = json;
+        this.compressThreshold = compressThreshold;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        byte[] bytes = json.serialize(value);
+        if (bytes == null || compressThreshold <= 0 || bytes.length < compressThreshold) {
+            return bytes;
+        }
+
+        byte[] compressed = deflate(bytes);
+        // 压缩收益不足时保持JSON，省去读取时的解压
+        return compressed != null ? compressed : bytes;
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes[0] == V1_DEFLATE_JSON) {
+            return json.deserialize(inflate(bytes));
+        }
+        if ((bytes[0] & 0xF0) == 0xE0) {
+            throw new SerializationException("未知的Redis值格式版本: " + (bytes[0] & 0xFF));
+        }
+        return json.deserialize(bytes);
+    }
+
+    /**
+     * 释放池中编解码器的本地内存；之后归还的编解码器直接释放
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Codec codec;
+        while ((codec = idleCodecs.poll()) != null) {
+            codec.end();
+        }
+    }
+
+    /**
+     * 压缩到复用的缓冲区，结果不小于原文时返回null
+     */
+    private byte[] deflate(byte[] input) {
+        Codec codec = acquire();
+        try {
+            Deflater deflater = codec.deflater;
+            deflater.setInput(input);
+            deflater.finish();
+
+            byte[] buffer = codec.buffer(input.length / 2 + 64);
+            buffer[0] = V1_DEFLATE_JSON;
+            int length = 1;
+            while (!deflater.finished()) {
+                if (length >= input.length) {
+                    return null;
+                }
+                if (length == buffer.length) {
+                    buffer = codec.grow();
+                }
+                length += deflater.deflate(buffer, length, buffer.length - length);
+            }
+            return length < input.length ? Arrays.copyOf(buffer, length) : null;
+        } finally {
+            release(codec);
+        }
+    }
+
+    /**
+     * 解压到复用的缓冲区，只为结果分配一次精确长度的数组
+     */
+    private byte[] inflate(byte[] input) {
+        Codec codec = acquire();
+        try {
+            Inflater inflater = codec.inflater;
+            inflater.setInput(input, 1, input.length - 1);
+
+            byte[] buffer = codec.buffer((int) Math.min(input.length * 6L, MAX_RETAINED_BUFFER));
+            int length = 0;
+            while (!inflater.finished()) {
+                if (length == buffer.length) {
+                    buffer = codec.grow();
+                }
+                int n = inflater.inflate(buffer, length, buffer.length - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("Redis压缩值不完整");
+                }
+                length += n;
+            }
+            return Arrays.copyOf(buffer, length);
+        } catch (DataFormatException e) {
+            throw new SerializationException("Redis压缩值解压失败", e);
+        } finally {
+            release(codec);
+        }
+    }
+
+    private Codec acquire() {
+        Codec codec = idleCodecs.poll();
+        return codec != null ? codec : new Codec();
+    }
+
+    private void release(Codec codec) {
+        codec.reset();
+        if (closed || !idleCodecs.offer(codec)) {
+            codec.end();
+        }
+    }
+
+    /**
+     * 一组编解码器与共用的输出缓冲区，同一时间只被一个线程使用
+     */
+    private static final class Codec {
+
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        private final Inflater inflater = new Inflater(true);
+        private byte[] buffer = new byte[INITIAL_BUFFER];
+
+        byte[] buffer(int expected) {
+            if (buffer.length < expected) {
+                buffer = new byte[expected];
+            }
+            return buffer;
+        }
+
+        byte[] grow() {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            return buffer;
+        }
+
+        void reset() {
+            deflater.reset();
+            inflater.reset();
+            if (buffer.length > MAX_RETAINED_BUFFER) {
+                buffer = new byte[INITIAL_BUFFER];
+            }
+        }
+
+        void end() {
+            deflater.end();
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+// File: src/main/java/com/zs/service/redis/NearCache.java
+package com.zs.service.redis;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 节点本地近端缓存：按区域划分的有界LRU，缓存每轮对话都要读取的用户级热点状态
+ *
+ * 写入方在Redis写完后调用put/evict，本节点立即生效，并通过Redis频道通知其他节点删除本地副本；
+ * 消息丢失（如订阅断线）时由TTL兜底，过期后回源Redis。
+ * 缓存值会被多个线程共享，只能放不可变对象或不再修改、也不交给调用方修改的快照
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class NearCache implements MessageListener {
+
+    public static final String AI_STATE = "aiState";
+    public static final String EMOTION_PROFILE = "emotionProfile";
+    public static final String CURRENT_EMOTION = "currentEmotion";
+    public static final String MEMORY_INDEX = "memoryIndex";
+    public static final String MEMORY_VECTORS = "memoryVectors";
+    public static final String MEMORY_FINGERPRINTS = "memoryFingerprints";
+
+    private static final String CHANNEL = "nearcache:invalidate";
+    private static final int STRIPES = 64;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+
+    @Value("${app.cache.near.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cache.near.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.cache.near.ttl-seconds:30}")
+    private long ttlSeconds;
+
+    // 每个区域的分段数（取不小于它的2的幂），各段独立加锁，读取不再争用同一把锁
+    @Value("${app.cache.near.segments:16}")
+    private int segments = 16;
+
+    // 本节点标识，忽略自己发出的失效消息
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            listenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL));
+            log.info("近端缓存已启用: maxSize={}, ttl={}s, segments={}, node={}", maxSize, ttlSeconds, segments, nodeId);
+        }
+    }
+
+    /**
+     * 读取，未命中时调用loader回源并缓存（loader返回null不缓存）
+     * 回源期间该键被失效过则本次结果不入缓存，避免旧值覆盖新值
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String regionName, Object key, Supplier<T> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Region region = region(regionName);
+        Object cached = region.get(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+
+        long generation = region.generation(key);
+        T value = loader.get();
+        if (value != null) {
+            region.putIfGeneration(key, value, generation);
+        }
+        return value;
+    }
+
+    /**
+     * 只读本地副本，不回源也不计入命中统计（增量更新前取当前值用）
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T peek(String regionName, Object key) {
+        if (!enabled) {
+            return null;
+        }
+        Region region = regions.get(regionName);
+        return region != null ? (T) region.peek(key) : null;
+    }
+
+    /**
+     * 写入本地副本，并通知其他节点失效（应在Redis写入完成后调用）
+     */
+    public void put(String regionName, Object key, Object value) {
+        if (!enabled) {
+            return;
+        }
+        region(regionName).put(key, value);
+        publish(regionName, key);
+    }
+
+    /**
+     * 删除本地副本，并通知其他节点失效
+     */
+    public void evict(String regionName, Object key) {
+        if (!enabled) {
+            return;
+        }
+        region(regionName).remove(key);
+        publish(regionName, key);
+    }
+
+    /**
+     * 区域当前条目数
+     */
+    public int size(String regionName) {
+        Region region = regions.get(regionName);
+        return region != null ? region.size() : 0;
+    }
+
+    /**
+     * 各区域命中统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        regions.forEach((name, region) -> stats.put(name, region.stats()));
+        return stats;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+            String[] parts = String.valueOf(body).split("\\|", 3);
+            if (parts.length < 3 || nodeId.equals(parts[0])) {
+                return;
+            }
+
+            Region region = regions.get(parts[1]);
+            if (region != null) {
+                region.removeByKeyString(parts[2]);
+            }
+        } catch (Exception e) {
+            log.warn("处理近端缓存失效消息失败", e);
+        }
+    }
+
+    private void publish(String regionName, Object key) {
+        try {
+            redisTemplate.convertAndSend(CHANNEL, nodeId + "|" + regionName + "|" + key);
+        } catch (Exception e) {
+            // 其他节点依赖TTL过期
+            log.warn("发布近端缓存失效消息失败: region={}, key={}", regionName, key, e);
+        }
+    }
+
+    private Region region(String name) {
+        return regions.computeIfAbsent(name, n -> new Region(maxSize, ttlSeconds * 1000, segments));
+    }
+
+    /**
+     * 单个缓存区域：按键散列分段，每段是独立加锁的访问顺序LinkedHashMap（段内LRU），条目带过期时间
+     * 代数按键分段，失效时递增，供回源结果判断是否已过时
+     */
+    private static final class Region {
+
+        private final long ttlMillis;
+        private final Segment[] segments;
+        private final AtomicLongArray generations = new AtomicLongArray(STRIPES);
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder invalidations = new LongAdder();
+
+        /**
+         * @param maxSize      区域条目上限，平均分给各段
+         * @param segmentCount 分段数，取不小于它的2的幂
+         */
+        Region(int maxSize, long ttlMillis, int segmentCount) {
+            this.ttlMillis = ttlMillis;
+            int count = segmentCount <= 1 ? 1 : Integer.highestOneBit(segmentCount - 1) << 1;
+            this.segments = new Segment[count];
+            int segmentSize = Math.max(1, (maxSize + count - 1) / count);
+            for (int i = 0; i < count; i++) {
+                segments[i] = new Segment(segmentSize);
+            }
+        }
+
+        Object get(Object key) {
+            String k = String.valueOf(key);
+            Segment segment = segment(k);
+            synchronized (segment) {
+                Entry entry = segment.entries.get(k);
+                if (entry != null && entry.expireAt > System.currentTimeMillis()) {
+                    hits.increment();
+                    return entry.value;
+                }
+                if (entry != null) {
+                    segment.entries.remove(k);
+                }
+            }
+            misses.increment();
+            return null;
+        }
+
+        Object peek(Object key) {
+            String k = String.valueOf(key);
+            Segment segment = segment(k);
+            synchronized (segment) {
+                Entry entry = segment.entries.get(k);
+                return entry != null && entry.expireAt > System.currentTimeMillis() ? entry.value : null;
+            }
+        }
+
+        long generation(Object key) {
+            return generations.get(stripe(String.valueOf(key)));
+        }
+
+        void put(Object key, Object value) {
+            String k = String.valueOf(key);
+            generations.incrementAndGet(stripe(k));
+            Segment segment = segment(k);
+            synchronized (segment) {
+                segment.entries.put(k, new Entry(value, System.currentTimeMillis() + ttlMillis));
+            }
+        }
+
+        void putIfGeneration(Object key, Object value, long generation) {
+            String k = String.valueOf(key);
+            Segment segment = segment(k);
+            synchronized (segment) {
+                if (generations.get(stripe(k)) == generation) {
+                    segment.entries.put(k, new Entry(value, System.currentTimeMillis() + ttlMillis));
+                }
+            }
+        }
+
+        void remove(Object key) {
+            removeByKeyString(String.valueOf(key));
+        }
+
+        void removeByKeyString(String key) {
+            generations.incrementAndGet(stripe(key));
+            Segment segment = segment(key);
+            synchronized (segment) {
+                segment.entries.remove(key);
+            }
+            invalidations.increment();
+        }
+
+        int size() {
+            int size = 0;
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    size += segment.entries.size();
+                }
+            }
+            return size;
+        }
+
+        Map<String, Object> stats() {
+            int size = size();
+            long h = hits.sum();
+            long m = misses.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("size", size);
+            stats.put("segments", segments.length);
+            stats.put("hits", h);
+            stats.put("misses", m);
+            stats.put("hitRate", h + m > 0 ? String.format("%.2f%%", h * 100.0 / (h + m)) : "0.00%");
+            stats.put("invalidations", invalidations.sum());
+            return stats;
+        }
+
+        private Segment segment(String key) {
+            // 乘黄金分割常数打散相邻的用户ID，取高位选段
+            int h = key.hashCode() * 0x9e3779b9;
+            return segments[(h >>> 16) & (segments.length - 1)];
+        }
+
+        private static int stripe(String key) {
+            return (key.hashCode() & 0x7fffffff) % STRIPES;
+        }
+    }
+
+    /**
+     * 区域的一段：段内LRU，超过段容量淘汰最久未访问的条目
+     */
+    private static final class Segment {
+
+        private final LinkedHashMap<String, Entry> entries;
+
+        Segment(int maxSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+// File: src/main/java/com/zs/service/redis/RedisKeyStats.java
+package com.zs.service.redis;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 缓存键数量的近似统计，替代统计接口中的 KEYS 扫描
+ * 写入缓存时把键名加入按小时分桶的HyperLogLog，统计时合并窗口内的桶估算不同键数（标准误差约0.81%）；
+ * 窗口不小于该类键的TTL时，结果即为当前存活键数的上界
+ */
+@Component
+@RequiredArgsConstructor
+public class RedisKeyStats {
+
+    public static final String MEMORY = "memory";
+
+    private static final String PREFIX = "keystats:";
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+    // 分桶保留时长，统计窗口不能超过该值
+    private static final Duration RETENTION = Duration.ofDays(2);
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 在调用方的管道中登记一次键写入
+     */
+    @SuppressWarnings("unchecked")
+    public void queueRecord(RedisOperations<String, Object> operations, String namespace, String key) {
+        String bucket = bucketKey(namespace, currentHour());
+        operations.opsForHyperLogLog().add(bucket, key);
+        operations.expire(bucket, RETENTION);
+    }
+
+    /**
+     * 单独登记一次键写入（一次管道往返），用于不走管道写入的调用方
+     */
+    public void record(String namespace, String key) {
+        redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                queueRecord(operations, namespace, key);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 估算最近window时间内写入过的不同键数
+     */
+    public long estimate(String namespace, Duration window) {
+        long hours = Math.min(window.toHours(), RETENTION.toHours());
+        long now = currentHour();
+        String[] buckets = new String[(int) hours + 1];
+        for (int i = 0; i <= hours; i++) {
+            buckets[i] = bucketKey(namespace, now - i);
+        }
+        Long size = redisTemplate.opsForHyperLogLog().size(buckets);
+        return size != null ? size : 0L;
+    }
+
+    private String bucketKey(String namespace, long hour) {
+        return PREFIX + namespace + ":" + hour;
+    }
+
+    private long currentHour() {
+        return System.currentTimeMillis() / HOUR_MILLIS;
+    }
+}
@@ -0,0 +1,166 @@
+-- 基线表结构：引入Flyway之前的全部业务表，只在空库上执行
+-- 已有库首次启动时由 baseline-on-migrate 记为版本1，跳过本脚本，从V2开始执行
+-- 之后的结构变更一律新增V脚本，不要修改本文件
+
+CREATE TABLE IF NOT EXISTS users (
+    id                 BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    username           VARCHAR(50)  NOT NULL,
+    password_hash      VARCHAR(255) NOT NULL,
+    email              VARCHAR(100) NOT NULL,
+    student_id         VARCHAR(50)  NULL,
+    university         VARCHAR(100) NULL,
+    major              VARCHAR(100) NULL,
+    grade              VARCHAR(20)  NULL,
+    personality_type   VARCHAR(50)  NULL,
+    emotional_tendency VARCHAR(50)  NULL,
+    is_active          TINYINT(1)   NOT NULL DEFAULT 1,
+    last_login_at      DATETIME     NULL,
+    created_at         DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at         DATETIME     NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_username (username),
+    UNIQUE KEY uk_email (email)
+) COMMENT '用户表';
+
+CREATE TABLE IF NOT EXISTS email_verification (
+    id                BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    email             VARCHAR(100) NOT NULL,
+    verification_code VARCHAR(10) NOT NULL,
+    code_type         VARCHAR(20) NOT NULL COMMENT 'REGISTER, RESET_PASSWORD, CHANGE_EMAIL',
+    is_used           TINYINT(1)  NOT NULL DEFAULT 0,
+    expires_at        DATETIME    NOT NULL,
+    created_at        DATETIME    NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at        DATETIME    NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    KEY idx_email_type (email, code_type)
+) COMMENT '邮箱验证码表';
+
+CREATE TABLE IF NOT EXISTS conversations (
+    id                   BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id              BIGINT       NOT NULL,
+    user_message         TEXT         NOT NULL,
+    ai_response          TEXT         NULL,
+    emotion_label        VARCHAR(50)  NULL,
+    emotion_confidence   DECIMAL(4,3) NULL,
+    emotion_keywords     JSON         NULL,
+    conversation_context TEXT         NULL,
+    is_meaningful        TINYINT(1)   NOT NULL DEFAULT 0,
+    user_feedback        JSON         NULL COMMENT '各情感得分',
+    feedback_note        VARCHAR(500) NULL,
+    created_at           DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_user_created (user_id, created_at)
+) COMMENT '对话记录表';
+
+CREATE TABLE IF NOT EXISTS emotional_memories (
+    id                     BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id                BIGINT       NOT NULL,
+    emotion_type           VARCHAR(50)  NOT NULL,
+    emotion_context        TEXT         NULL,
+    trigger_keywords       VARCHAR(500) NULL COMMENT '逗号分隔',
+    life_scenario          JSON         NULL,
+    ai_response_pattern    VARCHAR(100) NULL,
+    response_effectiveness TINYINT      NULL COMMENT '1-5',
+    occurrence_time        TIME         NULL,
+    occurrence_day         VARCHAR(10)  NULL,
+    created_at             DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at             DATETIME     NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    KEY idx_user_emotion (user_id, emotion_type)
+) COMMENT '情感记忆表';
+
+CREATE TABLE IF NOT EXISTS memory_fragments (
+    id                     BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id                BIGINT       NOT NULL,
+    memory_text            TEXT         NOT NULL,
+    memory_type            ENUM('fact', 'preference', 'important_event', 'emotion_pattern') NOT NULL,
+    importance_score       DECIMAL(3,2) NOT NULL DEFAULT 0.50,
+    last_accessed          DATETIME     NULL,
+    access_count           INT          NOT NULL DEFAULT 0,
+    related_keywords       JSON         NULL,
+    source_conversation_id BIGINT       NULL,
+    created_at             DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at             DATETIME     NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    KEY idx_user_type (user_id, memory_type)
+) COMMENT '记忆片段表';
+
+CREATE TABLE IF NOT EXISTS memory_access_logs (
+    id                   BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id              BIGINT       NOT NULL,
+    memory_id            BIGINT       NOT NULL,
+    conversation_id      BIGINT       NULL,
+    access_type          VARCHAR(20)  NOT NULL COMMENT 'retrieval / reference',
+    access_context       VARCHAR(200) NULL,
+    access_effectiveness TINYINT      NULL,
+    created_at           DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_memory_id (memory_id),
+    KEY idx_user_created (user_id, created_at)
+) COMMENT '记忆访问日志表';
+
+CREATE TABLE IF NOT EXISTS emotion_analysis_cache (
+    id                BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id           BIGINT       NULL,
+    text_content      TEXT         NOT NULL,
+    text_hash         CHAR(64)     NOT NULL,
+    emotion_result    JSON         NOT NULL,
+    confidence_score  DECIMAL(4,3) NULL,
+    analysis_method   VARCHAR(20)  NULL,
+    cache_valid_until DATETIME     NULL,
+    created_at        DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    KEY idx_text_hash (text_hash)
+) COMMENT '情感分析缓存表';
+
+CREATE TABLE IF NOT EXISTS user_emotion_profile (
+    id                            BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id                       BIGINT       NOT NULL,
+    emotion_stats                 JSON         NULL,
+    common_topics                 JSON         NULL,
+    preferred_response_style      VARCHAR(50)  NULL,
+    active_times                  JSON         NULL,
+    conversation_patterns         JSON         NULL,
+    emotional_understanding_score DECIMAL(4,3) NULL,
+    last_analysis_at              DATETIME     NULL,
+    updated_at                    DATETIME     NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_user_id (user_id)
+) COMMENT '用户情感画像表';
+
+CREATE TABLE IF NOT EXISTS ai_emotional_state (
+    user_id               BIGINT       NOT NULL PRIMARY KEY COMMENT 'users.id',
+    current_state         VARCHAR(20)  NOT NULL DEFAULT 'NEUTRAL',
+    energy_level          DECIMAL(3,2) NOT NULL DEFAULT 0.50,
+    last_state_change     DATETIME     NULL,
+    last_interaction_time DATETIME     NULL,
+    created_at            DATETIME     NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at            DATETIME     NULL
+) COMMENT 'AI情感状态表';
+
+CREATE TABLE IF NOT EXISTS relationship_growth (
+    id                            BIGINT   NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id                       BIGINT   NOT NULL,
+    intimacy_level                INT      NOT NULL DEFAULT 1,
+    intimacy_points               INT      NOT NULL DEFAULT 0,
+    trust_level                   INT      NOT NULL DEFAULT 1,
+    total_conversations           INT      NOT NULL DEFAULT 0,
+    meaningful_conversations      INT      NOT NULL DEFAULT 0,
+    positive_feedbacks            INT      NOT NULL DEFAULT 0,
+    unlocked_milestones           JSON     NULL,
+    special_memories              JSON     NULL,
+    emotional_understanding_level INT      NOT NULL DEFAULT 1,
+    last_level_up_date            DATETIME NULL,
+    created_at                    DATETIME NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at                    DATETIME NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_user_id (user_id)
+) COMMENT '关系成长表';
+
+CREATE TABLE IF NOT EXISTS user_preferences (
+    id                       BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    user_id                  BIGINT      NOT NULL,
+    response_style           VARCHAR(20) NULL,
+    conversation_pace        VARCHAR(20) NULL,
+    care_frequency           VARCHAR(20) NULL,
+    preferred_care_times     JSON        NULL,
+    study_reminders_enabled  TINYINT(1)  NOT NULL DEFAULT 1,
+    exam_support_enabled     TINYINT(1)  NOT NULL DEFAULT 1,
+    emotion_analysis_enabled TINYINT(1)  NOT NULL DEFAULT 1,
+    theme_color              VARCHAR(20) NULL,
+    font_size                VARCHAR(10) NULL,
+    created_at               DATETIME    NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at               DATETIME    NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_user_id (user_id)
+) COMMENT '用户偏好表';
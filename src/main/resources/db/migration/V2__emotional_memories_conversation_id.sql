@@ -0,0 +1,5 @@
+-- 情感记忆关联来源对话：对话链路与历史回填按对话ID写入，同一对话只保留一条；
+-- 批量分析接口写入的行没有对话ID，唯一键允许多个NULL
+ALTER TABLE emotional_memories
+    ADD COLUMN conversation_id BIGINT NULL COMMENT 'conversations.id，非对话产生的记录为NULL' AFTER user_id,
+    ADD UNIQUE KEY uk_conversation_id (conversation_id);
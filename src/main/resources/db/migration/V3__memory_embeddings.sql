@@ -0,0 +1,10 @@
+-- 记忆向量表：向量召回按记忆ID读取，落库时按记忆ID覆盖；此前按映射文件注释手工建过表的库跳过
+CREATE TABLE IF NOT EXISTS memory_embeddings (
+    memory_id  BIGINT      NOT NULL PRIMARY KEY COMMENT 'memory_fragments.id',
+    user_id    BIGINT      NOT NULL,
+    model      VARCHAR(64) NOT NULL COMMENT '生成向量的模型标识',
+    dimension  INT         NOT NULL,
+    vector     BLOB        NOT NULL COMMENT 'float32小端序',
+    created_at DATETIME    NOT NULL,
+    KEY idx_user_id (user_id)
+) COMMENT '记忆向量表';
@@ -0,0 +1,9 @@
+-- 记忆近似重复检测的指纹列（旧数据为NULL，加载指纹索引时按正文现算）
+-- 此前按映射文件注释手工加过该列的库跳过（MySQL不支持ADD COLUMN IF NOT EXISTS）
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.COLUMNS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'memory_fragments' AND COLUMN_NAME = 'simhash') = 0,
+              'ALTER TABLE memory_fragments ADD COLUMN simhash BIGINT NULL COMMENT ''记忆文本SimHash指纹'' AFTER source_conversation_id',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,9 @@
+-- 记忆搜索用的ngram全文索引（中文按ngram_token_size切分，默认2）
+-- 此前按映射文件注释手工建过该索引的库跳过
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.STATISTICS
+               WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'memory_fragments' AND INDEX_NAME = 'ft_memory_text') = 0,
+              'ALTER TABLE memory_fragments ADD FULLTEXT INDEX ft_memory_text (memory_text) WITH PARSER ngram',
+              'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,86 @@
+// File: src/test/java/com/zs/service/emotion/cache/EmotionCacheManagerTest.java
+package com.zs.service.emotion.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.service.emotion.dto.EmotionAnalysisDTO;
+import com.zs.service.emotion.dto.UserEmotionSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class EmotionCacheManagerTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private RedisCappedList cappedList;
+    private EmotionCacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        cappedList = mock(RedisCappedList.class);
+        cacheManager = new EmotionCacheManager(redisTemplate, cappedList, new ObjectMapper(),
+                mock(TrendingKeywords.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void legacyMigrationRunsOutsidePipelineOncePerUser() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenReturn(0L);
+
+        cacheManager.recordTurn(1L, emotion());
+        cacheManager.recordTurn(1L, emotion());
+
+        InOrder order = inOrder(redisTemplate, cappedList);
+        order.verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("emotion:user:1:keyword-rank", "emotion:user:1:keywords")), any());
+        order.verify(cappedList, times(2)).executePipelined(anyCollection(), any());
+        verify(redisTemplate, times(1)).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedMigrationIsRetriedAndDoesNotBlockTheTurn() {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any()))
+                .thenThrow(new IllegalStateException("redis down"))
+                .thenReturn(0L);
+
+        assertNotNull(cacheManager.recordTurn(1L, emotion()));
+        assertNotNull(cacheManager.recordTurn(1L, emotion()));
+        cacheManager.recordTurn(1L, emotion());
+
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), any());
+        verify(cappedList, times(3)).executePipelined(anyCollection(), any());
+    }
+
+    @Test
+    void snapshotToleratesMissingOptionalFields() {
+        EmotionAnalysisDTO emotion = EmotionAnalysisDTO.builder().primaryEmotion("CALM").build();
+
+        UserEmotionSnapshot snapshot = cacheManager.recordTurn(2L, emotion);
+
+        assertNotNull(snapshot);
+        assertNull(snapshot.getMetadata().get("context"));
+        assertNull(snapshot.getMetadata().get("source"));
+        verify(cappedList).executePipelined(anyCollection(), any());
+    }
+
+    private static EmotionAnalysisDTO emotion() {
+        return EmotionAnalysisDTO.builder()
+                .primaryEmotion("HAPPY")
+                .intensity(0.8)
+                .emotionKeywords(List.of("开心"))
+                .conversationContext("study")
+                .isMeaningful(true)
+                .source("KEYWORD")
+                .build();
+    }
+}
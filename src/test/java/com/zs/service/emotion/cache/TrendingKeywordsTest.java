@@ -0,0 +1,88 @@
+// File: src/test/java/com/zs/service/emotion/cache/TrendingKeywordsTest.java
+package com.zs.service.emotion.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TrendingKeywordsTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private TrendingKeywords trending;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        trending = new TrendingKeywords(redisTemplate);
+        ReflectionTestUtils.setField(trending, "enabled", true);
+        ReflectionTestUtils.setField(trending, "heavyHitters", 200);
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void flushAddsLocalCountToEveryRowAndRecordsMinimumAsEstimate() {
+        trending.record(Arrays.asList("开心", "开心", " ", null, "开心"));
+
+        RedisOperations operations = mock(RedisOperations.class);
+        HashOperations hashOperations = mock(HashOperations.class);
+        ZSetOperations zSetOperations = mock(ZSetOperations.class);
+        when(operations.opsForHash()).thenReturn(hashOperations);
+        when(operations.opsForZSet()).thenReturn(zSetOperations);
+        // 第一个管道返回各行计数器累加后的值，估计频次取最小值
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenAnswer(invocation -> {
+                    ((SessionCallback<?>) invocation.getArgument(0)).execute(operations);
+                    return List.of(5L, 3L, 4L, 7L);
+                })
+                .thenAnswer(invocation -> {
+                    ((SessionCallback<?>) invocation.getArgument(0)).execute(operations);
+                    return List.of();
+                });
+
+        trending.flush();
+
+        verify(hashOperations, times(4)).increment(startsWith("trending:cms:"), anyString(), eq(3L));
+        ArgumentCaptor<Set> estimates = ArgumentCaptor.forClass(Set.class);
+        verify(zSetOperations).add(startsWith("trending:top:"), estimates.capture());
+        ZSetOperations.TypedTuple<Object> estimate =
+                (ZSetOperations.TypedTuple<Object>) estimates.getValue().iterator().next();
+        assertEquals("开心", estimate.getValue());
+        assertEquals(3.0, estimate.getScore());
+        verify(zSetOperations).removeRange(startsWith("trending:top:"), eq(0L), eq(-201L));
+
+        // 本地计数已清空，再次合并不访问Redis
+        trending.flush();
+        verify(redisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void trendingSumsPerBucketEstimatesAcrossWindow() {
+        ZSetOperations<String, Object> zSetOperations = mock(ZSetOperations.class);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.hasKey(anyString())).thenReturn(true);
+        when(zSetOperations.reverseRange(anyString(), eq(0L), eq(3L)))
+                .thenReturn(new LinkedHashSet<>(List.of("开心", "难过", "平静")));
+        // 两个桶，每个桶按 词 x 行 返回计数器（缺失为null）
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(List.of(
+                Arrays.asList("5", "6", "5", "9", "1", "2", "1", "3", null, null, null, null),
+                Arrays.asList("2", null, "4", "4", "8", "8", "9", "8", "0", "0", "1", "0")));
+
+        List<Map<String, Object>> result = trending.getTrending(2, 2);
+
+        assertEquals(2, result.size());
+        assertEquals("难过", result.get(0).get("keyword"));
+        assertEquals(9L, result.get(0).get("count"));
+        assertEquals("开心", result.get(1).get("keyword"));
+        assertEquals(5L, result.get(1).get("count"));
+    }
+}
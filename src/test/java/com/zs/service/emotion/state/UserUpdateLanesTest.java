@@ -0,0 +1,147 @@
+// File: src/test/java/com/zs/service/emotion/state/UserUpdateLanesTest.java
+package com.zs.service.emotion.state;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserUpdateLanesTest {
+
+    private UserUpdateLanes lanes;
+
+    @AfterEach
+    void tearDown() {
+        if (lanes != null) {
+            lanes.shutdown();
+        }
+    }
+
+    @Test
+    void tasksOfOneUserRunInSubmissionOrder() throws Exception {
+        lanes = newLanes(4, 1000);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Void> last = null;
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            last = lanes.submit(7L, () -> order.add(n));
+        }
+        last.get(5, TimeUnit.SECONDS);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, order);
+    }
+
+    @Test
+    void fullQueueBlocksSubmitterUntilSpaceFrees() throws Exception {
+        lanes = newLanes(1, 1);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = lanes.submit(1L, () -> {
+            running.countDown();
+            await(release);
+        });
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> queued = lanes.submit(2L, () -> { });
+
+        // 队列已满：第三个提交方等待空位，而不是丢弃
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<CompletableFuture<Void>> waiting =
+                CompletableFuture.supplyAsync(() -> lanes.submit(3L, () -> ran.add(3)));
+        assertThrows(TimeoutException.class, () -> waiting.get(200, TimeUnit.MILLISECONDS));
+
+        release.countDown();
+        waiting.get(5, TimeUnit.SECONDS).get(5, TimeUnit.SECONDS);
+        first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(3), ran);
+        assertEquals(1L, laneStat("blocked"));
+        assertEquals(0L, laneStat("rejected"));
+    }
+
+    @Test
+    void fullQueueRejectsAfterSubmitTimeout() throws Exception {
+        lanes = new UserUpdateLanes();
+        ReflectionTestUtils.setField(lanes, "laneCount", 1);
+        ReflectionTestUtils.setField(lanes, "queueCapacity", 1);
+        ReflectionTestUtils.setField(lanes, "submitTimeoutMs", 50L);
+        lanes.init();
+        CountDownLatch release = new CountDownLatch(1);
+        lanes.submit(1L, () -> await(release));
+        lanes.submit(2L, () -> { });
+
+        CompletableFuture<Void> rejected = lanes.submit(3L, () -> { });
+        release.countDown();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertEquals(1L, laneStat("rejected"));
+    }
+
+    @Test
+    void failedTaskCompletesExceptionallyAndLaneKeepsRunning() throws Exception {
+        lanes = newLanes(1, 10);
+        CompletableFuture<Void> failed = lanes.submit(1L, () -> {
+            throw new IllegalStateException("boom");
+        });
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+
+        lanes.submit(1L, () -> { }).get(5, TimeUnit.SECONDS);
+        assertEquals(1L, laneStat("failed"));
+    }
+
+    @Test
+    void nestedSubmitOnSameLaneRunsInline() throws Exception {
+        lanes = newLanes(1, 10);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        lanes.submit(1L, () -> {
+            order.add("outer");
+            // 同一通道内等待自己提交的任务不会死锁
+            lanes.submit(2L, () -> order.add("inner")).join();
+            order.add("after");
+        }).get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("outer", "inner", "after"), order);
+    }
+
+    @Test
+    void submitAfterShutdownIsRejected() {
+        lanes = newLanes(1, 10);
+        lanes.shutdown();
+
+        CompletableFuture<Void> future = lanes.submit(1L, () -> { });
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    private static UserUpdateLanes newLanes(int count, int capacity) {
+        UserUpdateLanes lanes = new UserUpdateLanes();
+        ReflectionTestUtils.setField(lanes, "laneCount", count);
+        ReflectionTestUtils.setField(lanes, "queueCapacity", capacity);
+        lanes.init();
+        return lanes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long laneStat(String name) {
+        List<Map<String, Object>> laneStats = (List<Map<String, Object>>) lanes.getStats().get("laneStats");
+        return laneStats.stream().mapToLong(stat -> ((Number) stat.get(name)).longValue()).sum();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
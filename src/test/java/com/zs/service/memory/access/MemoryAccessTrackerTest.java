@@ -0,0 +1,140 @@
+// File: src/test/java/com/zs/service/memory/access/MemoryAccessTrackerTest.java
+package com.zs.service.memory.access;
+
+import com.zs.entity.MemoryAccessLogs;
+import com.zs.entity.MemoryFragments;
+import com.zs.mapper.MemoryAccessLogsMapper;
+import com.zs.service.memory.repository.MemoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoryAccessTrackerTest {
+
+    private MemoryRepository memoryRepository;
+    private MemoryAccessLogsMapper memoryAccessLogsMapper;
+    private MemoryAccessTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        memoryRepository = mock(MemoryRepository.class);
+        memoryAccessLogsMapper = mock(MemoryAccessLogsMapper.class);
+        tracker = new MemoryAccessTracker(memoryRepository, memoryAccessLogsMapper);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedCounterWriteIsRebufferedAndMergedIntoNextFlush() {
+        when(memoryRepository.batchIncrementAccess(anyList(), anyInt()))
+                .thenThrow(new RuntimeException("db down"))
+                .thenReturn(2);
+
+        tracker.record(1L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        tracker.record(1L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        tracker.record(2L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        tracker.flush();
+
+        assertEquals(2, tracker.getStats().get("pendingMemories"));
+        assertEquals(1L, tracker.getStats().get("failures"));
+
+        tracker.record(1L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        tracker.flush();
+
+        ArgumentCaptor<List<MemoryFragments>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(memoryRepository, times(2)).batchIncrementAccess(deltas.capture(), anyInt());
+        Map<Long, Integer> counts = new HashMap<>();
+        for (MemoryFragments delta : deltas.getValue()) {
+            counts.put(delta.getId(), delta.getAccessCount());
+        }
+        assertEquals(Map.of(1L, 3, 2L, 1), counts);
+        assertEquals(0, tracker.getStats().get("pendingMemories"));
+        assertEquals(2L, tracker.getStats().get("flushedMemories"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void messageTextIsNotLoggedByDefault() {
+        tracker.recordAll(List.of(memory(1L), memory(2L)), 10L, null, MemoryAccessTracker.RETRIEVAL, "我最近总是失眠");
+        tracker.flush();
+
+        ArgumentCaptor<List<MemoryAccessLogs>> logs = ArgumentCaptor.forClass(List.class);
+        verify(memoryAccessLogsMapper).insertBatch(logs.capture());
+        assertEquals(2, logs.getValue().size());
+        for (MemoryAccessLogs accessLog : logs.getValue()) {
+            assertNull(accessLog.getAccessContext());
+            assertEquals(MemoryAccessTracker.RETRIEVAL, accessLog.getAccessType());
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void contextIsTruncatedWhenEnabled() {
+        ReflectionTestUtils.setField(tracker, "logContext", true);
+        tracker.record(1L, 10L, null, MemoryAccessTracker.REFERENCE, "长".repeat(300));
+        tracker.flush();
+
+        ArgumentCaptor<List<MemoryAccessLogs>> logs = ArgumentCaptor.forClass(List.class);
+        verify(memoryAccessLogsMapper).insertBatch(logs.capture());
+        assertEquals(200, logs.getValue().get(0).getAccessContext().length());
+    }
+
+    @Test
+    void logsAreDroppedBeyondPendingLimitButCountsAreKept() {
+        ReflectionTestUtils.setField(tracker, "maxPendingLogs", 2);
+        for (int i = 0; i < 5; i++) {
+            tracker.record(1L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        }
+
+        assertEquals(2, tracker.getStats().get("pendingLogs"));
+        assertEquals(3L, tracker.getStats().get("droppedLogs"));
+        assertEquals(5L, tracker.getStats().get("recorded"));
+    }
+
+    @Test
+    void shutdownWaitsForRunningFlushThenDrainsRemainder() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(memoryRepository.batchIncrementAccess(anyList(), anyInt()))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return 1;
+                })
+                .thenReturn(1);
+
+        tracker.record(1L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        Thread scheduled = new Thread(tracker::flush);
+        scheduled.start();
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        // 定时写入进行中：再次flush直接跳过，shutdown等它结束后写完剩余缓冲
+        tracker.record(2L, 10L, null, MemoryAccessTracker.RETRIEVAL, null);
+        tracker.flush();
+        verify(memoryRepository, times(1)).batchIncrementAccess(anyList(), anyInt());
+
+        Thread stopping = new Thread(tracker::shutdown);
+        stopping.start();
+        stopping.join(200);
+        assertTrue(stopping.isAlive());
+
+        release.countDown();
+        stopping.join(5000);
+        scheduled.join(5000);
+        assertFalse(stopping.isAlive());
+        verify(memoryRepository, times(2)).batchIncrementAccess(anyList(), anyInt());
+        assertEquals(0, tracker.getStats().get("pendingMemories"));
+    }
+
+    private static MemoryFragments memory(Long id) {
+        return MemoryFragments.builder().id(id).build();
+    }
+}
@@ -0,0 +1,38 @@
+// File: src/test/java/com/zs/service/memory/cache/FrequencySketchTest.java
+package com.zs.service.memory.cache;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FrequencySketchTest {
+
+    @Test
+    void countsIncrementsAndCapsAtFifteen() {
+        MemoryTieredCache.FrequencySketch sketch = new MemoryTieredCache.FrequencySketch(64);
+        assertEquals(0, sketch.frequency(42L));
+
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(42L);
+        }
+        assertEquals(10, sketch.frequency(42L));
+
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(42L);
+        }
+        assertEquals(15, sketch.frequency(42L));
+    }
+
+    @Test
+    void halvesCountersAfterSampleSize() {
+        // 宽度64，累计640次有效写入后减半
+        MemoryTieredCache.FrequencySketch sketch = new MemoryTieredCache.FrequencySketch(64);
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(1L);
+        }
+        for (long key = 2; key < 2 + 625; key++) {
+            sketch.increment(key);
+        }
+        assertEquals(7, sketch.frequency(1L));
+    }
+}
@@ -0,0 +1,118 @@
+// File: src/test/java/com/zs/service/memory/cache/LocalTierTest.java
+package com.zs.service.memory.cache;
+
+import com.zs.entity.MemoryFragments;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalTierTest {
+
+    private static final long TTL = 60_000;
+
+    @Test
+    void putAndGetTrackWeightPerView() {
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(1 << 20, TTL, 1);
+        List<MemoryFragments> all = memories(1, 10);
+        List<MemoryFragments> facts = memories(2, 20);
+
+        tier.put(1L, "all", all, tier.generation(1L));
+        assertSame(all, tier.get(1L, "all"));
+        assertEquals(MemoryTieredCache.LocalTier.weigh(Map.of("all", all)), tier.weight());
+
+        tier.put(1L, "fact", facts, tier.generation(1L));
+        assertEquals(MemoryTieredCache.LocalTier.weigh(Map.of("all", all, "fact", facts)), tier.weight());
+
+        // 替换视图时按新条目重新计重，不重复累加
+        tier.put(1L, "all", List.of(), tier.generation(1L));
+        assertEquals(MemoryTieredCache.LocalTier.weigh(Map.of("all", List.of(), "fact", facts)), tier.weight());
+        assertEquals(1, tier.size());
+
+        tier.invalidate(1L);
+        assertNull(tier.get(1L, "fact"));
+        assertEquals(0, tier.weight());
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    void putWithStaleGenerationIsIgnored() {
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(1 << 20, TTL, 1);
+        long generation = tier.generation(1L);
+        tier.invalidate(1L);
+
+        tier.put(1L, "all", memories(1, 10), generation);
+        assertNull(tier.get(1L, "all"));
+        assertEquals(0, tier.weight());
+    }
+
+    @Test
+    void oversizedEntryIsRejected() {
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(500, TTL, 1);
+
+        tier.put(1L, "all", memories(1, 200), tier.generation(1L));
+        assertNull(tier.get(1L, "all"));
+        assertEquals(0, tier.weight());
+        assertEquals(1L, tier.stats().get("rejections"));
+    }
+
+    @Test
+    void coldUserIsNotAdmittedOverHotUser() {
+        // 每个条目 128 + 48 + 240 + 2*100 = 616，容量只够一个
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(1000, TTL, 1);
+        tier.get(1L, "all");
+        tier.put(1L, "all", memories(1, 100), tier.generation(1L));
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(tier.get(1L, "all"));
+        }
+
+        tier.get(2L, "all");
+        tier.put(2L, "all", memories(1, 100), tier.generation(2L));
+        assertNull(tier.get(2L, "all"));
+        assertNotNull(tier.get(1L, "all"));
+        assertEquals(1L, tier.stats().get("rejections"));
+
+        // 访问频率超过现有用户后替换它
+        for (int i = 0; i < 10; i++) {
+            tier.get(2L, "all");
+        }
+        tier.put(2L, "all", memories(1, 100), tier.generation(2L));
+        assertNotNull(tier.get(2L, "all"));
+        assertNull(tier.get(1L, "all"));
+        assertEquals(616, tier.weight());
+        assertEquals(1L, tier.stats().get("evictions"));
+    }
+
+    @Test
+    void expiredEntryIsDroppedOnRead() {
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(1 << 20, 0, 1);
+
+        tier.put(1L, "all", memories(1, 10), tier.generation(1L));
+        assertNull(tier.get(1L, "all"));
+        assertEquals(0, tier.weight());
+    }
+
+    @Test
+    void segmentsAggregateSizeAndWeight() {
+        MemoryTieredCache.LocalTier tier = new MemoryTieredCache.LocalTier(1 << 20, TTL, 3);
+        assertEquals(4, tier.stats().get("segments"));
+
+        long expected = 0;
+        for (long userId = 1; userId <= 100; userId++) {
+            List<MemoryFragments> memories = memories(1, (int) userId % 7);
+            tier.put(userId, "all", memories, tier.generation(userId));
+            expected += MemoryTieredCache.LocalTier.weigh(Map.of("all", memories));
+        }
+        assertEquals(100, tier.size());
+        assertEquals(expected, tier.weight());
+    }
+
+    private static List<MemoryFragments> memories(int count, int textLength) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> MemoryFragments.builder().id((long) i).memoryText("记".repeat(textLength)).build())
+                .toList();
+    }
+}
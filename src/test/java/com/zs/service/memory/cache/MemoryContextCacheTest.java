@@ -0,0 +1,68 @@
+// File: src/test/java/com/zs/service/memory/cache/MemoryContextCacheTest.java
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.entity.MemoryFragments;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoryContextCacheTest {
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private MemoryKeywordIndex keywordIndex;
+    private MemoryContextCache cache;
+
+    private final Supplier<List<MemoryFragments>> activeMemories = List::of;
+    private final List<MemoryFragments> recalled = List.of(MemoryFragments.builder().id(1L).build());
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        keywordIndex = mock(MemoryKeywordIndex.class);
+        cache = new MemoryContextCache(redisTemplate, new ObjectMapper(), keywordIndex);
+        ReflectionTestUtils.setField(cache, "recallMode", "keyword");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void messagesHittingSameIndexTermsShareOneField() {
+        when(keywordIndex.matchedTerms(eq(1L), anyString(), any())).thenReturn(new TreeSet<>(List.of("咖啡", "拿铁")));
+
+        cache.get(1L, "今天喝了拿铁咖啡", 5, 0.3, activeMemories, () -> recalled);
+        cache.get(1L, "咖啡，还是拿铁好喝？", 5, 0.3, activeMemories, () -> recalled);
+
+        ArgumentCaptor<Object> fields = ArgumentCaptor.forClass(Object.class);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(), fields.capture(), any());
+        assertEquals(fields.getAllValues().get(0), fields.getAllValues().get(1));
+    }
+
+    @Test
+    void messageWithoutIndexHitsIsNotCached() {
+        when(keywordIndex.matchedTerms(eq(1L), anyString(), any())).thenReturn(new TreeSet<>());
+
+        assertSame(recalled, cache.get(1L, "今天天气不错", 5, 0.3, activeMemories, () -> recalled));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void vectorAndHybridRecallBypassCache() {
+        for (String mode : List.of("vector", "hybrid")) {
+            ReflectionTestUtils.setField(cache, "recallMode", mode);
+            assertSame(recalled, cache.get(1L, "今天喝了拿铁咖啡", 5, 0.3, activeMemories, () -> recalled));
+        }
+        verifyNoInteractions(redisTemplate, keywordIndex);
+    }
+}
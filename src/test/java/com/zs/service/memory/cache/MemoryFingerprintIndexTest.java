@@ -0,0 +1,86 @@
+// File: src/test/java/com/zs/service/memory/cache/MemoryFingerprintIndexTest.java
+package com.zs.service.memory.cache;
+
+import com.zs.entity.MemoryFragments;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryFingerprintIndexTest {
+
+    @Test
+    void normalizeDropsPunctuationFillersAndSentenceParticles() {
+        assertEquals("我喜欢猫", MemoryFingerprintIndex.normalize("是我喜欢猫的呀！"));
+        assertEquals("iphone15", MemoryFingerprintIndex.normalize(" iPhone 15 "));
+        assertEquals("", MemoryFingerprintIndex.normalize(null));
+    }
+
+    @Test
+    void fingerprintIgnoresWordingNoise() {
+        assertEquals(0L, MemoryFingerprintIndex.fingerprint(""));
+        assertEquals(0L, MemoryFingerprintIndex.fingerprint("，。！"));
+        assertEquals(MemoryFingerprintIndex.fingerprint("用户喜欢喝咖啡"),
+                MemoryFingerprintIndex.fingerprint("是用户喜欢喝咖啡了呀！"));
+    }
+
+    @Test
+    void similarTextsAreCloserThanUnrelatedOnes() {
+        long base = MemoryFingerprintIndex.fingerprint("用户喜欢喝美式咖啡，每天早上一杯，不加糖");
+        long similar = MemoryFingerprintIndex.fingerprint("用户喜欢喝美式咖啡，每天早上一杯，不加奶");
+        long unrelated = MemoryFingerprintIndex.fingerprint("用户下个月要去北京参加研究生考试");
+
+        int near = MemoryFingerprintIndex.distance(base, similar);
+        int far = MemoryFingerprintIndex.distance(base, unrelated);
+        assertTrue(near < far, "near=" + near + ", far=" + far);
+        assertTrue(far > 7, "far=" + far);
+    }
+
+    @Test
+    void nearestMatchesSameTypeWithinDistance() {
+        MemoryFingerprintIndex.UserFingerprints index = MemoryFingerprintIndex.UserFingerprints.EMPTY.with(List.of(
+                memory(1L, "fact", 0L),
+                memory(2L, "fact", 0xFFL),
+                memory(3L, "preference", 0b111L)), Set.of());
+
+        assertEquals(1L, index.nearest("fact", 0b1L, 7));
+        assertEquals(3L, index.nearest("preference", 0b1L, 7));
+        assertEquals(2L, index.nearest("fact", 0xFEL, 1));
+        assertNull(index.nearest("preference", 0xFF00L, 7));
+        assertNull(index.nearest("event", 0L, 7));
+    }
+
+    @Test
+    void nearestScansAllEntriesBeyondIndexedDistance() {
+        // 每个分块各差1位，没有相同分块，只能逐条比较
+        long spread = 0x0101010101010101L;
+        MemoryFingerprintIndex.UserFingerprints index = MemoryFingerprintIndex.UserFingerprints.EMPTY
+                .with(List.of(memory(1L, "fact", spread)), Set.of());
+
+        assertNull(index.nearest("fact", 0L, 7));
+        assertEquals(1L, index.nearest("fact", 0L, 8));
+    }
+
+    @Test
+    void withReplacesAndRemovesEntries() {
+        MemoryFingerprintIndex.UserFingerprints index = MemoryFingerprintIndex.UserFingerprints.EMPTY.with(List.of(
+                memory(1L, "fact", 0L),
+                memory(2L, "fact", -1L)), Set.of());
+
+        MemoryFingerprintIndex.UserFingerprints updated = index.with(List.of(memory(1L, "fact", 0xF0F0L)), Set.of(2L));
+        assertNull(updated.nearest("fact", 0L, 7));
+        assertEquals(1L, updated.nearest("fact", 0xF0F0L, 0));
+        assertNull(updated.nearest("fact", -1L, 7));
+
+        // 没有指纹时按正文计算
+        MemoryFragments legacy = MemoryFragments.builder().id(9L).memoryType("fact").memoryText("用户养了一只猫").build();
+        MemoryFingerprintIndex.UserFingerprints withLegacy = updated.with(List.of(legacy), Set.of());
+        assertEquals(9L, withLegacy.nearest("fact", MemoryFingerprintIndex.fingerprint("用户养了一只猫"), 0));
+    }
+
+    private static MemoryFragments memory(Long id, String type, long simhash) {
+        return MemoryFragments.builder().id(id).memoryType(type).memoryText("记忆" + id).simhash(simhash).build();
+    }
+}
@@ -0,0 +1,89 @@
+// File: src/test/java/com/zs/service/memory/cache/MemoryKeywordIndexTest.java
+package com.zs.service.memory.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zs.entity.MemoryFragments;
+import com.zs.service.nlp.ChineseSegmenter;
+import com.zs.service.redis.NearCache;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MemoryKeywordIndexTest {
+
+    private static final Long USER = 1L;
+
+    private final NearCache nearCache = mock(NearCache.class);
+    private final MemoryKeywordIndex index = new MemoryKeywordIndex(nearCache, new ObjectMapper(), new ChineseSegmenter());
+    private final List<MemoryFragments> stored = List.of(
+            memory(1L, "用户喜欢喝拿铁咖啡", "[\"咖啡\",\"拿铁\"]", "0.5"),
+            memory(2L, "用户养了一只猫", "[\"猫\"]", "0.9"),
+            memory(3L, "用户在上海工作", "[\"上海\",\"工作\"]", "0.1"));
+
+    @Test
+    void scoresByMatchedKeywordsAndImportance() {
+        MemoryKeywordIndex.UserIndex userIndex = index.build(stored);
+
+        // 1: 2 x 0.3 + 0.5 x 0.5 = 0.85
+        assertEquals(List.of(1L), ids(userIndex.search("今天又喝了一杯拿铁咖啡", 5, 0.2)));
+        // 2: 0.3 + 0.45 = 0.75 高于 1: 0.3 + 0.25 = 0.55
+        assertEquals(List.of(2L, 1L), ids(userIndex.search("咖啡洒在猫身上了", 5, 0.2)));
+        assertEquals(List.of(2L), ids(userIndex.search("咖啡洒在猫身上了", 1, 0.2)));
+        assertTrue(userIndex.search("今天天气不错", 5, 0.2).isEmpty());
+        // 3: 0.3 + 0.05 = 0.35
+        assertEquals(List.of(3L), ids(userIndex.search("上海", 5, 0.2)));
+        assertTrue(userIndex.search("上海", 5, 0.4).isEmpty());
+    }
+
+    @Test
+    void returnsCopiesOfIndexedMemories() {
+        MemoryKeywordIndex.UserIndex userIndex = index.build(stored);
+        userIndex.search("猫", 5, 0.2).get(0).setMemoryText("被调用方改掉");
+        stored.get(1).setImportanceScore(BigDecimal.ZERO);
+
+        MemoryFragments memory = userIndex.search("猫", 5, 0.2).get(0);
+        assertEquals("用户养了一只猫", memory.getMemoryText());
+        assertEquals(0, new BigDecimal("0.9").compareTo(memory.getImportanceScore()));
+    }
+
+    @Test
+    void removePatchesLocalIndex() {
+        when(nearCache.peek(NearCache.MEMORY_INDEX, USER)).thenReturn(index.build(stored));
+
+        index.remove(USER, List.of(2L));
+
+        ArgumentCaptor<MemoryKeywordIndex.UserIndex> patched = ArgumentCaptor.forClass(MemoryKeywordIndex.UserIndex.class);
+        verify(nearCache).put(eq(NearCache.MEMORY_INDEX), eq(USER), patched.capture());
+        assertTrue(patched.getValue().search("猫", 5, 0.2).isEmpty());
+        assertEquals(List.of(1L), ids(patched.getValue().search("咖啡", 5, 0.2)));
+        verify(nearCache, never()).evict(any(), any());
+    }
+
+    @Test
+    void removeWithoutLocalIndexOnlyEvicts() {
+        index.remove(USER, List.of(2L));
+
+        verify(nearCache).evict(NearCache.MEMORY_INDEX, USER);
+        verify(nearCache, never()).put(any(), any(), any());
+    }
+
+    private static List<Long> ids(List<MemoryFragments> memories) {
+        return memories.stream().map(MemoryFragments::getId).toList();
+    }
+
+    private static MemoryFragments memory(Long id, String text, String keywords, String importance) {
+        return MemoryFragments.builder()
+                .id(id)
+                .userId(USER)
+                .memoryText(text)
+                .relatedKeywords(keywords)
+                .importanceScore(new BigDecimal(importance))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+// File: src/test/java/com/zs/service/memory/cache/MemoryVectorIndexTest.java
+package com.zs.service.memory.cache;
+
+import com.zs.entity.MemoryFragments;
+import com.zs.service.memory.embedding.EmbeddingProvider;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryVectorIndexTest {
+
+    private static final float[] X = {1f, 0f, 0f};
+    private static final float[] Y = {0f, 1f, 0f};
+    private static final float[] XY = EmbeddingProvider.normalize(new float[]{1f, 1f, 0f});
+
+    @Test
+    void searchRanksByCosineAndAppliesThreshold() {
+        MemoryVectorIndex.UserVectors vectors = MemoryVectorIndex.UserVectors.EMPTY
+                .with(List.of(memory(1L), memory(2L), memory(3L)), List.of(X, Y, XY));
+
+        assertEquals(List.of(1L, 3L), ids(vectors.search(X, 5, 0.5f)));
+        assertEquals(List.of(1L), ids(vectors.search(X, 1, 0.5f)));
+        List<Long> nearXY = ids(vectors.search(XY, 5, 0.5f));
+        assertEquals(3L, nearXY.get(0));
+        assertEquals(Set.of(1L, 2L), Set.copyOf(nearXY.subList(1, 3)));
+        assertTrue(vectors.search(new float[]{0f, 0f, 0f}, 5, 0f).isEmpty());
+        assertTrue(vectors.search(new float[]{1f, 0f}, 5, 0f).isEmpty());
+    }
+
+    @Test
+    void withoutRemovesEntriesAndKeepsOthersSearchable() {
+        MemoryVectorIndex.UserVectors vectors = MemoryVectorIndex.UserVectors.EMPTY
+                .with(List.of(memory(1L), memory(2L), memory(3L)), List.of(X, Y, XY));
+
+        MemoryVectorIndex.UserVectors remaining = vectors.without(Set.of(1L));
+        assertEquals(2, remaining.size());
+        assertEquals(List.of(3L), ids(remaining.search(X, 5, 0.5f)));
+        assertEquals(List.of(2L), ids(remaining.search(Y, 1, 0.9f)));
+        assertSame(vectors, vectors.without(Set.of(9L)));
+    }
+
+    @Test
+    void withRejectsMismatchedDimension() {
+        MemoryVectorIndex.UserVectors vectors = MemoryVectorIndex.UserVectors.EMPTY.with(List.of(memory(1L)), List.of(X));
+        assertThrows(IllegalArgumentException.class,
+                () -> vectors.with(List.of(memory(2L)), List.of(new float[]{1f, 0f})));
+    }
+
+    @Test
+    void fillKeepsPrimaryOrderAndDeduplicates() {
+        List<MemoryFragments> merged = MemoryVectorIndex.fill(
+                List.of(memory(1L), memory(2L)), List.of(memory(2L), memory(3L), memory(4L)), 3);
+        assertEquals(List.of(1L, 2L, 3L), ids(merged));
+    }
+
+    private static MemoryFragments memory(Long id) {
+        return MemoryFragments.builder().id(id).memoryText("记忆" + id).build();
+    }
+
+    private static List<Long> ids(List<MemoryFragments> memories) {
+        return memories.stream().map(MemoryFragments::getId).toList();
+    }
+}
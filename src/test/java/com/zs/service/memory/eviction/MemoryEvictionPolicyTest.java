@@ -0,0 +1,79 @@
+// File: src/test/java/com/zs/service/memory/eviction/MemoryEvictionPolicyTest.java
+package com.zs.service.memory.eviction;
+
+import com.zs.entity.MemoryFragments;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryEvictionPolicyTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long NOW = 1_000_000 * HOUR;
+
+    private final MemoryEvictionPolicy policy = new MemoryEvictionPolicy();
+
+    @Test
+    void importanceDominatesWhenOtherwiseEqual() {
+        assertTrue(policy.score(memory(1L, "0.9", 0, 24), NOW) > policy.score(memory(2L, "0.3", 0, 24), NOW));
+    }
+
+    @Test
+    void recencyDecaysWithHalfLife() {
+        double fresh = policy.score(memory(1L, "0.5", 0, 0), NOW);
+        double weekOld = policy.score(memory(2L, "0.5", 0, 168), NOW);
+        // 新近度权重0.25，一个半衰期后减半
+        assertEquals(0.125, fresh - weekOld, 1e-9);
+    }
+
+    @Test
+    void frequencySaturatesAndFadesWithIdleTime() {
+        assertEquals(policy.score(memory(1L, "0.5", 20, 0), NOW), policy.score(memory(2L, "0.5", 200, 0), NOW), 1e-9);
+        assertTrue(policy.score(memory(1L, "0.5", 10, 0), NOW) > policy.score(memory(2L, "0.5", 0, 0), NOW));
+
+        double frequencyFresh = policy.score(memory(1L, "0", 20, 0), NOW) - policy.score(memory(2L, "0", 0, 0), NOW);
+        double frequencyIdle = policy.score(memory(1L, "0", 20, 720), NOW) - policy.score(memory(2L, "0", 0, 720), NOW);
+        assertEquals(0.15, frequencyFresh, 1e-9);
+        assertEquals(0.075, frequencyIdle, 1e-9);
+    }
+
+    @Test
+    void fallsBackToCreatedAtAndHandlesMissingFields() {
+        MemoryFragments created = MemoryFragments.builder().id(1L).importanceScore(new BigDecimal("0.5"))
+                .createdAt(new Date(NOW)).build();
+        assertEquals(policy.score(memory(2L, "0.5", 0, 0), NOW), policy.score(created, NOW), 1e-9);
+
+        MemoryFragments empty = MemoryFragments.builder().id(3L).build();
+        assertEquals(0.0, policy.score(empty, NOW), 1e-9);
+    }
+
+    @Test
+    void selectsLowestScoringVictims() {
+        List<MemoryFragments> memories = List.of(
+                memory(1L, "0.9", 5, 1),
+                memory(2L, "0.1", 0, 2000),
+                memory(3L, "0.5", 3, 10),
+                memory(4L, "0.2", 0, 500),
+                memory(5L, "0.8", 0, 100));
+
+        assertEquals(Set.of(2L, 4L), Set.copyOf(policy.selectVictims(memories, 2, NOW)));
+        assertEquals(Set.of(1L, 2L, 3L, 4L, 5L), Set.copyOf(policy.selectVictims(memories, 9, NOW)));
+        assertTrue(policy.selectVictims(memories, 0, NOW).isEmpty());
+        assertTrue(policy.selectVictims(List.of(), 3, NOW).isEmpty());
+    }
+
+    private static MemoryFragments memory(Long id, String importance, int accessCount, long idleHours) {
+        return MemoryFragments.builder()
+                .id(id)
+                .importanceScore(new BigDecimal(importance))
+                .accessCount(accessCount)
+                .lastAccessed(new Date(NOW - idleHours * HOUR))
+                .createdAt(new Date(NOW - 10_000 * HOUR))
+                .build();
+    }
+}
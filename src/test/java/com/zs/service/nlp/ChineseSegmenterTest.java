@@ -0,0 +1,73 @@
+// File: src/test/java/com/zs/service/nlp/ChineseSegmenterTest.java
+package com.zs.service.nlp;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChineseSegmenterTest {
+
+    @Test
+    void dictionaryMatchesLongestWordInBothDirections() {
+        ChineseSegmenter.Dictionary dictionary = new ChineseSegmenter.Dictionary(List.of("研究", "研究生", "生命", "起源"));
+        String text = "研究生命起源";
+
+        assertEquals(3, dictionary.forwardMatch(text, 0, text.length()));
+        assertEquals(1, dictionary.forwardMatch(text, 3, text.length()));
+        assertEquals(2, dictionary.backwardMatch(text, 0, text.length()));
+        assertEquals(2, dictionary.backwardMatch(text, 0, 4));
+        // 匹配不越过区间边界
+        assertEquals(2, dictionary.forwardMatch(text, 0, 2));
+        assertEquals(1, dictionary.backwardMatch(text, 3, 4));
+    }
+
+    @Test
+    void prefersDirectionWithFewerSingleCharacters() {
+        ChineseSegmenter segmenter = new ChineseSegmenter();
+
+        // 正向：研究生/命/起源，逆向：研究/生命/起源，词数相同取单字少的逆向
+        segmenter.addWords(List.of("研究", "研究生", "生命", "起源"));
+        assertEquals(List.of("研究", "生命", "起源"), segmenter.segment("研究生命起源"));
+
+        // 正向：市长/江大桥，逆向：市/长江大桥，词数相同取单字少的正向
+        segmenter.addWords(List.of("市长", "江大桥", "长江大桥"));
+        assertEquals(List.of("市长", "江大桥"), segmenter.segment("市长江大桥"));
+    }
+
+    @Test
+    void keepsAlphanumericRunsAndDropsPunctuation() {
+        ChineseSegmenter segmenter = new ChineseSegmenter();
+        segmenter.addWords(List.of("手机"));
+
+        List<String> tokens = segmenter.segment("手机是iPhone15，好用！");
+        assertTrue(tokens.contains("手机"));
+        assertTrue(tokens.contains("iphone15"));
+        assertFalse(tokens.contains("，"));
+        assertFalse(tokens.contains("！"));
+    }
+
+    @Test
+    void keywordsJoinUnknownCharactersAndRespectLimit() {
+        ChineseSegmenter segmenter = new ChineseSegmenter();
+        segmenter.addWords(List.of("喜欢"));
+
+        // "螺蛳粉"不在词典中，由连续未登录单字拼成
+        List<String> keywords = segmenter.keywords("我喜欢螺蛳粉", 10);
+        assertTrue(keywords.contains("喜欢"));
+        assertTrue(keywords.contains("螺蛳粉"));
+        assertEquals(1, segmenter.keywords("我喜欢螺蛳粉", 1).size());
+        assertTrue(segmenter.keywords(null, 10).isEmpty());
+    }
+
+    @Test
+    void addWordsRebuildsOnlyForNewWords() {
+        ChineseSegmenter segmenter = new ChineseSegmenter();
+        int size = segmenter.dictionarySize();
+
+        segmenter.addWords(List.of("量子纠缠", "量子纠缠", "x"));
+        assertEquals(size + 1, segmenter.dictionarySize());
+        assertEquals(List.of("量子纠缠"), segmenter.segment("量子纠缠"));
+    }
+}
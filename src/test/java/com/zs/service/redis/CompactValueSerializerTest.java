@@ -0,0 +1,73 @@
+// File: src/test/java/com/zs/service/redis/CompactValueSerializerTest.java
+package com.zs.service.redis;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactValueSerializerTest {
+
+    private final GenericJackson2JsonRedisSerializer json = new GenericJackson2JsonRedisSerializer(new ObjectMapper());
+
+    @Test
+    void valuesBelowThresholdStayPlainJson() {
+        CompactValueSerializer serializer = new CompactValueSerializer(json, 4096);
+        List<String> small = List.of("开心", "考试");
+
+        assertArrayEquals(json.serialize(small), serializer.serialize(small));
+        assertEquals(small, serializer.deserialize(json.serialize(small)));
+    }
+
+    @Test
+    void largeValuesAreCompressedAndReadBack() {
+        CompactValueSerializer serializer = new CompactValueSerializer(json, 4096);
+        List<String> large = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            large.add("用户最近在准备期末考试，有点焦虑" + i);
+        }
+
+        byte[] encoded = serializer.serialize(large);
+        assertEquals(CompactValueSerializer.V1_DEFLATE_JSON, encoded[0]);
+        assertTrue(encoded.length * 4 < json.serialize(large).length);
+        assertEquals(large, serializer.deserialize(encoded));
+
+        // 只写JSON的配置仍能读取压缩条目
+        assertEquals(large, new CompactValueSerializer(json, 0).deserialize(encoded));
+    }
+
+    @Test
+    void valuesThatDoNotShrinkStayPlainJson() {
+        CompactValueSerializer serializer = new CompactValueSerializer(json, 1);
+
+        assertArrayEquals(json.serialize("ok"), serializer.serialize("ok"));
+    }
+
+    @Test
+    void unknownFormatVersionAndTruncatedValuesAreRejected() {
+        CompactValueSerializer serializer = new CompactValueSerializer(json, 16);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(new byte[]{(byte) 0xE7, 1, 2}));
+
+        byte[] encoded = serializer.serialize("记".repeat(200));
+        byte[] truncated = java.util.Arrays.copyOf(encoded, encoded.length / 2);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(truncated));
+
+        // 失败的解压不影响后续复用的编解码器
+        assertEquals("记".repeat(200), serializer.deserialize(encoded));
+    }
+
+    @Test
+    void keepsWorkingAfterClose() {
+        CompactValueSerializer serializer = new CompactValueSerializer(json, 16);
+        byte[] encoded = serializer.serialize("记".repeat(200));
+        serializer.close();
+
+        assertEquals("记".repeat(200), serializer.deserialize(encoded));
+        assertArrayEquals(encoded, serializer.serialize("记".repeat(200)));
+    }
+}
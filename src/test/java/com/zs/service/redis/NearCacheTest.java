@@ -0,0 +1,110 @@
+// File: src/test/java/com/zs/service/redis/NearCacheTest.java
+package com.zs.service.redis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NearCacheTest {
+
+    private static final String REGION = "test";
+
+    private RedisTemplate<String, Object> redisTemplate;
+    private NearCache nearCache;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        nearCache = new NearCache(redisTemplate, mock(RedisMessageListenerContainer.class));
+        ReflectionTestUtils.setField(nearCache, "enabled", true);
+        ReflectionTestUtils.setField(nearCache, "maxSize", 100);
+        ReflectionTestUtils.setField(nearCache, "ttlSeconds", 30L);
+    }
+
+    @Test
+    void loadsOnceAndServesFromLocalCopy() {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("v1", nearCache.get(REGION, 1L, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", nearCache.get(REGION, 1L, () -> "v" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void evictDuringLoadDiscardsLoadedValue() {
+        Object loaded = nearCache.get(REGION, 1L, () -> {
+            nearCache.evict(REGION, 1L);
+            return "stale";
+        });
+        assertEquals("stale", loaded);
+        assertNull(nearCache.peek(REGION, 1L));
+    }
+
+    @Test
+    void putDuringLoadIsNotOverwritten() {
+        nearCache.get(REGION, 1L, () -> {
+            nearCache.put(REGION, 1L, "fresh");
+            return "stale";
+        });
+        assertEquals("fresh", nearCache.peek(REGION, 1L));
+    }
+
+    @Test
+    void segmentsBoundRegionSizeAndEvictLeastRecentlyUsed() {
+        for (long userId = 0; userId < 1000; userId++) {
+            nearCache.put(REGION, userId, "v");
+        }
+        // 16段，每段上限ceil(100/16)=7
+        assertTrue(nearCache.size(REGION) <= 16 * 7, "size=" + nearCache.size(REGION));
+
+        ReflectionTestUtils.setField(nearCache, "segments", 1);
+        ReflectionTestUtils.setField(nearCache, "maxSize", 2);
+        nearCache.put("lru", 1L, "a");
+        nearCache.put("lru", 2L, "b");
+        nearCache.get("lru", 1L, () -> "reloaded");
+        nearCache.put("lru", 3L, "c");
+        assertEquals("a", nearCache.peek("lru", 1L));
+        assertNull(nearCache.peek("lru", 2L));
+        assertEquals("c", nearCache.peek("lru", 3L));
+    }
+
+    @Test
+    void invalidationFromOtherNodeRemovesLocalCopy() {
+        doReturn(RedisSerializer.string()).when(redisTemplate).getValueSerializer();
+        nearCache.put(REGION, 1L, "v");
+        nearCache.put(REGION, 2L, "v");
+
+        String nodeId = (String) ReflectionTestUtils.getField(nearCache, "nodeId");
+        nearCache.onMessage(message(nodeId + "|" + REGION + "|1"), null);
+        assertEquals("v", nearCache.peek(REGION, 1L));
+
+        nearCache.onMessage(message("other-node|" + REGION + "|1"), null);
+        assertNull(nearCache.peek(REGION, 1L));
+        assertEquals("v", nearCache.peek(REGION, 2L));
+    }
+
+    @Test
+    void invalidationDuringLoadFromOtherNodeDiscardsLoadedValue() {
+        doReturn(RedisSerializer.string()).when(redisTemplate).getValueSerializer();
+        nearCache.get(REGION, 1L, () -> {
+            nearCache.onMessage(message("other-node|" + REGION + "|1"), null);
+            return "stale";
+        });
+        assertNull(nearCache.peek(REGION, 1L));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage("nearcache:invalidate".getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}